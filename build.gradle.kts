@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.5.4"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.springai"
@@ -21,6 +22,8 @@ extra["springAiVersion"] = "1.0.0"
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
+    // Micrometer registry that the MeterBinder beans (router, scheduler, caches) are bound to
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
 
     // Spring AI models
     implementation("org.springframework.ai:spring-ai-starter-model-openai")
@@ -55,7 +58,50 @@ dependencyManagement {
     }
 }
 
+// The SIMD similarity kernel uses the incubating Vector API; without the module at runtime
+// the vector stores fall back to a scalar kernel
+tasks.withType<JavaCompile> {
+    options.compilerArgs.add("--add-modules=jdk.incubator.vector")
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
-    jvmArgs = listOf("-Xshare:off", "-XX:+EnableDynamicAgentLoading")
+    jvmArgs = listOf("-Xshare:off", "-XX:+EnableDynamicAgentLoading", "--add-modules=jdk.incubator.vector")
+    // Cached test application contexts stay open side by side, and the mmap vector store locks its
+    // directory, so each context gets its own
+    systemProperty("app.vectorstore.mmap.directory", "build/test-vector-stores/\${random.uuid}")
+    // Load test sizes, e.g. gradle test --tests '*McpServerLoadTests' -Dmcp.load.sessions=1000
+    System.getProperties().stringPropertyNames().filter { it.startsWith("mcp.load.") }
+        .forEach { systemProperty(it, System.getProperty(it)) }
+}
+
+// Timing comparisons are tagged benchmark and left out of the test task, where a loaded machine
+// would make them fail; run them with gradle benchmarkTest
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+val benchmarkTest by tasks.registering(Test::class) {
+    description = "Runs the tests tagged benchmark."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+}
+
+// JMH benchmarks in src/jmh/java, e.g. gradle jmh -PjmhIncludes=PromptRenderingBenchmark
+jmh {
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    jvmArgs = listOf("--add-modules=jdk.incubator.vector")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
+
+tasks.named<org.springframework.boot.gradle.tasks.run.BootRun>("bootRun") {
+    jvmArgs("--add-modules=jdk.incubator.vector")
 }
@@ -0,0 +1,55 @@
+package com.springai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Rendering cost of movie_prompt with Spring AI's PromptTemplate, created per call or reused,
+ * and with {@link CompiledPromptTemplate}. Add {@code -prof gc} to the JMH arguments for bytes
+ * allocated per render.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PromptRenderingBenchmark {
+
+    private static final Map<String, Object> MOVIE_VALUES = Map.of("number", 5, "composer", "John Williams");
+
+    private String text;
+    private PromptTemplate reused;
+    private CompiledPromptTemplate compiled;
+
+    @Setup
+    public void compile() throws IOException {
+        text = new ClassPathResource("movie_prompt.st").getContentAsString(StandardCharsets.UTF_8);
+        reused = new PromptTemplate(text);
+        compiled = CompiledPromptTemplate.compile("movie_prompt", text);
+    }
+
+    @Benchmark
+    public String promptTemplatePerCall() {
+        return new PromptTemplate(text).render(MOVIE_VALUES);
+    }
+
+    @Benchmark
+    public String promptTemplateReused() {
+        return reused.render(MOVIE_VALUES);
+    }
+
+    @Benchmark
+    public String compiledPromptTemplate() {
+        return compiled.render(MOVIE_VALUES);
+    }
+}
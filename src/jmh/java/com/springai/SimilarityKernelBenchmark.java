@@ -0,0 +1,60 @@
+package com.springai;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time to score one query against a block of 5000 embeddings of 1536 dimensions, with the scalar
+ * and the Vector API kernels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SimilarityKernelBenchmark {
+
+    private static final int DIMENSIONS = 1536;
+    private static final int COUNT = 5000;
+
+    private final SimilarityKernel scalar = new ScalarSimilarityKernel();
+    private final SimilarityKernel simd = new VectorApiSimilarityKernel();
+
+    private float[] query;
+    private float[] block;
+    private float[] scores;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(3);
+        query = randomVector(random, DIMENSIONS);
+        block = randomVector(random, COUNT * DIMENSIONS);
+        scores = new float[COUNT];
+    }
+
+    @Benchmark
+    public float[] scalarBlockScoring() {
+        scalar.dot(query, block, 0, DIMENSIONS, COUNT, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] vectorApiBlockScoring() {
+        simd.dot(query, block, 0, DIMENSIONS, COUNT, scores);
+        return scores;
+    }
+
+    private static float[] randomVector(Random random, int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
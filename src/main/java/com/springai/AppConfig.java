@@ -1,8 +1,13 @@
 package com.springai;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
-import org.springframework.ai.document.Document;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.reader.jsoup.JsoupDocumentReader;
 import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
@@ -12,10 +17,15 @@ import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
 
 @Configuration
 public class AppConfig {
@@ -27,31 +37,177 @@ public class AppConfig {
     @Value("classpath:/pdfs/WEF_Future_of_Jobs_Report_2025.pdf")
     private Resource jobsReport2025;
 
+    // Optional JSON file the in-memory vector store is loaded from and saved to
+    @Value("${app.vectorstore.file:}")
+    private String vectorStoreFile;
+
+    @Value("${app.ingestion.manifest-file:./target/ingestion-manifest.json}")
+    private String manifestFile;
+
+    @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}")
+    private String embeddingModelName;
+
     @Bean
     @Profile("rag")
-    ApplicationRunner loadVectorStore(VectorStore vectorStore) {
+    ApplicationRunner loadVectorStore(VectorStore vectorStore, EmbeddingModel embeddingModel, Environment environment,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.ingestion.reader-threads:2}") int readerThreads,
+            @Value("${app.ingestion.splitter-threads:2}") int splitterThreads,
+            @Value("${app.ingestion.embedder-threads:4}") int embedderThreads,
+            @Value("${app.ingestion.writer-threads:1}") int writerThreads,
+            @Value("${app.ingestion.queue-capacity:256}") int queueCapacity,
+            @Value("${app.ingestion.embedding-batch-size:64}") int embeddingBatchSize) {
         return args -> {
             System.out.println("Using vector store: " + vectorStore.getClass().getSimpleName());
 
-            // TODO: Implement document loading and processing
-            // 1. Check if using Redis and if data already exists (for efficiency)
-            // 2. Load documents from various sources:
-            //    - PDF documents using PagePdfDocumentReader
-            //    - Web pages using JsoupDocumentReader  
-            // 3. Split documents using TextSplitter
-            // 4. Add processed documents to vector store
-            
-            System.out.println("TODO: Document loading and vector store population not yet implemented");
-            System.out.println("Available sources: " + SPRING_URL + ", " + FEUD_URL + ", " + jobsReport2025.getFilename());
+            // Only trust the manifest if the store it describes survived the restart
+            IngestionManifest manifest = manifestFor(vectorStore, environment);
+
+            List<IngestionPipeline.Source> sources = new ArrayList<>();
+            sources.add(new IngestionPipeline.Source(SPRING_URL, new JsoupDocumentReader(SPRING_URL),
+                    Map.of("source", "spring_framework")));
+            sources.add(new IngestionPipeline.Source(FEUD_URL, new JsoupDocumentReader(FEUD_URL),
+                    Map.of("source", "drake_feud")));
+            if (jobsReport2025.exists()) {
+                sources.add(new IngestionPipeline.Source(jobsReport2025.getDescription(),
+                        new PagePdfDocumentReader(jobsReport2025),
+                        Map.of("source", "wef_jobs_report", "type", "pdf")));
+            }
+            else {
+                System.out.println("Skipping missing PDF: " + jobsReport2025.getFilename());
+            }
+
+            // Ingestion only gets the rate limit that interactive queries leave over
+            EmbeddingModel ingestionEmbeddingModel = ModelCallScheduler.withContext(embeddingModel, "ingestion",
+                    ModelCallScheduler.Priority.BACKGROUND);
+            IngestionPipeline pipeline = IngestionPipeline.builder(ingestionEmbeddingModel, vectorStore)
+                    .splitter(splitter)
+                    .readerThreads(readerThreads)
+                    .splitterThreads(splitterThreads)
+                    .embedderThreads(embedderThreads)
+                    .writerThreads(writerThreads)
+                    .queueCapacity(queueCapacity)
+                    .embeddingBatchSize(embeddingBatchSize)
+                    .manifest(manifest)
+                    .build();
+
+            System.out.println("Loading " + sources.size() + " sources into vector store");
+            IngestionReport report = pipeline.run(sources);
+            System.out.println(report);
+
+            if (vectorStore instanceof SimpleVectorStore simpleVectorStore && !vectorStoreFile.isBlank()) {
+                simpleVectorStore.save(new File(vectorStoreFile));
+            }
+            if (vectorStore instanceof MappedVectorStore mappedVectorStore) {
+                mappedVectorStore.flush();
+            }
+            manifest.save();
+            if (report.chunks() > 0 || report.deletedChunks() > 0) {
+                eventPublisher.publishEvent(new VectorStoreChangedEvent(report.chunks(), report.deletedChunks()));
+            }
         };
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "app.rag.cache.enabled", havingValue = "true", matchIfMissing = true)
+    SemanticResponseCache semanticResponseCache(EmbeddingModel embeddingModel,
+            @Value("${app.rag.cache.similarity-threshold:0.92}") double similarityThreshold,
+            @Value("${app.rag.cache.ttl:1h}") Duration timeToLive,
+            @Value("${app.rag.cache.max-entries:1000}") int maxEntries) {
+        // Answers paraphrased questions from earlier responses; cleared by VectorStoreChangedEvent
+        return SemanticResponseCache.builder(embeddingModel)
+                .similarityThreshold(similarityThreshold)
+                .timeToLive(timeToLive)
+                .maxEntries(maxEntries)
+                .build();
+    }
+
+    @Bean
+    PromptTemplateRegistry promptTemplateRegistry(
+            @Value("${app.prompts.location:classpath*:*.st}") Resource[] templates,
+            @Value("${app.prompts.max-inline-templates:256}") int maxInlineTemplates) {
+        // Parsed once here rather than by StringTemplate on every render; bad placeholders fail startup
+        return PromptTemplateRegistry.builder()
+                .resources(templates)
+                .expect("movie_prompt", "number", "composer")
+                .expect("filmography_prompt", "actor")
+                .maxInlineTemplates(maxInlineTemplates)
+                .build();
+    }
+
+    @Bean
+    ChatClientCustomizer promptTemplateRendererCustomizer(PromptTemplateRegistry promptTemplateRegistry) {
+        // Injected ChatClient.Builders render .text(template).param(...) with the compiled templates
+        return builder -> builder.defaultTemplateRenderer(promptTemplateRegistry);
+    }
+
+    private IngestionManifest manifestFor(VectorStore vectorStore, Environment environment) {
+        Path path = Path.of(manifestFile);
+        String fingerprint = embeddingModelName + "/" + splitter.getClass().getSimpleName();
+        if (environment.acceptsProfiles(Profiles.of("redis"))) {
+            return IngestionManifest.load(path, fingerprint);
+        }
+        if (vectorStore instanceof MappedVectorStore mappedVectorStore) {
+            return mappedVectorStore.size() > 0
+                    ? IngestionManifest.load(path, fingerprint)
+                    : IngestionManifest.create(path, fingerprint);
+        }
+        if (vectorStore instanceof SimpleVectorStore && !vectorStoreFile.isBlank()) {
+            return new File(vectorStoreFile).exists()
+                    ? IngestionManifest.load(path, fingerprint)
+                    : IngestionManifest.create(path, fingerprint);
+        }
+        // hnsw and quantized stores start empty, so everything is embedded again on each start
+        return IngestionManifest.inMemory();
+    }
+
     @Bean
     @Profile("!redis")
-    VectorStore simpleVectorStore(EmbeddingModel embeddingModel) {
-        // TODO: Create and configure SimpleVectorStore
-        // This is the default in-memory vector store
-        return SimpleVectorStore.builder(embeddingModel).build();
+    VectorStore simpleVectorStore(EmbeddingModel embeddingModel,
+            @Value("${app.vectorstore.type:mmap}") String type,
+            @Value("${app.vectorstore.hnsw.m:16}") int m,
+            @Value("${app.vectorstore.hnsw.ef-construction:200}") int efConstruction,
+            @Value("${app.vectorstore.hnsw.ef-search:64}") int efSearch,
+            @Value("${app.vectorstore.mmap.directory:./target/vector-store}") String mmapDirectory,
+            @Value("${app.vectorstore.mmap.segment-size:64MB}") DataSize mmapSegmentSize,
+            @Value("${app.vectorstore.quantization:int8}") String quantization,
+            @Value("${app.vectorstore.quantized.rerank-factor:4}") int rerankFactor,
+            @Value("${app.vectorstore.quantized.directory:}") String quantizedDirectory) {
+        if (type.equals("hnsw")) {
+            // In-memory approximate nearest neighbour index; avoids the linear scan of SimpleVectorStore
+            return HnswVectorStore.builder(embeddingModel)
+                    .m(m)
+                    .efConstruction(efConstruction)
+                    .efSearch(efSearch)
+                    .build();
+        }
+        if (type.equals("mmap")) {
+            // Vectors stay in a memory-mapped file and are searched in place; reopens without reloading
+            return MappedVectorStore.builder(embeddingModel, Path.of(mmapDirectory))
+                    .segmentBytes(mmapSegmentSize.toBytes())
+                    .build();
+        }
+        if (type.equals("quantized")) {
+            // Scans int8 or binary codes, then re-ranks the best candidates with full-precision vectors
+            QuantizedVectorStore.Builder builder = QuantizedVectorStore.builder(embeddingModel)
+                    .quantization(QuantizedVectorStore.Quantization.valueOf(quantization.toUpperCase()))
+                    .rerankFactor(rerankFactor)
+                    .segmentBytes(mmapSegmentSize.toBytes());
+            if (!quantizedDirectory.isBlank()) {
+                builder.directory(Path.of(quantizedDirectory));
+            }
+            return builder.build();
+        }
+        if (!type.equals("simple")) {
+            throw new IllegalArgumentException("Unknown app.vectorstore.type: " + type);
+        }
+
+        // Brute-force in-memory vector store; also accepts embeddings computed by the ingestion pipeline
+        SimpleEmbeddingVectorStore vectorStore = new SimpleEmbeddingVectorStore(embeddingModel);
+        if (!vectorStoreFile.isBlank() && new File(vectorStoreFile).exists()) {
+            vectorStore.load(new File(vectorStoreFile));
+        }
+        return vectorStore;
     }
 
     // TODO: Add Redis VectorStore configuration
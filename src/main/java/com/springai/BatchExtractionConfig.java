@@ -0,0 +1,59 @@
+package com.springai;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.model.openai.autoconfigure.OpenAiChatProperties;
+import org.springframework.ai.model.openai.autoconfigure.OpenAiConnectionProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Extracts {@link ActorFilms} for many actors at once with {@link BatchExtractor}, from the
+ * filmography_prompt template. In parallel mode the requests go through the primary chat model,
+ * and so through its routing and rate limits; in batch mode they go to the OpenAI Batch API
+ * with the configured OpenAI connection and chat model.
+ */
+@Configuration
+public class BatchExtractionConfig {
+
+    @Bean
+    public BatchExtractor<ActorFilms> filmographyExtractor(ChatModel chatModel,
+            PromptTemplateRegistry promptTemplateRegistry,
+            OpenAiConnectionProperties openAiConnection,
+            OpenAiChatProperties openAiChat,
+            @Value("${app.extraction.mode:parallel}") String mode,
+            @Value("${app.extraction.concurrency:8}") int concurrency,
+            @Value("${app.extraction.checkpoint-file:./target/extraction-checkpoint.jsonl}") String checkpointFile,
+            @Value("${app.extraction.batch.max-requests:50000}") int maxRequestsPerBatch,
+            @Value("${app.extraction.batch.poll-interval:30s}") Duration pollInterval,
+            @Value("${app.extraction.batch.max-wait:25h}") Duration maxWait,
+            @Value("${app.extraction.batch.price-factor:0.5}") double batchPriceFactor,
+            @Value("${app.extraction.price.input-per-million:0}") double inputPricePerMillion,
+            @Value("${app.extraction.price.output-per-million:0}") double outputPricePerMillion) {
+        CompiledPromptTemplate prompt = promptTemplateRegistry.get("filmography_prompt");
+        BatchExtractor.Builder<ActorFilms> builder = BatchExtractor.builder(ActorFilms.class)
+                .prompt(actor -> prompt.render(Map.of("actor", actor)))
+                .checkpointFile(checkpointFile.isBlank() ? null : Path.of(checkpointFile))
+                .pricing(inputPricePerMillion, outputPricePerMillion)
+                .batchPriceFactor(batchPriceFactor);
+        if (mode.equals("batch")) {
+            OpenAiBatchClient batchClient = OpenAiBatchClient.builder()
+                    .baseUrl(openAiConnection.getBaseUrl())
+                    .apiKey(openAiConnection.getApiKey())
+                    .build();
+            return builder.batchClient(batchClient, openAiChat.getOptions().getModel())
+                    .maxRequestsPerBatch(maxRequestsPerBatch)
+                    .pollInterval(pollInterval)
+                    .maxWait(maxWait)
+                    .build();
+        }
+        if (!mode.equals("parallel")) {
+            throw new IllegalArgumentException("Unknown app.extraction.mode: " + mode);
+        }
+        return builder.chatModel(chatModel, concurrency).build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.springai;
+
+import java.time.Duration;
+
+/**
+ * Summary of one {@link BatchExtractor} run. {@code extracted} counts inputs answered by the
+ * model in this run, {@code resumed} those already in the checkpoint; tokens and cost cover this
+ * run's requests only, priced at the batch rate in batch mode.
+ */
+public record BatchExtractionReport(
+        String mode,
+        int inputs,
+        int extracted,
+        int resumed,
+        int failed,
+        int batches,
+        long promptTokens,
+        long completionTokens,
+        double cost,
+        Duration elapsed
+) {
+
+    public double extractedPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? 0 : extracted / seconds;
+    }
+
+    /** Cost per 1000 extracted inputs, in the currency of the configured prices. */
+    public double costPerThousand() {
+        return extracted == 0 ? 0 : cost * 1000 / extracted;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                """
+                        Extraction Report (%s):
+                        Inputs: %d
+                        Extracted: %d
+                        Resumed from checkpoint: %d
+                        Failed: %d
+                        Batches: %d
+                        Tokens: %d prompt, %d completion
+                        Cost: $%.4f ($%.4f per 1000)
+                        Elapsed: %.2f s
+                        Throughput: %.1f inputs/s""",
+                mode, inputs, extracted, resumed, failed, batches, promptTokens, completionTokens, cost,
+                costPerThousand(), elapsed.toMillis() / 1000.0, extractedPerSecond());
+    }
+}
@@ -0,0 +1,561 @@
+package com.springai;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+/**
+ * Extracts a typed value, such as {@link ActorFilms}, for each of a large list of inputs, instead
+ * of one ChatClient call after the other.
+ *
+ * Each input is turned into a user message by {@code prompt}, followed by the format instructions
+ * of a {@link BeanOutputConverter} for the type. Requests are then either sent to the chat model
+ * with at most {@code concurrency} in flight, as background calls of the "extraction" tenant for
+ * the {@link ModelCallScheduler} so they only get the rate limit that interactive traffic leaves
+ * over, or, with an {@link OpenAiBatchClient}, packed into
+ * OpenAI batch jobs of at most {@code maxRequestsPerBatch} requests that are polled every
+ * {@code pollInterval} until they finish: slower, but at half the price. A run waits at most
+ * {@code maxWait} for its batches; those still running then are collected by a later run.
+ *
+ * With a checkpoint file, every extracted value and every submitted batch is appended to it as a
+ * JSON line as soon as it is known. A later run over the same inputs skips the values already
+ * there and collects batches that were submitted but not yet collected rather than submitting
+ * them again, so a stopped run loses at most the requests in flight. Inputs that failed are tried
+ * again. Delete the file to start over, for example after changing the prompt.
+ */
+public class BatchExtractor<T> {
+
+    /** Tenant of the chat calls of parallel mode for the {@link ModelCallScheduler}. */
+    public static final String TENANT = "extraction";
+
+    private final Class<T> type;
+    private final BeanOutputConverter<T> converter;
+    private final Function<String, String> prompt;
+    private final ChatModel chatModel;
+    private final int concurrency;
+    private final OpenAiBatchClient batchClient;
+    private final String model;
+    private final int maxRequestsPerBatch;
+    private final Duration pollInterval;
+    private final Duration maxWait;
+    private final Path checkpointFile;
+    private final double inputPricePerMillion;
+    private final double outputPricePerMillion;
+    private final double batchPriceFactor;
+    private final ObjectMapper objectMapper;
+
+    private BatchExtractor(Builder<T> builder) {
+        this.type = builder.type;
+        this.converter = new BeanOutputConverter<>(builder.type);
+        this.prompt = builder.prompt;
+        this.chatModel = builder.chatModel;
+        this.concurrency = builder.concurrency;
+        this.batchClient = builder.batchClient;
+        this.model = builder.model;
+        this.maxRequestsPerBatch = builder.maxRequestsPerBatch;
+        this.pollInterval = builder.pollInterval;
+        this.maxWait = builder.maxWait;
+        this.checkpointFile = builder.checkpointFile;
+        this.inputPricePerMillion = builder.inputPricePerMillion;
+        this.outputPricePerMillion = builder.outputPricePerMillion;
+        this.batchPriceFactor = builder.batchPriceFactor;
+        this.objectMapper = builder.objectMapper;
+    }
+
+    public static <T> Builder<T> builder(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    /**
+     * Values by input, in input order, and why the inputs without a value failed.
+     */
+    public record Result<T>(Map<String, T> values, Map<String, String> failures, BatchExtractionReport report) {
+    }
+
+    /**
+     * Extracts a value for every distinct input, resuming from the checkpoint file if there is one.
+     *
+     * @throws IllegalStateException if interrupted or if batches are still running after
+     *         {@code maxWait}; what was extracted and submitted so far is in the checkpoint
+     */
+    public Result<T> run(List<String> inputs) {
+        long started = System.nanoTime();
+        List<String> distinct = List.copyOf(new LinkedHashSet<>(inputs));
+        try (Checkpoint checkpoint = Checkpoint.open(checkpointFile, objectMapper)) {
+            Run run = new Run(checkpoint);
+            List<String> todo = new ArrayList<>();
+            int resumed = 0;
+            for (String input : distinct) {
+                JsonNode value = checkpoint.values.get(input);
+                if (value == null) {
+                    todo.add(input);
+                    continue;
+                }
+                try {
+                    run.values.put(input, objectMapper.treeToValue(value, type));
+                    resumed++;
+                }
+                catch (JsonProcessingException e) {
+                    todo.add(input);
+                }
+            }
+            if (batchClient != null) {
+                runBatches(todo, run);
+            }
+            else {
+                runParallel(todo, run);
+            }
+
+            Map<String, T> values = new LinkedHashMap<>();
+            Map<String, String> failures = new LinkedHashMap<>();
+            for (String input : distinct) {
+                if (run.values.containsKey(input)) {
+                    values.put(input, run.values.get(input));
+                }
+                else {
+                    failures.put(input, run.failures.getOrDefault(input, "No answer"));
+                }
+            }
+            long promptTokens = run.promptTokens.get();
+            long completionTokens = run.completionTokens.get();
+            double cost = (promptTokens * inputPricePerMillion + completionTokens * outputPricePerMillion) / 1e6
+                    * (batchClient != null ? batchPriceFactor : 1);
+            BatchExtractionReport report = new BatchExtractionReport(batchClient != null ? "batch" : "parallel",
+                    distinct.size(), values.size() - resumed, resumed, failures.size(), run.batches.get(),
+                    promptTokens, completionTokens, cost, Duration.ofNanos(System.nanoTime() - started));
+            return new Result<>(Collections.unmodifiableMap(values), Collections.unmodifiableMap(failures), report);
+        }
+    }
+
+    private String userText(String input) {
+        return prompt.apply(input) + System.lineSeparator() + converter.getFormat();
+    }
+
+    private void runParallel(List<String> todo, Run run) {
+        // Virtual threads are unbounded, the semaphore keeps the model calls within concurrency
+        ExecutorService executor = VirtualThreads.newExecutor("extraction", concurrency);
+        Semaphore permits = new Semaphore(concurrency);
+        try {
+            List<Future<?>> calls = new ArrayList<>(todo.size());
+            for (String input : todo) {
+                permits.acquire();
+                calls.add(executor.submit(() -> {
+                    try {
+                        Prompt request = new Prompt(userText(input));
+                        // Bulk work must not compete with live conversations for the rate limit
+                        ChatResponse response = ModelCallScheduler.callAs(TENANT,
+                                ModelCallScheduler.Priority.BACKGROUND, () -> chatModel.call(request));
+                        Usage usage = response.getMetadata().getUsage();
+                        run.completed(input, response.getResult().getOutput().getText(), usage.getPromptTokens(),
+                                usage.getCompletionTokens());
+                    }
+                    catch (RuntimeException e) {
+                        run.failed(input, String.valueOf(e.getMessage()));
+                    }
+                    finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while extracting", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Extraction failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runBatches(List<String> todo, Run run) {
+        // Batches an earlier run submitted but did not get to collect
+        Map<String, List<String>> open = new LinkedHashMap<>(run.checkpoint.openBatches);
+        Set<String> submitted = new HashSet<>();
+        open.values().forEach(submitted::addAll);
+        List<String> rest = todo.stream().filter(input -> !submitted.contains(input)).toList();
+
+        for (int from = 0; from < rest.size(); from += maxRequestsPerBatch) {
+            List<String> requests = rest.subList(from, Math.min(rest.size(), from + maxRequestsPerBatch));
+            StringBuilder jsonl = new StringBuilder();
+            for (int i = 0; i < requests.size(); i++) {
+                ObjectNode line = objectMapper.createObjectNode()
+                        .put("custom_id", String.valueOf(i))
+                        .put("method", "POST")
+                        .put("url", OpenAiBatchClient.CHAT_COMPLETIONS);
+                ObjectNode body = line.putObject("body").put("model", model);
+                body.putArray("messages").addObject().put("role", "user").put("content", userText(requests.get(i)));
+                jsonl.append(line).append('\n');
+            }
+            String fileId = batchClient.uploadFile("extraction-" + from + ".jsonl", jsonl.toString());
+            OpenAiBatchClient.Batch batch = batchClient.createBatch(fileId);
+            run.checkpoint.batchSubmitted(batch.id(), requests);
+            open.put(batch.id(), requests);
+            run.batches.incrementAndGet();
+        }
+
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (!open.isEmpty()) {
+            for (Iterator<Map.Entry<String, List<String>>> it = open.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, List<String>> entry = it.next();
+                OpenAiBatchClient.Batch batch = batchClient.getBatch(entry.getKey());
+                if (batch.finished()) {
+                    collect(batch, entry.getValue(), run);
+                    run.checkpoint.batchCollected(batch.id());
+                    it.remove();
+                }
+            }
+            if (!open.isEmpty()) {
+                if (System.nanoTime() + pollInterval.toNanos() > deadline) {
+                    throw new IllegalStateException("Batches " + open.keySet() + " still running after " + maxWait
+                            + ", run again to collect them");
+                }
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for batches " + open.keySet(), e);
+                }
+            }
+        }
+    }
+
+    private void collect(OpenAiBatchClient.Batch batch, List<String> requests, Run run) {
+        Set<String> answered = new HashSet<>();
+        for (String fileId : new String[] { batch.outputFileId(), batch.errorFileId() }) {
+            if (fileId == null) {
+                continue;
+            }
+            batchClient.readLines(fileId, line -> {
+                if (line.isBlank()) {
+                    return;
+                }
+                JsonNode result;
+                try {
+                    result = objectMapper.readTree(line);
+                }
+                catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Unreadable line in output of batch " + batch.id(), e);
+                }
+                String input = requests.get(Integer.parseInt(result.path("custom_id").asText()));
+                answered.add(input);
+                JsonNode response = result.path("response");
+                JsonNode body = response.path("body");
+                if (response.path("status_code").asInt() == 200) {
+                    JsonNode usage = body.path("usage");
+                    run.completed(input, body.path("choices").path(0).path("message").path("content").asText(),
+                            usage.path("prompt_tokens").asInt(), usage.path("completion_tokens").asInt());
+                }
+                else {
+                    JsonNode error = result.path("error").isObject() ? result.path("error") : body.path("error");
+                    run.failed(input, "Batch request failed: " + error.path("message").asText("no details"));
+                }
+            });
+        }
+        for (String input : requests) {
+            if (!answered.contains(input)) {
+                run.failed(input, "Batch " + batch.id() + " " + batch.status());
+            }
+        }
+    }
+
+    /** Values, failures and token counts of one run. */
+    private class Run {
+
+        private final Checkpoint checkpoint;
+        private final Map<String, T> values = new ConcurrentHashMap<>();
+        private final Map<String, String> failures = new ConcurrentHashMap<>();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong completionTokens = new AtomicLong();
+        private final AtomicInteger batches = new AtomicInteger();
+
+        Run(Checkpoint checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+
+        void completed(String input, String text, Integer prompt, Integer completion) {
+            promptTokens.addAndGet(prompt == null ? 0 : prompt);
+            completionTokens.addAndGet(completion == null ? 0 : completion);
+            T value;
+            try {
+                value = converter.convert(text);
+            }
+            catch (RuntimeException e) {
+                failed(input, "Could not parse answer: " + e.getMessage());
+                return;
+            }
+            if (value == null) {
+                failed(input, "Empty answer");
+                return;
+            }
+            values.put(input, value);
+            checkpoint.value(input, objectMapper.valueToTree(value));
+        }
+
+        void failed(String input, String reason) {
+            failures.put(input, reason);
+        }
+    }
+
+    /**
+     * Append-only JSON lines file: {@code {"input", "value"}} per extracted value,
+     * {@code {"batch", "inputs"}} per submitted batch and {@code {"collected"}} once a batch's
+     * results are in. A torn last line, left by a crash, is ignored.
+     */
+    private static final class Checkpoint implements AutoCloseable {
+
+        private final ObjectMapper objectMapper;
+        private final BufferedWriter writer;
+        final Map<String, JsonNode> values = new HashMap<>();
+        final Map<String, List<String>> openBatches = new LinkedHashMap<>();
+
+        private Checkpoint(Path file, ObjectMapper objectMapper) throws IOException {
+            this.objectMapper = objectMapper;
+            if (file == null) {
+                this.writer = null;
+                return;
+            }
+            boolean tornLine = false;
+            if (Files.exists(file)) {
+                String content = Files.readString(file);
+                for (String line : content.split("\n")) {
+                    read(line);
+                }
+                tornLine = !content.isEmpty() && !content.endsWith("\n");
+            }
+            else if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            if (tornLine) {
+                // Keep the next record off the torn line
+                writer.newLine();
+            }
+        }
+
+        static Checkpoint open(Path file, ObjectMapper objectMapper) {
+            try {
+                return new Checkpoint(file, objectMapper);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Could not open extraction checkpoint " + file, e);
+            }
+        }
+
+        private void read(String line) {
+            if (line.isBlank()) {
+                return;
+            }
+            JsonNode record;
+            try {
+                record = objectMapper.readTree(line);
+            }
+            catch (JsonProcessingException e) {
+                return;
+            }
+            if (record.has("input") && record.has("value")) {
+                values.put(record.get("input").asText(), record.get("value"));
+            }
+            else if (record.has("batch")) {
+                List<String> inputs = new ArrayList<>();
+                record.path("inputs").forEach(input -> inputs.add(input.asText()));
+                openBatches.put(record.get("batch").asText(), inputs);
+            }
+            else if (record.has("collected")) {
+                openBatches.remove(record.get("collected").asText());
+            }
+        }
+
+        void value(String input, JsonNode value) {
+            ObjectNode record = objectMapper.createObjectNode().put("input", input);
+            record.set("value", value);
+            append(record);
+        }
+
+        void batchSubmitted(String batchId, List<String> inputs) {
+            ObjectNode record = objectMapper.createObjectNode().put("batch", batchId);
+            inputs.forEach(record.putArray("inputs")::add);
+            append(record);
+        }
+
+        void batchCollected(String batchId) {
+            append(objectMapper.createObjectNode().put("collected", batchId));
+        }
+
+        private synchronized void append(JsonNode record) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.write(record.toString());
+                writer.newLine();
+                writer.flush();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Could not write extraction checkpoint", e);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException("Could not close extraction checkpoint", e);
+                }
+            }
+        }
+    }
+
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private Function<String, String> prompt = Function.identity();
+        private ChatModel chatModel;
+        private int concurrency = 8;
+        private OpenAiBatchClient batchClient;
+        private String model;
+        private int maxRequestsPerBatch = 50_000;
+        private Duration pollInterval = Duration.ofSeconds(30);
+        private Duration maxWait = Duration.ofHours(25);
+        private Path checkpointFile;
+        private double inputPricePerMillion;
+        private double outputPricePerMillion;
+        private double batchPriceFactor = 0.5;
+        private ObjectMapper objectMapper = new ObjectMapper();
+
+        private Builder(Class<T> type) {
+            this.type = Objects.requireNonNull(type, "type must not be null");
+        }
+
+        /** Turns an input into the user message; the format instructions are appended to it. */
+        public Builder<T> prompt(Function<String, String> prompt) {
+            this.prompt = Objects.requireNonNull(prompt, "prompt must not be null");
+            return this;
+        }
+
+        /** Sends each input as its own chat request, at most {@code concurrency} at a time. */
+        public Builder<T> chatModel(ChatModel chatModel, int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1");
+            }
+            this.chatModel = Objects.requireNonNull(chatModel, "chatModel must not be null");
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /** Sends the inputs as OpenAI batch jobs for the given model instead. */
+        public Builder<T> batchClient(OpenAiBatchClient batchClient, String model) {
+            if (model == null || model.isBlank()) {
+                throw new IllegalArgumentException("model must not be blank");
+            }
+            this.batchClient = Objects.requireNonNull(batchClient, "batchClient must not be null");
+            this.model = model;
+            return this;
+        }
+
+        /** OpenAI accepts up to 50,000 requests per batch. */
+        public Builder<T> maxRequestsPerBatch(int maxRequestsPerBatch) {
+            if (maxRequestsPerBatch < 1 || maxRequestsPerBatch > 50_000) {
+                throw new IllegalArgumentException("maxRequestsPerBatch must be in [1, 50000]");
+            }
+            this.maxRequestsPerBatch = maxRequestsPerBatch;
+            return this;
+        }
+
+        public Builder<T> pollInterval(Duration pollInterval) {
+            if (pollInterval == null || pollInterval.isNegative()) {
+                throw new IllegalArgumentException("pollInterval must not be negative");
+            }
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        /** How long a run polls its batches; OpenAI finishes or expires them within 24 hours. */
+        public Builder<T> maxWait(Duration maxWait) {
+            if (maxWait == null || maxWait.isNegative()) {
+                throw new IllegalArgumentException("maxWait must not be negative");
+            }
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public Builder<T> checkpointFile(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /** Prices per million prompt and completion tokens of synchronous requests, for the report. */
+        public Builder<T> pricing(double inputPricePerMillion, double outputPricePerMillion) {
+            if (inputPricePerMillion < 0 || outputPricePerMillion < 0) {
+                throw new IllegalArgumentException("prices must not be negative");
+            }
+            this.inputPricePerMillion = inputPricePerMillion;
+            this.outputPricePerMillion = outputPricePerMillion;
+            return this;
+        }
+
+        /** Share of the synchronous price that batch requests cost (OpenAI: 0.5). */
+        public Builder<T> batchPriceFactor(double batchPriceFactor) {
+            if (batchPriceFactor < 0) {
+                throw new IllegalArgumentException("batchPriceFactor must not be negative");
+            }
+            this.batchPriceFactor = batchPriceFactor;
+            return this;
+        }
+
+        public Builder<T> objectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+            return this;
+        }
+
+        public BatchExtractor<T> build() {
+            if (chatModel == null && batchClient == null) {
+                throw new IllegalArgumentException("Either a chatModel or a batchClient is required");
+            }
+            return new BatchExtractor<>(this);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+/**
+ * {@link EmbeddingModel} decorator that shapes embedding traffic into requests sized to the
+ * provider's limits.
+ * <ul>
+ * <li>Single-text calls (one per RAG question) arriving within {@code window} of each other are
+ * coalesced into one request; callers block until their own embedding is back.</li>
+ * <li>Large calls (ingestion batches) are split into requests of at most {@code maxInputsPerRequest}
+ * texts and {@code maxTokensPerRequest} estimated tokens, sent concurrently.</li>
+ * </ul>
+ * Texts are only grouped with requests for the same model and dimensions.
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final long windowNanos;
+    private final int maxInputsPerRequest;
+    private final int maxTokensPerRequest;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final Map<String, Batch> openBatches = new HashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong texts = new AtomicLong();
+
+    private BatchingEmbeddingModel(Builder builder) {
+        this.delegate = builder.delegate;
+        this.windowNanos = builder.window.toNanos();
+        this.maxInputsPerRequest = builder.maxInputsPerRequest;
+        this.maxTokensPerRequest = builder.maxTokensPerRequest;
+        this.tokenCountEstimator = builder.tokenCountEstimator != null
+                ? builder.tokenCountEstimator : new JTokkitTokenCountEstimator();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("embedding-window"));
+        this.senders = Executors.newFixedThreadPool(builder.maxConcurrentRequests, daemonThreads("embedding-request"));
+    }
+
+    public static Builder builder(EmbeddingModel delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Calls received versus requests actually sent to the delegate.
+     */
+    public record Stats(long calls, long requests, long texts) {
+        public double textsPerRequest() {
+            return requests == 0 ? 0 : texts / (double) requests;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(calls.get(), requests.get(), texts.get());
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        calls.incrementAndGet();
+        List<String> instructions = request.getInstructions();
+        if (instructions.size() == 1 && windowNanos > 0) {
+            float[] vector = join(enqueue(instructions.get(0), request.getOptions()));
+            return new EmbeddingResponse(List.of(new Embedding(vector, 0)), new EmbeddingResponseMetadata());
+        }
+        return split(instructions, request.getOptions(), true);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private CompletableFuture<float[]> enqueue(String text, EmbeddingOptions options) {
+        String key = optionsKey(options);
+        CompletableFuture<float[]> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (openBatches) {
+            Batch batch = openBatches.get(key);
+            if (batch == null) {
+                Batch opened = new Batch(options);
+                openBatches.put(key, opened);
+                scheduler.schedule(() -> windowElapsed(key, opened), windowNanos, TimeUnit.NANOSECONDS);
+                batch = opened;
+            }
+            batch.texts.add(text);
+            batch.results.add(result);
+            batch.include(ModelCallScheduler.currentContext());
+            if (batch.texts.size() >= maxInputsPerRequest) {
+                openBatches.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    /** Window timer: sends the batch unless it already went out because it filled up. */
+    private void windowElapsed(String key, Batch batch) {
+        synchronized (openBatches) {
+            if (openBatches.get(key) != batch) {
+                return;
+            }
+            openBatches.remove(key);
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        senders.execute(() -> {
+            try {
+                List<float[]> vectors = ModelCallScheduler.callAs(batch.context,
+                        () -> embedAll(batch.texts, batch.options));
+                for (int i = 0; i < vectors.size(); i++) {
+                    batch.results.get(i).complete(vectors.get(i));
+                }
+            }
+            catch (RuntimeException e) {
+                batch.results.forEach(result -> result.completeExceptionally(e));
+            }
+        });
+    }
+
+    /**
+     * Splits the texts into requests within the input and token limits. Sender threads send the
+     * parts one after another, so they never wait on their own pool.
+     */
+    private EmbeddingResponse split(List<String> instructions, EmbeddingOptions options, boolean concurrent) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (String text : instructions) {
+            int tokens = tokenCountEstimator.estimate(text);
+            if (!current.isEmpty()
+                    && (current.size() >= maxInputsPerRequest || currentTokens + tokens > maxTokensPerRequest)) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(text);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+
+        if (chunks.size() == 1) {
+            return request(chunks.get(0), options);
+        }
+        List<CompletableFuture<EmbeddingResponse>> responses = new ArrayList<>();
+        ModelCallScheduler.CallContext context = ModelCallScheduler.currentContext();
+        for (List<String> chunk : chunks) {
+            responses.add(concurrent
+                    ? CompletableFuture.supplyAsync(
+                            () -> ModelCallScheduler.callAs(context, () -> request(chunk, options)), senders)
+                    : CompletableFuture.completedFuture(request(chunk, options)));
+        }
+        List<Embedding> embeddings = new ArrayList<>(instructions.size());
+        EmbeddingResponseMetadata metadata = null;
+        for (CompletableFuture<EmbeddingResponse> future : responses) {
+            EmbeddingResponse response = join(future);
+            metadata = metadata != null ? metadata : response.getMetadata();
+            for (Embedding embedding : response.getResults()) {
+                embeddings.add(new Embedding(embedding.getOutput(), embeddings.size()));
+            }
+        }
+        return new EmbeddingResponse(embeddings, metadata != null ? metadata : new EmbeddingResponseMetadata());
+    }
+
+    private List<float[]> embedAll(List<String> batch, EmbeddingOptions options) {
+        return split(batch, options, false).getResults().stream().map(Embedding::getOutput).toList();
+    }
+
+    private EmbeddingResponse request(List<String> chunk, EmbeddingOptions options) {
+        requests.incrementAndGet();
+        texts.addAndGet(chunk.size());
+        EmbeddingResponse response = delegate.call(new EmbeddingRequest(chunk, options));
+        if (response.getResults().size() != chunk.size()) {
+            throw new IllegalStateException("Expected " + chunk.size() + " embeddings but got "
+                    + response.getResults().size());
+        }
+        return response;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String optionsKey(EmbeddingOptions options) {
+        return options == null ? "" : options.getModel() + "/" + options.getDimensions();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Batch {
+        final EmbeddingOptions options;
+        final List<String> texts = new ArrayList<>();
+        final List<CompletableFuture<float[]>> results = new ArrayList<>();
+        // Scheduled as its most urgent caller
+        ModelCallScheduler.CallContext context;
+
+        Batch(EmbeddingOptions options) {
+            this.options = options;
+        }
+
+        void include(ModelCallScheduler.CallContext caller) {
+            if (context == null || caller.priority().compareTo(context.priority()) < 0) {
+                context = caller;
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final EmbeddingModel delegate;
+        private Duration window = Duration.ofMillis(5);
+        private int maxInputsPerRequest = 2048;
+        private int maxTokensPerRequest = 300_000;
+        private int maxConcurrentRequests = 4;
+        private TokenCountEstimator tokenCountEstimator;
+
+        private Builder(EmbeddingModel delegate) {
+            this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        }
+
+        /** How long a single-text call waits for others to share its request; zero disables coalescing. */
+        public Builder window(Duration window) {
+            if (window.isNegative()) {
+                throw new IllegalArgumentException("window must not be negative");
+            }
+            this.window = window;
+            return this;
+        }
+
+        /** Maximum texts per request (OpenAI accepts 2048). */
+        public Builder maxInputsPerRequest(int maxInputsPerRequest) {
+            if (maxInputsPerRequest <= 0) {
+                throw new IllegalArgumentException("maxInputsPerRequest must be positive");
+            }
+            this.maxInputsPerRequest = maxInputsPerRequest;
+            return this;
+        }
+
+        /** Maximum estimated tokens per request (OpenAI accepts 300,000). */
+        public Builder maxTokensPerRequest(int maxTokensPerRequest) {
+            if (maxTokensPerRequest <= 0) {
+                throw new IllegalArgumentException("maxTokensPerRequest must be positive");
+            }
+            this.maxTokensPerRequest = maxTokensPerRequest;
+            return this;
+        }
+
+        /** Requests in flight at once, across coalesced and split calls. */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            if (maxConcurrentRequests <= 0) {
+                throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+            }
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /** Token counting used for splitting; defaults to the cl100k tokenizer of OpenAI models. */
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public BatchingEmbeddingModel build() {
+            return new BatchingEmbeddingModel(this);
+        }
+    }
+}
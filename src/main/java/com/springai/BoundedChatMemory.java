@@ -0,0 +1,442 @@
+package com.springai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+/**
+ * In-memory {@link ChatMemory} that keeps every conversation within a token budget and the
+ * whole store within a memory budget.
+ * <ul>
+ * <li>When a conversation exceeds {@code maxTokensPerConversation}, its oldest messages are
+ * folded into a summary message of at most {@code summaryTokens}, which is returned first by
+ * {@link #get(String)}. The latest exchange is always kept verbatim.</li>
+ * <li>Conversations not used for {@code idleTimeout} are dropped, checked at most every quarter
+ * of the timeout while messages are added (or on {@link #evictIdle()}).</li>
+ * <li>When all conversations together exceed {@code maxTotalTokens}, the least recently used
+ * are dropped until the total is below 90% of it.</li>
+ * </ul>
+ * Conversations are guarded by a fixed set of lock stripes, so concurrent users of different
+ * conversations rarely contend and the number of locks does not grow with the users.
+ *
+ * With a {@link ChatMemoryRepository} every change is also saved there, and conversations that
+ * are not in memory (evicted, or from before a restart) are loaded from it on first use. Eviction
+ * then only frees heap; {@link #clear(String)} deletes from the repository as well.
+ */
+public class BoundedChatMemory implements ChatMemory {
+
+    /** Metadata flag of the system message that carries the summary of compacted messages. */
+    public static final String SUMMARY_METADATA = "compacted_summary";
+
+    private static final int LOCK_STRIPES = 64;
+    // Role and framing tokens the chat API adds around every message
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final int maxTokensPerConversation;
+    private final int summaryTokens;
+    private final Duration idleTimeout;
+    private final long maxTotalTokens;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final Compactor compactor;
+    private final Clock clock;
+    private final ChatMemoryRepository repository;
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final AtomicLong totalTokens = new AtomicLong();
+    private final AtomicLong nextIdleSweep;
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private BoundedChatMemory(Builder builder) {
+        this.maxTokensPerConversation = builder.maxTokensPerConversation;
+        this.summaryTokens = builder.summaryTokens;
+        this.idleTimeout = builder.idleTimeout;
+        this.maxTotalTokens = builder.maxTotalTokens;
+        this.tokenCountEstimator = builder.tokenCountEstimator != null
+                ? builder.tokenCountEstimator : new JTokkitTokenCountEstimator();
+        this.compactor = builder.compactor != null ? builder.compactor : new ExtractiveCompactor();
+        this.clock = builder.clock;
+        this.repository = builder.repository;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.nextIdleSweep = new AtomicLong(clock.millis() + idleTimeout.toMillis() / 4);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Folds older messages into a summary. Called with the previous summary (or {@code null})
+     * and the messages dropped from the conversation, oldest first; the result must fit in
+     * {@code maxTokens} as counted by {@code tokenCountEstimator}.
+     */
+    @FunctionalInterface
+    public interface Compactor {
+        String compact(String previousSummary, List<Message> dropped, int maxTokens,
+                TokenCountEstimator tokenCountEstimator);
+    }
+
+    public record Stats(int conversations, long totalTokens, long compactions, long evictions) {
+    }
+
+    public Stats stats() {
+        return new Stats(conversations.size(), totalTokens.get(), compactions.get(), evictions.get());
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            Conversation conversation = load(conversationId);
+            if (conversation == null) {
+                conversation = new Conversation();
+                conversations.put(conversationId, conversation);
+            }
+            long before = conversation.tokens;
+            for (Message message : messages) {
+                conversation.append(message, tokens(message.getText()));
+            }
+            if (conversation.tokens > maxTokensPerConversation) {
+                compact(conversation);
+            }
+            conversation.lastAccess = clock.millis();
+            totalTokens.addAndGet(conversation.tokens - before);
+            if (repository != null) {
+                repository.saveAll(conversationId, messagesOf(conversation));
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        // Evict outside the conversation lock: eviction takes other conversations' locks
+        if (totalTokens.get() > maxTotalTokens) {
+            evictLeastRecentlyUsed();
+        }
+        long now = clock.millis();
+        long sweepAt = nextIdleSweep.get();
+        if (now >= sweepAt && nextIdleSweep.compareAndSet(sweepAt, now + idleTimeout.toMillis() / 4)) {
+            evictIdle();
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            Conversation conversation = load(conversationId);
+            if (conversation == null) {
+                return List.of();
+            }
+            conversation.lastAccess = clock.millis();
+            return messagesOf(conversation);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            Conversation removed = conversations.remove(conversationId);
+            if (removed != null) {
+                totalTokens.addAndGet(-removed.tokens);
+            }
+            if (repository != null) {
+                repository.deleteByConversationId(conversationId);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops conversations that have not been used for the idle timeout. */
+    public void evictIdle() {
+        long cutoff = clock.millis() - idleTimeout.toMillis();
+        for (Map.Entry<String, Conversation> entry : conversations.entrySet()) {
+            if (entry.getValue().lastAccess < cutoff) {
+                evict(entry.getKey(), cutoff);
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        long target = maxTotalTokens / 10 * 9;
+        List<Map.Entry<String, Conversation>> byAge = new ArrayList<>(conversations.entrySet());
+        byAge.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Iterator<Map.Entry<String, Conversation>> it = byAge.iterator(); it.hasNext()
+                && totalTokens.get() > target;) {
+            evict(it.next().getKey(), Long.MAX_VALUE);
+        }
+    }
+
+    /** Removes the conversation if it was last used before {@code usedBefore}. */
+    private void evict(String conversationId, long usedBefore) {
+        ReentrantLock lock = lockFor(conversationId);
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(conversationId);
+            if (conversation != null && conversation.lastAccess < usedBefore) {
+                conversations.remove(conversationId);
+                totalTokens.addAndGet(-conversation.tokens);
+                evictions.incrementAndGet();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** The conversation in memory, else as saved in the repository; {@code null} if there is none. */
+    private Conversation load(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation != null || repository == null) {
+            return conversation;
+        }
+        List<Message> saved = repository.findByConversationId(conversationId);
+        if (saved.isEmpty()) {
+            return null;
+        }
+        conversation = new Conversation();
+        for (Message message : saved) {
+            if (message.getMetadata().containsKey(SUMMARY_METADATA)) {
+                conversation.summary = message.getText();
+                conversation.summaryTokens = tokens(message.getText());
+                conversation.tokens += conversation.summaryTokens;
+            }
+            else {
+                conversation.append(message, tokens(message.getText()));
+            }
+        }
+        conversation.lastAccess = clock.millis();
+        conversations.put(conversationId, conversation);
+        totalTokens.addAndGet(conversation.tokens);
+        return conversation;
+    }
+
+    private static List<Message> messagesOf(Conversation conversation) {
+        List<Message> messages = new ArrayList<>(conversation.messages.size() + 1);
+        if (conversation.summary != null) {
+            messages.add(SystemMessage.builder()
+                    .text(conversation.summary)
+                    .metadata(Map.of(SUMMARY_METADATA, true))
+                    .build());
+        }
+        conversation.messages.forEach(entry -> messages.add(entry.message()));
+        return messages;
+    }
+
+    /**
+     * Moves the oldest messages into the summary until the rest fits next to a full summary,
+     * keeping at least the latest user message and everything after it.
+     */
+    private void compact(Conversation conversation) {
+        int keepFrom = conversation.messages.size() - 1;
+        Iterator<Entry> newestFirst = conversation.messages.descendingIterator();
+        for (int i = conversation.messages.size() - 1; newestFirst.hasNext(); i--) {
+            if (newestFirst.next().message().getMessageType() == MessageType.USER) {
+                keepFrom = i;
+                break;
+            }
+        }
+        List<Message> dropped = new ArrayList<>();
+        int budget = maxTokensPerConversation - summaryTokens;
+        while (dropped.size() < keepFrom && conversation.tokens - conversation.summaryTokens > budget) {
+            Entry oldest = conversation.messages.removeFirst();
+            conversation.tokens -= oldest.tokens();
+            dropped.add(oldest.message());
+        }
+        if (dropped.isEmpty()) {
+            return;
+        }
+        String summary = compactor.compact(conversation.summary, dropped, summaryTokens, tokenCountEstimator);
+        int newSummaryTokens = summary == null ? 0 : tokens(summary);
+        conversation.tokens += newSummaryTokens - conversation.summaryTokens;
+        conversation.summary = summary;
+        conversation.summaryTokens = newSummaryTokens;
+        compactions.incrementAndGet();
+    }
+
+    private int tokens(String text) {
+        return (text == null ? 0 : tokenCountEstimator.estimate(text)) + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    private ReentrantLock lockFor(String conversationId) {
+        return stripes[Math.floorMod(conversationId.hashCode(), stripes.length)];
+    }
+
+    private record Entry(Message message, int tokens) {
+    }
+
+    /** Guarded by the conversation's lock stripe, except {@code lastAccess} which eviction reads. */
+    private static final class Conversation {
+        final ArrayDeque<Entry> messages = new ArrayDeque<>();
+        String summary;
+        int summaryTokens;
+        long tokens;
+        volatile long lastAccess;
+
+        void append(Message message, int messageTokens) {
+            messages.addLast(new Entry(message, messageTokens));
+            tokens += messageTokens;
+        }
+    }
+
+    /**
+     * Keeps the gist of each dropped message without a model call: the question a user asked and
+     * the first sentence of each answer, newest lines winning when the summary is full.
+     */
+    static final class ExtractiveCompactor implements Compactor {
+
+        private static final String HEADER = "Summary of the earlier conversation:";
+        private static final int MAX_LINE_CHARS = 240;
+
+        @Override
+        public String compact(String previousSummary, List<Message> dropped, int maxTokens,
+                TokenCountEstimator tokenCountEstimator) {
+            List<String> lines = new ArrayList<>();
+            if (previousSummary != null) {
+                previousSummary.lines().skip(1).forEach(lines::add);
+            }
+            for (Message message : dropped) {
+                String text = message.getText();
+                if (text == null || text.isBlank()) {
+                    continue;
+                }
+                switch (message.getMessageType()) {
+                    case USER -> lines.add("- User asked: " + truncate(text));
+                    case ASSISTANT -> lines.add("- Assistant answered: " + truncate(firstSentence(text)));
+                    default -> lines.add("- " + truncate(text));
+                }
+            }
+            // Drop the oldest lines until the summary fits
+            int tokens = tokenCountEstimator.estimate(HEADER);
+            int first = lines.size();
+            while (first > 0) {
+                int lineTokens = tokenCountEstimator.estimate(lines.get(first - 1)) + 1;
+                if (tokens + lineTokens > maxTokens) {
+                    break;
+                }
+                tokens += lineTokens;
+                first--;
+            }
+            if (first == lines.size()) {
+                return null;
+            }
+            return HEADER + "\n" + String.join("\n", lines.subList(first, lines.size()));
+        }
+
+        private static String firstSentence(String text) {
+            String flat = text.strip().replaceAll("\\s+", " ");
+            int end = flat.indexOf(". ");
+            return end < 0 ? flat : flat.substring(0, end + 1);
+        }
+
+        private static String truncate(String text) {
+            String flat = text.strip().replaceAll("\\s+", " ");
+            return flat.length() <= MAX_LINE_CHARS ? flat : flat.substring(0, MAX_LINE_CHARS) + "...";
+        }
+    }
+
+    public static final class Builder {
+        private int maxTokensPerConversation = 2000;
+        private int summaryTokens = 300;
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        private long maxTotalTokens = 10_000_000;
+        private TokenCountEstimator tokenCountEstimator;
+        private Compactor compactor;
+        private Clock clock = Clock.systemUTC();
+        private ChatMemoryRepository repository;
+
+        private Builder() {
+        }
+
+        /** Tokens a conversation may hold, summary included, before older messages are compacted. */
+        public Builder maxTokensPerConversation(int maxTokensPerConversation) {
+            if (maxTokensPerConversation <= 0) {
+                throw new IllegalArgumentException("maxTokensPerConversation must be positive");
+            }
+            this.maxTokensPerConversation = maxTokensPerConversation;
+            return this;
+        }
+
+        /** Tokens the summary of compacted messages may use; zero drops old messages without a summary. */
+        public Builder summaryTokens(int summaryTokens) {
+            if (summaryTokens < 0) {
+                throw new IllegalArgumentException("summaryTokens must not be negative");
+            }
+            this.summaryTokens = summaryTokens;
+            return this;
+        }
+
+        public Builder idleTimeout(Duration idleTimeout) {
+            if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+                throw new IllegalArgumentException("idleTimeout must be positive");
+            }
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /** Tokens all conversations together may hold before the least recently used are dropped. */
+        public Builder maxTotalTokens(long maxTotalTokens) {
+            if (maxTotalTokens <= 0) {
+                throw new IllegalArgumentException("maxTotalTokens must be positive");
+            }
+            this.maxTotalTokens = maxTotalTokens;
+            return this;
+        }
+
+        /** Token counting for the budgets; defaults to the cl100k tokenizer of OpenAI models. */
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public Builder compactor(Compactor compactor) {
+            this.compactor = compactor;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock must not be null");
+            return this;
+        }
+
+        /** Where conversations are saved and loaded from; memory only if not set. */
+        public Builder chatMemoryRepository(ChatMemoryRepository repository) {
+            this.repository = repository;
+            return this;
+        }
+
+        public BoundedChatMemory build() {
+            if (summaryTokens >= maxTokensPerConversation) {
+                throw new IllegalArgumentException("summaryTokens must be less than maxTokensPerConversation");
+            }
+            return new BoundedChatMemory(this);
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.springai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+/**
+ * {@link EmbeddingModel} decorator that remembers embeddings, so re-ingested chunks and
+ * repeated questions never reach the provider twice.
+ *
+ * Entries are keyed by a SHA-256 of the model name, requested dimensions and the normalized
+ * text (Unicode NFC, trimmed, whitespace collapsed). Lookups go through two tiers:
+ * <ul>
+ * <li>an in-memory LRU of at most {@code maxEntries} embeddings;</li>
+ * <li>an optional append-only file that survives restarts. Its key index is loaded on startup,
+ * vectors are read on demand, records failing their checksum are skipped, and a torn record at
+ * the end (after a crash) is discarded.</li>
+ * </ul>
+ * The file has a single writer: its directory is locked while the cache is open, and another
+ * process or application context that finds it locked caches in memory only.
+ * Only the texts missing from both tiers are sent to the delegate, in a single request.
+ * Hit and miss counts are available from {@link #stats()} and as the Micrometer counter
+ * {@code embedding.cache.requests}, which Actuator binds when the cache is the embedding model bean.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel, MeterBinder, AutoCloseable {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int KEY_BYTES = 32;
+    // key, dimensions, floats..., crc
+    private static final int RECORD_OVERHEAD = KEY_BYTES + Integer.BYTES + Long.BYTES;
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final Map<String, float[]> memory;
+    private final DiskTier disk;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private CachingEmbeddingModel(Builder builder) {
+        this.delegate = builder.delegate;
+        this.modelName = builder.modelName;
+        int maxEntries = builder.maxEntries;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.disk = builder.directory != null ? DiskTier.open(builder.directory) : null;
+    }
+
+    public static Builder builder(EmbeddingModel delegate) {
+        return new Builder(delegate);
+    }
+
+    /**
+     * Cache hit and miss counts since startup.
+     */
+    public record Stats(long memoryHits, long diskHits, long misses) {
+        public double hitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0 : (memoryHits + diskHits) / (double) total;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(memoryHits.get(), diskHits.get(), misses.get());
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        String prefix = keyPrefix(request.getOptions());
+        float[][] vectors = new float[texts.size()][];
+        String[] keys = new String[texts.size()];
+        List<String> missingTexts = new ArrayList<>();
+        List<Integer> missingPositions = new ArrayList<>();
+
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = key(prefix, texts.get(i));
+            float[] vector = lookup(keys[i]);
+            if (vector != null) {
+                // Callers own the returned arrays; never hand out the cached one
+                vectors[i] = vector.clone();
+            }
+            else {
+                missingTexts.add(texts.get(i));
+                missingPositions.add(i);
+            }
+        }
+
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata();
+        if (!missingTexts.isEmpty()) {
+            misses.addAndGet(missingTexts.size());
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+            metadata = response.getMetadata();
+            List<Embedding> results = response.getResults();
+            for (int j = 0; j < results.size(); j++) {
+                Embedding embedding = results.get(j);
+                int position = missingPositions.get(embedding.getIndex() != null ? embedding.getIndex() : j);
+                vectors[position] = embedding.getOutput();
+                // The caller owns the returned array, so the cache keeps a copy
+                store(keys[position], embedding.getOutput().clone());
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("embedding.cache.requests", memoryHits, AtomicLong::get)
+                .tag("result", "memory-hit").register(registry);
+        FunctionCounter.builder("embedding.cache.requests", diskHits, AtomicLong::get)
+                .tag("result", "disk-hit").register(registry);
+        FunctionCounter.builder("embedding.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(registry);
+    }
+
+    /**
+     * Closes the disk tier, and the delegate if it holds resources (such as a batching layer).
+     */
+    @Override
+    public void close() {
+        if (disk != null) {
+            disk.close();
+        }
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("Failed to close " + delegate, e);
+            }
+        }
+    }
+
+    private float[] lookup(String key) {
+        float[] vector;
+        synchronized (memory) {
+            vector = memory.get(key);
+        }
+        if (vector != null) {
+            memoryHits.incrementAndGet();
+            return vector;
+        }
+        if (disk != null) {
+            vector = disk.get(key);
+            if (vector != null) {
+                diskHits.incrementAndGet();
+                synchronized (memory) {
+                    memory.put(key, vector);
+                }
+                return vector;
+            }
+        }
+        return null;
+    }
+
+    private void store(String key, float[] vector) {
+        synchronized (memory) {
+            memory.put(key, vector);
+        }
+        if (disk != null) {
+            disk.put(key, vector);
+        }
+    }
+
+    private String keyPrefix(EmbeddingOptions options) {
+        String model = options != null && options.getModel() != null ? options.getModel() : modelName;
+        Integer dimensions = options != null ? options.getDimensions() : null;
+        return model + "/" + (dimensions != null ? dimensions : "default");
+    }
+
+    static String key(String prefix, String text) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC).strip()).replaceAll(" ");
+        MessageDigest digest = sha256();
+        digest.update(prefix.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Append-only file of little-endian [key][dimensions][float32 vector][crc32] records with an in-memory key index.
+     */
+    private static final class DiskTier {
+        private final Path file;
+        private final FileChannel lock;
+        private final FileChannel channel;
+        private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+        private long end;
+
+        private DiskTier(Path file, FileChannel lock) throws IOException {
+            this.file = file;
+            this.lock = lock;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                loadIndex();
+            }
+            catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /** The disk tier in {@code directory}, or null when another cache holds its lock. */
+        static DiskTier open(Path directory) {
+            try {
+                Files.createDirectories(directory);
+                FileChannel lock = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+                try {
+                    if (lock.tryLock() != null) {
+                        return new DiskTier(directory.resolve("embeddings.bin"), lock);
+                    }
+                }
+                catch (OverlappingFileLockException e) {
+                    // Held by another cache in this JVM
+                }
+                catch (IOException | RuntimeException e) {
+                    lock.close();
+                    throw e;
+                }
+                lock.close();
+                logger.warn("Embedding cache {} is in use by another process or application context; "
+                        + "caching in memory only", directory);
+                return null;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to open embedding cache in " + directory, e);
+            }
+        }
+
+        private void loadIndex() throws IOException {
+            long size = channel.size();
+            long position = 0;
+            long skipped = 0;
+            while (position + RECORD_OVERHEAD <= size) {
+                ByteBuffer record = readRecord(position, size);
+                if (record != null) {
+                    byte[] key = new byte[KEY_BYTES];
+                    record.get(0, key);
+                    offsets.put(HexFormat.of().formatHex(key), position);
+                    position += record.capacity();
+                    continue;
+                }
+                // A damaged record: carry on from the next intact one, if there is any
+                long next = position + 1;
+                while (next + RECORD_OVERHEAD <= size && readRecord(next, size) == null) {
+                    next++;
+                }
+                if (next + RECORD_OVERHEAD > size) {
+                    break;
+                }
+                skipped += next - position;
+                position = next;
+            }
+            if (skipped > 0) {
+                logger.warn("Skipped {} bytes of damaged records in embedding cache {}", skipped, file);
+            }
+            if (position < size) {
+                logger.warn("Discarding {} trailing bytes of embedding cache {}", size - position, file);
+                channel.truncate(position);
+            }
+            end = position;
+        }
+
+        /** The record at {@code position} if it fits in the file and matches its checksum, else null. */
+        private ByteBuffer readRecord(long position, long size) throws IOException {
+            ByteBuffer dimensionsBuffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(dimensionsBuffer, position + KEY_BYTES);
+            int dimensions = dimensionsBuffer.getInt(0);
+            if (dimensions <= 0 || dimensions > (size - position - RECORD_OVERHEAD) / Float.BYTES) {
+                return null;
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + dimensions * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            readFully(record, position);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, record.capacity() - Long.BYTES);
+            return crc.getValue() == record.getLong(record.capacity() - Long.BYTES) ? record : null;
+        }
+
+        float[] get(String key) {
+            Long offset = offsets.get(key);
+            if (offset == null) {
+                return null;
+            }
+            try {
+                ByteBuffer dimensionsBuffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(dimensionsBuffer, offset + KEY_BYTES);
+                int dimensions = dimensionsBuffer.getInt(0);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + dimensions * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                readFully(record, offset);
+                CRC32 crc = new CRC32();
+                crc.update(record.array(), 0, record.capacity() - Long.BYTES);
+                if (crc.getValue() != record.getLong(record.capacity() - Long.BYTES)) {
+                    // Corrupt record: forget it so the embedding is fetched and appended again
+                    offsets.remove(key);
+                    return null;
+                }
+                float[] vector = new float[dimensions];
+                record.position(KEY_BYTES + Integer.BYTES).asFloatBuffer().get(vector);
+                return vector;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to read embedding cache " + file, e);
+            }
+        }
+
+        synchronized void put(String key, float[] vector) {
+            if (offsets.containsKey(key)) {
+                return;
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + vector.length * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            record.put(HexFormat.of().parseHex(key)).putInt(vector.length);
+            for (float v : vector) {
+                record.putFloat(v);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, record.position());
+            record.putLong(crc.getValue()).flip();
+            try {
+                long position = end;
+                while (record.hasRemaining()) {
+                    channel.write(record, position + record.position());
+                }
+                end = position + record.capacity();
+                offsets.put(key, position);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to write embedding cache " + file, e);
+            }
+        }
+
+        synchronized void close() {
+            try {
+                channel.force(false);
+                channel.close();
+                // Releases the lock
+                lock.close();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to close embedding cache " + file, e);
+            }
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of embedding cache " + file);
+                }
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final EmbeddingModel delegate;
+        private String modelName = "default";
+        private int maxEntries = 10_000;
+        private Path directory;
+
+        private Builder(EmbeddingModel delegate) {
+            this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        }
+
+        /** Model used when a request does not name one; part of every cache key. */
+        public Builder modelName(String modelName) {
+            this.modelName = Objects.requireNonNull(modelName, "modelName must not be null");
+            return this;
+        }
+
+        /** Maximum number of embeddings kept in memory. */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /** Directory of the persistent tier; null keeps the cache in memory only. */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public CachingEmbeddingModel build() {
+            return new CachingEmbeddingModel(this);
+        }
+    }
+}
@@ -6,21 +6,28 @@ import org.springframework.stereotype.Service;
 @Service
 public class CalculatorService {
     
+    // Largest list a batch tool accepts in one call
+    static final int MAX_BATCH_SIZE = 100_000;
+    
+    @Deterministic
     @Tool(description = "Add two numbers together")
     public double add(double a, double b) {
         return a + b;
     }
     
+    @Deterministic
     @Tool(description = "Subtract the second number from the first")
     public double subtract(double a, double b) {
         return a - b;
     }
     
+    @Deterministic
     @Tool(description = "Multiply two numbers")
     public double multiply(double a, double b) {
         return a * b;
     }
     
+    @Deterministic
     @Tool(description = "Divide the first number by the second")
     public double divide(double a, double b) {
         if (b == 0) {
@@ -29,6 +36,7 @@ public class CalculatorService {
         return a / b;
     }
     
+    @Deterministic
     @Tool(description = "Calculate the square root of a number")
     public double sqrt(double number) {
         if (number < 0) {
@@ -37,11 +45,13 @@ public class CalculatorService {
         return Math.sqrt(number);
     }
     
+    @Deterministic
     @Tool(description = "Calculate a number raised to a power")
     public double power(double base, double exponent) {
         return Math.pow(base, exponent);
     }
     
+    @Deterministic
     @Tool(description = "Calculate compound interest given principal, annual rate (as percentage), years, and compounding frequency per year")
     public CompoundInterestResult calculateCompoundInterest(
             double principal,
@@ -70,11 +80,150 @@ public class CalculatorService {
         return new CompoundInterestResult(principal, amount, interest, years, annualRate);
     }
     
+    @Deterministic
     @Tool(description = "Calculate what percentage one number is of another (e.g., percentage=15, number=100 returns 15)")
     public double calculatePercentage(double percentage, double number) {
         return (percentage / 100) * number;
     }
     
+    // Batch tools: one call covers a whole column of numbers instead of one tool round trip per value.
+    // They loop over primitive arrays and allocate nothing beyond their result.
+    
+    @Deterministic
+    @Tool(description = "Calculate compound interest for many investments at once. annualRates (as percentages) "
+            + "has one rate per principal, or a single rate for all of them. Returns the final amount of each "
+            + "investment and the totals")
+    public CompoundInterestBatchResult calculateCompoundInterestBatch(
+            double[] principals,
+            double[] annualRates,
+            int years,
+            int compoundingFrequency) {
+        
+        int n = checkBatch("principals", principals);
+        int rateStride = checkOperand("annualRates", annualRates, n);
+        if (years <= 0) {
+            throw new IllegalArgumentException("Years must be positive");
+        }
+        if (compoundingFrequency <= 0) {
+            throw new IllegalArgumentException("Compounding frequency must be positive");
+        }
+        
+        int periods = compoundingFrequency * years;
+        double[] finalAmounts = new double[n];
+        double totalPrincipal = 0;
+        double totalFinalAmount = 0;
+        // With a single rate the growth factor is the same for every investment
+        double factor = rateStride == 0 ? growthFactor(annualRates[0], compoundingFrequency, periods) : 0;
+        for (int i = 0; i < n; i++) {
+            double principal = principals[i];
+            if (principal <= 0) {
+                throw new IllegalArgumentException("Principal must be positive, got " + principal + " at index " + i);
+            }
+            double amount = principal
+                    * (rateStride == 0 ? factor : growthFactor(annualRates[i], compoundingFrequency, periods));
+            finalAmounts[i] = amount;
+            totalPrincipal += principal;
+            totalFinalAmount += amount;
+        }
+        return new CompoundInterestBatchResult(finalAmounts, totalPrincipal, totalFinalAmount,
+                totalFinalAmount - totalPrincipal);
+    }
+    
+    @Deterministic
+    @Tool(description = "Calculate summary statistics of a list of numbers: count, sum, mean, minimum, maximum "
+            + "and (population) standard deviation")
+    public SummaryStatistics summaryStatistics(double[] values) {
+        int n = checkBatch("values", values);
+        double sum = 0;
+        double mean = 0;
+        double squaredDeviations = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        // Welford's single pass, which stays accurate for large values with a small spread
+        for (int i = 0; i < n; i++) {
+            double value = values[i];
+            sum += value;
+            double delta = value - mean;
+            mean += delta / (i + 1);
+            squaredDeviations += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return new SummaryStatistics(n, sum, mean, min, max, Math.sqrt(squaredDeviations / n));
+    }
+    
+    @Deterministic
+    @Tool(description = "Apply an arithmetic operation (add, subtract, multiply, divide or power) element by "
+            + "element to two lists of numbers of the same length; a second list with a single number applies "
+            + "it to every element of the first, for example to scale a list")
+    public double[] elementwise(String operation, double[] a, double[] b) {
+        int n = checkBatch("a", a);
+        int stride = checkOperand("b", b, n);
+        double[] result = new double[n];
+        // One loop per operation, so the loop body has no branches
+        switch (operation.trim().toLowerCase()) {
+            case "add" -> {
+                for (int i = 0; i < n; i++) {
+                    result[i] = a[i] + b[i * stride];
+                }
+            }
+            case "subtract" -> {
+                for (int i = 0; i < n; i++) {
+                    result[i] = a[i] - b[i * stride];
+                }
+            }
+            case "multiply" -> {
+                for (int i = 0; i < n; i++) {
+                    result[i] = a[i] * b[i * stride];
+                }
+            }
+            case "divide" -> {
+                for (int i = 0; i < b.length; i++) {
+                    if (b[i] == 0) {
+                        throw new IllegalArgumentException("Cannot divide by zero at index " + i);
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    result[i] = a[i] / b[i * stride];
+                }
+            }
+            case "power" -> {
+                for (int i = 0; i < n; i++) {
+                    result[i] = Math.pow(a[i], b[i * stride]);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + operation
+                    + ", expected add, subtract, multiply, divide or power");
+        }
+        return result;
+    }
+    
+    private static double growthFactor(double annualRate, int compoundingFrequency, int periods) {
+        if (annualRate < 0) {
+            throw new IllegalArgumentException("Annual rate cannot be negative");
+        }
+        return Math.pow(1 + annualRate / 100 / compoundingFrequency, periods);
+    }
+    
+    private static int checkBatch(String name, double[] values) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException(name + " must not be empty");
+        }
+        if (values.length > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(name + " has " + values.length + " numbers, at most "
+                    + MAX_BATCH_SIZE + " are allowed");
+        }
+        return values.length;
+    }
+    
+    /** Index step into an operand that has either one value per element or a single value for all. */
+    private static int checkOperand(String name, double[] values, int length) {
+        if (values == null || (values.length != 1 && values.length != length)) {
+            throw new IllegalArgumentException(name + " must have 1 or " + length + " numbers");
+        }
+        return values.length == 1 ? 0 : 1;
+    }
+    
     /**
      * Result record for compound interest calculations
      */
@@ -99,4 +248,28 @@ public class CalculatorService {
             );
         }
     }
+    
+    /**
+     * Result record for batch compound interest calculations
+     */
+    public record CompoundInterestBatchResult(
+            double[] finalAmounts,
+            double totalPrincipal,
+            double totalFinalAmount,
+            double totalInterest
+    ) {
+    }
+    
+    /**
+     * Result record for summary statistics
+     */
+    public record SummaryStatistics(
+            int count,
+            double sum,
+            double mean,
+            double min,
+            double max,
+            double standardDeviation
+    ) {
+    }
 }
\ No newline at end of file
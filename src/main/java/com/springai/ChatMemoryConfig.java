@@ -0,0 +1,62 @@
+package com.springai;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Replaces Spring AI's default message-window memory with {@link BoundedChatMemory}, so prompt
+ * size per conversation and heap use across conversations stay bounded. Conversations are kept in
+ * memory unless {@code app.chat.memory.store=log}, which the rag profile sets, persists them in a
+ * {@link LogChatMemoryRepository}. That log locks its directory, so profiles that never use chat
+ * memory, such as mcp-server, do not open it and can run next to a rag instance.
+ */
+@Configuration
+public class ChatMemoryConfig {
+
+    @Bean
+    public ChatMemoryRepository chatMemoryRepository(
+            @Value("${app.chat.memory.store:memory}") String store,
+            @Value("${app.chat.memory.log.directory:./target/chat-memory}") String directory,
+            @Value("${app.chat.memory.log.fsync-interval:10ms}") Duration fsyncInterval,
+            @Value("${app.chat.memory.log.segment-size:16MB}") DataSize segmentSize,
+            @Value("${app.chat.memory.log.snapshot-after:64MB}") DataSize snapshotAfter,
+            @Value("${app.chat.memory.log.cached-conversations:10000}") int cachedConversations) {
+        if (store.equals("memory")) {
+            return new InMemoryChatMemoryRepository();
+        }
+        if (!store.equals("log")) {
+            throw new IllegalArgumentException("Unknown app.chat.memory.store: " + store);
+        }
+        return LogChatMemoryRepository.builder(Path.of(directory))
+                .fsyncInterval(fsyncInterval)
+                .segmentBytes(segmentSize.toBytes())
+                .snapshotBytes(snapshotAfter.toBytes())
+                .maxCachedConversations(cachedConversations)
+                .build();
+    }
+
+    @Bean
+    public ChatMemory chatMemory(ChatMemoryRepository chatMemoryRepository,
+            @Value("${app.chat.memory.store:memory}") String store,
+            @Value("${app.chat.memory.max-tokens-per-conversation:2000}") int maxTokensPerConversation,
+            @Value("${app.chat.memory.summary-tokens:300}") int summaryTokens,
+            @Value("${app.chat.memory.idle-timeout:30m}") Duration idleTimeout,
+            @Value("${app.chat.memory.max-total-tokens:10000000}") long maxTotalTokens) {
+        return BoundedChatMemory.builder()
+                .maxTokensPerConversation(maxTokensPerConversation)
+                .summaryTokens(summaryTokens)
+                .idleTimeout(idleTimeout)
+                .maxTotalTokens(maxTotalTokens)
+                // An in-memory repository would only keep evicted conversations alive
+                .chatMemoryRepository(store.equals("log") ? chatMemoryRepository : null)
+                .build();
+    }
+}
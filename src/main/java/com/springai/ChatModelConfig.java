@@ -1,26 +1,74 @@
 package com.springai;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.ai.anthropic.AnthropicChatModel;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 /**
  * Configuration to resolve ChatModel ambiguity when multiple models are available.
- * Makes OpenAI the primary chat model for auto-wiring.
+ * The primary chat model routes between OpenAI and Anthropic (see {@link RoutingChatModel}),
+ * or is plain OpenAI when routing is disabled. Each provider's calls go through the
+ * {@link ModelCallScheduler} to stay within its rate limits.
  */
 @Configuration
 public class ChatModelConfig {
-    
+
     /**
-     * Creates a primary ChatModel bean from OpenAI model.
+     * Creates the primary ChatModel bean used for auto-wiring.
      * This resolves ambiguity when ChatClient.Builder tries to auto-wire a ChatModel.
      */
     @Bean
     @Primary
-    public ChatModel primaryChatModel(@Qualifier("openAiChatModel") OpenAiChatModel openAiChatModel) {
-        return openAiChatModel;
+    public ChatModel primaryChatModel(@Qualifier("openAiChatModel") OpenAiChatModel openAiChatModel,
+            @Qualifier("anthropicChatModel") AnthropicChatModel anthropicChatModel,
+            ModelCallScheduler scheduler,
+            @Value("${app.chat.routing.enabled:true}") boolean routingEnabled,
+            @Value("${app.chat.routing.policy:failover}") String policy,
+            @Value("${app.chat.routing.backends:openai,anthropic}") List<String> backends,
+            @Value("${app.chat.routing.window-size:100}") int windowSize,
+            @Value("${app.chat.routing.max-error-rate:0.5}") double maxErrorRate,
+            @Value("${app.chat.routing.exploration-rate:0.05}") double explorationRate,
+            @Value("${app.chat.routing.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${app.chat.routing.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${app.chat.routing.hedging.enabled:false}") boolean hedging,
+            @Value("${app.chat.routing.hedging.percentile:0.95}") double hedgePercentile,
+            @Value("${app.chat.routing.hedging.min-delay:50ms}") Duration minHedgeDelay,
+            @Value("${app.chat.routing.hedging.max-delay:10s}") Duration maxHedgeDelay) {
+        ChatModel openAi = scheduler.chatModel("openai-chat", openAiChatModel);
+        if (!routingEnabled) {
+            return openAi;
+        }
+        Map<String, ChatModel> models = Map.of("openai", openAi,
+                "anthropic", scheduler.chatModel("anthropic-chat", anthropicChatModel));
+        RoutingChatModel.Builder builder = RoutingChatModel.builder()
+                .policy(RoutingChatModel.Policy.valueOf(policy.trim().toUpperCase()))
+                .windowSize(windowSize)
+                .maxErrorRate(maxErrorRate)
+                .explorationRate(explorationRate)
+                .failureThreshold(failureThreshold)
+                .openDuration(openDuration)
+                .hedging(hedging)
+                .hedgePercentile(hedgePercentile)
+                .hedgeDelay(minHedgeDelay, maxHedgeDelay);
+        for (String backend : backends) {
+            // name or name:weight
+            String[] parts = backend.trim().split(":");
+            ChatModel model = models.get(parts[0]);
+            if (model == null) {
+                throw new IllegalArgumentException("Unknown chat backend " + parts[0] + ", expected one of "
+                        + models.keySet());
+            }
+            builder.backend(parts[0], model, parts.length > 1 ? Double.parseDouble(parts[1]) : 1);
+        }
+        return builder.build();
     }
-}
\ No newline at end of file
+}
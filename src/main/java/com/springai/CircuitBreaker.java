@@ -0,0 +1,150 @@
+package com.springai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Circuit breaker for calls to one remote service.
+ *
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects calls for
+ * {@code openDuration}. Then it lets a single probe call through (half open): if the probe
+ * succeeds the breaker closes, if it fails the breaker opens again for another period.
+ * Callers ask {@link #tryAcquire()} before each call and report the outcome with
+ * {@link #onSuccess()}, {@link #onFailure()} or, for a call that was abandoned before it
+ * completed, {@link #onIgnored()}.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejected;
+    private long opened;
+
+    private CircuitBreaker(Builder builder) {
+        this.failureThreshold = builder.failureThreshold;
+        this.openMillis = builder.openDuration.toMillis();
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Whether a call would currently be let through, without claiming the half-open probe. */
+    public synchronized boolean isCallPermitted() {
+        return switch (currentState()) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    /** Claims permission for one call; {@code false} means the call must not be made. */
+    public synchronized boolean tryAcquire() {
+        switch (currentState()) {
+            case CLOSED -> {
+                return true;
+            }
+            case HALF_OPEN -> {
+                if (!probeInFlight) {
+                    probeInFlight = true;
+                    return true;
+                }
+            }
+            case OPEN -> {
+            }
+        }
+        rejected++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                opened++;
+            }
+            state = State.OPEN;
+            openedAt = clock.millis();
+        }
+        probeInFlight = false;
+    }
+
+    /** Releases a permission whose call was cancelled, so it counts neither way. */
+    public synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+
+    public synchronized State state() {
+        return currentState();
+    }
+
+    /** Calls rejected while open, and how often the breaker opened, since startup. */
+    public synchronized long rejectedCalls() {
+        return rejected;
+    }
+
+    public synchronized long openedCount() {
+        return opened;
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        return state;
+    }
+
+    public static final class Builder {
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        /** Consecutive failures that open the breaker. */
+        public Builder failureThreshold(int failureThreshold) {
+            if (failureThreshold <= 0) {
+                throw new IllegalArgumentException("failureThreshold must be positive");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /** How long the breaker rejects calls before letting a probe through. */
+        public Builder openDuration(Duration openDuration) {
+            if (openDuration.isNegative()) {
+                throw new IllegalArgumentException("openDuration must not be negative");
+            }
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock must not be null");
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.springai;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+/**
+ * Prompt template in StringTemplate syntax with {@code {name}} placeholders, parsed once.
+ *
+ * {@link PromptTemplate} hands its text to StringTemplate on every render, which lexes, parses
+ * and compiles it again each time. Here the text is split into literals and placeholders when
+ * the template is compiled, and rendering only appends them to a builder sized for the result.
+ * Values are rendered like StringTemplate does: null as nothing, arrays and iterables as their
+ * elements one after the other, anything else with toString().
+ *
+ * Only plain placeholders are supported. A template using other StringTemplate expressions
+ * (properties, conditionals, templates) is rejected by {@link #compile(String, String)}, and
+ * so is a placeholder that is not a valid name. {@code \{} and {@code \}} stand for literal braces.
+ */
+public final class CompiledPromptTemplate {
+
+    private final String name;
+    private final String template;
+    private final String[] literals;
+    // Index into variables of the placeholder following each literal but the last
+    private final int[] placeholders;
+    private final List<String> variables;
+    private final int literalLength;
+
+    private CompiledPromptTemplate(String name, String template, List<String> literals, List<Integer> placeholders,
+            List<String> variables) {
+        this.name = name;
+        this.template = template;
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.stream().mapToInt(Integer::intValue).toArray();
+        this.variables = Collections.unmodifiableList(variables);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Parses a template; the name is only used in error messages.
+     *
+     * @throws IllegalArgumentException if the template has an unclosed brace or an expression
+     *         other than a plain placeholder
+     */
+    public static CompiledPromptTemplate compile(String name, String template) {
+        Objects.requireNonNull(template, "template must not be null");
+        List<String> literals = new ArrayList<>();
+        List<Integer> placeholders = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '\\' && i + 1 < template.length() && (template.charAt(i + 1) == '{'
+                    || template.charAt(i + 1) == '}')) {
+                literal.append(template.charAt(i + 1));
+                i += 2;
+            }
+            else if (c == '{') {
+                int end = template.indexOf('}', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed '{' at offset " + i + " of prompt template " + name);
+                }
+                String variable = template.substring(i + 1, end);
+                if (!isName(variable)) {
+                    throw new IllegalArgumentException("Unsupported expression {" + variable + "} at offset " + i
+                            + " of prompt template " + name + "; only {name} placeholders are supported");
+                }
+                int index = variables.indexOf(variable);
+                if (index < 0) {
+                    index = variables.size();
+                    variables.add(variable);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                placeholders.add(index);
+                i = end + 1;
+            }
+            else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new CompiledPromptTemplate(name, template, literals, placeholders, variables);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** The template text as written. */
+    public String template() {
+        return template;
+    }
+
+    /** Names of the placeholders, each once, in order of first appearance. */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * Fills in the placeholders.
+     *
+     * @throws IllegalArgumentException if there is no value for one of the placeholders
+     */
+    public String render(Map<String, ?> values) {
+        int length = literalLength;
+        for (int placeholder : placeholders) {
+            Object value = values.get(variables.get(placeholder));
+            length += value instanceof CharSequence text ? text.length() : 16;
+        }
+        StringBuilder result = new StringBuilder(length);
+        appendTo(result, values);
+        return result.toString();
+    }
+
+    /**
+     * Appends the rendered template to a builder the caller may reuse.
+     *
+     * @throws IllegalArgumentException if there is no value for one of the placeholders
+     */
+    public StringBuilder appendTo(StringBuilder result, Map<String, ?> values) {
+        for (int i = 0; i < placeholders.length; i++) {
+            String variable = variables.get(placeholders[i]);
+            Object value = values.get(variable);
+            if (value == null && !values.containsKey(variable)) {
+                throw new IllegalArgumentException("Missing values for prompt template " + name + ": "
+                        + variables.stream().filter(v -> !values.containsKey(v)).toList());
+            }
+            result.append(literals[i]);
+            appendValue(result, value);
+        }
+        return result.append(literals[literals.length - 1]);
+    }
+
+    /**
+     * A {@link PromptTemplate} with this text that renders through this compiled template, for
+     * Spring AI components that take one, such as QuestionAnswerAdvisor.
+     */
+    public PromptTemplate toPromptTemplate() {
+        return PromptTemplate.builder()
+                .template(template)
+                .renderer((text, values) -> (text.equals(template) ? this : compile(name, text)).render(values))
+                .build();
+    }
+
+    private static void appendValue(StringBuilder result, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof CharSequence text) {
+            result.append(text);
+        }
+        else if (value instanceof Iterable<?> iterable) {
+            iterable.forEach(element -> appendValue(result, element));
+        }
+        else if (value.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                appendValue(result, Array.get(value, i));
+            }
+        }
+        else {
+            result.append(value);
+        }
+    }
+
+    private static boolean isName(String variable) {
+        if (variable.isEmpty() || !Character.isJavaIdentifierStart(variable.charAt(0))) {
+            return false;
+        }
+        return variable.chars().skip(1).allMatch(Character::isJavaIdentifierPart);
+    }
+
+    @Override
+    public String toString() {
+        return name + variables;
+    }
+}
@@ -0,0 +1,20 @@
+package com.springai;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.ai.tool.annotation.Tool;
+
+/**
+ * Marks a {@link Tool} method whose result depends on nothing but its arguments, so
+ * {@link MemoizingToolCallback} may answer repeated calls from its cache. Tools that read the
+ * clock, the user's locale or any other state (such as {@link DateTimeTools}) must not carry it.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Deterministic {
+}
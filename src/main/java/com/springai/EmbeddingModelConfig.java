@@ -0,0 +1,55 @@
+package com.springai;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Wraps the OpenAI embedding model in the embedding cache and request batching, and makes the
+ * result the primary {@link EmbeddingModel}, so vector stores, ingestion and RAG queries all go
+ * through it. Cache misses are what reach the batching layer, and the requests it sends wait for the
+ * rate limit: Caching(Batching(RateLimited(OpenAI))).
+ */
+@Configuration
+public class EmbeddingModelConfig {
+
+    @Bean
+    @Primary
+    public EmbeddingModel primaryEmbeddingModel(
+            @Qualifier("openAiEmbeddingModel") OpenAiEmbeddingModel openAiEmbeddingModel,
+            ModelCallScheduler scheduler,
+            @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String modelName,
+            @Value("${app.embedding.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${app.embedding.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.embedding.cache.directory:./target/embedding-cache}") String directory,
+            @Value("${app.embedding.batching.enabled:true}") boolean batchingEnabled,
+            @Value("${app.embedding.batching.window:5ms}") Duration window,
+            @Value("${app.embedding.batching.max-inputs-per-request:2048}") int maxInputsPerRequest,
+            @Value("${app.embedding.batching.max-tokens-per-request:300000}") int maxTokensPerRequest,
+            @Value("${app.embedding.batching.max-concurrent-requests:4}") int maxConcurrentRequests) {
+        EmbeddingModel embeddingModel = scheduler.embeddingModel("openai-embedding", openAiEmbeddingModel);
+        if (batchingEnabled) {
+            embeddingModel = BatchingEmbeddingModel.builder(embeddingModel)
+                    .window(window)
+                    .maxInputsPerRequest(maxInputsPerRequest)
+                    .maxTokensPerRequest(maxTokensPerRequest)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .build();
+        }
+        if (!cacheEnabled) {
+            return embeddingModel;
+        }
+        return CachingEmbeddingModel.builder(embeddingModel)
+                .modelName(modelName)
+                .maxEntries(maxEntries)
+                .directory(directory.isBlank() ? null : Path.of(directory))
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.springai;
+
+import java.util.List;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+
+/**
+ * A {@link VectorStore} that can accept documents whose embeddings were already computed.
+ * The ingestion pipeline embeds chunks in its own stage, so stores implementing this
+ * interface avoid a second round of embedding calls when the chunks are written.
+ */
+public interface EmbeddingVectorStore extends VectorStore {
+
+    /**
+     * Adds documents together with their embeddings.
+     * The two lists must be the same size and in the same order.
+     */
+    void add(List<Document> documents, List<float[]> embeddings);
+}
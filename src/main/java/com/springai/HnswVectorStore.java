@@ -0,0 +1,545 @@
+package com.springai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+/**
+ * In-memory approximate nearest neighbour {@link org.springframework.ai.vectorstore.VectorStore}
+ * backed by an HNSW graph (Malkov &amp; Yashunin), as a drop-in replacement for the linear scan
+ * in {@link org.springframework.ai.vectorstore.SimpleVectorStore}.
+ *
+ * Scores are cosine similarities, and {@link SearchRequest} keeps its usual meaning:
+ * topK, similarityThreshold and filter expressions (evaluated the same way as SimpleVectorStore).
+ * When a filter rejects most candidates the search widens its beam until it has topK matches.
+ *
+ * Inserts may run concurrently: each node's neighbour lists are copy-on-write arrays
+ * updated under that node's lock, so searches never block. Deletes leave a tombstone in the
+ * graph so it stays navigable; tombstoned nodes are never returned.
+ *
+ * Tombstones, including the old node of every replaced document, are never reclaimed or
+ * unlinked: they keep their memory and take up search beam and neighbour slots, so recall and
+ * memory use degrade as documents are updated. Once {@link #tombstones()} is a sizable share of
+ * the graph, build a new store, {@link #copyLiveTo copy} the live documents into it without
+ * embedding them again, and switch over to it.
+ */
+public class HnswVectorStore extends AbstractObservationVectorStore implements EmbeddingVectorStore {
+
+    private static final int MAX_LEVEL = 16;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SimilarityKernel kernel;
+
+    private final Map<String, Node> nodesById = new ConcurrentHashMap<>();
+    private final Object allocationLock = new Object();
+    private final Object entryLock = new Object();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private volatile Node[] nodes = new Node[1024];
+    private volatile int size;
+    private volatile Node entryPoint;
+
+    protected HnswVectorStore(Builder builder) {
+        super(builder);
+        this.m = builder.m;
+        this.maxM0 = builder.m * 2;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.levelMultiplier = 1 / Math.log(builder.m);
+        this.kernel = builder.similarityKernel;
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    /** Number of live (not deleted) documents. */
+    public int size() {
+        return nodesById.size();
+    }
+
+    /** Number of deleted or replaced documents still taking up space in the graph. */
+    public int tombstones() {
+        return size - nodesById.size();
+    }
+
+    /** Adds every live document with its stored embedding to {@code target}, to rebuild without tombstones. */
+    public void copyLiveTo(EmbeddingVectorStore target) {
+        List<Document> documents = new ArrayList<>();
+        List<float[]> embeddings = new ArrayList<>();
+        for (Node node : nodesById.values()) {
+            documents.add(Document.builder().id(node.id).text(node.text).metadata(node.metadata).build());
+            embeddings.add(node.vector);
+        }
+        target.add(documents, embeddings);
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        Objects.requireNonNull(documents, "Documents list cannot be null");
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                this.batchingStrategy);
+        add(documents, embeddings);
+    }
+
+    @Override
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Documents and embeddings must have the same size");
+        }
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            insert(document.getId(), document.getText(), document.getMetadata(), embeddings.get(i));
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        for (String id : idList) {
+            Node node = nodesById.remove(id);
+            if (node != null) {
+                node.deleted = true;
+            }
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilter.of(filterExpression);
+        List<String> ids = nodesById.values().stream()
+                .filter(node -> filter.test(node.metadata))
+                .map(node -> node.id)
+                .toList();
+        doDelete(ids);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = this.embeddingModel.embed(request.getQuery());
+        return search(query, request.getTopK(), request.getSimilarityThreshold(), MetadataFilter.of(request));
+    }
+
+    /**
+     * Searches with an already computed query embedding.
+     */
+    public List<Document> search(float[] queryEmbedding, int topK, double similarityThreshold,
+            Predicate<Map<String, Object>> filter) {
+        Node entry = entryPoint;
+        if (entry == null || topK <= 0) {
+            return List.of();
+        }
+        float[] query = normalize(queryEmbedding);
+        for (int level = entry.level; level > 0; level--) {
+            entry = greedyClosest(query, entry, level);
+        }
+
+        int ef = Math.max(efSearch, topK);
+        while (true) {
+            ScoredHeap candidates = searchLayer(query, entry, ef, 0);
+            int found = candidates.size();
+            int[] ids = new int[found];
+            float[] scores = new float[found];
+            for (int i = found - 1; i >= 0; i--) {
+                scores[i] = candidates.topScore();
+                ids[i] = candidates.pop();
+            }
+
+            List<Document> results = new ArrayList<>(Math.min(topK, found));
+            Node[] snapshot = nodes;
+            for (int i = 0; i < found && results.size() < topK; i++) {
+                Node node = snapshot[ids[i]];
+                if (scores[i] >= similarityThreshold && !node.deleted && filter.test(node.metadata)) {
+                    results.add(toDocument(node, scores[i]));
+                }
+            }
+            // Widen the beam only if filtering or tombstones left us short and more could qualify
+            boolean exhausted = found == 0 || scores[found - 1] < similarityThreshold || ef >= size;
+            if (results.size() >= topK || exhausted) {
+                return results;
+            }
+            ef = Math.min(ef * 2, size);
+        }
+    }
+
+    private void insert(String id, String text, Map<String, Object> metadata, float[] embedding) {
+        float[] vector = normalize(embedding);
+        int level = randomLevel();
+        Node node = allocate(id, text, metadata, vector, level);
+        Node previous = nodesById.put(id, node);
+        if (previous != null) {
+            previous.deleted = true;
+        }
+
+        Node entry = entryPoint;
+        if (entry == null) {
+            synchronized (entryLock) {
+                if (entryPoint == null) {
+                    entryPoint = node;
+                    return;
+                }
+                entry = entryPoint;
+            }
+        }
+
+        int topLevel = entry.level;
+        for (int l = topLevel; l > level; l--) {
+            entry = greedyClosest(vector, entry, l);
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            ScoredHeap candidates = searchLayer(vector, entry, efConstruction, l);
+            int[] ids = new int[candidates.size()];
+            float[] scores = new float[ids.length];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                scores[i] = candidates.topScore();
+                ids[i] = candidates.pop();
+            }
+            int[] selected = selectNeighbors(vector, ids, scores, maxConnections(l));
+            // Concurrent inserts may already have linked to the node through its upper layers
+            link(node, selected, l);
+            for (int neighbor : selected) {
+                link(nodes[neighbor], new int[] { node.index }, l);
+            }
+            if (ids.length > 0) {
+                entry = nodes[ids[0]];
+            }
+        }
+
+        if (level > entryPoint.level) {
+            synchronized (entryLock) {
+                if (level > entryPoint.level) {
+                    entryPoint = node;
+                }
+            }
+        }
+    }
+
+    private Node allocate(String id, String text, Map<String, Object> metadata, float[] vector, int level) {
+        synchronized (allocationLock) {
+            int index = size;
+            if (index == nodes.length) {
+                nodes = Arrays.copyOf(nodes, index * 2);
+            }
+            Node node = new Node(index, id, text, new HashMap<>(metadata), vector, level);
+            nodes[index] = node;
+            size = index + 1;
+            return node;
+        }
+    }
+
+    /**
+     * Adds {@code added} to the neighbour list of {@code target}, pruning with the
+     * selection heuristic when the list is full.
+     */
+    private void link(Node target, int[] added, int level) {
+        synchronized (target) {
+            int[] current = target.neighbors.get(level);
+            int[] ids = Arrays.copyOf(current, current.length + added.length);
+            int count = current.length;
+            for (int id : added) {
+                if (!contains(current, id)) {
+                    ids[count++] = id;
+                }
+            }
+            if (count < ids.length) {
+                ids = Arrays.copyOf(ids, count);
+            }
+            int max = maxConnections(level);
+            if (count <= max) {
+                target.neighbors.set(level, ids);
+                return;
+            }
+            float[] scores = new float[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                scores[i] = kernel.dot(target.vector, nodes[ids[i]].vector);
+            }
+            sortDescending(ids, scores);
+            target.neighbors.set(level, selectNeighbors(target.vector, ids, scores, max));
+        }
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base
+     * vector than to any neighbour already kept, then top up with the best of the rest.
+     * Candidates must be sorted by descending score.
+     */
+    private int[] selectNeighbors(float[] base, int[] ids, float[] scores, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        Node[] snapshot = nodes;
+        int[] selected = new int[max];
+        boolean[] taken = new boolean[ids.length];
+        int count = 0;
+        for (int i = 0; i < ids.length && count < max; i++) {
+            float[] candidate = snapshot[ids[i]].vector;
+            boolean diverse = true;
+            for (int j = 0; j < count && diverse; j++) {
+                diverse = kernel.dot(candidate, snapshot[selected[j]].vector) < scores[i];
+            }
+            if (diverse) {
+                selected[count++] = ids[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < ids.length && count < max; i++) {
+            if (!taken[i]) {
+                selected[count++] = ids[i];
+            }
+        }
+        return selected;
+    }
+
+    private Node greedyClosest(float[] query, Node entry, int level) {
+        Node current = entry;
+        float best = kernel.dot(query, current.vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : current.neighbors(level)) {
+                Node candidate = nodes[neighbor];
+                float score = kernel.dot(query, candidate.vector);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer; returns a min-heap of the best {@code ef} nodes found.
+     */
+    private ScoredHeap searchLayer(float[] query, Node entry, int ef, int level) {
+        Visited seen = visited.get();
+        seen.reset(size);
+        ScoredHeap candidates = new ScoredHeap(ef, false);
+        ScoredHeap results = new ScoredHeap(ef, true);
+        float entryScore = kernel.dot(query, entry.vector);
+        seen.mark(entry.index);
+        candidates.push(entry.index, entryScore);
+        results.push(entry.index, entryScore);
+
+        Node[] snapshot = nodes;
+        while (candidates.size() > 0) {
+            float score = candidates.topScore();
+            int current = candidates.pop();
+            if (results.size() >= ef && score < results.topScore()) {
+                break;
+            }
+            for (int neighbor : snapshot[current].neighbors(level)) {
+                if (neighbor >= snapshot.length) {
+                    // linked to a node allocated after this search started
+                    snapshot = nodes;
+                }
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float neighborScore = kernel.dot(query, snapshot[neighbor].vector);
+                if (results.size() < ef || neighborScore > results.topScore()) {
+                    candidates.push(neighbor, neighborScore);
+                    results.push(neighbor, neighborScore);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double r = 1 - ThreadLocalRandom.current().nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(r) * levelMultiplier));
+    }
+
+    private static Document toDocument(Node node, float score) {
+        Map<String, Object> metadata = new HashMap<>(node.metadata);
+        metadata.put(DocumentMetadata.DISTANCE.value(), 1.0 - score);
+        return Document.builder().id(node.id).text(node.text).metadata(metadata).score((double) score).build();
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static void sortDescending(int[] ids, float[] scores) {
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+        }
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder("hnsw", operationName)
+                .dimensions(this.embeddingModel.dimensions())
+                .collectionName("in-memory-hnsw")
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    private static final class Node {
+        private static final int[] EMPTY = new int[0];
+
+        final int index;
+        final String id;
+        final String text;
+        final Map<String, Object> metadata;
+        final float[] vector;
+        final int level;
+        final AtomicReferenceArray<int[]> neighbors;
+        volatile boolean deleted;
+
+        Node(int index, String id, String text, Map<String, Object> metadata, float[] vector, int level) {
+            this.index = index;
+            this.id = id;
+            this.text = text;
+            this.metadata = metadata;
+            this.vector = vector;
+            this.level = level;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int l = 0; l <= level; l++) {
+                this.neighbors.set(l, EMPTY);
+            }
+        }
+
+        int[] neighbors(int level) {
+            return level < neighbors.length() ? neighbors.get(level) : EMPTY;
+        }
+    }
+
+    /**
+     * Generation-stamped visited set, reused per thread to avoid allocating per search.
+     */
+    private static final class Visited {
+        private int[] marks = new int[1024];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /** Marks the node; returns false if it was already marked. */
+        boolean mark(int index) {
+            if (index >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(index + 1, marks.length * 2));
+            }
+            if (marks[index] == generation) {
+                return false;
+            }
+            marks[index] = generation;
+            return true;
+        }
+    }
+
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+        private SimilarityKernel similarityKernel = SimilarityKernel.get();
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        /** Maximum neighbours per node on upper layers; layer 0 allows twice as many. */
+        public Builder m(int m) {
+            if (m < 2) {
+                throw new IllegalArgumentException("m must be at least 2");
+            }
+            this.m = m;
+            return this;
+        }
+
+        /** Beam width used while inserting; higher builds a better graph more slowly. */
+        public Builder efConstruction(int efConstruction) {
+            if (efConstruction <= 0) {
+                throw new IllegalArgumentException("efConstruction must be positive");
+            }
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /** Minimum beam width used while searching; higher trades latency for recall. */
+        public Builder efSearch(int efSearch) {
+            if (efSearch <= 0) {
+                throw new IllegalArgumentException("efSearch must be positive");
+            }
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        /** Kernel used for all vector comparisons; defaults to the fastest one available. */
+        public Builder similarityKernel(SimilarityKernel similarityKernel) {
+            this.similarityKernel = Objects.requireNonNull(similarityKernel, "similarityKernel must not be null");
+            return this;
+        }
+
+        @Override
+        public HnswVectorStore build() {
+            return new HnswVectorStore(this);
+        }
+    }
+}
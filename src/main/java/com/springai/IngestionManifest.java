@@ -0,0 +1,168 @@
+package com.springai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+
+/**
+ * Records what has already been ingested: for every source URI, a hash of the
+ * source content and the ids of the chunks written for it. Chunk ids are derived
+ * from the source URI and a hash of the chunk, so unchanged chunks keep their id
+ * across runs and can be skipped without calling the embedding model.
+ *
+ * The fingerprint identifies the embedding model and splitter the manifest was built
+ * with; a manifest with a different fingerprint is discarded and everything is re-ingested.
+ */
+public class IngestionManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionManifest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final String fingerprint;
+    private final Map<String, Entry> sources;
+
+    private IngestionManifest(Path file, String fingerprint, Map<String, Entry> sources) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.sources = new ConcurrentHashMap<>(sources);
+    }
+
+    /**
+     * Ingestion state of one source.
+     */
+    public record Entry(String sourceHash, Set<String> chunkIds) {}
+
+    private record Data(String fingerprint, Map<String, Entry> sources) {}
+
+    /**
+     * Loads the manifest from the given file, or starts an empty one if the file
+     * does not exist or was written with a different fingerprint.
+     */
+    public static IngestionManifest load(Path file, String fingerprint) {
+        if (Files.exists(file)) {
+            try {
+                Data data = MAPPER.readValue(file.toFile(), Data.class);
+                if (fingerprint.equals(data.fingerprint()) && data.sources() != null) {
+                    return new IngestionManifest(file, fingerprint, data.sources());
+                }
+                logger.info("Ingestion manifest fingerprint changed, re-ingesting all sources");
+            }
+            catch (IOException e) {
+                logger.warn("Ignoring unreadable ingestion manifest {}: {}", file, e.getMessage());
+            }
+        }
+        return create(file, fingerprint);
+    }
+
+    /**
+     * An empty manifest that will replace whatever is in the given file when saved.
+     * Used when the vector store it describes has been lost.
+     */
+    public static IngestionManifest create(Path file, String fingerprint) {
+        return new IngestionManifest(file, fingerprint, Map.of());
+    }
+
+    /**
+     * A manifest that is never written to disk, for vector stores that do not survive a restart.
+     */
+    public static IngestionManifest inMemory() {
+        return new IngestionManifest(null, "", Map.of());
+    }
+
+    public boolean isUnchanged(String sourceUri, String sourceHash) {
+        Entry entry = sources.get(sourceUri);
+        return entry != null && entry.sourceHash().equals(sourceHash);
+    }
+
+    public Set<String> chunkIds(String sourceUri) {
+        Entry entry = sources.get(sourceUri);
+        return entry == null ? Set.of() : entry.chunkIds();
+    }
+
+    public Set<String> sourceUris() {
+        return Set.copyOf(sources.keySet());
+    }
+
+    public void put(String sourceUri, String sourceHash, Set<String> chunkIds) {
+        sources.put(sourceUri, new Entry(sourceHash, Set.copyOf(chunkIds)));
+    }
+
+    public void remove(String sourceUri) {
+        sources.remove(sourceUri);
+    }
+
+    /**
+     * Writes the manifest atomically (temp file + rename). No-op for in-memory manifests.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), new Data(fingerprint, new HashMap<>(sources)));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to save ingestion manifest " + file, e);
+        }
+    }
+
+    /**
+     * SHA-256 over the text and the (sorted) metadata of a document.
+     */
+    public static String hash(Document document) {
+        MessageDigest digest = sha256();
+        digest.update(String.valueOf(document.getText()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(new TreeMap<>(document.getMetadata()).toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hash of a whole source, combined from the hashes of its documents in order.
+     */
+    public static String hash(Iterable<Document> documents) {
+        MessageDigest digest = sha256();
+        for (Document document : documents) {
+            digest.update(hash(document).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Stable chunk id: a name-based UUID of the source URI and the chunk hash.
+     */
+    public static String chunkId(String sourceUri, String chunkHash) {
+        return UUID.nameUUIDFromBytes((sourceUri + "#" + chunkHash).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+
+/**
+ * Pipelined document ingestion: reader, splitter, embedder and store writer.
+ *
+ * Each stage runs on its own pool of worker threads and hands work to the next
+ * stage through a bounded queue, so PDF parsing, splitting and embedding calls
+ * overlap while a slow stage applies backpressure to the stages before it.
+ *
+ * If the target implements {@link EmbeddingVectorStore} the embedder stage calls
+ * the {@link EmbeddingModel} in batches and the writer stores the vectors as-is.
+ * Otherwise the embedder stage only batches chunks and the store embeds them on add.
+ *
+ * With an {@link IngestionManifest}, chunks get stable content-derived ids: sources and
+ * chunks whose hash is already in the manifest are not embedded again, and chunks that
+ * are no longer produced by any source are deleted from the store at the end of the run.
+ */
+public class IngestionPipeline {
+
+    /** Metadata key holding the URI of the source a document or chunk was read from. */
+    public static final String SOURCE_URI = "source_uri";
+
+    private static final Object END = new Object();
+
+    private final EmbeddingModel embeddingModel;
+    private final VectorStore vectorStore;
+    private final TextSplitter splitter;
+    private final int readerThreads;
+    private final int splitterThreads;
+    private final int embedderThreads;
+    private final int writerThreads;
+    private final int queueCapacity;
+    private final int embeddingBatchSize;
+    private final Duration maxBatchDelay;
+    private final IngestionManifest manifest;
+
+    private IngestionPipeline(Builder builder) {
+        this.embeddingModel = Objects.requireNonNull(builder.embeddingModel, "embeddingModel must not be null");
+        this.vectorStore = Objects.requireNonNull(builder.vectorStore, "vectorStore must not be null");
+        this.splitter = builder.splitter;
+        this.readerThreads = requirePositive(builder.readerThreads, "readerThreads");
+        this.splitterThreads = requirePositive(builder.splitterThreads, "splitterThreads");
+        this.embedderThreads = requirePositive(builder.embedderThreads, "embedderThreads");
+        this.writerThreads = requirePositive(builder.writerThreads, "writerThreads");
+        this.queueCapacity = requirePositive(builder.queueCapacity, "queueCapacity");
+        this.embeddingBatchSize = requirePositive(builder.embeddingBatchSize, "embeddingBatchSize");
+        this.maxBatchDelay = builder.maxBatchDelay;
+        this.manifest = builder.manifest;
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel, VectorStore vectorStore) {
+        return new Builder(embeddingModel, vectorStore);
+    }
+
+    /**
+     * A document source. The metadata is merged into every document the reader returns.
+     */
+    public record Source(String uri, DocumentReader reader, Map<String, Object> metadata) {
+
+        public Source(String uri, DocumentReader reader) {
+            this(uri, reader, Map.of());
+        }
+    }
+
+    /**
+     * Runs all sources through the pipeline and blocks until every chunk has been written.
+     *
+     * @throws IllegalStateException if any stage fails; the remaining stages are cancelled
+     */
+    public IngestionReport run(List<Source> sources) {
+        long start = System.nanoTime();
+        boolean precomputed = vectorStore instanceof EmbeddingVectorStore;
+        RunState state = new RunState();
+
+        StageMetrics readMetrics = new StageMetrics("reader", readerThreads);
+        StageMetrics splitMetrics = new StageMetrics("splitter", splitterThreads);
+        StageMetrics embedMetrics = new StageMetrics("embedder", embedderThreads);
+        StageMetrics writeMetrics = new StageMetrics("writer", writerThreads);
+
+        BlockingQueue<Object> sourceQueue = new ArrayBlockingQueue<>(sources.size() + readerThreads);
+        BlockingQueue<Object> documentQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> chunkQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> batchQueue = new ArrayBlockingQueue<>(queueCapacity);
+        sourceQueue.addAll(sources);
+        for (int i = 0; i < readerThreads; i++) {
+            sourceQueue.add(END);
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        List<ExecutorService> executors = new ArrayList<>();
+
+        Stage writer = new Stage(writeMetrics, batchQueue, null, 0, done, failure,
+                () -> new WriteWorker(writeMetrics, precomputed));
+        Stage embedder = new Stage(embedMetrics, chunkQueue, batchQueue, writerThreads, null, failure,
+                () -> new EmbedWorker(embedMetrics, precomputed));
+        Stage splitStage = new Stage(splitMetrics, documentQueue, chunkQueue, embedderThreads, null, failure,
+                () -> new SplitWorker(splitMetrics, state));
+        Stage reader = new Stage(readMetrics, sourceQueue, documentQueue, splitterThreads, null, failure,
+                () -> new ReadWorker(readMetrics, state));
+
+        for (Stage stage : List.of(writer, embedder, splitStage, reader)) {
+            executors.add(stage.start());
+        }
+
+        try {
+            while (!done.await(100, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        finally {
+            executors.forEach(failure.get() != null ? ExecutorService::shutdownNow : ExecutorService::shutdown);
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Ingestion failed: " + failure.get().getMessage(), failure.get());
+        }
+
+        int deleted = manifest == null ? 0 : reconcile(sources, state);
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return new IngestionReport(sources.size(), readMetrics.items.get(), writeMetrics.items.get(),
+                state.unchanged.get(), deleted, elapsed,
+                List.of(readMetrics.report(), splitMetrics.report(), embedMetrics.report(), writeMetrics.report()));
+    }
+
+    /**
+     * Deletes chunks the manifest knows about but this run no longer produced,
+     * including every chunk of sources that were dropped, and updates the manifest.
+     * The caller saves the manifest once the store itself has been persisted.
+     */
+    private int reconcile(List<Source> sources, RunState state) {
+        Set<String> currentUris = new HashSet<>();
+        sources.forEach(source -> currentUris.add(source.uri()));
+
+        List<String> orphans = new ArrayList<>();
+        for (String uri : manifest.sourceUris()) {
+            Set<String> seen = state.seen.getOrDefault(uri, Set.of());
+            manifest.chunkIds(uri).stream().filter(id -> !seen.contains(id)).forEach(orphans::add);
+            if (!currentUris.contains(uri)) {
+                manifest.remove(uri);
+            }
+        }
+        if (!orphans.isEmpty()) {
+            vectorStore.delete(orphans);
+        }
+        state.sourceHashes.forEach((uri, hash) -> manifest.put(uri, hash, state.seen.getOrDefault(uri, Set.of())));
+        return orphans.size();
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * A group of worker threads that drain one queue and feed the next.
+     * The last worker to finish forwards one END marker per downstream worker.
+     */
+    private final class Stage {
+        private final StageMetrics metrics;
+        private final BlockingQueue<Object> input;
+        private final BlockingQueue<Object> output;
+        private final int downstreamWorkers;
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> failure;
+        private final Supplier<Worker> workerFactory;
+        private final AtomicInteger running;
+
+        Stage(StageMetrics metrics, BlockingQueue<Object> input, BlockingQueue<Object> output, int downstreamWorkers,
+                CountDownLatch done, AtomicReference<Throwable> failure, Supplier<Worker> workerFactory) {
+            this.metrics = metrics;
+            this.input = input;
+            this.output = output;
+            this.downstreamWorkers = downstreamWorkers;
+            this.done = done;
+            this.failure = failure;
+            this.workerFactory = workerFactory;
+            this.running = new AtomicInteger(metrics.threads);
+        }
+
+        ExecutorService start() {
+            ExecutorService executor = Executors.newFixedThreadPool(metrics.threads, threadFactory(metrics.name));
+            for (int i = 0; i < metrics.threads; i++) {
+                Worker worker = workerFactory.get();
+                executor.execute(() -> runWorker(worker));
+            }
+            return executor;
+        }
+
+        private void runWorker(Worker worker) {
+            Emitter emitter = item -> {
+                long blockedStart = System.nanoTime();
+                output.put(item);
+                metrics.blockedNanos.addAndGet(System.nanoTime() - blockedStart);
+            };
+            try {
+                while (failure.get() == null) {
+                    Object item = worker.hasPending()
+                            ? input.poll(maxBatchDelay.toNanos(), TimeUnit.NANOSECONDS)
+                            : input.take();
+                    if (item == null) {
+                        worker.flush(emitter);
+                    }
+                    else if (item == END) {
+                        worker.flush(emitter);
+                        break;
+                    }
+                    else {
+                        worker.accept(item, emitter);
+                    }
+                }
+                if (running.decrementAndGet() == 0) {
+                    for (int i = 0; i < downstreamWorkers; i++) {
+                        output.put(END);
+                    }
+                    if (done != null) {
+                        done.countDown();
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (Throwable t) {
+                failure.compareAndSet(null, new IllegalStateException(metrics.name + " stage failed", t));
+            }
+        }
+    }
+
+    private interface Emitter {
+        void emit(Object item) throws InterruptedException;
+    }
+
+    private interface Worker {
+        void accept(Object item, Emitter out) throws Exception;
+
+        default boolean hasPending() {
+            return false;
+        }
+
+        default void flush(Emitter out) throws Exception {
+        }
+    }
+
+    /**
+     * Manifest bookkeeping for one run, shared by all workers.
+     */
+    private static final class RunState {
+        private final Map<String, String> sourceHashes = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> seen = new ConcurrentHashMap<>();
+        private final AtomicLong unchanged = new AtomicLong();
+
+        void seen(String uri, String chunkId) {
+            seen.computeIfAbsent(uri, key -> ConcurrentHashMap.newKeySet()).add(chunkId);
+        }
+    }
+
+    private final class ReadWorker implements Worker {
+        private final StageMetrics metrics;
+        private final RunState state;
+
+        ReadWorker(StageMetrics metrics, RunState state) {
+            this.metrics = metrics;
+            this.state = state;
+        }
+
+        @Override
+        public void accept(Object item, Emitter out) throws InterruptedException {
+            Source source = (Source) item;
+            long start = System.nanoTime();
+            List<Document> documents = source.reader().get();
+            for (Document document : documents) {
+                document.getMetadata().put(SOURCE_URI, source.uri());
+                source.metadata().forEach(document.getMetadata()::putIfAbsent);
+            }
+            if (manifest != null) {
+                String sourceHash = IngestionManifest.hash(documents);
+                if (manifest.isUnchanged(source.uri(), sourceHash)) {
+                    Set<String> chunkIds = manifest.chunkIds(source.uri());
+                    chunkIds.forEach(id -> state.seen(source.uri(), id));
+                    state.unchanged.addAndGet(chunkIds.size());
+                    state.sourceHashes.put(source.uri(), sourceHash);
+                    metrics.record(System.nanoTime() - start, 0);
+                    return;
+                }
+                state.sourceHashes.put(source.uri(), sourceHash);
+            }
+            metrics.record(System.nanoTime() - start, documents.size());
+            for (Document document : documents) {
+                out.emit(document);
+            }
+        }
+    }
+
+    private final class SplitWorker implements Worker {
+        private final StageMetrics metrics;
+        private final RunState state;
+
+        SplitWorker(StageMetrics metrics, RunState state) {
+            this.metrics = metrics;
+            this.state = state;
+        }
+
+        @Override
+        public void accept(Object item, Emitter out) throws InterruptedException {
+            long start = System.nanoTime();
+            List<Document> chunks = splitter.split((Document) item);
+            List<Document> changed = new ArrayList<>(chunks.size());
+            for (Document chunk : chunks) {
+                if (manifest == null) {
+                    changed.add(chunk);
+                    continue;
+                }
+                String uri = (String) chunk.getMetadata().get(SOURCE_URI);
+                String id = IngestionManifest.chunkId(uri, IngestionManifest.hash(chunk));
+                state.seen(uri, id);
+                if (manifest.chunkIds(uri).contains(id)) {
+                    state.unchanged.incrementAndGet();
+                }
+                else {
+                    changed.add(chunk.mutate().id(id).build());
+                }
+            }
+            metrics.record(System.nanoTime() - start, changed.size());
+            for (Document chunk : changed) {
+                out.emit(chunk);
+            }
+        }
+    }
+
+    private final class EmbedWorker implements Worker {
+        private final StageMetrics metrics;
+        private final boolean precomputed;
+        private List<Document> pending = new ArrayList<>();
+
+        EmbedWorker(StageMetrics metrics, boolean precomputed) {
+            this.metrics = metrics;
+            this.precomputed = precomputed;
+        }
+
+        @Override
+        public void accept(Object item, Emitter out) throws InterruptedException {
+            pending.add((Document) item);
+            if (pending.size() >= embeddingBatchSize) {
+                flush(out);
+            }
+        }
+
+        @Override
+        public boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public void flush(Emitter out) throws InterruptedException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Document> batch = pending;
+            pending = new ArrayList<>();
+            List<float[]> embeddings = null;
+            long start = System.nanoTime();
+            if (precomputed) {
+                List<String> texts = batch.stream()
+                        .map(document -> document.getFormattedContent(MetadataMode.EMBED))
+                        .toList();
+                embeddings = embeddingModel.embed(texts);
+            }
+            metrics.record(System.nanoTime() - start, batch.size());
+            out.emit(new EmbeddedBatch(batch, embeddings));
+        }
+    }
+
+    private final class WriteWorker implements Worker {
+        private final StageMetrics metrics;
+        private final boolean precomputed;
+
+        WriteWorker(StageMetrics metrics, boolean precomputed) {
+            this.metrics = metrics;
+            this.precomputed = precomputed;
+        }
+
+        @Override
+        public void accept(Object item, Emitter out) {
+            EmbeddedBatch batch = (EmbeddedBatch) item;
+            long start = System.nanoTime();
+            if (precomputed) {
+                ((EmbeddingVectorStore) vectorStore).add(batch.documents(), batch.embeddings());
+            }
+            else {
+                vectorStore.add(batch.documents());
+            }
+            metrics.record(System.nanoTime() - start, batch.documents().size());
+        }
+    }
+
+    private record EmbeddedBatch(List<Document> documents, List<float[]> embeddings) {}
+
+    private static final class StageMetrics {
+        private final String name;
+        private final int threads;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong blockedNanos = new AtomicLong();
+        private long[] latencies = new long[64];
+        private int calls;
+
+        StageMetrics(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        synchronized void record(long nanos, int itemCount) {
+            if (calls == latencies.length) {
+                latencies = Arrays.copyOf(latencies, calls * 2);
+            }
+            latencies[calls++] = nanos;
+            items.addAndGet(itemCount);
+        }
+
+        synchronized IngestionReport.StageReport report() {
+            long[] sorted = Arrays.copyOf(latencies, calls);
+            Arrays.sort(sorted);
+            double mean = calls == 0 ? 0 : Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+            double p95 = calls == 0 ? 0 : sorted[Math.min(calls - 1, (int) Math.ceil(calls * 0.95) - 1)] / 1_000_000.0;
+            double max = calls == 0 ? 0 : sorted[calls - 1] / 1_000_000.0;
+            return new IngestionReport.StageReport(name, threads, items.get(), calls, mean, p95, max,
+                    blockedNanos.get() / 1_000_000.0);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String stage) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "ingest-" + stage + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static final class Builder {
+        private final EmbeddingModel embeddingModel;
+        private final VectorStore vectorStore;
+        private TextSplitter splitter = new TokenTextSplitter();
+        private int readerThreads = 2;
+        private int splitterThreads = 2;
+        private int embedderThreads = 4;
+        private int writerThreads = 1;
+        private int queueCapacity = 256;
+        private int embeddingBatchSize = 64;
+        private Duration maxBatchDelay = Duration.ofMillis(50);
+        private IngestionManifest manifest;
+
+        private Builder(EmbeddingModel embeddingModel, VectorStore vectorStore) {
+            this.embeddingModel = embeddingModel;
+            this.vectorStore = vectorStore;
+        }
+
+        public Builder splitter(TextSplitter splitter) {
+            this.splitter = splitter;
+            return this;
+        }
+
+        public Builder readerThreads(int readerThreads) {
+            this.readerThreads = readerThreads;
+            return this;
+        }
+
+        public Builder splitterThreads(int splitterThreads) {
+            this.splitterThreads = splitterThreads;
+            return this;
+        }
+
+        public Builder embedderThreads(int embedderThreads) {
+            this.embedderThreads = embedderThreads;
+            return this;
+        }
+
+        public Builder writerThreads(int writerThreads) {
+            this.writerThreads = writerThreads;
+            return this;
+        }
+
+        /** Capacity of each inter-stage queue; a full queue blocks the upstream stage. */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /** Number of chunks sent to the embedding model in one call. */
+        public Builder embeddingBatchSize(int embeddingBatchSize) {
+            this.embeddingBatchSize = embeddingBatchSize;
+            return this;
+        }
+
+        /** How long a partially filled embedding batch may wait for more chunks. */
+        public Builder maxBatchDelay(Duration maxBatchDelay) {
+            this.maxBatchDelay = maxBatchDelay;
+            return this;
+        }
+
+        /** Enables incremental ingestion against the given manifest. */
+        public Builder manifest(IngestionManifest manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        public IngestionPipeline build() {
+            return new IngestionPipeline(this);
+        }
+    }
+}
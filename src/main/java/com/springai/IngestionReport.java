@@ -0,0 +1,65 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Summary of one {@link IngestionPipeline} run: overall throughput plus
+ * latency and backpressure figures for every stage.
+ * {@code chunks} counts chunks written; chunks skipped because the manifest
+ * already had them are counted in {@code unchangedChunks}.
+ */
+public record IngestionReport(
+        int sources,
+        long documents,
+        long chunks,
+        long unchangedChunks,
+        long deletedChunks,
+        Duration elapsed,
+        List<StageReport> stages
+) {
+
+    public double chunksPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? 0 : chunks / seconds;
+    }
+
+    /**
+     * Per-stage figures. Latency is measured per unit of work
+     * (one source, one document, one embedding batch, one store write);
+     * {@code blockedMillis} is the time workers spent waiting on a full downstream queue.
+     */
+    public record StageReport(
+            String name,
+            int threads,
+            long items,
+            long calls,
+            double meanMillis,
+            double p95Millis,
+            double maxMillis,
+            double blockedMillis
+    ) {}
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                """
+                        Ingestion Report:
+                        Sources: %d
+                        Documents: %d
+                        Chunks: %d
+                        Unchanged: %d
+                        Deleted: %d
+                        Elapsed: %.2f s
+                        Throughput: %.1f chunks/s""",
+                sources, documents, chunks, unchangedChunks, deletedChunks, elapsed.toMillis() / 1000.0,
+                chunksPerSecond()));
+        for (StageReport stage : stages) {
+            sb.append(String.format(
+                    "%n  %-9s threads=%d items=%d calls=%d mean=%.1fms p95=%.1fms max=%.1fms blocked=%.1fms",
+                    stage.name(), stage.threads(), stage.items(), stage.calls(),
+                    stage.meanMillis(), stage.p95Millis(), stage.maxMillis(), stage.blockedMillis()));
+        }
+        return sb.toString();
+    }
+}
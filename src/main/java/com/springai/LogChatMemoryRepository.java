@@ -0,0 +1,945 @@
+package com.springai;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.util.MimeType;
+
+/**
+ * {@link ChatMemoryRepository} that persists conversations to a local append-only log, so any
+ * {@link org.springframework.ai.chat.memory.ChatMemory} (and with it {@code MessageChatMemoryAdvisor})
+ * survives restarts.
+ *
+ * In memory it keeps an index of where each conversation's records are in the log, and the
+ * messages of at most {@code maxCachedConversations} recently read or saved conversations. Other
+ * conversations are read back from the log when asked for. Conversations with changes that are
+ * not in the log yet are never dropped from the cache.
+ *
+ * Files in the directory:
+ * <ul>
+ * <li>{@code segment-NNNNNNNN.log}: records of little-endian [payload length][crc32][payload]. A
+ * payload replaces, extends or deletes one conversation; {@link #saveAll} writes only the new
+ * messages when the saved list extends the previous one.</li>
+ * <li>{@code snapshot-NNNNNNNN.bin}: every conversation as of the start of segment NNNNNNNN. It is
+ * written once {@code snapshotBytes} of log have accumulated and on close, after which older
+ * segments are deleted.</li>
+ * <li>{@code lock}: locked exclusively while the repository is open, so a second process or
+ * application context on the same directory fails instead of corrupting the log.</li>
+ * </ul>
+ * The log is local to one writer: it keeps conversations across restarts of an instance, but
+ * does not share them between instances. Instances that must see each other's conversations
+ * need a shared repository instead, such as Spring AI's JDBC one.
+ * Writes return as soon as the change is visible to readers; a single writer thread appends them
+ * in batches and forces the log to disk at most every {@code fsyncInterval} (group commit), so a
+ * crash loses at most that window. {@link #flush()} waits until everything saved so far is on disk.
+ * Startup indexes the newest snapshot and the segments after it, and discards a torn record at the
+ * end of the log. Messages are stored with their type (as a code of this class, not the enum's
+ * ordinal), text, metadata, tool calls or tool responses, and media.
+ */
+public class LogChatMemoryRepository implements ChatMemoryRepository, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d{8})\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{8})\\.bin");
+    private static final int SNAPSHOT_MAGIC = 0x43484d53;
+    private static final byte PUT = 1;
+    private static final byte APPEND = 2;
+    private static final byte DELETE = 3;
+    // Message type codes of the log format; never reuse or renumber them
+    private static final byte USER_MESSAGE = 1;
+    private static final byte ASSISTANT_MESSAGE = 2;
+    private static final byte SYSTEM_MESSAGE = 3;
+    private static final byte TOOL_MESSAGE = 4;
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+    private static final int MAX_BATCH = 1024;
+    private static final int SNAPSHOT_HEADER = Integer.BYTES * 2 + Long.BYTES;
+
+    private final Logger logger = LoggerFactory.getLogger(LogChatMemoryRepository.class);
+    private final Path directory;
+    private final long segmentBytes;
+    private final long snapshotBytes;
+    private final long fsyncIntervalNanos;
+    private final int maxCachedConversations;
+    private final FileChannel lock;
+    // Guarded by this: where the records of each logged conversation are, changed only by the
+    // writer thread, and what readers see, which may be ahead of the log. Lists are never modified.
+    private final Map<String, List<Location>> index = new HashMap<>();
+    private final Map<String, Cached> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Held to read records, and exclusively to delete the files a snapshot made obsolete
+    private final ReadWriteLock files = new ReentrantReadWriteLock();
+    private final Map<Path, FileChannel> readers = new ConcurrentHashMap<>();
+    private final BlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final Duration recoveryTime;
+
+    // Writer thread state: the open segment
+    private long segmentNumber;
+    private Path segmentFile;
+    private FileChannel segment;
+    private long segmentPosition;
+    private long bytesSinceSnapshot;
+    private volatile Exception failure;
+
+    private LogChatMemoryRepository(Builder builder) {
+        this.directory = builder.directory;
+        this.segmentBytes = builder.segmentBytes;
+        this.snapshotBytes = builder.snapshotBytes;
+        this.fsyncIntervalNanos = builder.fsyncInterval.toNanos();
+        this.maxCachedConversations = builder.maxCachedConversations;
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            this.lock = lock(directory);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to open chat memory log " + directory, e);
+        }
+        try {
+            recover();
+        }
+        catch (IOException e) {
+            closeFiles();
+            throw new UncheckedIOException("Failed to open chat memory log " + directory, e);
+        }
+        catch (RuntimeException e) {
+            closeFiles();
+            throw e;
+        }
+        this.recoveryTime = Duration.ofNanos(System.nanoTime() - started);
+        this.writer = new Thread(this::writeLoop, "chat-memory-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Saves requested, fsync calls made and log bytes written since startup, conversations stored
+     * and held in memory, and how long startup recovery took.
+     */
+    public record Stats(long writes, long fsyncs, long bytesWritten, int conversations, int cachedConversations,
+            Duration recoveryTime) {
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(writes.get(), fsyncs.get(), bytesWritten.get(), findConversationIds().size(), cache.size(),
+                recoveryTime);
+    }
+
+    @Override
+    public synchronized List<String> findConversationIds() {
+        Set<String> ids = new LinkedHashSet<>(index.keySet());
+        cache.forEach((id, cached) -> {
+            if (cached.messages == null) {
+                ids.remove(id);
+            }
+            else {
+                ids.add(id);
+            }
+        });
+        return new ArrayList<>(ids);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        files.readLock().lock();
+        try {
+            List<Location> locations;
+            synchronized (this) {
+                Cached cached = cache.get(conversationId);
+                if (cached != null) {
+                    return cached.messages == null ? List.of() : cached.messages;
+                }
+                locations = index.get(conversationId);
+                if (locations == null) {
+                    return List.of();
+                }
+            }
+            List<Message> messages = read(locations);
+            synchronized (this) {
+                Cached cached = cache.get(conversationId);
+                if (cached != null) {
+                    // Saved while we were reading
+                    return cached.messages == null ? List.of() : cached.messages;
+                }
+                if (index.get(conversationId) == locations) {
+                    cache.put(conversationId, new Cached(messages));
+                    evict();
+                }
+                return messages;
+            }
+        }
+        finally {
+            files.readLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void saveAll(String conversationId, List<Message> messages) {
+        checkOpen();
+        List<Message> saved = List.copyOf(messages);
+        // Fails here rather than on the writer thread if a message cannot be stored as it is
+        saved.forEach(LogChatMemoryRepository::content);
+        Cached cached = cache.computeIfAbsent(conversationId, id -> new Cached(null));
+        List<Message> previous = cached.messages;
+        cached.messages = saved;
+        writes.incrementAndGet();
+        // Conversations not in the cache are logged in full rather than read back to compare
+        if (previous != null && isExtensionOf(saved, previous)) {
+            if (saved.size() > previous.size()) {
+                cached.pending++;
+                queue.add(new Operation(APPEND, conversationId, saved.subList(previous.size(), saved.size()), null));
+            }
+        }
+        else {
+            cached.pending++;
+            queue.add(new Operation(PUT, conversationId, saved, null));
+        }
+        evict();
+    }
+
+    @Override
+    public synchronized void deleteByConversationId(String conversationId) {
+        checkOpen();
+        Cached cached = cache.get(conversationId);
+        if (cached != null ? cached.messages != null : index.containsKey(conversationId)) {
+            if (cached == null) {
+                cached = new Cached(null);
+                cache.put(conversationId, cached);
+            }
+            cached.messages = null;
+            cached.pending++;
+            writes.incrementAndGet();
+            queue.add(new Operation(DELETE, conversationId, List.of(), null));
+        }
+    }
+
+    /** Blocks until every change saved before this call is on disk. */
+    public void flush() {
+        checkOpen();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Operation((byte) 0, null, null, done));
+        done.join();
+    }
+
+    /** Writes outstanding changes and a snapshot, so the next start only has to read the snapshot. */
+    @Override
+    public void close() {
+        if (writer.isAlive()) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            queue.add(new Operation((byte) -1, null, null, done));
+            done.join();
+            try {
+                writer.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeFiles();
+    }
+
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        }
+        catch (OverlappingFileLockException e) {
+            // Held by another repository in this JVM
+        }
+        channel.close();
+        throw new IllegalStateException("Chat memory log " + directory
+                + " is in use by another process or application context");
+    }
+
+    private void closeFiles() {
+        for (FileChannel channel : readers.values()) {
+            closeQuietly(channel);
+        }
+        readers.clear();
+        // Releases the lock
+        closeQuietly(lock);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            // Nothing left to do with it
+        }
+    }
+
+    /** Drops the least recently used conversations beyond the limit whose changes are all logged. */
+    private void evict() {
+        int excess = cache.size() - maxCachedConversations;
+        for (Iterator<Cached> it = cache.values().iterator(); excess > 0 && it.hasNext(); ) {
+            if (it.next().pending == 0) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new IllegalStateException("Chat memory log " + directory + " failed", failure);
+        }
+        if (!writer.isAlive()) {
+            throw new IllegalStateException("Chat memory log " + directory + " is closed");
+        }
+    }
+
+    private static boolean isExtensionOf(List<Message> saved, List<Message> previous) {
+        if (saved.size() < previous.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (saved.get(i) != previous.get(i) && !saved.get(i).equals(previous.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** What a message carries besides text and metadata, as stored in the log. */
+    private record Content(List<AssistantMessage.ToolCall> toolCalls,
+            List<ToolResponseMessage.ToolResponse> toolResponses, List<StoredMedia> storedMedia) {
+
+        static final Content EMPTY = new Content(List.of(), List.of(), List.of());
+
+        Content {
+            toolCalls = toolCalls == null ? List.of() : toolCalls;
+            toolResponses = toolResponses == null ? List.of() : toolResponses;
+            storedMedia = storedMedia == null ? List.of() : storedMedia;
+        }
+
+        List<Media> media() {
+            return storedMedia.stream().map(StoredMedia::toMedia).toList();
+        }
+    }
+
+    /** Media by URL, or by value when the message holds the bytes. */
+    private record StoredMedia(String mimeType, String id, String name, String url, byte[] bytes) {
+
+        static StoredMedia of(Media media) {
+            Object data = media.getData();
+            return new StoredMedia(media.getMimeType().toString(), media.getId(), media.getName(),
+                    data instanceof byte[] ? null : String.valueOf(data), data instanceof byte[] bytes ? bytes : null);
+        }
+
+        Media toMedia() {
+            return Media.builder()
+                    .mimeType(MimeType.valueOf(mimeType))
+                    .id(id)
+                    .name(name)
+                    .data(bytes != null ? bytes : url)
+                    .build();
+        }
+    }
+
+    private record Operation(byte type, String conversationId, List<Message> messages, CompletableFuture<Void> done) {
+    }
+
+    /** A record of the log: [length][crc32][payload] at {@code offset} of a segment or snapshot. */
+    private record Location(Path file, long offset, int length) {
+    }
+
+    private static final class Cached {
+        // Null once deleted, until the deletion is logged
+        List<Message> messages;
+        // Changes not yet written by the writer thread
+        int pending;
+
+        Cached(List<Message> messages) {
+            this.messages = messages;
+        }
+    }
+
+    // ---- writer thread ----
+
+    private void writeLoop() {
+        List<Operation> batch = new ArrayList<>();
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        boolean closing = false;
+        try {
+            while (!closing) {
+                long wait = dirty ? Math.max(0, fsyncIntervalNanos - (System.nanoTime() - lastForce)) : Long.MAX_VALUE;
+                Operation first = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                for (Operation operation : batch) {
+                    if (operation.done() != null) {
+                        waiting.add(operation.done());
+                        closing |= operation.type() < 0;
+                    }
+                    else {
+                        write(operation);
+                        dirty = true;
+                    }
+                }
+                batch.clear();
+                if (dirty && (!waiting.isEmpty() || System.nanoTime() - lastForce >= fsyncIntervalNanos)) {
+                    segment.force(false);
+                    fsyncs.incrementAndGet();
+                    lastForce = System.nanoTime();
+                    dirty = false;
+                }
+                if (segmentPosition >= segmentBytes) {
+                    rollSegment(bytesSinceSnapshot >= snapshotBytes);
+                }
+                if (closing) {
+                    if (bytesSinceSnapshot > 0) {
+                        rollSegment(true);
+                    }
+                    segment.close();
+                }
+                waiting.forEach(done -> done.complete(null));
+                waiting.clear();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            failure = e;
+            logger.error("Chat memory log {} failed; conversations cannot be saved until restart", directory, e);
+            waiting.forEach(done -> done.completeExceptionally(e));
+            queue.forEach(operation -> {
+                if (operation.done() != null) {
+                    operation.done().completeExceptionally(e);
+                }
+            });
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Operation operation) throws IOException {
+        ByteBuffer record = encode(operation.type(), operation.conversationId(), operation.messages());
+        int length = record.remaining();
+        Location location = new Location(segmentFile, segmentPosition, length);
+        while (record.hasRemaining()) {
+            segmentPosition += segment.write(record, segmentPosition);
+        }
+        bytesSinceSnapshot += length;
+        bytesWritten.addAndGet(length);
+        logged(operation.type(), operation.conversationId(), location);
+    }
+
+    private synchronized void logged(byte type, String conversationId, Location location) {
+        apply(index, type, conversationId, location);
+        Cached cached = cache.get(conversationId);
+        if (cached != null && --cached.pending == 0) {
+            if (cached.messages == null) {
+                cache.remove(conversationId);
+            }
+            evict();
+        }
+    }
+
+    /** Starts the next segment, first writing a snapshot that makes all earlier segments obsolete if asked to. */
+    private void rollSegment(boolean snapshot) throws IOException {
+        segment.force(false);
+        fsyncs.incrementAndGet();
+        segment.close();
+        segmentNumber++;
+        if (snapshot) {
+            writeSnapshot(segmentNumber);
+            bytesSinceSnapshot = 0;
+        }
+        openSegment();
+    }
+
+    /**
+     * Writes every logged conversation into a snapshot, one at a time: from the cache if it holds
+     * the logged state, otherwise read back from the log.
+     */
+    private void writeSnapshot(long coversUpTo) throws IOException {
+        Path tmp = directory.resolve(String.format("snapshot-%08d.bin.tmp", coversUpTo));
+        Path snapshot = directory.resolve(String.format("snapshot-%08d.bin", coversUpTo));
+        Map<String, List<Location>> logged;
+        synchronized (this) {
+            logged = new LinkedHashMap<>(index);
+        }
+        Map<String, List<Location>> moved = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(SNAPSHOT_MAGIC).putLong(coversUpTo).putInt(logged.size()).flip();
+            writeFully(channel, header);
+            long position = SNAPSHOT_HEADER;
+            for (Map.Entry<String, List<Location>> entry : logged.entrySet()) {
+                ByteBuffer record = encode(PUT, entry.getKey(), loggedMessages(entry.getKey(), entry.getValue()));
+                int length = record.remaining();
+                writeFully(channel, record);
+                moved.put(entry.getKey(), List.of(new Location(snapshot, position, length)));
+                position += length;
+            }
+            channel.force(true);
+        }
+        files.writeLock().lock();
+        try {
+            Files.move(tmp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            fsyncs.incrementAndGet();
+            synchronized (this) {
+                index.putAll(moved);
+            }
+            // Everything before the snapshot is now redundant
+            for (Path file : list()) {
+                Long number = number(file, SEGMENT);
+                Long snapshotNumber = number(file, SNAPSHOT);
+                if ((number != null && number < coversUpTo)
+                        || (snapshotNumber != null && snapshotNumber < coversUpTo)) {
+                    FileChannel reader = readers.remove(file);
+                    if (reader != null) {
+                        reader.close();
+                    }
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        finally {
+            files.writeLock().unlock();
+        }
+    }
+
+    // Called on the writer thread, the only one that changes the index or deletes files
+    private List<Message> loggedMessages(String conversationId, List<Location> locations) {
+        synchronized (this) {
+            Cached cached = cache.get(conversationId);
+            if (cached != null && cached.pending == 0 && cached.messages != null) {
+                return cached.messages;
+            }
+        }
+        return read(locations);
+    }
+
+    private void openSegment() throws IOException {
+        segmentFile = directory.resolve(String.format("segment-%08d.log", segmentNumber));
+        segment = FileChannel.open(segmentFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segmentPosition = segment.size();
+    }
+
+    /** Replays the records of one conversation. */
+    private List<Message> read(List<Location> locations) {
+        List<Message> messages = new ArrayList<>();
+        for (Location location : locations) {
+            try {
+                FileChannel channel = readers.computeIfAbsent(location.file(),
+                        LogChatMemoryRepository::openForReading);
+                ByteBuffer record = ByteBuffer.allocate(location.length()).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, record, location.offset());
+                ByteBuffer payload = record.slice(RECORD_HEADER, location.length() - RECORD_HEADER)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != record.getInt(Integer.BYTES)) {
+                    throw new IOException("Corrupt record at offset " + location.offset());
+                }
+                decode(payload, messages);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to read chat memory log " + location.file(), e);
+            }
+        }
+        return List.copyOf(messages);
+    }
+
+    private static FileChannel openForReading(Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to open chat memory log " + file, e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // ---- recovery ----
+
+    private void recover() throws IOException {
+        long snapshotNumber = 0;
+        List<Path> snapshots = list().stream().filter(file -> number(file, SNAPSHOT) != null)
+                .sorted((a, b) -> Long.compare(number(b, SNAPSHOT), number(a, SNAPSHOT)))
+                .toList();
+        for (Path snapshot : snapshots) {
+            Map<String, List<Location>> loaded = new HashMap<>();
+            if (readSnapshot(snapshot, loaded)) {
+                index.putAll(loaded);
+                snapshotNumber = number(snapshot, SNAPSHOT);
+                break;
+            }
+            logger.warn("Ignoring unreadable chat memory snapshot {}", snapshot);
+        }
+
+        final long replayFrom = snapshotNumber;
+        List<Path> segments = list().stream()
+                .filter(file -> number(file, SEGMENT) != null && number(file, SEGMENT) >= replayFrom)
+                .sorted((a, b) -> Long.compare(number(a, SEGMENT), number(b, SEGMENT)))
+                .toList();
+        segmentNumber = snapshotNumber;
+        long records = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            segmentNumber = number(file, SEGMENT);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long position = 0;
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                while (position + RECORD_HEADER <= size) {
+                    header.clear();
+                    channel.read(header, position);
+                    int length = header.getInt(0);
+                    if (length <= 0 || position + RECORD_HEADER + length > size) {
+                        break;
+                    }
+                    ByteBuffer payload = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                    while (payload.hasRemaining()) {
+                        channel.read(payload, position + RECORD_HEADER + payload.position());
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.array());
+                    if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                        break;
+                    }
+                    payload.flip();
+                    apply(index, payload.get(0), conversationId(payload), new Location(file, position,
+                            RECORD_HEADER + length));
+                    records++;
+                    position += RECORD_HEADER + length;
+                }
+                if (position < size) {
+                    if (i < segments.size() - 1) {
+                        throw new IOException("Corrupt record in " + file + " at offset " + position);
+                    }
+                    logger.warn("Discarding {} trailing bytes of {}", size - position, file);
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+            }
+        }
+        openSegment();
+        logger.info("Recovered {} conversations from chat memory log {} (snapshot {} + {} log records)",
+                index.size(), directory, snapshotNumber, records);
+    }
+
+    /** Indexes a snapshot, record by record, after checking every checksum. */
+    private boolean readSnapshot(Path file, Map<String, List<Location>> into) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != SNAPSHOT_MAGIC || header.getLong(Integer.BYTES) != number(file, SNAPSHOT)) {
+                return false;
+            }
+            int count = header.getInt(Integer.BYTES + Long.BYTES);
+            long position = SNAPSHOT_HEADER;
+            ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                readFully(channel, recordHeader.clear(), position);
+                int length = recordHeader.getInt(0);
+                ByteBuffer payload = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, payload, position + RECORD_HEADER);
+                CRC32 check = new CRC32();
+                check.update(payload.array());
+                if ((int) check.getValue() != recordHeader.getInt(Integer.BYTES)) {
+                    return false;
+                }
+                into.put(conversationId(payload), List.of(new Location(file, position, RECORD_HEADER + length)));
+                position += RECORD_HEADER + length;
+            }
+            return true;
+        }
+        catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static Long number(Path file, Pattern pattern) {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : null;
+    }
+
+    // ---- record encoding ----
+
+    /** Updates the index for a record: replaying a conversation starts at its last PUT. */
+    private static void apply(Map<String, List<Location>> index, byte type, String conversationId,
+            Location location) {
+        switch (type) {
+            case PUT -> index.put(conversationId, List.of(location));
+            case APPEND -> {
+                List<Location> current = new ArrayList<>(index.getOrDefault(conversationId, List.of()));
+                current.add(location);
+                index.put(conversationId, List.copyOf(current));
+            }
+            case DELETE -> index.remove(conversationId);
+            default -> throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    private static String conversationId(ByteBuffer payload) {
+        int length = payload.getInt(1 + Integer.BYTES);
+        return string(payload.slice(1 + Integer.BYTES * 2, length), length);
+    }
+
+    private static ByteBuffer encode(byte type, String conversationId, List<Message> messages) {
+        List<byte[]> parts = new ArrayList<>();
+        int length = 1 + Integer.BYTES;
+        byte[] id = conversationId.getBytes(StandardCharsets.UTF_8);
+        length += Integer.BYTES + id.length;
+        for (Message message : messages) {
+            byte[] text = message.getText() == null ? null : message.getText().getBytes(StandardCharsets.UTF_8);
+            byte[] metadata = metadata(message.getMetadata());
+            byte[] content = content(message);
+            parts.add(text);
+            parts.add(metadata);
+            parts.add(content);
+            length += 1 + Integer.BYTES * 3 + (text == null ? 0 : text.length) + metadata.length + content.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length).order(ByteOrder.LITTLE_ENDIAN);
+        record.position(RECORD_HEADER);
+        record.put(type).putInt(messages.size()).putInt(id.length).put(id);
+        for (int i = 0; i < messages.size(); i++) {
+            byte[] text = parts.get(3 * i);
+            byte[] metadata = parts.get(3 * i + 1);
+            byte[] content = parts.get(3 * i + 2);
+            record.put(typeCode(messages.get(i).getMessageType()));
+            record.putInt(text == null ? -1 : text.length);
+            if (text != null) {
+                record.put(text);
+            }
+            record.putInt(metadata.length).put(metadata);
+            record.putInt(content.length).put(content);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, length);
+        return record.putInt(0, length).putInt(Integer.BYTES, (int) crc.getValue()).flip();
+    }
+
+    /** Applies a PUT or APPEND record to the messages replayed so far. */
+    private static void decode(ByteBuffer payload, List<Message> replayed) throws IOException {
+        byte type = payload.get();
+        int count = payload.getInt();
+        int idLength = payload.getInt();
+        payload.position(payload.position() + idLength);
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte typeCode = payload.get();
+            int textLength = payload.getInt();
+            String text = textLength < 0 ? null : string(payload, textLength);
+            int metadataLength = payload.getInt();
+            Map<String, Object> metadata = new HashMap<>();
+            if (metadataLength > 0) {
+                byte[] json = new byte[metadataLength];
+                payload.get(json);
+                metadata = MAPPER.readValue(json, METADATA_TYPE);
+            }
+            int contentLength = payload.getInt();
+            Content content = Content.EMPTY;
+            if (contentLength > 0) {
+                byte[] json = new byte[contentLength];
+                payload.get(json);
+                content = MAPPER.readValue(json, Content.class);
+            }
+            messages.add(message(typeCode, text, metadata, content));
+        }
+        if (type == PUT) {
+            replayed.clear();
+        }
+        else if (type != APPEND) {
+            throw new IOException("Unexpected record type " + type);
+        }
+        replayed.addAll(messages);
+    }
+
+    private static byte typeCode(MessageType type) {
+        return switch (type) {
+            case USER -> USER_MESSAGE;
+            case ASSISTANT -> ASSISTANT_MESSAGE;
+            case SYSTEM -> SYSTEM_MESSAGE;
+            case TOOL -> TOOL_MESSAGE;
+        };
+    }
+
+    private static Message message(byte typeCode, String text, Map<String, Object> metadata, Content content)
+            throws IOException {
+        return switch (typeCode) {
+            case USER_MESSAGE -> UserMessage.builder().text(text == null ? "" : text).metadata(metadata)
+                    .media(content.media()).build();
+            case ASSISTANT_MESSAGE -> new AssistantMessage(text, metadata, content.toolCalls(), content.media());
+            case SYSTEM_MESSAGE -> SystemMessage.builder().text(text == null ? "" : text).metadata(metadata).build();
+            case TOOL_MESSAGE -> new ToolResponseMessage(content.toolResponses(), metadata);
+            default -> throw new IOException("Unknown message type code " + typeCode);
+        };
+    }
+
+    /** Tool calls, tool responses and media of a message as JSON; empty if it has none. */
+    private static byte[] content(Message message) {
+        List<AssistantMessage.ToolCall> toolCalls = message instanceof AssistantMessage assistant
+                ? assistant.getToolCalls() : List.of();
+        List<ToolResponseMessage.ToolResponse> toolResponses = message instanceof ToolResponseMessage tool
+                ? tool.getResponses() : List.of();
+        List<Media> media = message instanceof MediaContent mediaContent ? mediaContent.getMedia() : List.of();
+        if (toolCalls.isEmpty() && toolResponses.isEmpty() && media.isEmpty()) {
+            return new byte[0];
+        }
+        try {
+            return MAPPER.writeValueAsBytes(new Content(toolCalls, toolResponses,
+                    media.stream().map(StoredMedia::of).toList()));
+        }
+        catch (JsonProcessingException e) {
+            // Unlike metadata these are part of the conversation; storing a different one is not an option
+            throw new IllegalArgumentException("Cannot store the tool calls, tool responses or media of " + message,
+                    e);
+        }
+    }
+
+    private static byte[] metadata(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return new byte[0];
+        }
+        try {
+            return MAPPER.writeValueAsBytes(metadata);
+        }
+        catch (JsonProcessingException e) {
+            // Provider-specific values that do not serialize are not worth failing the chat for
+            return new byte[0];
+        }
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static final class Builder {
+        private final Path directory;
+        private long segmentBytes = 16L * 1024 * 1024;
+        private long snapshotBytes = 64L * 1024 * 1024;
+        private Duration fsyncInterval = Duration.ofMillis(10);
+        private int maxCachedConversations = 10_000;
+
+        private Builder(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "directory must not be null");
+        }
+
+        /** Size at which the log moves on to a new segment file. */
+        public Builder segmentBytes(long segmentBytes) {
+            if (segmentBytes <= 0) {
+                throw new IllegalArgumentException("segmentBytes must be positive");
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /** Log bytes after which the next segment change writes a snapshot and drops older segments. */
+        public Builder snapshotBytes(long snapshotBytes) {
+            if (snapshotBytes <= 0) {
+                throw new IllegalArgumentException("snapshotBytes must be positive");
+            }
+            this.snapshotBytes = snapshotBytes;
+            return this;
+        }
+
+        /** Longest time a saved change waits before the log is forced to disk. */
+        public Builder fsyncInterval(Duration fsyncInterval) {
+            if (fsyncInterval.isNegative()) {
+                throw new IllegalArgumentException("fsyncInterval must not be negative");
+            }
+            this.fsyncInterval = fsyncInterval;
+            return this;
+        }
+
+        /** Conversations whose messages are kept in memory; the others are read from the log. */
+        public Builder maxCachedConversations(int maxCachedConversations) {
+            if (maxCachedConversations < 0) {
+                throw new IllegalArgumentException("maxCachedConversations must not be negative");
+            }
+            this.maxCachedConversations = maxCachedConversations;
+            return this;
+        }
+
+        public LogChatMemoryRepository build() {
+            return new LogChatMemoryRepository(this);
+        }
+    }
+}
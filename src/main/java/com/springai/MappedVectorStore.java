@@ -0,0 +1,600 @@
+package com.springai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+/**
+ * Persistent {@link org.springframework.ai.vectorstore.VectorStore} whose embeddings live in a
+ * memory-mapped file instead of on the heap, so it opens in milliseconds after a restart
+ * rather than re-parsing a JSON dump like {@link org.springframework.ai.vectorstore.SimpleVectorStore}.
+ *
+ * The store directory holds two files:
+ * <ul>
+ * <li>{@code vectors.bin}: a header followed by fixed-size slots, each holding the location of the
+ * document record, a deleted flag and the normalized float32 embedding. The file is mapped in
+ * segments and searched in place (exact cosine similarity), without copying vectors to the heap.</li>
+ * <li>{@code documents.bin}: append-only records of the document id followed by its text and
+ * metadata as JSON, read only for search results and filter evaluation.</li>
+ * </ul>
+ *
+ * Only one store at a time opens a directory: it holds an exclusive lock on a {@code lock} file
+ * there until {@link #close()}, and a second store, in this or another process, fails to open.
+ *
+ * Deletes and updates leave a tombstone in the old slot. The id index is built on the first
+ * write or delete, so read-only instances never scan the documents file.
+ * Written data survives a crash of the JVM as soon as {@code add} returns; call {@link #flush()}
+ * to also force it to disk.
+ */
+public class MappedVectorStore extends AbstractObservationVectorStore implements EmbeddingVectorStore, AutoCloseable {
+
+    private static final int MAGIC = 0x53414956; // "SAIV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_HEADER_BYTES = 24; // long docOffset, int idLength, int jsonLength, int flags, pad
+    private static final int DELETED = 1;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final SimilarityKernel kernel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private FileChannel fileLock;
+    private FileChannel vectorChannel;
+    private FileChannel documentChannel;
+    private MappedByteBuffer header;
+    private int dimensions;
+    private int slotBytes;
+    private int segmentSlots;
+    private int count;
+    private int live;
+    private Map<String, Integer> slotsById;
+    private boolean dirty;
+    private boolean closed;
+
+    protected MappedVectorStore(Builder builder) {
+        super(builder);
+        this.directory = builder.directory;
+        this.segmentBytes = builder.segmentBytes;
+        this.kernel = builder.similarityKernel;
+        try {
+            Files.createDirectories(directory);
+            fileLock = lock(directory);
+            try {
+                documentChannel = FileChannel.open(directory.resolve("documents.bin"),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                Path vectors = directory.resolve("vectors.bin");
+                if (Files.exists(vectors) && Files.size(vectors) >= HEADER_BYTES) {
+                    open(vectors);
+                }
+                else if (builder.dimensions > 0) {
+                    create(builder.dimensions);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                closeQuietly(documentChannel);
+                closeQuietly(vectorChannel);
+                closeQuietly(fileLock);
+                throw e;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to open vector store in " + directory, e);
+        }
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel, Path directory) {
+        return new Builder(embeddingModel, directory);
+    }
+
+    /** Number of live (not deleted) documents. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById != null ? slotsById.size() : live;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        Objects.requireNonNull(documents, "Documents list cannot be null");
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                this.batchingStrategy);
+        add(documents, embeddings);
+    }
+
+    @Override
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Documents and embeddings must have the same size");
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (vectorChannel == null && !embeddings.isEmpty()) {
+                create(embeddings.get(0).length);
+            }
+            Map<String, Integer> index = slotsById();
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] embedding = embeddings.get(i);
+                if (embedding.length != dimensions) {
+                    throw new IllegalArgumentException("Expected embeddings with " + dimensions
+                            + " dimensions but got " + embedding.length);
+                }
+                Integer previous = index.get(document.getId());
+                if (previous != null) {
+                    markDeleted(previous);
+                }
+                index.put(document.getId(), append(document, embedding));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to write to vector store in " + directory, e);
+        }
+        finally {
+            // Publish the new slots only once their vectors and documents are written
+            if (header != null) {
+                header.putInt(20, count);
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (vectorChannel == null) {
+                return;
+            }
+            Map<String, Integer> index = slotsById();
+            for (String id : idList) {
+                Integer slot = index.remove(id);
+                if (slot != null) {
+                    markDeleted(slot);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete from vector store in " + directory, e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilter.of(filterExpression);
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            for (int slot = 0; slot < count; slot++) {
+                if (!isDeleted(slot)) {
+                    StoredDocument stored = readDocument(slot);
+                    if (filter.test(stored.metadata())) {
+                        ids.add(stored.id());
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to read vector store in " + directory, e);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        doDelete(ids);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = this.embeddingModel.embed(request.getQuery());
+        return search(query, request.getTopK(), request.getSimilarityThreshold(),
+                request.hasFilterExpression() ? MetadataFilter.of(request.getFilterExpression()) : null);
+    }
+
+    /**
+     * Exact search with an already computed query embedding, scanning the mapped vectors in place.
+     * The filter may be null.
+     */
+    public List<Document> search(float[] queryEmbedding, int topK, double similarityThreshold,
+            Predicate<Map<String, Object>> filter) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            if (vectorChannel == null || topK <= 0) {
+                return List.of();
+            }
+            if (queryEmbedding.length != dimensions) {
+                throw new IllegalArgumentException("Expected a query embedding with " + dimensions
+                        + " dimensions but got " + queryEmbedding.length);
+            }
+            float[] query = normalize(queryEmbedding);
+            // Without a filter only the best topK can qualify; with one, keep every candidate
+            // above the threshold and read documents in score order until topK of them match
+            boolean unfiltered = filter == null;
+            ScoredHeap candidates = new ScoredHeap(unfiltered ? Math.min(topK, count) : 1024, unfiltered);
+            float[] blockScores = new float[Math.min(segmentSlots, count)];
+            for (int segment = 0, first = 0; first < count; segment++, first += segmentSlots) {
+                // Score the whole segment in one pass, then skip tombstones
+                MappedByteBuffer buffer = segments.get(segment);
+                int slots = Math.min(segmentSlots, count - first);
+                kernel.dot(query, buffer, SLOT_HEADER_BYTES, slotBytes, slots, blockScores);
+                for (int i = 0; i < slots; i++) {
+                    float score = blockScores[i];
+                    if (score < similarityThreshold || (buffer.getInt(i * slotBytes + 16) & DELETED) != 0) {
+                        continue;
+                    }
+                    if (!unfiltered || candidates.size() < topK) {
+                        candidates.push(first + i, score);
+                    }
+                    else if (score > candidates.topScore()) {
+                        candidates.pop();
+                        candidates.push(first + i, score);
+                    }
+                }
+            }
+
+            List<Document> results = new ArrayList<>(Math.min(topK, candidates.size()));
+            if (unfiltered) {
+                int found = candidates.size();
+                int[] slots = new int[found];
+                float[] scores = new float[found];
+                for (int i = found - 1; i >= 0; i--) {
+                    scores[i] = candidates.topScore();
+                    slots[i] = candidates.pop();
+                }
+                for (int i = 0; i < found; i++) {
+                    results.add(toDocument(readDocument(slots[i]), scores[i]));
+                }
+            }
+            else {
+                while (candidates.size() > 0 && results.size() < topK) {
+                    float score = candidates.topScore();
+                    StoredDocument stored = readDocument(candidates.pop());
+                    if (filter.test(stored.metadata())) {
+                        results.add(toDocument(stored, score));
+                    }
+                }
+            }
+            return results;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to read vector store in " + directory, e);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all written vectors and documents to disk.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (!dirty) {
+                return;
+            }
+            documentChannel.force(false);
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            if (header != null) {
+                header.force();
+            }
+            dirty = false;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush vector store in " + directory, e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            segments.clear();
+            header = null;
+            documentChannel.close();
+            if (vectorChannel != null) {
+                vectorChannel.close();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to close vector store in " + directory, e);
+        }
+        finally {
+            // Releases the lock
+            closeQuietly(fileLock);
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        }
+        catch (OverlappingFileLockException e) {
+            // Held by another store in this JVM
+        }
+        channel.close();
+        throw new IllegalStateException("Vector store " + directory
+                + " is in use by another process or application context");
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private void open(Path vectors) throws IOException {
+        vectorChannel = FileChannel.open(vectors, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = vectorChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a vector store file: " + vectors);
+        }
+        if (header.getInt(8) != byteOrderCode()) {
+            throw new IllegalStateException("Vector store " + vectors + " was written with a different byte order");
+        }
+        dimensions = header.getInt(12);
+        segmentSlots = header.getInt(16);
+        count = header.getInt(20);
+        live = header.getInt(24);
+        slotBytes = SLOT_HEADER_BYTES + dimensions * Float.BYTES;
+        int segmentCount = (count + segmentSlots - 1) / segmentSlots;
+        for (int i = 0; i < segmentCount; i++) {
+            mapSegment(i);
+        }
+    }
+
+    private void create(int dimensions) throws IOException {
+        this.dimensions = dimensions;
+        this.slotBytes = SLOT_HEADER_BYTES + dimensions * Float.BYTES;
+        this.segmentSlots = (int) Math.max(1, segmentBytes / slotBytes);
+        this.vectorChannel = FileChannel.open(directory.resolve("vectors.bin"), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Documents written without a header to reference them are unreachable
+        documentChannel.truncate(0);
+        header = vectorChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, byteOrderCode())
+                .putInt(12, dimensions).putInt(16, segmentSlots).putInt(20, 0).putInt(24, 0);
+        slotsById = new HashMap<>();
+    }
+
+    private void mapSegment(int segment) throws IOException {
+        long position = HEADER_BYTES + (long) segment * segmentSlots * slotBytes;
+        MappedByteBuffer buffer = vectorChannel.map(FileChannel.MapMode.READ_WRITE, position,
+                (long) segmentSlots * slotBytes);
+        buffer.order(ByteOrder.nativeOrder());
+        segments.add(buffer);
+    }
+
+    private int append(Document document, float[] embedding) throws IOException {
+        byte[] id = document.getId().getBytes(StandardCharsets.UTF_8);
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("text", document.getText());
+        content.put("metadata", document.getMetadata());
+        byte[] json = MAPPER.writeValueAsBytes(content);
+
+        long documentOffset = documentChannel.size();
+        ByteBuffer record = ByteBuffer.allocate(id.length + json.length).put(id).put(json).flip();
+        while (record.hasRemaining()) {
+            documentChannel.write(record, documentOffset + record.position());
+        }
+
+        int slot = count;
+        int segment = slot / segmentSlots;
+        while (segments.size() <= segment) {
+            mapSegment(segments.size());
+        }
+        MappedByteBuffer buffer = segments.get(segment);
+        int offset = (slot % segmentSlots) * slotBytes;
+        buffer.putLong(offset, documentOffset).putInt(offset + 8, id.length).putInt(offset + 12, json.length)
+                .putInt(offset + 16, 0);
+        float[] vector = normalize(embedding);
+        int base = offset + SLOT_HEADER_BYTES;
+        for (int i = 0; i < vector.length; i++) {
+            buffer.putFloat(base + i * Float.BYTES, vector[i]);
+        }
+        count++;
+        header.putInt(24, ++live);
+        dirty = true;
+        return slot;
+    }
+
+    private void markDeleted(int slot) {
+        MappedByteBuffer buffer = segments.get(slot / segmentSlots);
+        int offset = (slot % segmentSlots) * slotBytes;
+        buffer.putInt(offset + 16, buffer.getInt(offset + 16) | DELETED);
+        header.putInt(24, --live);
+        dirty = true;
+    }
+
+    private boolean isDeleted(int slot) {
+        return (segments.get(slot / segmentSlots).getInt((slot % segmentSlots) * slotBytes + 16) & DELETED) != 0;
+    }
+
+    /**
+     * The id index, built from the documents file on first use.
+     */
+    private Map<String, Integer> slotsById() throws IOException {
+        if (slotsById == null) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int slot = 0; slot < count; slot++) {
+                if (!isDeleted(slot)) {
+                    MappedByteBuffer buffer = segments.get(slot / segmentSlots);
+                    int offset = (slot % segmentSlots) * slotBytes;
+                    index.put(new String(read(buffer.getLong(offset), buffer.getInt(offset + 8)),
+                            StandardCharsets.UTF_8), slot);
+                }
+            }
+            slotsById = index;
+        }
+        return slotsById;
+    }
+
+    private StoredDocument readDocument(int slot) throws IOException {
+        MappedByteBuffer buffer = segments.get(slot / segmentSlots);
+        int offset = (slot % segmentSlots) * slotBytes;
+        int idLength = buffer.getInt(offset + 8);
+        byte[] record = read(buffer.getLong(offset), idLength + buffer.getInt(offset + 12));
+        String id = new String(record, 0, idLength, StandardCharsets.UTF_8);
+        Map<String, Object> content = MAPPER.readValue(record, idLength, record.length - idLength,
+                new TypeReference<Map<String, Object>>() {});
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metadata = (Map<String, Object>) content.get("metadata");
+        return new StoredDocument(id, (String) content.get("text"), metadata != null ? metadata : Map.of());
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (documentChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalStateException("Truncated document record at " + position + " in " + directory);
+            }
+        }
+        return buffer.array();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Vector store in " + directory + " is closed");
+        }
+    }
+
+    private static Document toDocument(StoredDocument stored, float score) {
+        Map<String, Object> metadata = new HashMap<>(stored.metadata());
+        metadata.put(DocumentMetadata.DISTANCE.value(), 1.0 - score);
+        return Document.builder().id(stored.id()).text(stored.text()).metadata(metadata).score((double) score).build();
+    }
+
+    private static int byteOrderCode() {
+        return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 1 : 2;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder("mmap", operationName)
+                .dimensions(dimensions > 0 ? dimensions : this.embeddingModel.dimensions())
+                .collectionName(directory.toString())
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    private record StoredDocument(String id, String text, Map<String, Object> metadata) {}
+
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+        private final Path directory;
+        private long segmentBytes = 64L * 1024 * 1024;
+        private int dimensions;
+        private SimilarityKernel similarityKernel = SimilarityKernel.get();
+
+        private Builder(EmbeddingModel embeddingModel, Path directory) {
+            super(embeddingModel);
+            this.directory = Objects.requireNonNull(directory, "directory must not be null");
+        }
+
+        /** Size of each mapped region of the vectors file; must stay below 2GB. */
+        public Builder segmentBytes(long segmentBytes) {
+            if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("segmentBytes must be between 1 and " + Integer.MAX_VALUE);
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * Embedding dimensions for a new store. Optional: taken from the first added embedding
+         * otherwise, and always read from the file for an existing store.
+         */
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        /** Kernel used to score the mapped vectors; defaults to the fastest one available. */
+        public Builder similarityKernel(SimilarityKernel similarityKernel) {
+            this.similarityKernel = Objects.requireNonNull(similarityKernel, "similarityKernel must not be null");
+            return this;
+        }
+
+        @Override
+        public MappedVectorStore build() {
+            return new MappedVectorStore(this);
+        }
+    }
+}
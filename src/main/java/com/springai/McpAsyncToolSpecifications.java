@@ -0,0 +1,45 @@
+package com.springai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Turns tool callbacks into tool specifications for an ASYNC MCP server.
+ *
+ * Spring AI's own conversion moves every call to Reactor's bounded elastic pool (ten threads
+ * per core), so a server with thousands of sessions queues calls behind a handful of threads
+ * and pays two thread hops even for an addition. Here {@code inline} tools (short computations
+ * of bounded cost, such as the scalar calculator tools; never tools whose work grows with their
+ * input) run right on the thread that received the request, and all other tools on the given
+ * scheduler, typically backed by virtual threads.
+ * Argument and result conversion is Spring AI's, so clients see no difference.
+ */
+final class McpAsyncToolSpecifications {
+
+    private McpAsyncToolSpecifications() {
+    }
+
+    static List<McpServerFeatures.AsyncToolSpecification> from(Set<String> inline, Scheduler blockingScheduler,
+            ToolCallback... callbacks) {
+        List<McpServerFeatures.AsyncToolSpecification> specifications = new ArrayList<>(callbacks.length);
+        for (ToolCallback callback : callbacks) {
+            McpServerFeatures.SyncToolSpecification sync = McpToolUtils.toSyncToolSpecification(callback);
+            boolean runInline = inline.contains(callback.getToolDefinition().name());
+            specifications.add(new McpServerFeatures.AsyncToolSpecification(sync.tool(), (exchange, arguments) -> {
+                Mono<McpSchema.CallToolResult> result = Mono.fromCallable(
+                        () -> sync.call().apply(new McpSyncServerExchange(exchange), arguments));
+                return runInline ? result : result.subscribeOn(blockingScheduler);
+            }));
+        }
+        return specifications;
+    }
+}
@@ -0,0 +1,105 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpStdioClientProperties;
+import org.springframework.ai.mcp.customizer.McpSyncClientCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Configuration class for MCP Client functionality (Lab 14).
+ *
+ * Spring AI creates one client per configured MCP server; this class puts them behind an
+ * McpToolCatalog, which connects to all servers in parallel at startup and caches their tool
+ * lists until a server reports a change. Use the catalog as the ToolCallbackProvider of a
+ * ChatClient.
+ *
+ * STDIO servers configured under app.mcp.client.stdio (connections or servers-configuration, as
+ * for spring.ai.mcp.client.stdio) are reached through a MultiplexedMcpClient, so that concurrent
+ * tool calls are pipelined over one connection (or spread over
+ * app.mcp.client.processes-per-server copies of the server). Spring AI does not see them: its
+ * client starts the server process as soon as it is created, initialized or not, so a server
+ * configured for both would run twice. Servers under spring.ai.mcp.client.stdio keep Spring AI's
+ * client.
+ */
+@Configuration
+@Profile("mcp")
+public class McpClientConfig {
+
+    /**
+     * Forwards each server's tools/list_changed notifications to the catalog.
+     */
+    @Bean
+    public McpSyncClientCustomizer mcpToolsChangeListener(ObjectProvider<McpToolCatalog> mcpToolCatalog) {
+        return (connectionName, spec) -> spec.toolsChangeConsumer(
+                tools -> mcpToolCatalog.ifAvailable(catalog -> catalog.toolsChanged(connectionName, tools)));
+    }
+
+    @Bean
+    public McpToolCatalog mcpToolCatalog(List<McpSyncClient> mcpSyncClients,
+            ConfigurableEnvironment environment, ConfigurableListableBeanFactory beanFactory,
+            @Value("${spring.ai.mcp.client.name:spring-ai-mcp-client}") String clientName,
+            @Value("${spring.ai.mcp.client.version:1.0.0}") String clientVersion,
+            @Value("${spring.ai.mcp.client.request-timeout:20s}") Duration requestTimeout,
+            @Value("${app.mcp.client.warm-up:true}") boolean warmUp,
+            @Value("${app.mcp.client.retry-interval:30s}") Duration retryInterval,
+            @Value("${app.mcp.client.processes-per-server:1}") int processesPerServer) {
+        McpToolCatalog.Builder builder = McpToolCatalog.builder().retryInterval(retryInterval);
+        AtomicReference<McpToolCatalog> catalogRef = new AtomicReference<>();
+        Map<String, ServerParameters> stdioServers = multiplexedServers(environment, beanFactory).toServerParameters();
+        stdioServers.forEach((name, parameters) -> builder.server(name, MultiplexedMcpClient.builder(parameters)
+                .clientInfo(new McpSchema.Implementation(clientName + " - " + name, clientVersion))
+                .requestTimeout(requestTimeout)
+                .processes(processesPerServer)
+                .toolsChangeConsumer(tools -> catalogRef.get().toolsChanged(name, tools))
+                .build()));
+        for (McpSyncClient client : mcpSyncClients) {
+            // Spring AI names each client "<client name> - <connection name>"
+            String name = client.getClientInfo().name().substring(clientName.length() + 3);
+            if (stdioServers.containsKey(name)) {
+                throw new IllegalStateException("MCP server " + name + " is configured under both "
+                        + "app.mcp.client.stdio and spring.ai.mcp.client; it would be started twice");
+            }
+            builder.server(name, client);
+        }
+        McpToolCatalog catalog = builder.build();
+        catalogRef.set(catalog);
+        if (warmUp) {
+            McpToolCatalog.WarmUp report = catalog.warmUp();
+            System.out.printf("Connected to %d MCP servers in %d ms%n", report.servers().size(),
+                    report.elapsed().toMillis());
+            report.servers().forEach((name, time) -> System.out.printf("  • %s: %d ms%n", name, time.toMillis()));
+            report.failures().forEach((name, error) -> System.out.printf("  • %s failed: %s%n", name, error));
+        }
+        return catalog;
+    }
+
+    /**
+     * The STDIO servers under app.mcp.client.stdio, bound like Spring AI binds its own prefix but
+     * without registering a second McpStdioClientProperties bean.
+     */
+    private static McpStdioClientProperties multiplexedServers(ConfigurableEnvironment environment,
+            ConfigurableListableBeanFactory beanFactory) {
+        Binder binder = new Binder(ConfigurationPropertySources.get(environment),
+                new PropertySourcesPlaceholdersResolver(environment), ApplicationConversionService.getSharedInstance(),
+                beanFactory::copyRegisteredEditorsTo);
+        return binder.bind("app.mcp.client.stdio", McpStdioClientProperties.class)
+                .orElseGet(McpStdioClientProperties::new);
+    }
+}
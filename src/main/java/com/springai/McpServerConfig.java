@@ -1,16 +1,36 @@
 package com.springai;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.util.unit.DataSize;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Configuration class for MCP Server functionality (Lab 15).
  * 
  * This configuration is activated when the 'mcp-server' profile is enabled.
- * The CalculatorService @Tool annotated methods are automatically discovered
- * by Spring AI's MCP server auto-configuration.
+ * The CalculatorService @Tool annotated methods are registered as a ToolCallbackProvider,
+ * which Spring AI's MCP server auto-configuration exposes to clients. Tools marked
+ * @Deterministic answer repeated calls from a cache (see MemoizingToolCallback).
+ * 
+ * By default the server is SYNC over STDIO, serving the one client that started the process.
+ * Adding the 'mcp-server-http' profile turns it into an ASYNC server over HTTP (SSE) that many
+ * clients share, with the tools registered as async tool specifications.
  * 
  * This configuration class demonstrates:
  * 1. How to add startup logging for MCP server
@@ -21,6 +41,76 @@ import org.springframework.boot.ApplicationRunner;
 @Profile("mcp-server")
 public class McpServerConfig {
     
+    /**
+     * Cache for the results of @Deterministic tools, so repeated calls with the same
+     * arguments are neither recomputed nor serialized again.
+     */
+    @Bean
+    public MemoizingToolCallback.Cache toolResultCache(
+            @Value("${app.tools.memoization.max-entries:10000}") int maxEntries,
+            @Value("${app.tools.memoization.max-size:32MB}") DataSize maxSize) {
+        return MemoizingToolCallback.Cache.builder()
+                .maxEntries(maxEntries)
+                // Two bytes per character
+                .maxCharacters(maxSize.toBytes() / 2)
+                .build();
+    }
+    
+    /**
+     * Exposes the CalculatorService tools to MCP clients, memoized when enabled.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.mcp.server.type", havingValue = "SYNC", matchIfMissing = true)
+    public ToolCallbackProvider calculatorTools(CalculatorService calculatorService,
+            MemoizingToolCallback.Cache toolResultCache,
+            @Value("${app.tools.memoization.enabled:true}") boolean memoization) {
+        return ToolCallbackProvider.from(calculatorToolCallbacks(calculatorService, toolResultCache, memoization));
+    }
+    
+    /**
+     * The same tools for the ASYNC server (mcp-server-http profile): the tools listed in
+     * app.mcp.server.inline-tools run on the request thread, anything else on mcpToolScheduler.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.mcp.server.type", havingValue = "ASYNC")
+    public List<McpServerFeatures.AsyncToolSpecification> calculatorAsyncTools(CalculatorService calculatorService,
+            MemoizingToolCallback.Cache toolResultCache, Scheduler mcpToolScheduler,
+            @Value("${app.tools.memoization.enabled:true}") boolean memoization,
+            @Value("${app.mcp.server.inline-tools:}") List<String> inlineTools) {
+        ToolCallback[] callbacks = calculatorToolCallbacks(calculatorService, toolResultCache, memoization);
+        Set<String> names = Arrays.stream(callbacks).map(callback -> callback.getToolDefinition().name())
+                .collect(Collectors.toSet());
+        Set<String> inline = new HashSet<>();
+        for (String tool : inlineTools) {
+            if (tool.isBlank()) {
+                continue;
+            }
+            if (!names.contains(tool.trim())) {
+                throw new IllegalArgumentException("Unknown inline tool " + tool.trim() + ", expected one of "
+                        + names);
+            }
+            inline.add(tool.trim());
+        }
+        return McpAsyncToolSpecifications.from(inline, mcpToolScheduler, callbacks);
+    }
+    
+    /**
+     * Runs the tool calls of the ASYNC server that may block, on virtual threads when available.
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(name = "spring.ai.mcp.server.type", havingValue = "ASYNC")
+    public Scheduler mcpToolScheduler(@Value("${app.mcp.server.tool-threads:256}") int toolThreads) {
+        return Schedulers.fromExecutorService(VirtualThreads.newExecutor("mcp-tool", toolThreads), "mcp-tool");
+    }
+    
+    private static ToolCallback[] calculatorToolCallbacks(CalculatorService calculatorService,
+            MemoizingToolCallback.Cache toolResultCache, boolean memoization) {
+        if (!memoization) {
+            return MethodToolCallbackProvider.builder().toolObjects(calculatorService).build().getToolCallbacks();
+        }
+        return MemoizingToolCallback.from(toolResultCache, calculatorService);
+    }
+    
     /**
      * Application runner that logs MCP server startup information.
      * This helps developers understand what tools are being exposed.
@@ -39,10 +129,13 @@ public class McpServerConfig {
             System.out.println("  • power(double, double) - Power calculation");
             System.out.println("  • calculateCompoundInterest(...) - Compound interest");
             System.out.println("  • calculatePercentage(double, double) - Percentage");
+            System.out.println("  • calculateCompoundInterestBatch(...) - Compound interest for many principals");
+            System.out.println("  • summaryStatistics(double[]) - Count, sum, mean, min, max, standard deviation");
+            System.out.println("  • elementwise(operation, double[], double[]) - Element-wise arithmetic on lists");
             System.out.println("\nConnect to this server using:");
             System.out.println("  • Claude Desktop MCP configuration");
             System.out.println("  • STDIO transport mode");
-            System.out.println("  • SSE transport mode (uncomment config in properties)");
+            System.out.println("  • SSE transport mode (add the mcp-server-http profile)");
             System.out.println("========================\n");
         };
     }
@@ -60,7 +153,6 @@ public class McpServerConfig {
     }
     */
     
-    // The CalculatorService with @Tool annotated methods is automatically
-    // discovered by Spring AI's MCP server auto-configuration.
-    // No explicit tool registration is required.
+    // Additional tool services need to be added to a ToolCallbackProvider bean,
+    // like calculatorTools above, to be exposed by the MCP server.
 }
\ No newline at end of file
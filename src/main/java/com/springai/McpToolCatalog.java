@@ -0,0 +1,337 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.SyncMcpToolCallback;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+/**
+ * Tools of the MCP servers this application connects to, with each server's tool list cached.
+ *
+ * Spring AI's own provider asks every server for its tools each time a chat request collects its
+ * tool callbacks. Here each server keeps one long-lived session, shared by all callers, and its
+ * tool list is fetched once and then replaced only when the server sends a tools/list_changed
+ * notification (wire {@link #toolsChanged(String, List)} into the client's tools change
+ * consumer). {@link #warmUp()} connects to all servers and loads their tools in parallel, so
+ * the first chat request does not pay for starting them one after the other.
+ *
+ * A server that cannot be reached is left out of {@link #getToolCallbacks()} and tried again once
+ * {@code retryInterval} has passed, so a dead server does not hold up every chat request.
+ *
+ * Servers can also be reached through a {@link MultiplexedMcpClient}, for many tool calls in
+ * flight at once; the catalog closes those clients when it is closed.
+ */
+public class McpToolCatalog implements ToolCallbackProvider, MeterBinder, AutoCloseable {
+
+    private final Map<String, Server> servers;
+    private final List<MultiplexedMcpClient> ownedClients;
+    private final long retryIntervalNanos;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+
+    private McpToolCatalog(Builder builder) {
+        Map<String, Server> servers = new LinkedHashMap<>();
+        builder.sources.forEach((name, source) -> servers.put(name, new Server(name, source)));
+        this.servers = Collections.unmodifiableMap(servers);
+        this.ownedClients = List.copyOf(builder.ownedClients);
+        this.retryIntervalNanos = builder.retryInterval.toNanos();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * How long connecting to all servers took, how long each server took and why any failed.
+     */
+    public record WarmUp(Duration elapsed, Map<String, Duration> servers, Map<String, String> failures) {
+    }
+
+    /**
+     * Connects to every server that is not connected yet and loads its tools, all servers at once.
+     */
+    public WarmUp warmUp() {
+        long started = System.nanoTime();
+        Map<String, Future<Duration>> pending = new LinkedHashMap<>();
+        ExecutorService executor = VirtualThreads.newExecutor("mcp-warm-up", Math.max(1, servers.size()));
+        try {
+            for (Server server : servers.values()) {
+                pending.put(server.name, executor.submit(() -> {
+                    long serverStarted = System.nanoTime();
+                    server.tools();
+                    return Duration.ofNanos(System.nanoTime() - serverStarted);
+                }));
+            }
+            Map<String, Duration> times = new LinkedHashMap<>();
+            Map<String, String> failures = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Duration>> entry : pending.entrySet()) {
+                try {
+                    times.put(entry.getKey(), entry.getValue().get());
+                }
+                catch (ExecutionException e) {
+                    failures.put(entry.getKey(), String.valueOf(e.getCause().getMessage()));
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while connecting to MCP servers", e);
+                }
+            }
+            return new WarmUp(Duration.ofNanos(System.nanoTime() - started), times, failures);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        List<ToolCallback> callbacks = new ArrayList<>();
+        for (Server server : servers.values()) {
+            try {
+                Collections.addAll(callbacks, server.tools());
+            }
+            catch (RuntimeException e) {
+                // Left out until the retry interval has passed
+            }
+        }
+        return callbacks.toArray(new ToolCallback[0]);
+    }
+
+    /**
+     * Replaces the cached tools of a server with the list it announced in a tools/list_changed
+     * notification.
+     */
+    public void toolsChanged(String serverName, List<McpSchema.Tool> tools) {
+        Server server = servers.get(serverName);
+        if (server == null) {
+            return;
+        }
+        changes.incrementAndGet();
+        server.replace(tools);
+    }
+
+    /**
+     * Drops the cached tools of a server, so the next call asks it again.
+     */
+    public void invalidate(String serverName) {
+        Server server = servers.get(serverName);
+        if (server != null) {
+            server.replace(null);
+        }
+    }
+
+    /** Number of times a server was asked for its tools. */
+    public long loads() {
+        return loads.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("mcp.catalog.loads", loads, AtomicLong::get)
+                .description("Tool lists fetched from MCP servers")
+                .register(registry);
+        FunctionCounter.builder("mcp.catalog.load.failures", loadFailures, AtomicLong::get)
+                .description("MCP servers that could not be reached for their tool list")
+                .register(registry);
+        FunctionCounter.builder("mcp.catalog.changes", changes, AtomicLong::get)
+                .description("Tool list change notifications received from MCP servers")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        ownedClients.forEach(MultiplexedMcpClient::close);
+    }
+
+    /**
+     * How to list a server's tools, connecting first if needed, and how to call one of them.
+     */
+    private record Source(Supplier<List<McpSchema.Tool>> lister, Function<McpSchema.Tool, ToolCallback> callbacks) {
+    }
+
+    private class Server {
+
+        private final String name;
+        private final Source source;
+        private final Object loadLock = new Object();
+        private volatile ToolCallback[] tools;
+        private volatile long failedAt;
+        private volatile RuntimeException failure;
+        // Bumped by every change notification, so a slow load cannot overwrite a newer list
+        private final AtomicLong version = new AtomicLong();
+
+        Server(String name, Source source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        ToolCallback[] tools() {
+            ToolCallback[] cached = tools;
+            if (cached != null) {
+                return cached;
+            }
+            synchronized (loadLock) {
+                cached = tools;
+                if (cached != null) {
+                    return cached;
+                }
+                if (failure != null && System.nanoTime() - failedAt < retryIntervalNanos) {
+                    throw failure;
+                }
+                long loadedVersion = version.get();
+                ToolCallback[] loaded;
+                try {
+                    loaded = load();
+                }
+                catch (RuntimeException e) {
+                    loadFailures.incrementAndGet();
+                    failedAt = System.nanoTime();
+                    failure = e;
+                    throw e;
+                }
+                failure = null;
+                if (version.get() == loadedVersion) {
+                    tools = loaded;
+                }
+                return loaded;
+            }
+        }
+
+        void replace(List<McpSchema.Tool> newTools) {
+            version.incrementAndGet();
+            tools = newTools == null ? null : callbacks(newTools);
+        }
+
+        private ToolCallback[] load() {
+            List<McpSchema.Tool> all = source.lister().get();
+            loads.incrementAndGet();
+            return callbacks(all);
+        }
+
+        private ToolCallback[] callbacks(List<McpSchema.Tool> list) {
+            ToolCallback[] callbacks = new ToolCallback[list.size()];
+            for (int i = 0; i < callbacks.length; i++) {
+                callbacks[i] = new CatalogToolCallback(source.callbacks().apply(list.get(i)));
+            }
+            return callbacks;
+        }
+    }
+
+    /**
+     * Keeps the tool definition, which {@link SyncMcpToolCallback} rebuilds, schema JSON and all,
+     * on every call.
+     */
+    private static final class CatalogToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+        private final ToolDefinition definition;
+
+        CatalogToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+            this.definition = delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return delegate.call(toolInput);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return delegate.call(toolInput, toolContext);
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, Source> sources = new LinkedHashMap<>();
+        private final List<MultiplexedMcpClient> ownedClients = new ArrayList<>();
+        private Duration retryInterval = Duration.ofSeconds(30);
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the client of a server under the name its change notifications are reported with.
+         */
+        public Builder server(String name, McpSyncClient client) {
+            Objects.requireNonNull(client, "client must not be null");
+            return source(name, new Source(() -> {
+                if (!client.isInitialized()) {
+                    client.initialize();
+                }
+                List<McpSchema.Tool> all = new ArrayList<>();
+                McpSchema.ListToolsResult page = client.listTools();
+                all.addAll(page.tools());
+                while (page.nextCursor() != null) {
+                    page = client.listTools(page.nextCursor());
+                    all.addAll(page.tools());
+                }
+                return all;
+            }, tool -> new SyncMcpToolCallback(client, tool)));
+        }
+
+        /**
+         * Adds a multiplexed client of a server, which the catalog closes when it is closed.
+         */
+        public Builder server(String name, MultiplexedMcpClient client) {
+            Objects.requireNonNull(client, "client must not be null");
+            source(name, new Source(() -> {
+                if (!client.isInitialized()) {
+                    client.initialize();
+                }
+                return client.listTools();
+            }, client::toolCallback));
+            ownedClients.add(client);
+            return this;
+        }
+
+        private Builder source(String name, Source source) {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("name must not be blank");
+            }
+            if (sources.putIfAbsent(name, source) != null) {
+                throw new IllegalArgumentException("Duplicate MCP server name " + name);
+            }
+            return this;
+        }
+
+        /** How long a server that could not be reached is left out before it is tried again. */
+        public Builder retryInterval(Duration retryInterval) {
+            if (retryInterval == null || retryInterval.isNegative()) {
+                throw new IllegalArgumentException("retryInterval must not be negative");
+            }
+            this.retryInterval = retryInterval;
+            return this;
+        }
+
+        public McpToolCatalog build() {
+            return new McpToolCatalog(this);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.springai;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.ai.tool.support.ToolUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link ToolCallback} decorator that answers repeated calls of a {@link Deterministic} tool
+ * from a {@link Cache}, skipping both the computation and the serialization of its result.
+ *
+ * Calls are keyed by the tool name and a SHA-256 of the canonical form of the JSON arguments:
+ * object keys sorted, whitespace dropped and numbers compared by value, so {@code {"a": 2, "b": 3}}
+ * and {@code {"b":3.0,"a":2}} are the same call. Failed calls are not cached, and arguments that
+ * are not valid JSON go straight to the tool. Use {@link #from(Cache, Object...)} to create the
+ * callbacks of tool objects: only methods marked {@link Deterministic} are memoized.
+ */
+public class MemoizingToolCallback implements ToolCallback {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private final ToolCallback delegate;
+    private final Cache cache;
+
+    public MemoizingToolCallback(ToolCallback delegate, Cache cache) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.cache = Objects.requireNonNull(cache, "cache must not be null");
+    }
+
+    /**
+     * Tool callbacks for the {@link Tool} methods of the given objects, with the
+     * {@link Deterministic} ones memoized in the cache.
+     */
+    public static ToolCallback[] from(Cache cache, Object... toolObjects) {
+        Set<String> deterministic = deterministicToolNames(toolObjects);
+        ToolCallback[] callbacks = MethodToolCallbackProvider.builder().toolObjects(toolObjects).build()
+                .getToolCallbacks();
+        for (int i = 0; i < callbacks.length; i++) {
+            if (deterministic.contains(callbacks[i].getToolDefinition().name())) {
+                callbacks[i] = new MemoizingToolCallback(callbacks[i], cache);
+            }
+        }
+        return callbacks;
+    }
+
+    /** Names of the {@link Tool} methods of the given objects that are marked {@link Deterministic}. */
+    public static Set<String> deterministicToolNames(Object... toolObjects) {
+        Set<String> names = new HashSet<>();
+        for (Object toolObject : toolObjects) {
+            for (Method method : ReflectionUtils.getUniqueDeclaredMethods(ClassUtils.getUserClass(toolObject))) {
+                if (method.isAnnotationPresent(Tool.class) && method.isAnnotationPresent(Deterministic.class)) {
+                    names.add(ToolUtils.getToolName(method));
+                }
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return memoized(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return memoized(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String memoized(String toolInput, Supplier<String> call) {
+        String key = key(toolInput);
+        if (key == null) {
+            return call.get();
+        }
+        String result = cache.get(key);
+        if (result == null) {
+            result = call.get();
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private String key(String toolInput) {
+        JsonNode arguments;
+        try {
+            arguments = MAPPER.readTree(toolInput == null || toolInput.isBlank() ? "{}" : toolInput);
+        }
+        catch (JsonProcessingException e) {
+            return null;
+        }
+        StringBuilder canonical = new StringBuilder(toolInput == null ? 2 : toolInput.length());
+        canonicalize(arguments, canonical);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return getToolDefinition().name() + ':' + HexFormat.of().formatHex(digest);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void canonicalize(JsonNode node, StringBuilder out) {
+        if (node.isObject()) {
+            Map<String, JsonNode> fields = new TreeMap<>();
+            node.properties().forEach(field -> fields.put(field.getKey(), field.getValue()));
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, JsonNode> field : fields.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(MAPPER.getNodeFactory().textNode(field.getKey())).append(':');
+                canonicalize(field.getValue(), out);
+            }
+            out.append('}');
+        }
+        else if (node.isArray()) {
+            out.append('[');
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                canonicalize(node.get(i), out);
+            }
+            out.append(']');
+        }
+        else if (node.isNumber()) {
+            // 2, 2.0 and 2e0 are the same argument
+            BigDecimal value = node.decimalValue();
+            out.append(value.signum() == 0 ? "0" : value.stripTrailingZeros().toString());
+        }
+        else {
+            out.append(node);
+        }
+    }
+
+    /**
+     * Results of deterministic tool calls, shared by all memoized tools. Holds at most
+     * {@code maxEntries} results of together at most {@code maxCharacters} characters and drops
+     * the least recently used beyond that; a single result larger than a tenth of the budget is
+     * not kept at all.
+     */
+    public static class Cache implements MeterBinder {
+
+        private final int maxEntries;
+        private final long maxCharacters;
+        private final LinkedHashMap<String, String> results = new LinkedHashMap<>(16, 0.75f, true);
+        private long characters;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        private Cache(Builder builder) {
+            this.maxEntries = builder.maxEntries;
+            this.maxCharacters = builder.maxCharacters;
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * Hits, misses and evictions since startup, and what the cache holds now.
+         */
+        public record Stats(long hits, long misses, long evictions, int entries, long characters) {
+            public double hitRate() {
+                long total = hits + misses;
+                return total == 0 ? 0 : hits / (double) total;
+            }
+        }
+
+        public synchronized Stats stats() {
+            return new Stats(hits.get(), misses.get(), evictions.get(), results.size(), characters);
+        }
+
+        public synchronized void clear() {
+            results.clear();
+            characters = 0;
+        }
+
+        @Override
+        public void bindTo(MeterRegistry registry) {
+            FunctionCounter.builder("tool.cache.requests", hits, AtomicLong::get)
+                    .description("Deterministic tool calls answered from the cache")
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("tool.cache.requests", misses, AtomicLong::get)
+                    .description("Deterministic tool calls that ran the tool")
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("tool.cache.evictions", evictions, AtomicLong::get)
+                    .register(registry);
+            Gauge.builder("tool.cache.hit.rate", this, cache -> cache.stats().hitRate())
+                    .register(registry);
+            Gauge.builder("tool.cache.size", this, cache -> cache.stats().entries())
+                    .register(registry);
+        }
+
+        synchronized String get(String key) {
+            String result = results.get(key);
+            (result != null ? hits : misses).incrementAndGet();
+            return result;
+        }
+
+        synchronized void put(String key, String result) {
+            if (result == null || result.length() > maxCharacters / 10) {
+                return;
+            }
+            String previous = results.put(key, result);
+            characters += result.length() - (previous != null ? previous.length() : 0);
+            Iterator<String> eldest = results.values().iterator();
+            while (results.size() > maxEntries || characters > maxCharacters) {
+                characters -= eldest.next().length();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        public static final class Builder {
+            private int maxEntries = 10_000;
+            private long maxCharacters = 16 * 1024 * 1024;
+
+            private Builder() {
+            }
+
+            public Builder maxEntries(int maxEntries) {
+                if (maxEntries <= 0) {
+                    throw new IllegalArgumentException("maxEntries must be positive");
+                }
+                this.maxEntries = maxEntries;
+                return this;
+            }
+
+            /** Total length of the cached results. */
+            public Builder maxCharacters(long maxCharacters) {
+                if (maxCharacters <= 0) {
+                    throw new IllegalArgumentException("maxCharacters must be positive");
+                }
+                this.maxCharacters = maxCharacters;
+                return this;
+            }
+
+            public Cache build() {
+                return new Cache(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.springai;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Evaluates {@link Filter.Expression}s against document metadata the same way
+ * {@link org.springframework.ai.vectorstore.SimpleVectorStore} does (via SpEL),
+ * but parses the expression once per request instead of once per document.
+ */
+final class MetadataFilter {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    private MetadataFilter() {
+    }
+
+    static Predicate<Map<String, Object>> of(SearchRequest request) {
+        return request.hasFilterExpression() ? of(request.getFilterExpression()) : metadata -> true;
+    }
+
+    static Predicate<Map<String, Object>> of(Filter.Expression filterExpression) {
+        String spel = new SimpleVectorStoreFilterExpressionConverter().convertExpression(filterExpression);
+        Expression expression = PARSER.parseExpression(spel);
+        return metadata -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", metadata);
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+}
@@ -0,0 +1,610 @@
+package com.springai;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.model.Model;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Client-side admission control for model API calls, so the provider's rate limits are respected
+ * here instead of being discovered through 429 responses and retries.
+ *
+ * Every provider (an API key and model family with its own limits, such as {@code openai-chat})
+ * has two token buckets, one for requests and one for estimated tokens per minute. Each holds at
+ * most {@code burst} worth of its per-minute limit. A call waits until both buckets can pay for
+ * it. Waiting calls are granted in order of {@link Priority} and, within a priority, round robin
+ * over tenants, so one busy tenant cannot starve the others. The head of the queue is never
+ * overtaken by a cheaper call behind it, so large requests are not starved either. A call that
+ * fails with HTTP 429 anyway empties the provider's buckets, pausing all of its traffic until they
+ * refill instead of letting every queued call retry into the limit. The 429 is recognised by the
+ * status of a {@link RestClientResponseException} or {@link WebClientResponseException} among the
+ * error's causes; blocking clients need {@link #keepRateLimitStatus} for their errors to carry one.
+ *
+ * Token estimates: chat prompts count their message tokens plus the requested max tokens, and
+ * embedding requests the tokens of their texts. When the response reports usage, the difference
+ * is settled with the token bucket afterwards. Calls to providers without limits pass straight
+ * through.
+ *
+ * Calls run as the {@link CallContext} of the calling thread ({@link #callAs}), or of the Reactor
+ * context for streams ({@link #reactorContext}); without one they are interactive calls of the
+ * {@code default} tenant.
+ */
+public class ModelCallScheduler implements MeterBinder {
+
+    /** Interactive calls are always granted before background ones. */
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    /** On whose behalf a model call is made. */
+    public record CallContext(String tenant, Priority priority) {
+        public CallContext {
+            Objects.requireNonNull(tenant, "tenant must not be null");
+            Objects.requireNonNull(priority, "priority must not be null");
+        }
+    }
+
+    /** Limits of one provider; 0 means unlimited. */
+    public record Limits(long requestsPerMinute, long tokensPerMinute) {
+    }
+
+    /** Calls granted, calls waiting now, 429 responses seen and total time spent waiting since startup. */
+    public record ProviderStats(String provider, long granted, int queued, long throttled, Duration waited) {
+    }
+
+    public static final CallContext DEFAULT_CONTEXT = new CallContext("default", Priority.INTERACTIVE);
+
+    private static final ThreadLocal<CallContext> CONTEXT = new ThreadLocal<>();
+    private static final String CONTEXT_KEY = CallContext.class.getName();
+
+    private final Map<String, Provider> providers = new LinkedHashMap<>();
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private ModelCallScheduler(Builder builder) {
+        long burstNanos = builder.burst.toNanos();
+        builder.limits.forEach((name, limits) -> providers.put(name, new Provider(name, limits, burstNanos)));
+        this.tokenCountEstimator = builder.tokenCountEstimator != null
+                ? builder.tokenCountEstimator : new JTokkitTokenCountEstimator();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ---- call context ----
+
+    /** Runs {@code call} with the given context for all model calls it makes on this thread. */
+    public static <T> T callAs(CallContext context, Supplier<T> call) {
+        CallContext previous = CONTEXT.get();
+        CONTEXT.set(context);
+        try {
+            return call.get();
+        }
+        finally {
+            if (previous != null) {
+                CONTEXT.set(previous);
+            }
+            else {
+                CONTEXT.remove();
+            }
+        }
+    }
+
+    public static <T> T callAs(String tenant, Priority priority, Supplier<T> call) {
+        return callAs(new CallContext(tenant, priority), call);
+    }
+
+    public static CallContext currentContext() {
+        CallContext context = CONTEXT.get();
+        return context != null ? context : DEFAULT_CONTEXT;
+    }
+
+    /** Reactor context that makes the streams it is written to run as the given tenant and priority. */
+    public static Context reactorContext(String tenant, Priority priority) {
+        return Context.of(CONTEXT_KEY, new CallContext(tenant, priority));
+    }
+
+    /** Embedding model whose calls all run as the given tenant and priority, for example for ingestion. */
+    public static EmbeddingModel withContext(EmbeddingModel delegate, String tenant, Priority priority) {
+        CallContext context = new CallContext(tenant, priority);
+        return new EmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                return callAs(context, () -> delegate.call(request));
+            }
+
+            @Override
+            public float[] embed(Document document) {
+                return callAs(context, () -> delegate.embed(document));
+            }
+
+            @Override
+            public int dimensions() {
+                return delegate.dimensions();
+            }
+        };
+    }
+
+    // ---- scheduling ----
+
+    /**
+     * Waits until {@code provider} has room for one request of {@code estimatedTokens}, then makes
+     * the call. {@code actualTokens} reads the tokens the call really used from its result, or 0
+     * if unknown.
+     */
+    public <T> T execute(String provider, long estimatedTokens, ToLongFunction<T> actualTokens, Supplier<T> call) {
+        Provider limits = providers.get(provider);
+        if (limits == null) {
+            return call.get();
+        }
+        long charged = limits.acquire(estimatedTokens, currentContext());
+        return limits.run(charged, actualTokens, call);
+    }
+
+    public List<ProviderStats> stats() {
+        return providers.values().stream().map(Provider::stats).toList();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Provider provider : providers.values()) {
+            FunctionCounter.builder("model.scheduler.granted", provider.granted, AtomicLong::get)
+                    .tag("provider", provider.name).register(registry);
+            FunctionCounter.builder("model.scheduler.throttled", provider.throttled, AtomicLong::get)
+                    .description("Calls that got HTTP 429 despite the client-side limits")
+                    .tag("provider", provider.name).register(registry);
+            FunctionCounter.builder("model.scheduler.wait", provider.waitedNanos, nanos -> nanos.get() / 1e9)
+                    .baseUnit("seconds").tag("provider", provider.name).register(registry);
+            Gauge.builder("model.scheduler.queued", provider, p -> p.stats().queued())
+                    .tag("provider", provider.name).register(registry);
+        }
+    }
+
+    // ---- decorators ----
+
+    public ChatModel chatModel(String provider, ChatModel delegate) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return execute(provider, estimate(prompt), ModelCallScheduler::usedTokens, () -> delegate.call(prompt));
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return executeStream(provider, estimate(prompt), () -> delegate.stream(prompt));
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return delegate.getDefaultOptions();
+            }
+        };
+    }
+
+    public EmbeddingModel embeddingModel(String provider, EmbeddingModel delegate) {
+        return new EmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                long tokens = request.getInstructions().stream().mapToLong(tokenCountEstimator::estimate).sum();
+                return execute(provider, tokens, ModelCallScheduler::usedTokens, () -> delegate.call(request));
+            }
+
+            @Override
+            public float[] embed(Document document) {
+                String text = document.getFormattedContent(MetadataMode.EMBED);
+                return execute(provider, tokenCountEstimator.estimate(text), vector -> 0,
+                        () -> delegate.embed(document));
+            }
+
+            @Override
+            public int dimensions() {
+                return delegate.dimensions();
+            }
+        };
+    }
+
+    /**
+     * Any other model, such as {@code OpenAiImageModel}, metered by request count only. The result
+     * is a subclass proxy of the model's own class, so it can replace the model bean and callers
+     * that inject the concrete class are metered too. Each {@code call} and {@code stream} is one
+     * request.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Model<?, ?>> T model(String provider, T delegate) {
+        ProxyFactory proxyFactory = new ProxyFactory(delegate);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> switch (invocation.getMethod().getName()) {
+            case "call" -> execute(provider, 0, response -> 0, () -> proceed(invocation));
+            case "stream" -> executeStream(provider, 0, () -> (Flux<?>) proceed(invocation));
+            default -> invocation.proceed();
+        });
+        return (T) proxyFactory.getProxy(delegate.getClass().getClassLoader());
+    }
+
+    private <T> Flux<T> executeStream(String provider, long estimatedTokens, Supplier<Flux<T>> call) {
+        Provider limits = providers.get(provider);
+        if (limits == null) {
+            return call.get();
+        }
+        // Waiting blocks, so it happens off the subscriber's thread
+        return Flux.deferContextual(view -> {
+            CallContext context = view.getOrDefault(CONTEXT_KEY, currentContext());
+            return Mono.fromCallable(() -> limits.acquire(estimatedTokens, context))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(charged -> call.get().doOnError(limits::onFailure));
+        });
+    }
+
+    private static Object proceed(MethodInvocation invocation) {
+        try {
+            return invocation.proceed();
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private long estimate(Prompt prompt) {
+        long tokens = 0;
+        for (Message message : prompt.getInstructions()) {
+            if (message.getText() != null) {
+                tokens += tokenCountEstimator.estimate(message.getText());
+            }
+        }
+        ChatOptions options = prompt.getOptions();
+        if (options != null && options.getMaxTokens() != null) {
+            tokens += options.getMaxTokens();
+        }
+        return tokens;
+    }
+
+    private static long usedTokens(ChatResponse response) {
+        return response == null || response.getMetadata() == null ? 0 : total(response.getMetadata().getUsage());
+    }
+
+    private static long usedTokens(EmbeddingResponse response) {
+        return response == null || response.getMetadata() == null ? 0 : total(response.getMetadata().getUsage());
+    }
+
+    private static long total(Usage usage) {
+        return usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+    }
+
+    /**
+     * Wraps the error handler of the provider clients so the exception of an HTTP 429 carries the
+     * status. Spring AI's handler reports it as an {@code AiException} that keeps the status only in
+     * its message; the wrapper leaves that exception as it is and attaches an
+     * {@link HttpClientErrorException.TooManyRequests} as its cause. Other errors go to the wrapped
+     * handler unchanged.
+     */
+    public static ResponseErrorHandler keepRateLimitStatus(ResponseErrorHandler delegate) {
+        return new ResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) throws IOException {
+                return delegate.hasError(response);
+            }
+
+            @Override
+            public void handleError(URI url, HttpMethod method, ClientHttpResponse response) throws IOException {
+                try {
+                    delegate.handleError(url, method, response);
+                }
+                catch (RuntimeException e) {
+                    if (response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                            && e.getCause() == null) {
+                        e.initCause(HttpClientErrorException.create(response.getStatusCode(),
+                                response.getStatusText(), response.getHeaders(), new byte[0], null));
+                    }
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private static boolean isRateLimited(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            HttpStatusCode status = e instanceof RestClientResponseException rest ? rest.getStatusCode()
+                    : e instanceof WebClientResponseException web ? web.getStatusCode() : null;
+            if (status != null && status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Budgets and wait queues of one provider. */
+    private static final class Provider {
+        final String name;
+        final Bucket requests;
+        final Bucket tokens;
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition changed = lock.newCondition();
+        // Per priority, per tenant, the waiting calls; tenants are served round robin
+        final Map<Priority, LinkedHashMap<String, ArrayDeque<Waiter>>> queues = new EnumMap<>(Priority.class);
+        int queued;
+        final AtomicLong granted = new AtomicLong();
+        final AtomicLong throttled = new AtomicLong();
+        final AtomicLong waitedNanos = new AtomicLong();
+
+        Provider(String name, Limits limits, long burstNanos) {
+            this.name = name;
+            this.requests = Bucket.perMinute(limits.requestsPerMinute(), burstNanos);
+            this.tokens = Bucket.perMinute(limits.tokensPerMinute(), burstNanos);
+            for (Priority priority : Priority.values()) {
+                queues.put(priority, new LinkedHashMap<>());
+            }
+        }
+
+        /** Blocks until the call is granted; returns the tokens charged for it. */
+        long acquire(long estimatedTokens, CallContext context) {
+            // A request larger than the bucket could never be granted otherwise
+            long charge = tokens == null ? 0 : Math.min(Math.max(estimatedTokens, 0), (long) tokens.capacity);
+            Waiter waiter = new Waiter(charge);
+            long started = System.nanoTime();
+            lock.lock();
+            try {
+                queues.get(context.priority()).computeIfAbsent(context.tenant(), tenant -> new ArrayDeque<>())
+                        .add(waiter);
+                queued++;
+                while (!waiter.granted) {
+                    long wait = dispatch();
+                    if (waiter.granted) {
+                        break;
+                    }
+                    changed.awaitNanos(wait);
+                }
+            }
+            catch (InterruptedException e) {
+                if (!waiter.granted) {
+                    remove(waiter);
+                }
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the " + name + " rate limit", e);
+            }
+            finally {
+                lock.unlock();
+            }
+            waitedNanos.addAndGet(System.nanoTime() - started);
+            granted.incrementAndGet();
+            return charge;
+        }
+
+        <T> T run(long charged, ToLongFunction<T> actualTokens, Supplier<T> call) {
+            T result;
+            try {
+                result = call.get();
+            }
+            catch (RuntimeException e) {
+                onFailure(e);
+                throw e;
+            }
+            long actual = actualTokens.applyAsLong(result);
+            if (actual > 0 && tokens != null) {
+                lock.lock();
+                try {
+                    tokens.available -= actual - charged;
+                    changed.signalAll();
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+            return result;
+        }
+
+        void onFailure(Throwable error) {
+            if (!isRateLimited(error)) {
+                return;
+            }
+            throttled.incrementAndGet();
+            lock.lock();
+            try {
+                // The provider says we are over: stop everyone until the buckets refill
+                if (requests != null) {
+                    requests.available = Math.min(requests.available, 0);
+                }
+                if (tokens != null) {
+                    tokens.available = Math.min(tokens.available, 0);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Grants waiting calls while the budgets allow, highest priority first and round robin over
+         * tenants. Returns how long to wait before the next call at the head could be granted.
+         */
+        private long dispatch() {
+            long now = System.nanoTime();
+            if (requests != null) {
+                requests.refill(now);
+            }
+            if (tokens != null) {
+                tokens.refill(now);
+            }
+            boolean grantedAny = false;
+            long wait = TimeUnit.SECONDS.toNanos(1);
+            dispatching:
+            for (LinkedHashMap<String, ArrayDeque<Waiter>> tenants : queues.values()) {
+                while (!tenants.isEmpty()) {
+                    Iterator<Map.Entry<String, ArrayDeque<Waiter>>> first = tenants.entrySet().iterator();
+                    Map.Entry<String, ArrayDeque<Waiter>> entry = first.next();
+                    Waiter head = entry.getValue().peek();
+                    long waitRequests = requests == null ? 0 : requests.nanosUntil(1);
+                    long waitTokens = tokens == null ? 0 : tokens.nanosUntil(head.tokens);
+                    if (waitRequests > 0 || waitTokens > 0) {
+                        wait = Math.max(Math.max(waitRequests, waitTokens), TimeUnit.MILLISECONDS.toNanos(1));
+                        break dispatching;
+                    }
+                    if (requests != null) {
+                        requests.available -= 1;
+                    }
+                    if (tokens != null) {
+                        tokens.available -= head.tokens;
+                    }
+                    entry.getValue().poll();
+                    head.granted = true;
+                    queued--;
+                    grantedAny = true;
+                    // Move the tenant to the back of the line
+                    first.remove();
+                    if (!entry.getValue().isEmpty()) {
+                        tenants.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            if (grantedAny) {
+                changed.signalAll();
+            }
+            return wait;
+        }
+
+        private void remove(Waiter waiter) {
+            for (LinkedHashMap<String, ArrayDeque<Waiter>> tenants : queues.values()) {
+                tenants.values().removeIf(waiters -> waiters.remove(waiter) && waiters.isEmpty());
+            }
+            queued--;
+            changed.signalAll();
+        }
+
+        ProviderStats stats() {
+            lock.lock();
+            try {
+                return new ProviderStats(name, granted.get(), queued, throttled.get(),
+                        Duration.ofNanos(waitedNanos.get()));
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final long tokens;
+        boolean granted;
+
+        Waiter(long tokens) {
+            this.tokens = tokens;
+        }
+    }
+
+    /** Refills continuously at the per-minute rate up to {@code capacity}; may go negative (debt). */
+    private static final class Bucket {
+        final double capacity;
+        final double perNano;
+        double available;
+        long refilledAt = System.nanoTime();
+
+        private Bucket(double capacity, double perNano) {
+            this.capacity = capacity;
+            this.perNano = perNano;
+            this.available = capacity;
+        }
+
+        static Bucket perMinute(long limit, long burstNanos) {
+            if (limit <= 0) {
+                return null;
+            }
+            double perNano = limit / (double) TimeUnit.MINUTES.toNanos(1);
+            return new Bucket(Math.max(1, perNano * burstNanos), perNano);
+        }
+
+        void refill(long now) {
+            available = Math.min(capacity, available + (now - refilledAt) * perNano);
+            refilledAt = now;
+        }
+
+        long nanosUntil(double amount) {
+            return available >= amount ? 0 : (long) Math.ceil((amount - available) / perNano);
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, Limits> limits = new LinkedHashMap<>();
+        private Duration burst = Duration.ofSeconds(10);
+        private TokenCountEstimator tokenCountEstimator;
+
+        private Builder() {
+        }
+
+        public Builder provider(String name, long requestsPerMinute, long tokensPerMinute) {
+            if (requestsPerMinute < 0 || tokensPerMinute < 0) {
+                throw new IllegalArgumentException("Limits of " + name + " must not be negative");
+            }
+            if (limits.putIfAbsent(name, new Limits(requestsPerMinute, tokensPerMinute)) != null) {
+                throw new IllegalArgumentException("Duplicate provider " + name);
+            }
+            return this;
+        }
+
+        /** How much of a minute's budget can be spent at once after a quiet period. */
+        public Builder burst(Duration burst) {
+            if (burst.isNegative() || burst.isZero()) {
+                throw new IllegalArgumentException("burst must be positive");
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public ModelCallScheduler build() {
+            return new ModelCallScheduler(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.ai.openai.OpenAiAudioSpeechModel;
+import org.springframework.ai.openai.OpenAiAudioTranscriptionModel;
+import org.springframework.ai.openai.OpenAiImageModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.ResponseErrorHandler;
+
+/**
+ * Creates the shared {@link ModelCallScheduler} and puts it in front of the image and audio
+ * models, whichever type they are injected as. Chat and embedding models are wrapped in
+ * {@link ChatModelConfig} and {@link EmbeddingModelConfig}, below their routing, batching and
+ * caching layers, so only calls that really reach a provider are metered.
+ */
+@Configuration
+public class ModelSchedulerConfig {
+
+    @Bean
+    public ModelCallScheduler modelCallScheduler(
+            @Value("${app.model.scheduler.enabled:true}") boolean enabled,
+            @Value("${app.model.scheduler.limits:}") List<String> limits,
+            @Value("${app.model.scheduler.burst:10s}") Duration burst) {
+        ModelCallScheduler.Builder builder = ModelCallScheduler.builder().burst(burst);
+        if (!enabled) {
+            return builder.build();
+        }
+        for (String limit : limits) {
+            if (limit.isBlank()) {
+                continue;
+            }
+            // provider:requests-per-minute:tokens-per-minute
+            String[] parts = limit.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected provider:requests-per-minute:tokens-per-minute, got "
+                        + limit);
+            }
+            builder.provider(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        }
+        return builder.build();
+    }
+
+    /** Lets the scheduler see HTTP 429 responses of the provider clients by their status code. */
+    @Bean
+    public static BeanPostProcessor rateLimitStatusPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof ResponseErrorHandler handler
+                        ? ModelCallScheduler.keepRateLimitStatus(handler) : bean;
+            }
+        };
+    }
+
+    /**
+     * Replaces the OpenAI image and audio model beans with metered proxies of their own classes, so
+     * injecting either the interfaces or the OpenAI classes goes through the scheduler.
+     */
+    @Bean
+    public static BeanPostProcessor scheduledModelPostProcessor(ObjectProvider<ModelCallScheduler> scheduler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof OpenAiImageModel model) {
+                    return scheduler.getObject().model("openai-image", model);
+                }
+                if (bean instanceof OpenAiAudioSpeechModel model) {
+                    return scheduler.getObject().model("openai-audio", model);
+                }
+                if (bean instanceof OpenAiAudioTranscriptionModel model) {
+                    return scheduler.getObject().model("openai-audio", model);
+                }
+                return bean;
+            }
+        };
+    }
+}
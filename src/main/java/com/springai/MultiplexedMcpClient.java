@@ -0,0 +1,534 @@
+package com.springai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.DefaultToolDefinition;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+/**
+ * MCP client for a server started as a process and spoken to over STDIO, built for many
+ * concurrent tool calls.
+ *
+ * Requests are pipelined: any number of them can be in flight on one connection, each written as
+ * soon as it is made and matched to its response by JSON-RPC id. Every request has its own
+ * timeout; a request that times out or whose future is cancelled is dropped and the server is
+ * sent a notifications/cancelled for it. With {@code processes} above one, several copies of the
+ * server are started and each tool call goes to the copy with the fewest calls in flight, for
+ * servers that handle only so many calls at a time.
+ *
+ * Only tools are supported; requests from the server other than ping are answered with
+ * "method not found".
+ */
+public class MultiplexedMcpClient implements AutoCloseable, MeterBinder {
+
+    private static final String PROTOCOL_VERSION = "2024-11-05";
+
+    private final ServerParameters serverParameters;
+    private final McpSchema.Implementation clientInfo;
+    private final Duration requestTimeout;
+    private final Consumer<List<McpSchema.Tool>> toolsChangeConsumer;
+    private final ObjectMapper objectMapper;
+    private final List<Connection> connections = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private volatile boolean initialized;
+
+    private MultiplexedMcpClient(Builder builder) {
+        this.serverParameters = builder.serverParameters;
+        this.clientInfo = builder.clientInfo;
+        this.requestTimeout = builder.requestTimeout;
+        this.toolsChangeConsumer = builder.toolsChangeConsumer;
+        this.objectMapper = builder.objectMapper;
+        for (int i = 0; i < builder.processes; i++) {
+            connections.add(new Connection(i));
+        }
+    }
+
+    public static Builder builder(ServerParameters serverParameters) {
+        return new Builder(serverParameters);
+    }
+
+    public McpSchema.Implementation getClientInfo() {
+        return clientInfo;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Starts the server processes and completes the MCP handshake with each, all at the same time.
+     */
+    public synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        List<CompletableFuture<Void>> started = new ArrayList<>();
+        for (Connection connection : connections) {
+            started.add(connection.start());
+        }
+        try {
+            await(CompletableFuture.allOf(started.toArray(CompletableFuture[]::new)), "initialize", null);
+        }
+        catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        initialized = true;
+    }
+
+    /**
+     * All tools of the server, following pagination.
+     */
+    public List<McpSchema.Tool> listTools() {
+        return await(listToolsAsync(), "tools/list", null);
+    }
+
+    public McpSchema.CallToolResult callTool(McpSchema.CallToolRequest request) {
+        return callTool(request, requestTimeout);
+    }
+
+    public McpSchema.CallToolResult callTool(McpSchema.CallToolRequest request, Duration timeout) {
+        CompletableFuture<McpSchema.CallToolResult> result = callToolAsync(request, timeout);
+        return await(result, "tools/call " + request.name(), timeout);
+    }
+
+    /**
+     * Sends a tool call without waiting for it. Cancelling the returned future cancels the call
+     * on the server.
+     */
+    public CompletableFuture<McpSchema.CallToolResult> callToolAsync(McpSchema.CallToolRequest request,
+            Duration timeout) {
+        Connection connection = leastBusy();
+        CompletableFuture<JsonNode> response = connection.request("tools/call", request, timeout);
+        CompletableFuture<McpSchema.CallToolResult> result = response.thenApply(
+                json -> convert(json, McpSchema.CallToolResult.class));
+        propagateFailure(result, response);
+        return result;
+    }
+
+    /**
+     * A tool callback that calls the given tool of this server, named like Spring AI's MCP tool
+     * callbacks.
+     */
+    public ToolCallback toolCallback(McpSchema.Tool tool) {
+        ToolDefinition definition = DefaultToolDefinition.builder()
+                .name(McpToolUtils.prefixedToolName(clientInfo.name(), tool.name()))
+                .description(tool.description())
+                .inputSchema(ModelOptionsUtils.toJsonString(tool.inputSchema()))
+                .build();
+        return new ToolCallback() {
+
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                Map<String, Object> arguments = toolInput == null || toolInput.isBlank() ? Map.of()
+                        : ModelOptionsUtils.jsonToMap(toolInput);
+                McpSchema.CallToolResult result = callTool(new McpSchema.CallToolRequest(tool.name(), arguments));
+                if (Boolean.TRUE.equals(result.isError())) {
+                    throw new IllegalStateException("Error calling tool: " + result.content());
+                }
+                return ModelOptionsUtils.toJsonString(result.content());
+            }
+
+            @Override
+            public String call(String toolInput, ToolContext toolContext) {
+                return call(toolInput);
+            }
+        };
+    }
+
+    /** Requests currently waiting for their response, over all processes. */
+    public int inFlight() {
+        int inFlight = 0;
+        for (Connection connection : connections) {
+            inFlight += connection.pending.size();
+        }
+        return inFlight;
+    }
+
+    public long timedOut() {
+        return timedOut.get();
+    }
+
+    public long cancelled() {
+        return cancelled.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("mcp.client.requests", requests, AtomicLong::get)
+                .tag("client", clientInfo.name())
+                .register(registry);
+        FunctionCounter.builder("mcp.client.requests.timed.out", timedOut, AtomicLong::get)
+                .tag("client", clientInfo.name())
+                .register(registry);
+        FunctionCounter.builder("mcp.client.requests.cancelled", cancelled, AtomicLong::get)
+                .tag("client", clientInfo.name())
+                .register(registry);
+        Gauge.builder("mcp.client.requests.in.flight", this, MultiplexedMcpClient::inFlight)
+                .tag("client", clientInfo.name())
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        connections.forEach(Connection::close);
+    }
+
+    private CompletableFuture<List<McpSchema.Tool>> listToolsAsync() {
+        return listToolsAsync(leastBusy(), null, new ArrayList<>());
+    }
+
+    private CompletableFuture<List<McpSchema.Tool>> listToolsAsync(Connection connection, String cursor,
+            List<McpSchema.Tool> tools) {
+        return connection.request("tools/list", cursor == null ? Map.of() : Map.of("cursor", cursor), requestTimeout)
+                .thenCompose(json -> {
+                    McpSchema.ListToolsResult page = convert(json, McpSchema.ListToolsResult.class);
+                    tools.addAll(page.tools());
+                    return page.nextCursor() == null ? CompletableFuture.completedFuture(tools)
+                            : listToolsAsync(connection, page.nextCursor(), tools);
+                });
+    }
+
+    private Connection leastBusy() {
+        if (!initialized) {
+            throw new IllegalStateException("MCP client " + clientInfo.name() + " is not initialized");
+        }
+        Connection best = connections.get(0);
+        for (Connection connection : connections) {
+            if (connection.pending.size() < best.pending.size()) {
+                best = connection;
+            }
+        }
+        return best;
+    }
+
+    /** Lets cancelling or failing a dependent stage reach the stage it was derived from. */
+    private static void propagateFailure(CompletableFuture<?> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((value, error) -> {
+            if (error != null) {
+                source.completeExceptionally(error);
+            }
+        });
+    }
+
+    private <T> T convert(JsonNode json, Class<T> type) {
+        try {
+            return objectMapper.treeToValue(json, type);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unexpected " + type.getSimpleName() + ": " + json, e);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future, String method, Duration timeout) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for MCP " + method, e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new IllegalStateException("MCP " + method + " did not finish within "
+                        + (timeout != null ? timeout : requestTimeout), cause);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("MCP " + method + " failed", cause);
+        }
+    }
+
+    /**
+     * One server process. Writes are serialized on the process's stdin; a reader thread completes
+     * the pending requests as their responses arrive on stdout.
+     */
+    private class Connection {
+
+        private final int index;
+        private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+        private final Object writeLock = new Object();
+        private Process process;
+        private OutputStream stdin;
+
+        Connection(int index) {
+            this.index = index;
+        }
+
+        CompletableFuture<Void> start() {
+            List<String> command = new ArrayList<>();
+            command.add(serverParameters.getCommand());
+            command.addAll(serverParameters.getArgs());
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT);
+            processBuilder.environment().putAll(serverParameters.getEnv());
+            try {
+                process = processBuilder.start();
+            }
+            catch (IOException e) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("Could not start MCP server " + command, e));
+            }
+            stdin = process.getOutputStream();
+            Thread reader = new Thread(this::read, "mcp-" + clientInfo.name() + "-" + index);
+            reader.setDaemon(true);
+            reader.start();
+
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("protocolVersion", PROTOCOL_VERSION);
+            params.put("capabilities", Map.of());
+            params.put("clientInfo", clientInfo);
+            return request("initialize", params, requestTimeout)
+                    .thenAccept(result -> send(message(null, "notifications/initialized", null)));
+        }
+
+        CompletableFuture<JsonNode> request(String method, Object params, Duration timeout) {
+            long id = ids.incrementAndGet();
+            CompletableFuture<JsonNode> response = new CompletableFuture<>();
+            pending.put(id, response);
+            requests.incrementAndGet();
+            // Callers get a future that completes only after the bookkeeping below
+            CompletableFuture<JsonNode> completed = new CompletableFuture<>();
+            response.whenComplete((result, error) -> {
+                // Still pending means no response came: it timed out or the caller gave up
+                if (pending.remove(id) != null && !"initialize".equals(method)) {
+                    boolean expired = error instanceof TimeoutException;
+                    (expired ? timedOut : cancelled).incrementAndGet();
+                    sendQuietly(message(null, "notifications/cancelled", Map.of("requestId", id,
+                            "reason", expired ? "Timed out after " + timeout : "Cancelled by the client")));
+                }
+                if (error != null) {
+                    completed.completeExceptionally(error);
+                }
+                else {
+                    completed.complete(result);
+                }
+            });
+            propagateFailure(completed, response);
+            response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                send(message(id, method, params));
+            }
+            catch (RuntimeException e) {
+                pending.remove(id);
+                response.completeExceptionally(e);
+            }
+            return completed;
+        }
+
+        private ObjectNode message(Long id, String method, Object params) {
+            ObjectNode message = objectMapper.createObjectNode().put("jsonrpc", "2.0");
+            if (id != null) {
+                message.put("id", id);
+            }
+            message.put("method", method);
+            if (params != null) {
+                message.set("params", objectMapper.valueToTree(params));
+            }
+            return message;
+        }
+
+        private void send(JsonNode message) {
+            byte[] line;
+            try {
+                line = (objectMapper.writeValueAsString(message) + "\n").getBytes(StandardCharsets.UTF_8);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Could not serialize MCP message", e);
+            }
+            synchronized (writeLock) {
+                try {
+                    stdin.write(line);
+                    stdin.flush();
+                }
+                catch (IOException e) {
+                    throw new IllegalStateException("MCP server " + clientInfo.name() + " is not reachable", e);
+                }
+            }
+        }
+
+        private void sendQuietly(JsonNode message) {
+            try {
+                send(message);
+            }
+            catch (RuntimeException e) {
+                // The server is gone, nothing left to cancel
+            }
+        }
+
+        private void read() {
+            try (BufferedReader stdout = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        handle(line);
+                    }
+                }
+            }
+            catch (IOException e) {
+                // Closed, fail the pending requests below
+            }
+            failPending(new IllegalStateException("MCP server " + clientInfo.name() + " exited"));
+        }
+
+        private void handle(String line) {
+            JsonNode message;
+            try {
+                message = objectMapper.readTree(line);
+            }
+            catch (IOException e) {
+                // Servers may log to stdout; anything that is not JSON-RPC is skipped
+                return;
+            }
+            JsonNode id = message.get("id");
+            String method = message.path("method").asText(null);
+            if (method == null) {
+                CompletableFuture<JsonNode> response = id == null ? null : pending.remove(id.asLong());
+                if (response == null) {
+                    return;
+                }
+                if (message.has("error")) {
+                    response.completeExceptionally(new IllegalStateException(
+                            "MCP server " + clientInfo.name() + " returned " + message.get("error")));
+                }
+                else {
+                    response.complete(message.get("result"));
+                }
+            }
+            else if (id != null) {
+                ObjectNode reply = objectMapper.createObjectNode().put("jsonrpc", "2.0").set("id", id);
+                if ("ping".equals(method)) {
+                    reply.set("result", objectMapper.createObjectNode());
+                }
+                else {
+                    reply.set("error", objectMapper.createObjectNode().put("code", -32601)
+                            .put("message", "Method not found: " + method));
+                }
+                sendQuietly(reply);
+            }
+            else if ("notifications/tools/list_changed".equals(method) && toolsChangeConsumer != null) {
+                // Listed asynchronously: this thread has to stay free to read the response
+                listToolsAsync(this, null, new ArrayList<>()).thenAccept(toolsChangeConsumer);
+            }
+        }
+
+        private void failPending(RuntimeException error) {
+            for (CompletableFuture<JsonNode> response : pending.values()) {
+                response.completeExceptionally(error);
+            }
+        }
+
+        void close() {
+            if (process == null) {
+                return;
+            }
+            try {
+                stdin.close();
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            }
+            catch (IOException e) {
+                process.destroy();
+            }
+            catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+            failPending(new IllegalStateException("MCP client " + clientInfo.name() + " closed"));
+        }
+    }
+
+    public static final class Builder {
+        private final ServerParameters serverParameters;
+        private McpSchema.Implementation clientInfo = new McpSchema.Implementation("mcp-client", "1.0.0");
+        private Duration requestTimeout = Duration.ofSeconds(30);
+        private int processes = 1;
+        private Consumer<List<McpSchema.Tool>> toolsChangeConsumer;
+        private ObjectMapper objectMapper = new ObjectMapper();
+
+        private Builder(ServerParameters serverParameters) {
+            this.serverParameters = Objects.requireNonNull(serverParameters, "serverParameters must not be null");
+        }
+
+        public Builder clientInfo(McpSchema.Implementation clientInfo) {
+            this.clientInfo = Objects.requireNonNull(clientInfo, "clientInfo must not be null");
+            return this;
+        }
+
+        /** Timeout of requests that do not set their own. */
+        public Builder requestTimeout(Duration requestTimeout) {
+            if (requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero()) {
+                throw new IllegalArgumentException("requestTimeout must be positive");
+            }
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /** Copies of the server to start; tool calls go to the least busy one. */
+        public Builder processes(int processes) {
+            if (processes <= 0) {
+                throw new IllegalArgumentException("processes must be positive");
+            }
+            this.processes = processes;
+            return this;
+        }
+
+        /** Called with the new tool list whenever the server reports that its tools changed. */
+        public Builder toolsChangeConsumer(Consumer<List<McpSchema.Tool>> toolsChangeConsumer) {
+            this.toolsChangeConsumer = toolsChangeConsumer;
+            return this;
+        }
+
+        public Builder objectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+            return this;
+        }
+
+        public MultiplexedMcpClient build() {
+            return new MultiplexedMcpClient(this);
+        }
+    }
+}
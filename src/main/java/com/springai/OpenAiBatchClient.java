@@ -0,0 +1,157 @@
+package com.springai;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Minimal client for the OpenAI Batch API, which Spring AI does not cover: upload a JSONL file
+ * of requests, start a batch over it, poll the batch and download its output. Batches finish
+ * within 24 hours and are billed at half the price of the same synchronous requests.
+ */
+public class OpenAiBatchClient {
+
+    /** Endpoint batch requests are sent to; each JSONL line has this as its url. */
+    public static final String CHAT_COMPLETIONS = "/v1/chat/completions";
+
+    private static final Set<String> FINISHED = Set.of("completed", "failed", "expired", "cancelled");
+
+    private final RestClient restClient;
+
+    private OpenAiBatchClient(Builder builder) {
+        this.restClient = builder.restClientBuilder
+                .baseUrl(builder.baseUrl)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + builder.apiKey)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * State of a batch. The output file has a line per request that succeeded, the error file a
+     * line per request that did not; either is null while the batch runs or when it is empty.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Batch(String id, String status, @JsonProperty("output_file_id") String outputFileId,
+            @JsonProperty("error_file_id") String errorFileId) {
+
+        public boolean finished() {
+            return FINISHED.contains(status);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record FileObject(String id) {
+    }
+
+    /** Uploads a JSONL file of requests and returns its id. */
+    public String uploadFile(String filename, String jsonl) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("purpose", "batch");
+        body.part("file", new ByteArrayResource(jsonl.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        }).contentType(MediaType.APPLICATION_OCTET_STREAM);
+        FileObject file = restClient.post()
+                .uri("/v1/files")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(body.build())
+                .retrieve()
+                .body(FileObject.class);
+        return file.id();
+    }
+
+    /** Starts a batch over the requests of an uploaded file. */
+    public Batch createBatch(String inputFileId) {
+        return restClient.post()
+                .uri("/v1/batches")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("input_file_id", inputFileId, "endpoint", CHAT_COMPLETIONS, "completion_window", "24h"))
+                .retrieve()
+                .body(Batch.class);
+    }
+
+    public Batch getBatch(String batchId) {
+        return restClient.get()
+                .uri("/v1/batches/{id}", batchId)
+                .retrieve()
+                .body(Batch.class);
+    }
+
+    /**
+     * Hands each line of a file, such as the JSONL output of a batch, to {@code lines} while it is
+     * downloaded. The output of a large batch runs to hundreds of megabytes, so it is never held
+     * in memory as a whole.
+     */
+    public void readLines(String fileId, Consumer<String> lines) {
+        restClient.get()
+                .uri("/v1/files/{id}/content", fileId)
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("Download of file " + fileId + " failed with status "
+                                + response.getStatusCode());
+                    }
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            lines.accept(line);
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    public static final class Builder {
+        private String baseUrl = "https://api.openai.com";
+        private String apiKey;
+        private RestClient.Builder restClientBuilder = RestClient.builder();
+
+        private Builder() {
+        }
+
+        /** Base URL without the /v1 path, as in spring.ai.openai.base-url. */
+        public Builder baseUrl(String baseUrl) {
+            if (baseUrl == null || baseUrl.isBlank()) {
+                throw new IllegalArgumentException("baseUrl must not be blank");
+            }
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            return this;
+        }
+
+        public Builder apiKey(String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        public Builder restClientBuilder(RestClient.Builder restClientBuilder) {
+            if (restClientBuilder == null) {
+                throw new IllegalArgumentException("restClientBuilder must not be null");
+            }
+            this.restClientBuilder = restClientBuilder;
+            return this;
+        }
+
+        public OpenAiBatchClient build() {
+            if (apiKey == null || apiKey.isBlank()) {
+                throw new IllegalArgumentException("apiKey must not be blank");
+            }
+            return new OpenAiBatchClient(this);
+        }
+    }
+}
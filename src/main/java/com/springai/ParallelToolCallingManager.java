@@ -0,0 +1,377 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.DefaultToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.observation.DefaultToolCallingObservationConvention;
+import org.springframework.ai.tool.observation.ToolCallingObservationContext;
+import org.springframework.ai.tool.observation.ToolCallingObservationConvention;
+import org.springframework.ai.tool.observation.ToolCallingObservationDocumentation;
+import org.springframework.ai.tool.resolution.StaticToolCallbackResolver;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link ToolCallingManager} that runs all tool calls of one model response at the same time,
+ * so a turn asking for several tools (a few {@link CalculatorService} operations, or
+ * {@link DateTimeTools} next to an MCP tool) takes as long as the slowest tool rather than the
+ * sum of all of them.
+ *
+ * Tools are resolved like {@link DefaultToolCallingManager} does: from the prompt's tool
+ * callbacks first, then from the {@link ToolCallbackResolver}, and every call is recorded as a
+ * Spring AI tool call observation, under the caller's current observation. Each call runs on its
+ * own virtual thread (one of 64 platform threads before Java 21) with the caller's locale and
+ * {@link ModelCallScheduler} context, and must finish within its timeout; a call that does not is
+ * interrupted and the model gets the error message instead, like for any other failing tool.
+ * Responses are returned in the order the model asked for them.
+ *
+ * The timeout starts once a thread is free for the call, so calls waiting for one of the platform
+ * threads are not timed out before they ran; waiting for a thread is itself limited to the timeout.
+ * A tool that ignores interrupts keeps its thread until it returns even after it timed out.
+ */
+public class ParallelToolCallingManager implements ToolCallingManager, MeterBinder, AutoCloseable {
+
+    // Tool calls in flight, when virtual threads are not available
+    private static final int PLATFORM_THREADS = 64;
+
+    private static final ToolCallingObservationConvention OBSERVATION_CONVENTION =
+            new DefaultToolCallingObservationConvention();
+
+    private final ToolCallbackResolver toolCallbackResolver;
+    private final ToolExecutionExceptionProcessor exceptionProcessor;
+    private final ToolCallingManager definitions;
+    private final ObservationRegistry observationRegistry;
+    private final Duration timeout;
+    private final Map<String, Duration> toolTimeouts;
+    private final ExecutorService executor = VirtualThreads.newExecutor("tool-call", PLATFORM_THREADS);
+    // Free threads; a call is only submitted when it can start right away
+    private final Semaphore threads = new Semaphore(VirtualThreads.available() ? Integer.MAX_VALUE : PLATFORM_THREADS);
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private ParallelToolCallingManager(Builder builder) {
+        this.toolCallbackResolver = builder.toolCallbackResolver;
+        this.exceptionProcessor = builder.exceptionProcessor;
+        this.definitions = DefaultToolCallingManager.builder()
+                .toolCallbackResolver(builder.toolCallbackResolver)
+                .toolExecutionExceptionProcessor(builder.exceptionProcessor)
+                .build();
+        this.observationRegistry = builder.observationRegistry;
+        this.timeout = builder.timeout;
+        this.toolTimeouts = Map.copyOf(builder.toolTimeouts);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return definitions.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+
+        // Resolve every tool before running any, so an unknown name has no side effects
+        List<ToolCallback> callbacks = new ArrayList<>(toolCalls.size());
+        boolean returnDirect = true;
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            ToolCallback callback = resolve(prompt, toolCall.name());
+            callbacks.add(callback);
+            returnDirect &= callback.getToolMetadata().returnDirect();
+        }
+
+        ToolContext toolContext = toolContext(prompt, assistantMessage);
+        List<Future<String>> futures = new ArrayList<>(toolCalls.size());
+        List<Long> deadlines = new ArrayList<>(toolCalls.size());
+        // The tools run on other threads but on behalf of the caller
+        ModelCallScheduler.CallContext context = ModelCallScheduler.currentContext();
+        LocaleContext locale = LocaleContextHolder.getLocaleContext();
+        Observation parent = observationRegistry.getCurrentObservation();
+        try {
+            for (int i = 0; i < toolCalls.size(); i++) {
+                ToolCallback callback = callbacks.get(i);
+                String arguments = StringUtils.hasText(toolCalls.get(i).arguments())
+                        ? toolCalls.get(i).arguments() : "{}";
+                long timeoutNanos = timeoutOf(callback).toNanos();
+                calls.incrementAndGet();
+                if (!acquireThread(timeoutNanos)) {
+                    // Never started; reported as timed out
+                    futures.add(null);
+                    deadlines.add(0L);
+                    continue;
+                }
+                deadlines.add(System.nanoTime() + timeoutNanos);
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return ModelCallScheduler.callAs(context, () -> withLocale(locale,
+                                    () -> invoke(callback, arguments, toolContext, parent)));
+                        }
+                        finally {
+                            threads.release();
+                        }
+                    }));
+                }
+                catch (RuntimeException e) {
+                    threads.release();
+                    throw e;
+                }
+            }
+            List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+            for (int i = 0; i < toolCalls.size(); i++) {
+                AssistantMessage.ToolCall toolCall = toolCalls.get(i);
+                String result = await(futures.get(i), deadlines.get(i), callbacks.get(i));
+                responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(), result));
+            }
+
+            List<Message> conversationHistory = new ArrayList<>(prompt.getInstructions());
+            conversationHistory.add(assistantMessage);
+            conversationHistory.add(new ToolResponseMessage(responses, Map.of()));
+            return ToolExecutionResult.builder()
+                    .conversationHistory(conversationHistory)
+                    .returnDirect(returnDirect)
+                    .build();
+        }
+        finally {
+            // Stops the other tools when one of them failed
+            for (Future<String> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /** Tool calls requested, and those that did not finish within their timeout, since startup. */
+    public long calls() {
+        return calls.get();
+    }
+
+    public long timedOut() {
+        return timedOut.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tool.calls", calls, AtomicLong::get)
+                .description("Tool calls requested by chat models")
+                .register(registry);
+        FunctionCounter.builder("tool.calls.timed.out", timedOut, AtomicLong::get)
+                .description("Tool calls cancelled because they did not finish within their timeout")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private ToolCallback resolve(Prompt prompt, String name) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options) {
+            for (ToolCallback callback : options.getToolCallbacks()) {
+                if (callback.getToolDefinition().name().equals(name)) {
+                    return callback;
+                }
+            }
+        }
+        ToolCallback callback = toolCallbackResolver.resolve(name);
+        if (callback == null) {
+            throw new IllegalStateException("No ToolCallback found for tool name: " + name);
+        }
+        return callback;
+    }
+
+    /** The prompt's tool context plus the conversation so far, as Spring AI passes it to tools. */
+    private static ToolContext toolContext(Prompt prompt, AssistantMessage assistantMessage) {
+        Map<String, Object> context = Map.of();
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options
+                && options.getToolContext() != null && !options.getToolContext().isEmpty()) {
+            context = new HashMap<>(options.getToolContext());
+            List<Message> history = new ArrayList<>(prompt.copy().getInstructions());
+            history.add(assistantMessage);
+            context.put(ToolContext.TOOL_CALL_HISTORY, history);
+        }
+        return new ToolContext(context);
+    }
+
+    private boolean acquireThread(long timeoutNanos) {
+        try {
+            return threads.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a thread for a tool call", e);
+        }
+    }
+
+    /** Calls the tool like {@link DefaultToolCallingManager} does, including its observation. */
+    private String invoke(ToolCallback callback, String arguments, ToolContext toolContext, Observation parent) {
+        ToolCallingObservationContext observationContext = ToolCallingObservationContext.builder()
+                .toolDefinition(callback.getToolDefinition())
+                .toolMetadata(callback.getToolMetadata())
+                .toolCallArguments(arguments)
+                .build();
+        return ToolCallingObservationDocumentation.TOOL_CALL
+                .observation(null, OBSERVATION_CONVENTION, () -> observationContext, observationRegistry)
+                .parentObservation(parent)
+                .observe(() -> {
+                    String result;
+                    try {
+                        result = callback.call(arguments, toolContext);
+                    }
+                    catch (ToolExecutionException e) {
+                        result = exceptionProcessor.process(e);
+                    }
+                    observationContext.setToolCallResult(result);
+                    return result;
+                });
+    }
+
+    private String await(Future<String> future, long deadline, ToolCallback callback) {
+        if (future == null) {
+            return timedOut(callback);
+        }
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            future.cancel(true);
+            return timedOut(callback);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Tool call failed", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a tool call", e);
+        }
+    }
+
+    private String timedOut(ToolCallback callback) {
+        timedOut.incrementAndGet();
+        ToolDefinition definition = callback.getToolDefinition();
+        return exceptionProcessor.process(new ToolExecutionException(definition, new TimeoutException(
+                "Tool " + definition.name() + " did not finish within " + timeoutOf(callback))));
+    }
+
+    private Duration timeoutOf(ToolCallback callback) {
+        return toolTimeouts.getOrDefault(callback.getToolDefinition().name(), timeout);
+    }
+
+    private static <T> T withLocale(LocaleContext locale, Supplier<T> call) {
+        LocaleContext previous = LocaleContextHolder.getLocaleContext();
+        LocaleContextHolder.setLocaleContext(locale);
+        try {
+            return call.get();
+        }
+        finally {
+            LocaleContextHolder.setLocaleContext(previous);
+        }
+    }
+
+    public static final class Builder {
+        private ToolCallbackResolver toolCallbackResolver = new StaticToolCallbackResolver(List.of());
+        private ToolExecutionExceptionProcessor exceptionProcessor =
+                DefaultToolExecutionExceptionProcessor.builder().build();
+        private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+        private Duration timeout = Duration.ofSeconds(30);
+        private final Map<String, Duration> toolTimeouts = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /** Finds tools that are not among the prompt's tool callbacks, such as tool beans. */
+        public Builder toolCallbackResolver(ToolCallbackResolver toolCallbackResolver) {
+            this.toolCallbackResolver = Objects.requireNonNull(toolCallbackResolver,
+                    "toolCallbackResolver must not be null");
+            return this;
+        }
+
+        /** Turns a failed (or timed out) tool call into the message the model gets back. */
+        public Builder toolExecutionExceptionProcessor(ToolExecutionExceptionProcessor exceptionProcessor) {
+            this.exceptionProcessor = Objects.requireNonNull(exceptionProcessor,
+                    "toolExecutionExceptionProcessor must not be null");
+            return this;
+        }
+
+        public Builder observationRegistry(ObservationRegistry observationRegistry) {
+            this.observationRegistry = Objects.requireNonNull(observationRegistry,
+                    "observationRegistry must not be null");
+            return this;
+        }
+
+        /** How long a tool call may take, unless the tool has its own timeout. */
+        public Builder timeout(Duration timeout) {
+            this.timeout = checkTimeout(timeout);
+            return this;
+        }
+
+        public Builder timeout(String toolName, Duration timeout) {
+            if (!StringUtils.hasText(toolName)) {
+                throw new IllegalArgumentException("toolName must not be empty");
+            }
+            this.toolTimeouts.put(toolName, checkTimeout(timeout));
+            return this;
+        }
+
+        public ParallelToolCallingManager build() {
+            return new ParallelToolCallingManager(this);
+        }
+
+        private static Duration checkTimeout(Duration timeout) {
+            if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("timeout must be positive");
+            }
+            return timeout;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.springai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.ai.template.TemplateRenderer;
+import org.springframework.ai.template.st.StTemplateRenderer;
+import org.springframework.core.io.Resource;
+
+/**
+ * Prompt templates compiled once at startup, by name (the file name of a {@code .st} resource
+ * without the extension, such as movie_prompt).
+ *
+ * The registry is also a {@link TemplateRenderer}: set as a ChatClient's template renderer, it
+ * renders {@code .user(u -> u.text(template).param(...))} with the compiled template of the same
+ * text. Inline templates it has not seen are compiled on first use and kept, up to
+ * {@code maxInlineTemplates}; templates with expressions other than plain placeholders are left
+ * to StringTemplate.
+ */
+public class PromptTemplateRegistry implements TemplateRenderer {
+
+    private final Map<String, CompiledPromptTemplate> byName;
+    private final Map<String, CompiledPromptTemplate> byText = new ConcurrentHashMap<>();
+    private final int maxInlineTemplates;
+    private final TemplateRenderer fallback = StTemplateRenderer.builder().build();
+
+    private PromptTemplateRegistry(Builder builder) {
+        Map<String, CompiledPromptTemplate> byName = new LinkedHashMap<>();
+        builder.templates.forEach((name, text) -> byName.put(name, CompiledPromptTemplate.compile(name, text)));
+        builder.expected.forEach((name, variables) -> {
+            CompiledPromptTemplate template = byName.get(name);
+            if (template == null) {
+                throw new IllegalArgumentException("No prompt template named " + name);
+            }
+            if (!Set.copyOf(template.variables()).equals(Set.copyOf(variables))) {
+                throw new IllegalArgumentException("Prompt template " + name + " has placeholders "
+                        + template.variables() + ", expected " + variables);
+            }
+        });
+        this.byName = Collections.unmodifiableMap(byName);
+        byName.values().forEach(template -> byText.putIfAbsent(template.template(), template));
+        this.maxInlineTemplates = byText.size() + builder.maxInlineTemplates;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no template with this name
+     */
+    public CompiledPromptTemplate get(String name) {
+        CompiledPromptTemplate template = byName.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("No prompt template named " + name + "; known: " + byName.keySet());
+        }
+        return template;
+    }
+
+    public Set<String> names() {
+        return byName.keySet();
+    }
+
+    public String render(String name, Map<String, ?> values) {
+        return get(name).render(values);
+    }
+
+    @Override
+    public String apply(String template, Map<String, Object> variables) {
+        CompiledPromptTemplate compiled = byText.get(template);
+        if (compiled == null) {
+            try {
+                compiled = CompiledPromptTemplate.compile("inline", template);
+            }
+            catch (IllegalArgumentException e) {
+                return fallback.apply(template, variables);
+            }
+            if (byText.size() < maxInlineTemplates) {
+                byText.putIfAbsent(template, compiled);
+            }
+        }
+        return compiled.render(variables);
+    }
+
+    public static final class Builder {
+        private final Map<String, String> templates = new LinkedHashMap<>();
+        private final Map<String, List<String>> expected = new LinkedHashMap<>();
+        private int maxInlineTemplates = 256;
+
+        private Builder() {
+        }
+
+        public Builder template(String name, String template) {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("name must not be blank");
+            }
+            if (template == null) {
+                throw new IllegalArgumentException("template must not be null");
+            }
+            if (templates.putIfAbsent(name, template) != null) {
+                throw new IllegalArgumentException("Duplicate prompt template name " + name);
+            }
+            return this;
+        }
+
+        /** Adds {@code .st} resources, each named after its file name without the extension. */
+        public Builder resources(Resource... resources) {
+            for (Resource resource : resources) {
+                String filename = resource.getFilename();
+                if (filename == null) {
+                    throw new IllegalArgumentException("Prompt template resource without a file name: " + resource);
+                }
+                try {
+                    template(filename.replaceFirst("\\.st$", ""), resource.getContentAsString(StandardCharsets.UTF_8));
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException("Could not read prompt template " + resource, e);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Makes {@link #build()} fail unless the template has exactly these placeholders, so a
+         * renamed placeholder is caught at startup instead of on the first request.
+         */
+        public Builder expect(String name, String... variables) {
+            expected.put(name, List.of(variables));
+            return this;
+        }
+
+        /** How many inline templates seen by {@link #apply(String, Map)} are kept compiled. */
+        public Builder maxInlineTemplates(int maxInlineTemplates) {
+            if (maxInlineTemplates < 0) {
+                throw new IllegalArgumentException("maxInlineTemplates must not be negative");
+            }
+            this.maxInlineTemplates = maxInlineTemplates;
+            return this;
+        }
+
+        public PromptTemplateRegistry build() {
+            return new PromptTemplateRegistry(this);
+        }
+    }
+}
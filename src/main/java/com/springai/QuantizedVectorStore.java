@@ -0,0 +1,535 @@
+package com.springai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+/**
+ * {@link org.springframework.ai.vectorstore.VectorStore} that scans compressed embeddings held on
+ * the heap and re-ranks the best candidates with full-precision vectors kept in a memory-mapped
+ * scratch file. Nothing survives a restart.
+ *
+ * Two encodings are supported:
+ * <ul>
+ * <li>{@link Quantization#INT8}: one signed byte per dimension plus a per-vector scale (4x smaller).</li>
+ * <li>{@link Quantization#BINARY}: one sign bit per dimension, scored by Hamming distance (32x smaller).</li>
+ * </ul>
+ * A search scans only the compressed codes, which are packed contiguously in blocks of at most
+ * {@link Builder#codeBlockBytes} each, so that no single array limits the size of the store.
+ * The full-precision vectors are laid out in fixed-size slots of the scratch file and mapped in
+ * segments like {@link MappedVectorStore}'s vectors file, and only the pages of the
+ * {@code topK * rerankFactor} candidates of each search are read. The ranking is therefore
+ * approximate, since a document the codes score too low is never re-ranked, but returned scores
+ * are exact cosine similarities and {@link SearchRequest} semantics are unchanged. Resident
+ * memory is roughly the codes: the operating system pages the vectors in on demand and can drop
+ * them again under memory pressure. The file is deleted when the store is closed, or right away
+ * where the operating system allows it.
+ *
+ * Deleting or replacing a document only marks its slot as deleted. The slot's code, vector,
+ * text and metadata are never reclaimed, and searches still scan its code, so memory, file size
+ * and search time grow with every update. Where documents change often, build a new store from
+ * the live documents from time to time and switch over to it.
+ */
+public class QuantizedVectorStore extends AbstractObservationVectorStore
+        implements EmbeddingVectorStore, AutoCloseable {
+
+    public enum Quantization {
+        INT8, BINARY
+    }
+
+    // Largest array length the JVM reliably allocates
+    private static final int MAX_SLOTS = Integer.MAX_VALUE - 8;
+
+    private final Quantization quantization;
+    private final int rerankFactor;
+    private final SimilarityKernel kernel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final Path directory;
+    private final long segmentBytes;
+    private final int codeBlockBytes;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<byte[]> int8Codes = new ArrayList<>();
+    private final List<long[]> binaryCodes = new ArrayList<>();
+
+    private FileChannel vectorChannel;
+    private int segmentSlots;
+    private int codeBlockSlots;
+    private boolean closed;
+
+    private int dimensions;
+    private int words;
+    private int count;
+    private String[] ids = new String[1024];
+    private String[] texts = new String[1024];
+    private Map<String, Object>[] metadata = newMetadataArray(1024);
+    private boolean[] deleted = new boolean[1024];
+    private float[] int8Scales = new float[1024];
+
+    protected QuantizedVectorStore(Builder builder) {
+        super(builder);
+        this.quantization = builder.quantization;
+        this.rerankFactor = builder.rerankFactor;
+        this.kernel = builder.similarityKernel;
+        this.directory = builder.directory;
+        this.segmentBytes = builder.segmentBytes;
+        this.codeBlockBytes = builder.codeBlockBytes;
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    /** Number of live (not deleted) documents. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        Objects.requireNonNull(documents, "Documents list cannot be null");
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                this.batchingStrategy);
+        add(documents, embeddings);
+    }
+
+    @Override
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Documents and embeddings must have the same size");
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] embedding = embeddings.get(i);
+                if (dimensions == 0) {
+                    createVectorFile(embedding.length);
+                }
+                else if (embedding.length != dimensions) {
+                    throw new IllegalArgumentException("Expected embeddings with " + dimensions
+                            + " dimensions but got " + embedding.length);
+                }
+                Integer previous = slotsById.put(document.getId(), count);
+                if (previous != null) {
+                    deleted[previous] = true;
+                }
+                append(document, normalize(embedding));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the vectors file in " + directory, e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                Integer slot = slotsById.remove(id);
+                if (slot != null) {
+                    deleted[slot] = true;
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilter.of(filterExpression);
+        List<String> matching = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < count; slot++) {
+                if (!deleted[slot] && filter.test(metadata[slot])) {
+                    matching.add(ids[slot]);
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        doDelete(matching);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = this.embeddingModel.embed(request.getQuery());
+        return search(query, request.getTopK(), request.getSimilarityThreshold(),
+                request.hasFilterExpression() ? MetadataFilter.of(request.getFilterExpression()) : null);
+    }
+
+    /**
+     * Searches with an already computed query embedding. The filter may be null.
+     */
+    public List<Document> search(float[] queryEmbedding, int topK, double similarityThreshold,
+            Predicate<Map<String, Object>> filter) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            if (count == 0 || topK <= 0) {
+                return List.of();
+            }
+            if (queryEmbedding.length != dimensions) {
+                throw new IllegalArgumentException("Expected a query embedding with " + dimensions
+                        + " dimensions but got " + queryEmbedding.length);
+            }
+            float[] query = normalize(queryEmbedding);
+
+            // First pass: approximate scores over the compressed codes
+            int candidateCount = (int) Math.min((long) topK * rerankFactor, count);
+            ScoredHeap candidates = new ScoredHeap(candidateCount, true);
+            if (quantization == Quantization.INT8) {
+                scanInt8(query, filter, candidates, candidateCount);
+            }
+            else {
+                scanBinary(query, filter, candidates, candidateCount);
+            }
+
+            // Second pass: exact scores for the candidates only
+            ScoredHeap reranked = new ScoredHeap(Math.min(topK, candidateCount), true);
+            while (candidates.size() > 0) {
+                int slot = candidates.pop();
+                float score = exactScore(query, slot);
+                if (score < similarityThreshold) {
+                    continue;
+                }
+                if (reranked.size() < topK) {
+                    reranked.push(slot, score);
+                }
+                else if (score > reranked.topScore()) {
+                    reranked.pop();
+                    reranked.push(slot, score);
+                }
+            }
+            Document[] results = new Document[reranked.size()];
+            for (int i = results.length - 1; i >= 0; i--) {
+                float score = reranked.topScore();
+                results[i] = toDocument(reranked.pop(), score);
+            }
+            return Arrays.asList(results);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scanInt8(float[] query, Predicate<Map<String, Object>> filter, ScoredHeap candidates, int max) {
+        byte[] queryCodes = new byte[dimensions];
+        float queryScale = quantizeInt8(query, queryCodes, 0);
+        for (int block = 0; block < int8Codes.size(); block++) {
+            byte[] codes = int8Codes.get(block);
+            int first = block * codeBlockSlots;
+            int end = (int) Math.min(count, (long) first + codeBlockSlots);
+            for (int slot = first, offset = 0; slot < end; slot++, offset += dimensions) {
+                if (deleted[slot] || (filter != null && !filter.test(metadata[slot]))) {
+                    continue;
+                }
+                int sum = kernel.dot(queryCodes, 0, codes, offset, dimensions);
+                offer(candidates, max, slot, sum * queryScale * int8Scales[slot]);
+            }
+        }
+    }
+
+    private void scanBinary(float[] query, Predicate<Map<String, Object>> filter, ScoredHeap candidates, int max) {
+        long[] queryCodes = new long[words];
+        quantizeBinary(query, queryCodes, 0);
+        for (int block = 0; block < binaryCodes.size(); block++) {
+            long[] codes = binaryCodes.get(block);
+            int first = block * codeBlockSlots;
+            int end = (int) Math.min(count, (long) first + codeBlockSlots);
+            for (int slot = first, offset = 0; slot < end; slot++, offset += words) {
+                if (deleted[slot] || (filter != null && !filter.test(metadata[slot]))) {
+                    continue;
+                }
+                int distance = 0;
+                for (int i = 0; i < words; i++) {
+                    distance += Long.bitCount(queryCodes[i] ^ codes[offset + i]);
+                }
+                offer(candidates, max, slot, -distance);
+            }
+        }
+    }
+
+    private static void offer(ScoredHeap heap, int max, int slot, float score) {
+        if (heap.size() < max) {
+            heap.push(slot, score);
+        }
+        else if (score > heap.topScore()) {
+            heap.pop();
+            heap.push(slot, score);
+        }
+    }
+
+    private float exactScore(float[] query, int slot) {
+        return kernel.dot(query, segments.get(slot / segmentSlots), (slot % segmentSlots) * dimensions * Float.BYTES);
+    }
+
+    /** Frees the mapped vectors and deletes their file; the store cannot be used afterwards. */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segments.clear();
+            if (vectorChannel != null) {
+                vectorChannel.close();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to close the vectors file in " + directory, e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void createVectorFile(int dimensions) throws IOException {
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "quantized-vectors-", ".bin");
+        // Scratch space for this instance only: Unix unlinks it right away, other systems on close or exit
+        vectorChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        file.toFile().deleteOnExit();
+        this.dimensions = dimensions;
+        this.words = (dimensions + 63) / 64;
+        this.segmentSlots = (int) Math.max(1, segmentBytes / ((long) dimensions * Float.BYTES));
+        int codeBytes = quantization == Quantization.INT8 ? dimensions : words * Long.BYTES;
+        this.codeBlockSlots = Math.max(1, codeBlockBytes / codeBytes);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Quantized vector store is closed");
+        }
+    }
+
+    private void append(Document document, float[] vector) throws IOException {
+        int slot = count;
+        if (slot == ids.length) {
+            if (slot >= MAX_SLOTS) {
+                throw new IllegalStateException("Quantized vector store is full at " + slot + " documents");
+            }
+            int capacity = (int) Math.min(2L * slot, MAX_SLOTS);
+            ids = Arrays.copyOf(ids, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            metadata = Arrays.copyOf(metadata, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+            int8Scales = Arrays.copyOf(int8Scales, capacity);
+        }
+        ids[slot] = document.getId();
+        texts[slot] = document.getText();
+        metadata[slot] = new HashMap<>(document.getMetadata());
+
+        // Each block starts small and doubles until it holds codeBlockSlots codes; only the last one grows
+        int block = slot / codeBlockSlots;
+        int index = slot % codeBlockSlots;
+        int blockSlots = Math.min(codeBlockSlots, Math.max(1024, 2 * index));
+        if (quantization == Quantization.INT8) {
+            if (block == int8Codes.size()) {
+                int8Codes.add(new byte[Math.min(codeBlockSlots, 1024) * dimensions]);
+            }
+            byte[] codes = int8Codes.get(block);
+            if (codes.length <= index * dimensions) {
+                codes = Arrays.copyOf(codes, blockSlots * dimensions);
+                int8Codes.set(block, codes);
+            }
+            int8Scales[slot] = quantizeInt8(vector, codes, index * dimensions);
+        }
+        else {
+            if (block == binaryCodes.size()) {
+                binaryCodes.add(new long[Math.min(codeBlockSlots, 1024) * words]);
+            }
+            long[] codes = binaryCodes.get(block);
+            if (codes.length <= index * words) {
+                codes = Arrays.copyOf(codes, blockSlots * words);
+                binaryCodes.set(block, codes);
+            }
+            quantizeBinary(vector, codes, index * words);
+        }
+
+        int segment = slot / segmentSlots;
+        if (segment == segments.size()) {
+            // Full-precision vectors are only read when re-ranking, so they stay out of the heap
+            long position = (long) segment * segmentSlots * dimensions * Float.BYTES;
+            MappedByteBuffer buffer = vectorChannel.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) segmentSlots * dimensions * Float.BYTES);
+            buffer.order(ByteOrder.nativeOrder());
+            segments.add(buffer);
+        }
+        MappedByteBuffer buffer = segments.get(segment);
+        int base = (slot % segmentSlots) * dimensions * Float.BYTES;
+        for (int i = 0; i < dimensions; i++) {
+            buffer.putFloat(base + i * Float.BYTES, vector[i]);
+        }
+        count++;
+    }
+
+    /**
+     * Symmetric int8 quantization with a per-vector scale; returns the scale to multiply codes by.
+     */
+    private static float quantizeInt8(float[] vector, byte[] codes, int offset) {
+        float max = 0;
+        for (float v : vector) {
+            max = Math.max(max, Math.abs(v));
+        }
+        if (max == 0) {
+            return 0;
+        }
+        float scale = max / 127;
+        for (int i = 0; i < vector.length; i++) {
+            codes[offset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+
+    private static void quantizeBinary(float[] vector, long[] codes, int offset) {
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                codes[offset + i / 64] |= 1L << (i % 64);
+            }
+        }
+    }
+
+    private Document toDocument(int slot, float score) {
+        Map<String, Object> documentMetadata = new HashMap<>(metadata[slot]);
+        documentMetadata.put(DocumentMetadata.DISTANCE.value(), 1.0 - score);
+        return Document.builder().id(ids[slot]).text(texts[slot]).metadata(documentMetadata)
+                .score((double) score).build();
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] newMetadataArray(int capacity) {
+        return (Map<String, Object>[]) new Map[capacity];
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder("quantized", operationName)
+                .dimensions(dimensions > 0 ? dimensions : this.embeddingModel.dimensions())
+                .collectionName("in-memory-" + quantization.name().toLowerCase())
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+        private Quantization quantization = Quantization.INT8;
+        private int rerankFactor = 4;
+        private SimilarityKernel similarityKernel = SimilarityKernel.get();
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+        private long segmentBytes = 64L * 1024 * 1024;
+        private int codeBlockBytes = 16 * 1024 * 1024;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        public Builder quantization(Quantization quantization) {
+            this.quantization = Objects.requireNonNull(quantization, "quantization must not be null");
+            return this;
+        }
+
+        /**
+         * How many candidates per requested result are re-ranked with full precision.
+         * Binary codes are coarser and usually need a higher factor than int8.
+         */
+        public Builder rerankFactor(int rerankFactor) {
+            if (rerankFactor < 1) {
+                throw new IllegalArgumentException("rerankFactor must be at least 1");
+            }
+            this.rerankFactor = rerankFactor;
+            return this;
+        }
+
+        /** Where the file of full-precision vectors is created; defaults to the temporary directory. */
+        public Builder directory(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "directory must not be null");
+            return this;
+        }
+
+        /** Size of each mapped region of the vectors file; must stay below 2GB. */
+        public Builder segmentBytes(long segmentBytes) {
+            if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("segmentBytes must be between 1 and " + Integer.MAX_VALUE);
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /** Size of each heap array of compressed codes; a store holds as many of them as it needs. */
+        public Builder codeBlockBytes(int codeBlockBytes) {
+            if (codeBlockBytes <= 0) {
+                throw new IllegalArgumentException("codeBlockBytes must be positive");
+            }
+            this.codeBlockBytes = codeBlockBytes;
+            return this;
+        }
+
+        /** Kernel used for scanning int8 codes and re-ranking; defaults to the fastest one available. */
+        public Builder similarityKernel(SimilarityKernel similarityKernel) {
+            this.similarityKernel = Objects.requireNonNull(similarityKernel, "similarityKernel must not be null");
+            return this;
+        }
+
+        @Override
+        public QuantizedVectorStore build() {
+            return new QuantizedVectorStore(this);
+        }
+    }
+}
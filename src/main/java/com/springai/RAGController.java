@@ -0,0 +1,93 @@
+package com.springai;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.document.Document;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/**
+ * HTTP access to {@link RAGService}.
+ *
+ * {@code POST /rag/conversations/{conversationId}} with {@code {"question": ...}} answers within
+ * that conversation as {@code {"conversationId": ..., "answer": ...}}. The request thread is
+ * released while the model answers.
+ *
+ * {@code GET /rag/stream?question=...&conversationId=...} answers as server-sent events: one {@code documents}
+ * event with the id, score and metadata of every retrieved document, then {@code token}
+ * events ({@code {"text": ...}}) with the answer as the model produces it, and a final
+ * {@code done} event.
+ */
+@RestController
+@RequestMapping("/rag")
+public class RAGController {
+
+    private final RAGService ragService;
+
+    public RAGController(RAGService ragService) {
+        this.ragService = ragService;
+    }
+
+    public record QuestionRequest(String question) {
+    }
+
+    public record AnswerResponse(String conversationId, String answer) {
+    }
+
+    @PostMapping("/conversations/{conversationId}")
+    public CompletableFuture<AnswerResponse> ask(@PathVariable String conversationId,
+            @RequestBody QuestionRequest request) {
+        if (request.question() == null || request.question().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "question must not be blank");
+        }
+        return ragService.queryAsync(conversationId, request.question())
+                .thenApply(response -> new AnswerResponse(conversationId, response.getResult().getOutput().getText()));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> stream(@RequestParam String question,
+            @RequestParam(defaultValue = ChatMemory.DEFAULT_CONVERSATION_ID) String conversationId) {
+        return ragService.stream(conversationId, question)
+                .concatMap(RAGController::toEvents)
+                .concatWith(Flux.just(ServerSentEvent.builder().event("done").data("").build()));
+    }
+
+    private static Flux<ServerSentEvent<Object>> toEvents(ChatResponse response) {
+        if (response.getResults().isEmpty()) {
+            List<Document> documents = response.getMetadata().getOrDefault(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS,
+                    List.of());
+            List<Map<String, Object>> summaries = documents.stream().map(RAGController::summary).toList();
+            return Flux.just(ServerSentEvent.builder().event("documents").data(summaries).build());
+        }
+        String text = response.getResult().getOutput().getText();
+        if (text == null || text.isEmpty()) {
+            return Flux.empty();
+        }
+        // JSON rather than raw text: SSE clients drop the leading space of a data line
+        return Flux.just(ServerSentEvent.builder().event("token").data(Map.of("text", text)).build());
+    }
+
+    private static Map<String, Object> summary(Document document) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", document.getId());
+        summary.put("score", document.getScore());
+        summary.put("metadata", document.getMetadata());
+        return summary;
+    }
+}
@@ -4,39 +4,84 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Answers questions from the vector store with the chat model, per conversation.
+ * Each conversation has its own chat memory; queries of one conversation run one at a time,
+ * while different conversations run concurrently. Blocking model and vector store calls made
+ * through {@link #queryAsync} and {@link #stream} run on virtual threads where available.
+ */
 @Service
-public class RAGService {
+public class RAGService implements DisposableBean {
+    private static final int PLATFORM_THREADS = 256;
+
     private final ChatClient chatClient;
+    private final ChatClient streamingClient;
     private final VectorStore vectorStore;
     private final ChatMemory memory;
+    private final SemanticResponseCache responseCache;
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+    // Locks of conversations with a query in progress; removed when the last one finishes
+    private final ConcurrentHashMap<String, ConversationLock> conversationLocks = new ConcurrentHashMap<>();
 
     @Autowired
     public RAGService(
-            OpenAiChatModel chatModel,
+            ChatModel chatModel,
             VectorStore vectorStore, 
-            ChatMemory memory) {
-        // TODO: Initialize chatClient with appropriate advisors
-        // Consider using QuestionAnswerAdvisor for RAG functionality
-        // Consider using MessageChatMemoryAdvisor for conversation memory
+            ChatMemory memory,
+            @Nullable SemanticResponseCache responseCache) {
         this.vectorStore = vectorStore;
         this.memory = memory;
-        this.chatClient = ChatClient.create(chatModel); // Basic initialization for main method
+        this.responseCache = responseCache;
+        this.chatClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(
+                        QuestionAnswerAdvisor.builder(vectorStore)
+                                .promptTemplate(RetrievedDocumentsAdvisor.PROMPT_TEMPLATE.toPromptTemplate())
+                                .build(),
+                        // Good to use chat memory when doing RAG
+                        MessageChatMemoryAdvisor.builder(memory).build())
+                .build();
+        // Streaming retrieves up front and hands the documents to RetrievedDocumentsAdvisor
+        this.streamingClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(MessageChatMemoryAdvisor.builder(memory).build())
+                .build();
+        this.executor = VirtualThreads.newExecutor("rag", PLATFORM_THREADS);
+        this.scheduler = Schedulers.fromExecutorService(executor, "rag");
     }
 
     public String query(String question) {
-        // TODO: Implement RAG-powered question answering
-        // Use queryWithResponse(question).getResult().getOutput().getText()
-        return "TODO: Implement RAG functionality";
+        return query(ChatMemory.DEFAULT_CONVERSATION_ID, question);
+    }
+
+    public String query(String conversationId, String question) {
+        return queryWithResponse(conversationId, question).getResult().getOutput().getText();
     }
     
     /**
@@ -44,12 +89,158 @@ public class RAGService {
      * Useful for testing and accessing document context.
      */
     public ChatResponse queryWithResponse(String question) {
-        // TODO: Implement full RAG workflow
-        // 1. Create QuestionAnswerAdvisor with vectorStore
-        // 2. Create MessageChatMemoryAdvisor with memory
-        // 3. Use advisors with chatClient to process question
-        // 4. Return full ChatResponse
-        return null;
+        return queryWithResponse(ChatMemory.DEFAULT_CONVERSATION_ID, question);
+    }
+
+    /**
+     * Queries within a conversation, blocking the calling thread.
+     * The first question of a conversation is served from the {@link SemanticResponseCache} if it
+     * paraphrases a recently answered one. Later questions are answered in light of the
+     * conversation's history, so they neither use the cache nor are stored in it: the answer
+     * would leak into other conversations and be wrong for them.
+     * Model calls are interactive calls of the conversation for the {@link ModelCallScheduler}.
+     */
+    public ChatResponse queryWithResponse(String conversationId, String question) {
+        return ModelCallScheduler.callAs(conversationId, ModelCallScheduler.Priority.INTERACTIVE,
+                () -> queryLocked(conversationId, question));
+    }
+
+    private ChatResponse queryLocked(String conversationId, String question) {
+        ConversationLock lock = lock(conversationId);
+        try {
+            if (!cacheable(conversationId)) {
+                return ask(conversationId, question);
+            }
+            SemanticResponseCache.Lookup lookup = responseCache.lookup(question);
+            if (lookup.hit()) {
+                // The advisors did not run, so record the exchange in the conversation ourselves
+                memory.add(conversationId, List.of(new UserMessage(question), lookup.response().getResult().getOutput()));
+                return lookup.response();
+            }
+            ChatResponse response = ask(conversationId, question);
+            responseCache.put(lookup, response);
+            return response;
+        }
+        finally {
+            unlock(conversationId, lock);
+        }
+    }
+
+    /**
+     * Runs {@link #queryWithResponse(String, String)} on the service's executor, so callers such
+     * as request threads are not tied up while the model answers.
+     */
+    public CompletableFuture<ChatResponse> queryAsync(String conversationId, String question) {
+        return CompletableFuture.supplyAsync(() -> queryWithResponse(conversationId, question), executor);
+    }
+
+    public Flux<ChatResponse> stream(String question) {
+        return stream(ChatMemory.DEFAULT_CONVERSATION_ID, question);
+    }
+
+    /**
+     * Streaming variant of {@link #queryWithResponse(String, String)}. Retrieval runs before the model
+     * is called, and the first element carries no generation, only the retrieved documents under
+     * {@link QuestionAnswerAdvisor#RETRIEVED_DOCUMENTS} in its metadata. The following elements
+     * are the answer as the model streams it, or the whole cached answer on a cache hit.
+     * The conversation stays locked from subscription until the stream terminates or is cancelled,
+     * so its memory is written in the same order as with blocking queries.
+     */
+    public Flux<ChatResponse> stream(String conversationId, String question) {
+        ModelCallScheduler.Priority interactive = ModelCallScheduler.Priority.INTERACTIVE;
+        return Flux.defer(() -> {
+                    ConversationLock lock = lock(conversationId);
+                    try {
+                        return ModelCallScheduler.callAs(conversationId, interactive,
+                                        () -> streamAnswer(conversationId, question))
+                                .doFinally(signal -> unlock(conversationId, lock));
+                    }
+                    catch (RuntimeException e) {
+                        unlock(conversationId, lock);
+                        throw e;
+                    }
+                })
+                .contextWrite(ModelCallScheduler.reactorContext(conversationId, interactive))
+                .subscribeOn(scheduler);
+    }
+
+    private Flux<ChatResponse> streamAnswer(String conversationId, String question) {
+        SemanticResponseCache.Lookup lookup = cacheable(conversationId) ? responseCache.lookup(question) : null;
+        if (lookup != null && lookup.hit()) {
+            ChatResponse cached = lookup.response();
+            memory.add(conversationId, List.of(new UserMessage(question), cached.getResult().getOutput()));
+            List<Document> documents = cached.getMetadata().getOrDefault(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS,
+                    List.of());
+            return Flux.just(documentsResponse(documents), cached);
+        }
+
+        List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder().query(question).build());
+        StringBuilder answer = new StringBuilder();
+        Flux<ChatResponse> tokens = streamingClient.prompt()
+                .advisors(new RetrievedDocumentsAdvisor(documents))
+                .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
+                .user(question)
+                .stream()
+                .chatResponse()
+                .doOnNext(response -> {
+                    if (response.getResult() != null && response.getResult().getOutput().getText() != null) {
+                        answer.append(response.getResult().getOutput().getText());
+                    }
+                });
+        if (lookup != null) {
+            tokens = tokens.doOnComplete(() -> responseCache.put(lookup, new ChatResponse(
+                    List.of(new Generation(new AssistantMessage(answer.toString()))),
+                    documentsResponse(documents).getMetadata())));
+        }
+        return Flux.concat(Mono.just(documentsResponse(documents)), tokens);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static ChatResponse documentsResponse(List<Document> documents) {
+        return new ChatResponse(List.of(), ChatResponseMetadata.builder()
+                .keyValue(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS, documents)
+                .build());
+    }
+
+    private boolean cacheable(String conversationId) {
+        return responseCache != null && memory.get(conversationId).isEmpty();
+    }
+
+    private ChatResponse ask(String conversationId, String question) {
+        return chatClient.prompt()
+                .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
+                .user(question)
+                .call()
+                .chatResponse();
+    }
+
+    private ConversationLock lock(String conversationId) {
+        ConversationLock lock = conversationLocks.compute(conversationId, (id, existing) -> {
+            ConversationLock held = existing != null ? existing : new ConversationLock();
+            held.users++;
+            return held;
+        });
+        lock.acquireUninterruptibly();
+        return lock;
+    }
+
+    private void unlock(String conversationId, ConversationLock lock) {
+        lock.release();
+        conversationLocks.compute(conversationId, (id, held) -> --held.users == 0 ? null : held);
+    }
+
+    // A semaphore rather than a lock: a stream releases it on whichever thread it terminates
+    private static final class ConversationLock extends Semaphore {
+        // Guarded by the map's compute
+        int users;
+
+        ConversationLock() {
+            super(1);
+        }
     }
 
     // Interactive CLI demonstration - shows how the completed RAG system works
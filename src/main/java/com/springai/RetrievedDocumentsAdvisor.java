@@ -0,0 +1,68 @@
+package com.springai;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.document.Document;
+
+/**
+ * Counterpart of {@link QuestionAnswerAdvisor} for documents that were already retrieved:
+ * augments the user message with them using the same prompt, without searching the vector store.
+ * Used by streaming queries, which retrieve up front so the documents can be sent to the client
+ * before the first token.
+ */
+class RetrievedDocumentsAdvisor implements BaseAdvisor {
+
+    // Same prompt as QuestionAnswerAdvisor's default, which RAGService also gives it in this form
+    static final CompiledPromptTemplate PROMPT_TEMPLATE = CompiledPromptTemplate.compile("question_answer", """
+            {query}
+
+            Context information is below, surrounded by ---------------------
+
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            Given the context and provided history information and not prior knowledge,
+            reply to the user comment. If the answer is not in the context, inform
+            the user that you can't answer the question.
+            """);
+
+    private final List<Document> documents;
+
+    RetrievedDocumentsAdvisor(List<Document> documents) {
+        this.documents = documents;
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        String context = documents.stream().map(Document::getText).collect(Collectors.joining(System.lineSeparator()));
+        String augmented = PROMPT_TEMPLATE.render(Map.of(
+                "query", request.prompt().getUserMessage().getText(),
+                "question_answer_context", context));
+        Map<String, Object> advisorContext = new HashMap<>(request.context());
+        advisorContext.put(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS, documents);
+        return request.mutate()
+                .prompt(request.prompt().augmentUserMessage(augmented))
+                .context(advisorContext)
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        return response;
+    }
+
+    @Override
+    public int getOrder() {
+        // Same slot as QuestionAnswerAdvisor: after chat memory has stored the plain question
+        return 0;
+    }
+}
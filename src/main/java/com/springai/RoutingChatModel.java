@@ -0,0 +1,639 @@
+package com.springai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * {@link ChatModel} that spreads requests over several backends (for example OpenAI and
+ * Anthropic) and moves on to the next one when a backend fails.
+ *
+ * Each backend keeps a rolling window of its most recent calls, from which its mean latency,
+ * error rate and output-token throughput are derived. Backends whose error rate exceeds
+ * {@code maxErrorRate} are tried last, except for {@code explorationRate} of the requests that
+ * probe them so they can recover. Among the healthy ones the {@link Policy} picks the order in
+ * which backends are tried:
+ * <ul>
+ * <li>{@link Policy#LATENCY}: lowest mean latency, adjusted for errors; backends without samples
+ * go first, and {@code explorationRate} of the requests go to a random backend so a backend that
+ * was slow gets a chance to prove it recovered;</li>
+ * <li>{@link Policy#WEIGHTED}: random, proportional to the configured weights;</li>
+ * <li>{@link Policy#FAILOVER}: in configuration order.</li>
+ * </ul>
+ * Streams fail over only if the backend errors before sending anything.
+ *
+ * Every backend also has a {@link CircuitBreaker}: after repeated consecutive failures it is not
+ * called at all until a probe after the open period succeeds. With hedging enabled, a blocking
+ * call that has not answered within the first backend's recent latency percentile (p95 by
+ * default, clamped to a minimum and maximum delay) is sent to the second backend as well; the
+ * first answer wins and the other call is cancelled. Streams are not hedged, and neither are
+ * prompts carrying tools the backend runs itself: the duplicate would run every tool call a
+ * second time, and cancelling it cannot undo side effects the tools already had.
+ *
+ * Decisions, failovers, hedges, breaker states and per-backend statistics are published as
+ * Micrometer meters.
+ *
+ * Prompts should carry portable {@link ChatOptions} only: provider-specific options (or a model
+ * name) would be wrong for the other backends. {@link #getDefaultOptions()} is therefore empty,
+ * and each backend applies its own defaults. It is a {@link ToolCallingChatOptions} all the same:
+ * ChatClient only adds its tools to the prompt when the model's default options can hold them,
+ * and the backends then merge those tools into their own options.
+ */
+public class RoutingChatModel implements ChatModel, MeterBinder, AutoCloseable {
+
+    /** How the order of backends is chosen for each request. */
+    public enum Policy {
+        LATENCY, WEIGHTED, FAILOVER
+    }
+
+    // Calls that wait for a model, when virtual threads are not available
+    private static final int HEDGE_PLATFORM_THREADS = 256;
+    // Below this many samples the percentile is not trusted and the maximum delay applies
+    private static final int MIN_HEDGE_SAMPLES = 10;
+
+    private final List<Backend> backends;
+    private final Policy policy;
+    private final double maxErrorRate;
+    private final double explorationRate;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final long maxHedgeDelayNanos;
+    // Runs hedged calls; null when hedging is off
+    private final ExecutorService hedgeExecutor;
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    private RoutingChatModel(Builder builder) {
+        this.policy = builder.policy;
+        this.maxErrorRate = builder.maxErrorRate;
+        this.explorationRate = builder.explorationRate;
+        this.hedgePercentile = builder.hedgePercentile;
+        this.minHedgeDelayNanos = builder.minHedgeDelay.toNanos();
+        this.maxHedgeDelayNanos = builder.maxHedgeDelay.toNanos();
+        this.hedgeExecutor = builder.hedging ? VirtualThreads.newExecutor("chat-hedge", HEDGE_PLATFORM_THREADS) : null;
+        this.backends = builder.backends.entrySet().stream()
+                .map(entry -> new Backend(entry.getKey(), entry.getValue().model(), entry.getValue().weight(),
+                        builder.windowSize, CircuitBreaker.builder()
+                                .failureThreshold(builder.failureThreshold)
+                                .openDuration(builder.openDuration)
+                                .clock(builder.clock)
+                                .build()))
+                .toList();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Rolling statistics of one backend over its last calls, and how often it was chosen first
+     * and failed over from since startup.
+     */
+    public record BackendStats(String name, int samples, double meanLatencyMillis, double errorRate,
+            double tokensPerSecond, long routed, long failovers, CircuitBreaker.State circuit) {
+    }
+
+    /** Duplicate requests sent after the hedge delay, and how many of them answered first. */
+    public record HedgeStats(long sent, long won) {
+    }
+
+    public List<BackendStats> stats() {
+        return backends.stream().map(Backend::stats).toList();
+    }
+
+    public HedgeStats hedgeStats() {
+        return new HedgeStats(hedgesSent.get(), hedgesWon.get());
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<Backend> order = order();
+        if (hedgeExecutor == null || order.size() < 2 || runsTools(prompt)) {
+            return callInOrder(prompt, order, null);
+        }
+        return callHedged(prompt, order);
+    }
+
+    /** Whether the backend may call tools while answering {@code prompt}. */
+    private static boolean runsTools(Prompt prompt) {
+        return prompt.getOptions() instanceof ToolCallingChatOptions options
+                && (!CollectionUtils.isEmpty(options.getToolCallbacks())
+                        || !CollectionUtils.isEmpty(options.getToolNames()))
+                && ToolCallingChatOptions.isInternalToolExecutionEnabled(options);
+    }
+
+    /** Tries the backends one after the other until one answers. */
+    private ChatResponse callInOrder(Prompt prompt, List<Backend> order, RuntimeException earlierFailure) {
+        RuntimeException failure = earlierFailure;
+        Backend previous = null;
+        for (Backend backend : order) {
+            if (previous != null) {
+                previous.failovers.incrementAndGet();
+            }
+            try {
+                return attempt(backend, prompt, null);
+            }
+            catch (RuntimeException e) {
+                failure = addFailure(failure, e);
+                previous = backend;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Calls the first backend and, if it has not answered within its hedge delay (or failed),
+     * the second one too. Returns the first answer and cancels the other call. When both fail
+     * the remaining backends are tried in order.
+     */
+    private ChatResponse callHedged(Prompt prompt, List<Backend> order) {
+        Backend primary = order.get(0);
+        Backend secondary = order.get(1);
+        CompletionService<ChatResponse> race = new ExecutorCompletionService<>(hedgeExecutor);
+        AtomicBoolean decided = new AtomicBoolean();
+        // The calls run on other threads but on behalf of the caller
+        ModelCallScheduler.CallContext context = ModelCallScheduler.currentContext();
+        Future<ChatResponse> first = race.submit(
+                () -> ModelCallScheduler.callAs(context, () -> attempt(primary, prompt, decided)));
+        Future<ChatResponse> second = null;
+        boolean hedged = false;
+        RuntimeException failure = null;
+        try {
+            for (int pending = 1; pending > 0; ) {
+                Future<ChatResponse> done = second == null
+                        ? race.poll(hedgeDelayNanos(primary), TimeUnit.NANOSECONDS)
+                        : race.take();
+                if (done == null) {
+                    hedged = true;
+                    hedgesSent.incrementAndGet();
+                    second = race.submit(
+                            () -> ModelCallScheduler.callAs(context, () -> attempt(secondary, prompt, decided)));
+                    pending++;
+                    continue;
+                }
+                pending--;
+                try {
+                    ChatResponse response = done.get();
+                    if (hedged && done == second) {
+                        hedgesWon.incrementAndGet();
+                    }
+                    return response;
+                }
+                catch (ExecutionException e) {
+                    failure = addFailure(failure, e.getCause());
+                    if (second == null) {
+                        // Failed before the hedge delay: fail over right away
+                        primary.failovers.incrementAndGet();
+                        second = race.submit(
+                                () -> ModelCallScheduler.callAs(context, () -> attempt(secondary, prompt, decided)));
+                        pending++;
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a chat response", e);
+        }
+        finally {
+            decided.set(true);
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+        if (order.size() > 2) {
+            secondary.failovers.incrementAndGet();
+            return callInOrder(prompt, order.subList(2, order.size()), failure);
+        }
+        throw failure;
+    }
+
+    /**
+     * One call to one backend, recorded in its statistics and circuit breaker. A call that fails
+     * after {@code abandoned} was set (the loser of a hedge, interrupted by its cancellation) is
+     * recorded neither way.
+     */
+    private ChatResponse attempt(Backend backend, Prompt prompt, AtomicBoolean abandoned) {
+        if (!backend.breaker.tryAcquire()) {
+            throw new IllegalStateException("Circuit breaker of chat backend " + backend.name + " is open");
+        }
+        long started = System.nanoTime();
+        try {
+            ChatResponse response = backend.model.call(prompt);
+            backend.window.record(System.nanoTime() - started, false, outputTokens(response));
+            backend.breaker.onSuccess();
+            return response;
+        }
+        catch (RuntimeException e) {
+            if (abandoned != null && abandoned.get()) {
+                backend.breaker.onIgnored();
+            }
+            else {
+                backend.window.record(System.nanoTime() - started, true, 0);
+                backend.breaker.onFailure();
+            }
+            throw e;
+        }
+    }
+
+    private long hedgeDelayNanos(Backend backend) {
+        long percentile = backend.window.percentileNanos(hedgePercentile, MIN_HEDGE_SAMPLES);
+        if (percentile < 0) {
+            return maxHedgeDelayNanos;
+        }
+        return Math.min(maxHedgeDelayNanos, Math.max(minHedgeDelayNanos, percentile));
+    }
+
+    private static RuntimeException addFailure(RuntimeException failure, Throwable e) {
+        RuntimeException next = e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+        if (failure == null) {
+            return next;
+        }
+        failure.addSuppressed(next);
+        return failure;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> stream(prompt, order(), 0));
+    }
+
+    private Flux<ChatResponse> stream(Prompt prompt, List<Backend> order, int index) {
+        Backend backend = order.get(index);
+        if (!backend.breaker.tryAcquire()) {
+            IllegalStateException open = new IllegalStateException(
+                    "Circuit breaker of chat backend " + backend.name + " is open");
+            return index + 1 < order.size() ? stream(prompt, order, index + 1) : Flux.error(open);
+        }
+        long started = System.nanoTime();
+        AtomicBoolean emitted = new AtomicBoolean();
+        AtomicLong tokens = new AtomicLong();
+        return backend.model.stream(prompt)
+                .doOnNext(response -> {
+                    emitted.set(true);
+                    // Providers report usage on the last chunk, if at all
+                    tokens.set(Math.max(tokens.get(), outputTokens(response)));
+                })
+                .doOnComplete(() -> {
+                    backend.window.record(System.nanoTime() - started, false, tokens.get());
+                    backend.breaker.onSuccess();
+                })
+                .doOnCancel(backend.breaker::onIgnored)
+                .onErrorResume(e -> {
+                    backend.window.record(System.nanoTime() - started, true, 0);
+                    backend.breaker.onFailure();
+                    if (emitted.get() || index + 1 >= order.size()) {
+                        return Flux.error(e);
+                    }
+                    backend.failovers.incrementAndGet();
+                    return stream(prompt, order, index + 1);
+                });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ToolCallingChatOptions.builder().build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Backend backend : backends) {
+            FunctionCounter.builder("chat.router.decisions", backend.routed, AtomicLong::get)
+                    .description("Requests for which the backend was chosen first")
+                    .tag("backend", backend.name).tag("policy", policy.name().toLowerCase())
+                    .register(registry);
+            FunctionCounter.builder("chat.router.failovers", backend.failovers, AtomicLong::get)
+                    .description("Requests moved on to another backend after this one failed")
+                    .tag("backend", backend.name).register(registry);
+            Gauge.builder("chat.router.latency", backend, b -> b.stats().meanLatencyMillis())
+                    .baseUnit("milliseconds").tag("backend", backend.name).register(registry);
+            Gauge.builder("chat.router.error.rate", backend, b -> b.stats().errorRate())
+                    .tag("backend", backend.name).register(registry);
+            Gauge.builder("chat.router.throughput", backend, b -> b.stats().tokensPerSecond())
+                    .baseUnit("tokens.per.second").tag("backend", backend.name).register(registry);
+            Gauge.builder("chat.router.circuit.open", backend.breaker,
+                            breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                    .description("1 while the circuit breaker keeps traffic away from the backend")
+                    .tag("backend", backend.name).register(registry);
+            FunctionCounter.builder("chat.router.circuit.rejected", backend.breaker, CircuitBreaker::rejectedCalls)
+                    .tag("backend", backend.name).register(registry);
+        }
+        FunctionCounter.builder("chat.router.hedges", hedgesSent, AtomicLong::get)
+                .tag("result", "sent").register(registry);
+        FunctionCounter.builder("chat.router.hedges", hedgesWon, AtomicLong::get)
+                .tag("result", "won").register(registry);
+    }
+
+    @Override
+    public void close() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+    }
+
+    /** Backends in the order they should be tried for the next request, without open circuits. */
+    private List<Backend> order() {
+        List<Backend> healthy = new ArrayList<>();
+        List<Backend> failing = new ArrayList<>();
+        for (Backend backend : backends) {
+            if (backend.breaker.isCallPermitted()) {
+                (backend.stats().errorRate() > maxErrorRate ? failing : healthy).add(backend);
+            }
+        }
+        if (healthy.isEmpty() && failing.isEmpty()) {
+            throw new IllegalStateException("No chat backend available: every circuit breaker is open");
+        }
+        if (healthy.isEmpty()) {
+            // Nothing is healthy: the least failing backend is still the best bet
+            healthy = failing;
+            failing = new ArrayList<>();
+            healthy.sort(Comparator.comparingDouble(backend -> backend.stats().errorRate()));
+        }
+        else {
+            switch (policy) {
+                case LATENCY -> {
+                    healthy.sort(Comparator.comparingDouble(Backend::score));
+                    if (healthy.size() > 1 && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+                        healthy.add(0, healthy.remove(ThreadLocalRandom.current().nextInt(1, healthy.size())));
+                    }
+                }
+                case WEIGHTED -> healthy.add(0, healthy.remove(weightedPick(healthy)));
+                case FAILOVER -> {
+                    // Configuration order
+                }
+            }
+        }
+        if (!failing.isEmpty() && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+            // Probe a failing backend, or its statistics would never recover
+            healthy.add(0, failing.remove(ThreadLocalRandom.current().nextInt(failing.size())));
+        }
+        healthy.addAll(failing);
+        healthy.get(0).routed.incrementAndGet();
+        return healthy;
+    }
+
+    private static int weightedPick(List<Backend> candidates) {
+        double total = candidates.stream().mapToDouble(backend -> backend.weight).sum();
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < candidates.size(); i++) {
+            pick -= candidates.get(i).weight;
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return candidates.size() - 1;
+    }
+
+    private static long outputTokens(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return 0;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        return usage == null || usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens();
+    }
+
+    private static final class Backend {
+        final String name;
+        final ChatModel model;
+        final double weight;
+        final Window window;
+        final CircuitBreaker breaker;
+        final AtomicLong routed = new AtomicLong();
+        final AtomicLong failovers = new AtomicLong();
+
+        Backend(String name, ChatModel model, double weight, int windowSize, CircuitBreaker breaker) {
+            this.name = name;
+            this.model = model;
+            this.weight = weight;
+            this.window = new Window(windowSize);
+            this.breaker = breaker;
+        }
+
+        BackendStats stats() {
+            return window.stats(name, routed.get(), failovers.get(), breaker.state());
+        }
+
+        /** Expected cost of a request: mean latency, inflated by the share of calls that fail. */
+        double score() {
+            BackendStats stats = stats();
+            if (stats.samples() == 0) {
+                return -1;
+            }
+            return stats.meanLatencyMillis() / Math.max(1 - stats.errorRate(), 0.05);
+        }
+    }
+
+    /** Ring buffer of the last calls of one backend. */
+    private static final class Window {
+        private final long[] latencies;
+        private final boolean[] errors;
+        private final long[] tokens;
+        private int next;
+        private int size;
+
+        Window(int capacity) {
+            this.latencies = new long[capacity];
+            this.errors = new boolean[capacity];
+            this.tokens = new long[capacity];
+        }
+
+        synchronized void record(long latencyNanos, boolean error, long outputTokens) {
+            latencies[next] = latencyNanos;
+            errors[next] = error;
+            tokens[next] = outputTokens;
+            next = (next + 1) % latencies.length;
+            size = Math.min(size + 1, latencies.length);
+        }
+
+        /** Latency percentile of the successful calls, or -1 with fewer than {@code minSamples} of them. */
+        synchronized long percentileNanos(double percentile, int minSamples) {
+            long[] successful = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (!errors[i]) {
+                    successful[count++] = latencies[i];
+                }
+            }
+            if (count < minSamples) {
+                return -1;
+            }
+            Arrays.sort(successful, 0, count);
+            return successful[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+        }
+
+        synchronized BackendStats stats(String name, long routed, long failovers, CircuitBreaker.State circuit) {
+            long latencySum = 0;
+            long successLatencySum = 0;
+            long tokenSum = 0;
+            int errorCount = 0;
+            for (int i = 0; i < size; i++) {
+                latencySum += latencies[i];
+                if (errors[i]) {
+                    errorCount++;
+                }
+                else {
+                    successLatencySum += latencies[i];
+                    tokenSum += tokens[i];
+                }
+            }
+            double meanLatencyMillis = size == 0 ? 0 : latencySum / 1e6 / size;
+            double errorRate = size == 0 ? 0 : (double) errorCount / size;
+            double tokensPerSecond = successLatencySum == 0 ? 0 : tokenSum / (successLatencySum / 1e9);
+            return new BackendStats(name, size, meanLatencyMillis, errorRate, tokensPerSecond, routed, failovers,
+                    circuit);
+        }
+    }
+
+    private record Registration(ChatModel model, double weight) {
+    }
+
+    public static final class Builder {
+        private final Map<String, Registration> backends = new LinkedHashMap<>();
+        private Policy policy = Policy.LATENCY;
+        private int windowSize = 100;
+        private double maxErrorRate = 0.5;
+        private double explorationRate = 0.05;
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private Clock clock = Clock.systemUTC();
+        private boolean hedging;
+        private double hedgePercentile = 0.95;
+        private Duration minHedgeDelay = Duration.ofMillis(50);
+        private Duration maxHedgeDelay = Duration.ofSeconds(10);
+
+        private Builder() {
+        }
+
+        /** Adds a backend with weight 1. For {@link Policy#FAILOVER} the order of the calls is the priority. */
+        public Builder backend(String name, ChatModel model) {
+            return backend(name, model, 1);
+        }
+
+        public Builder backend(String name, ChatModel model, double weight) {
+            Objects.requireNonNull(model, "model must not be null");
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be positive");
+            }
+            if (backends.putIfAbsent(name, new Registration(model, weight)) != null) {
+                throw new IllegalArgumentException("Duplicate backend " + name);
+            }
+            return this;
+        }
+
+        public Builder policy(Policy policy) {
+            this.policy = Objects.requireNonNull(policy, "policy must not be null");
+            return this;
+        }
+
+        /** Number of most recent calls per backend that the statistics are computed from. */
+        public Builder windowSize(int windowSize) {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("windowSize must be positive");
+            }
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /** Error rate above which a backend is avoided while another one is healthy. */
+        public Builder maxErrorRate(double maxErrorRate) {
+            if (maxErrorRate < 0 || maxErrorRate > 1) {
+                throw new IllegalArgumentException("maxErrorRate must be between 0 and 1");
+            }
+            this.maxErrorRate = maxErrorRate;
+            return this;
+        }
+
+        /** Share of requests the latency policy sends to a random backend instead of the fastest. */
+        public Builder explorationRate(double explorationRate) {
+            if (explorationRate < 0 || explorationRate > 1) {
+                throw new IllegalArgumentException("explorationRate must be between 0 and 1");
+            }
+            this.explorationRate = explorationRate;
+            return this;
+        }
+
+        /** Consecutive failures after which a backend's circuit breaker opens. */
+        public Builder failureThreshold(int failureThreshold) {
+            if (failureThreshold <= 0) {
+                throw new IllegalArgumentException("failureThreshold must be positive");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /** How long an open circuit breaker keeps traffic away before probing the backend again. */
+        public Builder openDuration(Duration openDuration) {
+            if (openDuration.isNegative()) {
+                throw new IllegalArgumentException("openDuration must not be negative");
+            }
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock must not be null");
+            return this;
+        }
+
+        /** Whether slow blocking calls are duplicated to the next backend. */
+        public Builder hedging(boolean hedging) {
+            this.hedging = hedging;
+            return this;
+        }
+
+        /** Latency percentile of the first backend after which the duplicate is sent. */
+        public Builder hedgePercentile(double hedgePercentile) {
+            if (hedgePercentile <= 0 || hedgePercentile > 1) {
+                throw new IllegalArgumentException("hedgePercentile must be in (0, 1]");
+            }
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /** Bounds of the hedge delay; the maximum also applies until enough latencies were seen. */
+        public Builder hedgeDelay(Duration min, Duration max) {
+            if (min.isNegative() || max.compareTo(min) < 0) {
+                throw new IllegalArgumentException("hedge delay bounds must satisfy 0 <= min <= max");
+            }
+            this.minHedgeDelay = min;
+            this.maxHedgeDelay = max;
+            return this;
+        }
+
+        public RoutingChatModel build() {
+            if (backends.isEmpty()) {
+                throw new IllegalArgumentException("At least one backend is required");
+            }
+            return new RoutingChatModel(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.springai;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plain loop implementation of {@link SimilarityKernel}, used when the Vector API is not available.
+ */
+final class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        float dot = 0;
+        float normA = 0;
+        float normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : (float) (dot / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+
+    @Override
+    public float squaredDistance(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int byteOffset) {
+        float sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * vectors.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public void dot(float[] query, float[] block, int offset, int stride, int count, float[] scores) {
+        for (int v = 0; v < count; v++) {
+            int base = offset + v * stride;
+            float sum = 0;
+            for (int i = 0; i < query.length; i++) {
+                sum += query[i] * block[base + i];
+            }
+            scores[v] = sum;
+        }
+    }
+
+    @Override
+    public void dot(float[] query, ByteBuffer block, int byteOffset, int byteStride, int count, float[] scores) {
+        for (int v = 0; v < count; v++) {
+            scores[v] = dot(query, block, byteOffset + v * byteStride);
+        }
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,77 @@
+package com.springai;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (index, score) pairs over primitive arrays, used for top-k selection
+ * and beam search in the in-memory vector stores.
+ * A min-heap keeps the worst score on top, a max-heap the best.
+ */
+final class ScoredHeap {
+    private int[] ids;
+    private float[] scores;
+    private int size;
+    private final boolean min;
+
+    ScoredHeap(int capacity, boolean min) {
+        this.ids = new int[Math.max(capacity + 1, 16)];
+        this.scores = new float[ids.length];
+        this.min = min;
+    }
+
+    int size() {
+        return size;
+    }
+
+    float topScore() {
+        return scores[0];
+    }
+
+    void push(int id, float score) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(score, scores[parent])) {
+                break;
+            }
+            ids[i] = ids[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    int pop() {
+        int top = ids[0];
+        int lastId = ids[--size];
+        float lastScore = scores[size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                child++;
+            }
+            if (!before(scores[child], lastScore)) {
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = lastId;
+        scores[i] = lastScore;
+        return top;
+    }
+
+    private boolean before(float a, float b) {
+        return min ? a < b : a > b;
+    }
+}
@@ -0,0 +1,223 @@
+package com.springai;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Answers questions that are paraphrases of earlier ones without retrieval or an LLM call.
+ *
+ * Each question is embedded and compared with the embeddings of previously answered questions;
+ * if the most similar one is at least {@code similarityThreshold} (cosine), its stored
+ * {@link ChatResponse} is returned. Entries expire {@code timeToLive} after they were stored,
+ * at most {@code maxEntries} are kept (least recently used go first), and everything is dropped
+ * when a {@link VectorStoreChangedEvent} signals that retrieval would now return other documents.
+ *
+ * Lookups scan all entries with the {@link SimilarityKernel}, which is fast for the few thousand
+ * entries a response cache holds.
+ */
+public class SemanticResponseCache implements MeterBinder {
+
+    private final EmbeddingModel embeddingModel;
+    private final double similarityThreshold;
+    private final Duration timeToLive;
+    private final int maxEntries;
+    private final Clock clock;
+    private final SimilarityKernel kernel;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    // Bumped on invalidation, so answers computed from the old store content are not stored
+    private long generation;
+
+    private SemanticResponseCache(Builder builder) {
+        this.embeddingModel = builder.embeddingModel;
+        this.similarityThreshold = builder.similarityThreshold;
+        this.timeToLive = builder.timeToLive;
+        this.maxEntries = builder.maxEntries;
+        this.clock = builder.clock;
+        this.kernel = builder.similarityKernel != null ? builder.similarityKernel : SimilarityKernel.get();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > SemanticResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    /**
+     * Result of {@link #lookup(String)}: the cached response on a hit, otherwise what
+     * {@link #put(Lookup, ChatResponse)} needs to store the answer without embedding again.
+     */
+    public record Lookup(ChatResponse response, double similarity, float[] embedding, long generation) {
+        public boolean hit() {
+            return response != null;
+        }
+    }
+
+    public record Stats(long hits, long misses, long invalidations, int size) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : hits / (double) total;
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), invalidations.get(), entries.size());
+        }
+    }
+
+    public Lookup lookup(String question) {
+        float[] embedding = normalize(embeddingModel.embed(question));
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry best = null;
+            double bestSimilarity = Double.NEGATIVE_INFINITY;
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (entry.expiresAt <= now) {
+                    it.remove();
+                    continue;
+                }
+                double similarity = kernel.dot(embedding, entry.embedding);
+                if (similarity > bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null && bestSimilarity >= similarityThreshold) {
+                // Touch the entry so it counts as recently used
+                entries.get(best.id);
+                hits.incrementAndGet();
+                return new Lookup(best.response, bestSimilarity, embedding, generation);
+            }
+            misses.incrementAndGet();
+            return new Lookup(null, best != null ? bestSimilarity : 0, embedding, generation);
+        }
+    }
+
+    /**
+     * Stores the answer to a missed question, unless the cache was invalidated since the lookup.
+     */
+    public void put(Lookup lookup, ChatResponse response) {
+        if (response == null || response.getResult() == null) {
+            return;
+        }
+        long id = nextId.incrementAndGet();
+        Entry entry = new Entry(id, lookup.embedding(), response, clock.millis() + timeToLive.toMillis());
+        synchronized (entries) {
+            if (lookup.generation() == generation) {
+                entries.put(id, entry);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+        invalidations.incrementAndGet();
+    }
+
+    @EventListener
+    public void onVectorStoreChanged(VectorStoreChangedEvent event) {
+        invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("rag.response.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("rag.response.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(registry);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    private record Entry(long id, float[] embedding, ChatResponse response, long expiresAt) {
+    }
+
+    public static final class Builder {
+        private final EmbeddingModel embeddingModel;
+        private double similarityThreshold = 0.92;
+        private Duration timeToLive = Duration.ofHours(1);
+        private int maxEntries = 1000;
+        private Clock clock = Clock.systemUTC();
+        private SimilarityKernel similarityKernel;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            this.embeddingModel = Objects.requireNonNull(embeddingModel, "embeddingModel must not be null");
+        }
+
+        /** Minimum cosine similarity between two questions for one to be answered with the other's response. */
+        public Builder similarityThreshold(double similarityThreshold) {
+            if (similarityThreshold <= 0 || similarityThreshold > 1) {
+                throw new IllegalArgumentException("similarityThreshold must be in (0, 1]");
+            }
+            this.similarityThreshold = similarityThreshold;
+            return this;
+        }
+
+        public Builder timeToLive(Duration timeToLive) {
+            if (timeToLive.isNegative() || timeToLive.isZero()) {
+                throw new IllegalArgumentException("timeToLive must be positive");
+            }
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock must not be null");
+            return this;
+        }
+
+        public Builder similarityKernel(SimilarityKernel similarityKernel) {
+            this.similarityKernel = similarityKernel;
+            return this;
+        }
+
+        public SemanticResponseCache build() {
+            return new SemanticResponseCache(this);
+        }
+    }
+}
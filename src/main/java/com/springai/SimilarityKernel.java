@@ -0,0 +1,105 @@
+package com.springai;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Vector similarity primitives used by the in-memory vector stores.
+ *
+ * Two implementations exist: a SIMD one built on the {@code jdk.incubator.vector} module,
+ * and a scalar fallback. {@link #get()} picks the SIMD kernel when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and the SIMD kernel passes a self-test of every
+ * buffer and array method, since the incubating API changes between releases. Both compute the same values up to float
+ * rounding (the SIMD kernel sums in a different order).
+ *
+ * Buffer-based methods read native-order float32 values at byte offsets, so they work
+ * directly on memory-mapped and direct buffers.
+ */
+public interface SimilarityKernel {
+
+    /** Dot product; equals cosine similarity for normalized vectors. */
+    float dot(float[] a, float[] b);
+
+    /** Cosine similarity; 0 if either vector has zero norm. */
+    float cosine(float[] a, float[] b);
+
+    /** Squared Euclidean (L2) distance. */
+    float squaredDistance(float[] a, float[] b);
+
+    /** Dot product of {@code query} with the vector starting at {@code byteOffset} in {@code vectors}. */
+    float dot(float[] query, ByteBuffer vectors, int byteOffset);
+
+    /**
+     * Scores {@code query} against {@code count} vectors in a packed block, the i-th one starting
+     * at {@code offset + i * stride} (in floats), writing the dot products to {@code scores[0..count)}.
+     */
+    void dot(float[] query, float[] block, int offset, int stride, int count, float[] scores);
+
+    /**
+     * Byte-buffer variant of the block scoring above; offset and stride are in bytes, so records
+     * may carry a header in front of each vector.
+     */
+    void dot(float[] query, ByteBuffer block, int byteOffset, int byteStride, int count, float[] scores);
+
+    /**
+     * Dot product of two int8 vectors of {@code length} values, such as quantized embedding codes,
+     * starting at the given offsets. Exact: the products are summed as ints.
+     */
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+    /** Name for logs and benchmarks. */
+    String name();
+
+    /**
+     * The fastest kernel available in this JVM.
+     */
+    static SimilarityKernel get() {
+        return Kernels.DEFAULT;
+    }
+
+    final class Kernels {
+        private static final Logger logger = LoggerFactory.getLogger(Kernels.class);
+
+        static final SimilarityKernel DEFAULT = load();
+
+        private Kernels() {
+        }
+
+        private static SimilarityKernel load() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    SimilarityKernel kernel = (SimilarityKernel) Class.forName("com.springai.VectorApiSimilarityKernel")
+                            .getDeclaredConstructor().newInstance();
+                    selfTest(kernel);
+                    return kernel;
+                }
+                catch (ReflectiveOperationException | LinkageError e) {
+                    logger.warn("Vector API similarity kernel unavailable, using scalar kernel", e);
+                }
+            }
+            return new ScalarSimilarityKernel();
+        }
+
+        /**
+         * Calls each method once, long enough for the SIMD loops to run, so that a Vector API
+         * method missing from this JVM fails here rather than in the middle of a search.
+         */
+        static void selfTest(SimilarityKernel kernel) {
+            int length = 64;
+            float[] vector = new float[length];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4 * length * Float.BYTES).order(ByteOrder.nativeOrder());
+            byte[] codes = new byte[length];
+            kernel.dot(vector, vector);
+            kernel.cosine(vector, vector);
+            kernel.squaredDistance(vector, vector);
+            kernel.dot(vector, buffer, 0);
+            // Four vectors, the number block scoring handles per pass
+            kernel.dot(vector, new float[4 * length], 0, length, 4, new float[4]);
+            kernel.dot(vector, buffer, 0, length * Float.BYTES, 4, new float[4]);
+            kernel.dot(codes, 0, codes, 0, length);
+        }
+    }
+}
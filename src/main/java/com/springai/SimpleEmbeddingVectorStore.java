@@ -0,0 +1,90 @@
+package com.springai;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+
+/**
+ * {@link SimpleVectorStore} that also accepts pre-computed embeddings,
+ * so the ingestion pipeline can write chunks it has already embedded.
+ * Searches score with a {@link SimilarityKernel} and keep only the topK best
+ * instead of sorting every document.
+ */
+public class SimpleEmbeddingVectorStore extends SimpleVectorStore implements EmbeddingVectorStore {
+
+    private final SimilarityKernel kernel;
+
+    public SimpleEmbeddingVectorStore(EmbeddingModel embeddingModel) {
+        this(embeddingModel, SimilarityKernel.get());
+    }
+
+    public SimpleEmbeddingVectorStore(EmbeddingModel embeddingModel, SimilarityKernel kernel) {
+        super(SimpleVectorStore.builder(embeddingModel));
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Documents and embeddings must have the same size");
+        }
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            this.store.put(document.getId(), new SimpleVectorStoreContent(
+                    document.getId(), document.getText(), document.getMetadata(), embeddings.get(i)));
+        }
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = this.embeddingModel.embed(request.getQuery());
+        Predicate<Map<String, Object>> filter = MetadataFilter.of(request);
+        SimpleVectorStoreContent[] contents = this.store.values().toArray(new SimpleVectorStoreContent[0]);
+        int topK = Math.min(request.getTopK(), contents.length);
+        if (topK <= 0) {
+            return List.of();
+        }
+        ScoredHeap best = new ScoredHeap(topK, true);
+        for (int i = 0; i < contents.length; i++) {
+            SimpleVectorStoreContent content = contents[i];
+            if (!filter.test(content.getMetadata())) {
+                continue;
+            }
+            float score = kernel.cosine(query, content.getEmbedding());
+            if (score < request.getSimilarityThreshold()) {
+                continue;
+            }
+            if (best.size() < topK) {
+                best.push(i, score);
+            }
+            else if (score > best.topScore()) {
+                best.pop();
+                best.push(i, score);
+            }
+        }
+        Document[] results = new Document[best.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            double score = best.topScore();
+            results[i] = contents[best.pop()].toDocument(score);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Loads the store from JSON, keeping the backing map safe for concurrent writers.
+     */
+    @Override
+    public void load(File file) {
+        super.load(file);
+        this.store = new ConcurrentHashMap<>(this.store);
+    }
+}
@@ -0,0 +1,185 @@
+package com.springai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.util.JacksonUtils;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import reactor.core.publisher.Flux;
+
+/**
+ * Streaming counterpart of {@code .entity(new ParameterizedTypeReference<List<ActorFilms>>() {})}:
+ * parses the model's JSON array while it is being generated and emits each element as soon as
+ * it is complete, instead of waiting for the whole completion.
+ *
+ * The token stream is fed to Jackson's non-blocking parser, so each chunk is only looked at once
+ * and elements may be split across chunks anywhere, even inside strings or numbers. Text before
+ * the opening bracket, such as a markdown code fence, and anything after the closing bracket are
+ * ignored. Cancelling the returned Flux, for example with take(n), cancels the model call.
+ */
+public class StreamingEntityParser<T> {
+
+    private final ObjectMapper objectMapper;
+    private final JavaType elementType;
+    private final String format;
+
+    private StreamingEntityParser(Class<T> elementType, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.elementType = objectMapper.constructType(elementType);
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        this.format = new BeanOutputConverter<List<T>>(ParameterizedTypeReference.forType(listType.getType()))
+                .getFormat();
+    }
+
+    /**
+     * Uses a mapper configured like {@link BeanOutputConverter}'s: the available Jackson modules
+     * are registered and properties the element type does not have are ignored, as models add
+     * them now and then.
+     */
+    public static <T> StreamingEntityParser<T> of(Class<T> elementType) {
+        return of(elementType, JsonMapper.builder()
+                .addModules(JacksonUtils.instantiateAvailableModules())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .build());
+    }
+
+    public static <T> StreamingEntityParser<T> of(Class<T> elementType, ObjectMapper objectMapper) {
+        return new StreamingEntityParser<>(elementType, objectMapper);
+    }
+
+    /** Instructions asking the model for a JSON array of the element type, with its schema. */
+    public String format() {
+        return format;
+    }
+
+    /**
+     * Sends the question with the format instructions appended and streams the elements of the
+     * answer.
+     */
+    public Flux<T> stream(ChatClient chatClient, String question) {
+        return parse(chatClient.prompt()
+                .user(question + System.lineSeparator() + format)
+                .stream()
+                .content());
+    }
+
+    /**
+     * Emits the elements of the JSON array in the given text chunks, each as soon as it is
+     * complete. Fails with IllegalStateException if the text is not valid JSON, or ends before
+     * the array does.
+     */
+    public Flux<T> parse(Flux<String> chunks) {
+        return Flux.defer(() -> {
+            ArrayReader reader = new ArrayReader();
+            return chunks.concatMapIterable(reader::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(reader.finish())));
+        });
+    }
+
+    /** State of one parse: where in the array the parser is and the element being collected. */
+    private class ArrayReader {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private boolean started;
+        private boolean inArray;
+        private boolean finished;
+        // Nesting depth inside the element being collected, 0 between elements
+        private int depth;
+        private TokenBuffer element;
+
+        ArrayReader() {
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Could not create a JSON parser", e);
+            }
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        List<T> feed(String chunk) {
+            if (finished) {
+                return List.of();
+            }
+            if (!started) {
+                int bracket = chunk.indexOf('[');
+                if (bracket < 0) {
+                    return List.of();
+                }
+                started = true;
+                chunk = chunk.substring(bracket);
+            }
+            byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+            try {
+                feeder.feedInput(bytes, 0, bytes.length);
+                return readAvailable();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Could not parse model output: " + e.getMessage(), e);
+            }
+        }
+
+        List<T> finish() {
+            if (!started) {
+                throw new IllegalStateException("Model output contained no JSON array");
+            }
+            if (!finished) {
+                throw new IllegalStateException("Model output ended inside the JSON array");
+            }
+            return List.of();
+        }
+
+        private List<T> readAvailable() throws IOException {
+            List<T> complete = new ArrayList<>(1);
+            JsonToken token;
+            while (!finished && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                if (!inArray) {
+                    // Always the bracket feed() started at
+                    inArray = true;
+                    continue;
+                }
+                if (depth == 0 && token == JsonToken.END_ARRAY) {
+                    // The root array closed; the rest is whatever the model added after it
+                    finished = true;
+                    feeder.endOfInput();
+                    break;
+                }
+                if (depth == 0) {
+                    element = new TokenBuffer(parser, null);
+                }
+                element.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    depth++;
+                }
+                else if (token.isStructEnd()) {
+                    depth--;
+                }
+                if (depth == 0) {
+                    try (JsonParser elementParser = element.asParser(objectMapper)) {
+                        T value = objectMapper.readValue(elementParser, elementType);
+                        // A Flux cannot carry nulls, so null elements are left out
+                        if (value != null) {
+                            complete.add(value);
+                        }
+                    }
+                    element = null;
+                }
+            }
+            return complete;
+        }
+    }
+}
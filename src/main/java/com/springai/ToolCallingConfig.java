@@ -0,0 +1,57 @@
+package com.springai;
+
+import java.time.Duration;
+import java.util.List;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces Spring AI's sequential tool calling manager with {@link ParallelToolCallingManager},
+ * which the OpenAI and Anthropic chat models then use for every response that asks for tools.
+ */
+@Configuration
+public class ToolCallingConfig {
+
+    @Bean
+    public ToolCallingManager toolCallingManager(ToolCallbackResolver toolCallbackResolver,
+            ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+            ObjectProvider<ObservationRegistry> observationRegistry,
+            @Value("${app.tools.parallel.enabled:true}") boolean parallel,
+            @Value("${app.tools.timeout:30s}") Duration timeout,
+            @Value("${app.tools.timeouts:}") List<String> toolTimeouts) {
+        ObservationRegistry registry = observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP);
+        if (!parallel) {
+            return DefaultToolCallingManager.builder()
+                    .observationRegistry(registry)
+                    .toolCallbackResolver(toolCallbackResolver)
+                    .toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+                    .build();
+        }
+        ParallelToolCallingManager.Builder builder = ParallelToolCallingManager.builder()
+                .observationRegistry(registry)
+                .toolCallbackResolver(toolCallbackResolver)
+                .toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+                .timeout(timeout);
+        for (String toolTimeout : toolTimeouts) {
+            if (toolTimeout.isBlank()) {
+                continue;
+            }
+            // tool:timeout
+            String[] parts = toolTimeout.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected tool:timeout, got " + toolTimeout);
+            }
+            builder.timeout(parts[0], DurationStyle.detectAndParse(parts[1]));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,232 @@
+package com.springai;
+
+import java.nio.ByteBuffer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SimilarityKernel} on the incubating Vector API, using the widest SIMD registers of the CPU.
+ * Only loaded through {@link SimilarityKernel#get()} when {@code jdk.incubator.vector} is present.
+ *
+ * Block scoring handles four vectors per pass so each query lane is loaded once for all four.
+ * Int8 dot products widen the bytes to int lanes and accumulate exactly.
+ *
+ * {@code FloatVector.fromByteBuffer} was removed in Java 19 in favour of memory segments, so on
+ * newer JVMs the buffer-based methods use the scalar kernel and only the array-based ones run
+ * on SIMD registers.
+ */
+final class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // int8 codes are widened to ints: a quarter as many bytes as the int register holds, at least 64 bits
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED.vectorBitSize() >= 256
+            ? IntVector.SPECIES_PREFERRED : IntVector.SPECIES_256;
+    private static final VectorSpecies<Byte> BYTE_SPECIES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(INT_SPECIES.vectorBitSize() / 4));
+    // Set where FloatVector.fromByteBuffer no longer exists
+    private static final SimilarityKernel BUFFER_FALLBACK = Runtime.version().feature() >= 19
+            ? new ScalarSimilarityKernel() : null;
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int bound = SPECIES.loopBound(a.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            acc = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        int bound = SPECIES.loopBound(a.length);
+        FloatVector dotAcc = FloatVector.zero(SPECIES);
+        FloatVector normAAcc = FloatVector.zero(SPECIES);
+        FloatVector normBAcc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            dotAcc = va.fma(vb, dotAcc);
+            normAAcc = va.fma(va, normAAcc);
+            normBAcc = vb.fma(vb, normBAcc);
+        }
+        float dot = dotAcc.reduceLanes(VectorOperators.ADD);
+        float normA = normAAcc.reduceLanes(VectorOperators.ADD);
+        float normB = normBAcc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : (float) (dot / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+
+    @Override
+    public float squaredDistance(float[] a, float[] b) {
+        int bound = SPECIES.loopBound(a.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, b, i));
+            acc = diff.fma(diff, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int byteOffset) {
+        if (BUFFER_FALLBACK != null) {
+            return BUFFER_FALLBACK.dot(query, vectors, byteOffset);
+        }
+        int bound = SPECIES.loopBound(query.length);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector v = FloatVector.fromByteBuffer(SPECIES, vectors, byteOffset + i * Float.BYTES, vectors.order());
+            acc = FloatVector.fromArray(SPECIES, query, i).fma(v, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            sum += query[i] * vectors.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public void dot(float[] query, float[] block, int offset, int stride, int count, float[] scores) {
+        int bound = SPECIES.loopBound(query.length);
+        int v = 0;
+        for (; v + 4 <= count; v += 4) {
+            int b0 = offset + v * stride;
+            int b1 = b0 + stride;
+            int b2 = b1 + stride;
+            int b3 = b2 + stride;
+            FloatVector acc0 = FloatVector.zero(SPECIES);
+            FloatVector acc1 = FloatVector.zero(SPECIES);
+            FloatVector acc2 = FloatVector.zero(SPECIES);
+            FloatVector acc3 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                acc0 = q.fma(FloatVector.fromArray(SPECIES, block, b0 + i), acc0);
+                acc1 = q.fma(FloatVector.fromArray(SPECIES, block, b1 + i), acc1);
+                acc2 = q.fma(FloatVector.fromArray(SPECIES, block, b2 + i), acc2);
+                acc3 = q.fma(FloatVector.fromArray(SPECIES, block, b3 + i), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; i < query.length; i++) {
+                s0 += query[i] * block[b0 + i];
+                s1 += query[i] * block[b1 + i];
+                s2 += query[i] * block[b2 + i];
+                s3 += query[i] * block[b3 + i];
+            }
+            scores[v] = s0;
+            scores[v + 1] = s1;
+            scores[v + 2] = s2;
+            scores[v + 3] = s3;
+        }
+        for (; v < count; v++) {
+            int base = offset + v * stride;
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                acc = FloatVector.fromArray(SPECIES, query, i).fma(FloatVector.fromArray(SPECIES, block, base + i), acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < query.length; i++) {
+                sum += query[i] * block[base + i];
+            }
+            scores[v] = sum;
+        }
+    }
+
+    @Override
+    public void dot(float[] query, ByteBuffer block, int byteOffset, int byteStride, int count, float[] scores) {
+        if (BUFFER_FALLBACK != null) {
+            BUFFER_FALLBACK.dot(query, block, byteOffset, byteStride, count, scores);
+            return;
+        }
+        int bound = SPECIES.loopBound(query.length);
+        int v = 0;
+        for (; v + 4 <= count; v += 4) {
+            int b0 = byteOffset + v * byteStride;
+            int b1 = b0 + byteStride;
+            int b2 = b1 + byteStride;
+            int b3 = b2 + byteStride;
+            FloatVector acc0 = FloatVector.zero(SPECIES);
+            FloatVector acc1 = FloatVector.zero(SPECIES);
+            FloatVector acc2 = FloatVector.zero(SPECIES);
+            FloatVector acc3 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                int delta = i * Float.BYTES;
+                acc0 = q.fma(FloatVector.fromByteBuffer(SPECIES, block, b0 + delta, block.order()), acc0);
+                acc1 = q.fma(FloatVector.fromByteBuffer(SPECIES, block, b1 + delta, block.order()), acc1);
+                acc2 = q.fma(FloatVector.fromByteBuffer(SPECIES, block, b2 + delta, block.order()), acc2);
+                acc3 = q.fma(FloatVector.fromByteBuffer(SPECIES, block, b3 + delta, block.order()), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; i < query.length; i++) {
+                int delta = i * Float.BYTES;
+                s0 += query[i] * block.getFloat(b0 + delta);
+                s1 += query[i] * block.getFloat(b1 + delta);
+                s2 += query[i] * block.getFloat(b2 + delta);
+                s3 += query[i] * block.getFloat(b3 + delta);
+            }
+            scores[v] = s0;
+            scores[v + 1] = s1;
+            scores[v + 2] = s2;
+            scores[v + 3] = s3;
+        }
+        for (; v < count; v++) {
+            scores[v] = dot(query, block, byteOffset + v * byteStride);
+        }
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int bound = BYTE_SPECIES.loopBound(length);
+        IntVector acc = IntVector.zero(INT_SPECIES);
+        int i = 0;
+        for (; i < bound; i += BYTE_SPECIES.length()) {
+            // Widen each byte to an int lane, so the products cannot overflow
+            IntVector va = (IntVector) ByteVector.fromArray(BYTE_SPECIES, a, aOffset + i).castShape(INT_SPECIES, 0);
+            IntVector vb = (IntVector) ByteVector.fromArray(BYTE_SPECIES, b, bOffset + i).castShape(INT_SPECIES, 0);
+            acc = acc.add(va.mul(vb));
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "vector-api-" + SPECIES.vectorBitSize() + "bit" + (BUFFER_FALLBACK != null ? "-scalar-buffers" : "");
+    }
+}
@@ -0,0 +1,9 @@
+package com.springai;
+
+/**
+ * Published after the content of the vector store changed, for example when an ingestion run
+ * wrote or deleted chunks. Anything derived from retrieval results, such as cached answers,
+ * is stale from this point on.
+ */
+public record VectorStoreChangedEvent(long addedChunks, long deletedChunks) {
+}
@@ -0,0 +1,164 @@
+package com.springai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link BatchExtractor} over HTTP against {@link StubOpenAiServer}, through Spring AI's
+ * OpenAI chat model in parallel mode and {@link OpenAiBatchClient} in batch mode.
+ */
+class BatchExtractorTests {
+
+    @TempDir
+    Path directory;
+
+    private StubOpenAiServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new StubOpenAiServer(20);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void extractsWithBoundedConcurrency() {
+        List<String> actors = actors(200);
+        actors.add("Nobody Special");
+
+        BatchExtractor.Result<ActorFilms> result = parallel(8, null).run(actors);
+        System.out.println(result.report());
+
+        assertEquals(200, result.values().size());
+        assertEquals(new ActorFilms("Actor 7", List.of("Actor 7 I", "Actor 7 II")), result.values().get("Actor 7"));
+        assertTrue(result.failures().get("Nobody Special").startsWith("Could not parse answer"));
+        assertTrue(server.maxInFlight.get() <= 8);
+        assertTrue(server.maxInFlight.get() > 1);
+        BatchExtractionReport report = result.report();
+        assertEquals(200, report.extracted());
+        assertEquals(1, report.failed());
+        assertTrue(report.promptTokens() > 0 && report.completionTokens() > 0);
+        assertEquals((report.promptTokens() * 0.10 + report.completionTokens() * 0.40) / 1e6, report.cost(), 1e-12);
+
+        // One call after the other takes at least 20 ms per actor
+        assertTrue(report.elapsed().compareTo(Duration.ofMillis(201 * 20 / 2)) < 0);
+    }
+
+    @Test
+    void parallelCallsAreBackgroundWorkOfTheirOwnTenant() {
+        Set<ModelCallScheduler.CallContext> contexts = ConcurrentHashMap.newKeySet();
+        StubChatModel chatModel = new StubChatModel(prompt -> {
+            contexts.add(ModelCallScheduler.currentContext());
+            return "{\"actor\": \"Actor\", \"movies\": []}";
+        }, 0);
+
+        BatchExtractor.builder(ActorFilms.class).chatModel(chatModel, 4).build().run(actors(10));
+
+        assertEquals(Set.of(new ModelCallScheduler.CallContext(BatchExtractor.TENANT,
+                ModelCallScheduler.Priority.BACKGROUND)), contexts);
+    }
+
+    @Test
+    void resumesFromTheCheckpoint() throws Exception {
+        Path checkpoint = directory.resolve("checkpoint.jsonl");
+        parallel(4, checkpoint).run(actors(50));
+        assertEquals(50, server.chatCalls.get());
+        // A crash in the middle of a write leaves a torn last line
+        Files.writeString(checkpoint, "{\"input\": \"Actor 4", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        BatchExtractor.Result<ActorFilms> result = parallel(4, checkpoint).run(actors(60));
+
+        assertEquals(60, result.values().size());
+        assertEquals(60, server.chatCalls.get());
+        assertEquals(50, result.report().resumed());
+        assertEquals(10, result.report().extracted());
+        assertEquals(List.of("Actor 0", "Actor 1", "Actor 2"), result.values().keySet().stream().limit(3).toList());
+    }
+
+    @Test
+    void packsRequestsIntoBatchesAndCollectsThemInALaterRun() {
+        Path checkpoint = directory.resolve("batches.jsonl");
+        server.pollsUntilDone = Integer.MAX_VALUE;
+        // The first run submits its batches and stops waiting for them
+        IllegalStateException stopped = assertThrows(IllegalStateException.class,
+                () -> batch(checkpoint).maxWait(Duration.ofMillis(100)).build().run(actors(100)));
+        assertTrue(stopped.getMessage().contains("run again"));
+        assertEquals(3, server.batchesCreated.get());
+
+        server.pollsUntilDone = 2;
+        BatchExtractor.Result<ActorFilms> result = batch(checkpoint).build().run(actors(100));
+        System.out.println(result.report());
+
+        assertEquals(100, result.values().size());
+        assertEquals(new ActorFilms("Actor 99", List.of("Actor 99 I", "Actor 99 II")), result.values().get("Actor 99"));
+        assertEquals(3, server.batchesCreated.get());
+        assertEquals(0, server.chatCalls.get());
+        BatchExtractionReport report = result.report();
+        assertEquals("batch", report.mode());
+        assertEquals(0, report.batches());
+        assertEquals((report.promptTokens() * 0.10 + report.completionTokens() * 0.40) / 1e6 * 0.5, report.cost(),
+                1e-12);
+
+        // Everything is in the checkpoint now, so nothing is sent again
+        BatchExtractionReport again = batch(checkpoint).build().run(actors(100)).report();
+        assertEquals(100, again.resumed());
+        assertEquals(3, server.batchesCreated.get());
+    }
+
+    private BatchExtractor<ActorFilms> parallel(int concurrency, Path checkpoint) {
+        OpenAiApi api = OpenAiApi.builder().baseUrl(server.baseUrl()).apiKey("test").build();
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(api)
+                .defaultOptions(OpenAiChatOptions.builder().model("gpt-4.1-nano").build())
+                .build();
+        return BatchExtractor.builder(ActorFilms.class)
+                .prompt(BatchExtractorTests::prompt)
+                .chatModel(chatModel, concurrency)
+                .checkpointFile(checkpoint)
+                .pricing(0.10, 0.40)
+                .build();
+    }
+
+    private BatchExtractor.Builder<ActorFilms> batch(Path checkpoint) {
+        return BatchExtractor.builder(ActorFilms.class)
+                .prompt(BatchExtractorTests::prompt)
+                .batchClient(OpenAiBatchClient.builder().baseUrl(server.baseUrl()).apiKey("test").build(),
+                        "gpt-4.1-nano")
+                .maxRequestsPerBatch(40)
+                .pollInterval(Duration.ofMillis(20))
+                .checkpointFile(checkpoint)
+                .pricing(0.10, 0.40);
+    }
+
+    private static String prompt(String actor) {
+        return "Generate the filmography of 5 movies for " + actor + ".";
+    }
+
+    private static List<String> actors(int count) {
+        List<String> actors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            actors.add("Actor " + i);
+        }
+        return actors;
+    }
+}
@@ -0,0 +1,104 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link BatchingEmbeddingModel} offline over {@link StubEmbeddingModel}.
+ */
+class BatchingEmbeddingModelTests {
+
+    @Test
+    void coalescesConcurrentSingleTextCalls() throws Exception {
+        StubEmbeddingModel stub = new StubEmbeddingModel(64, 20);
+        try (BatchingEmbeddingModel batching = BatchingEmbeddingModel.builder(stub)
+                .window(Duration.ofMillis(20)).build()) {
+            int callers = 32;
+            ExecutorService executor = Executors.newFixedThreadPool(callers);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<float[]>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String question = "question " + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return batching.embed(question);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < callers; i++) {
+                assertArrayEquals(stub.vector("question " + i), futures.get(i).get());
+            }
+            executor.shutdown();
+
+            BatchingEmbeddingModel.Stats stats = batching.stats();
+            System.out.printf("%d single-text calls sent as %d requests (%.1f texts per request)%n",
+                    stats.calls(), stats.requests(), stats.textsPerRequest());
+            assertEquals(callers, stats.calls());
+            assertTrue(stats.requests() <= 4, "sent " + stats.requests() + " requests");
+            assertEquals(stats.requests(), stub.calls.get());
+        }
+    }
+
+    @Test
+    void splitsLargeCallsByInputCountAndTokenBudget() {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        // One token per word keeps the arithmetic obvious
+        try (BatchingEmbeddingModel batching = BatchingEmbeddingModel.builder(stub)
+                .maxInputsPerRequest(100)
+                .maxTokensPerRequest(250)
+                .tokenCountEstimator(new WordCountEstimator())
+                .build()) {
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                texts.add("chunk " + i + (i % 2 == 0 ? " with a few more words" : ""));
+            }
+            EmbeddingResponse response = batching.call(new EmbeddingRequest(texts, null));
+
+            assertEquals(texts.size(), response.getResults().size());
+            for (int i = 0; i < texts.size(); i++) {
+                assertEquals(i, response.getResults().get(i).getIndex());
+                assertArrayEquals(stub.vector(texts.get(i)), response.getResults().get(i).getOutput());
+            }
+            // 300 texts averaging 4.5 words: the token budget, not the input limit, decides
+            assertTrue(stub.calls.get() >= 6, "sent " + stub.calls.get() + " requests");
+            assertEquals(stub.calls.get(), batching.stats().requests());
+        }
+    }
+
+    @Test
+    void failuresReachEveryCoalescedCaller() throws Exception {
+        StubEmbeddingModel failing = new StubEmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                throw new IllegalStateException("provider down");
+            }
+        };
+        try (BatchingEmbeddingModel batching = BatchingEmbeddingModel.builder(failing)
+                .window(Duration.ofMillis(20)).build()) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String text = "text " + i;
+                futures.add(executor.submit(() -> {
+                    IllegalStateException e = assertThrows(IllegalStateException.class, () -> batching.embed(text));
+                    assertEquals("provider down", e.getMessage());
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+    }
+}
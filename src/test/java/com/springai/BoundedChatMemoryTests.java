@@ -0,0 +1,126 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the budgets of {@link BoundedChatMemory}, counting one token per word.
+ */
+class BoundedChatMemoryTests {
+
+    @Test
+    void compactsOldTurnsIntoSummaryWithinBudget() {
+        BoundedChatMemory memory = BoundedChatMemory.builder()
+                .maxTokensPerConversation(200)
+                .summaryTokens(60)
+                .tokenCountEstimator(new WordCountEstimator())
+                .build();
+        for (int turn = 0; turn < 30; turn++) {
+            memory.add("alice", List.of(
+                    new UserMessage("Question " + turn + " about the skills employers will prioritize?"),
+                    new AssistantMessage("Answer " + turn + " says analytical thinking leads. "
+                            + "It goes on with a long explanation that is not needed later on.")));
+            assertTrue(memory.stats().totalTokens() <= 200, "turn " + turn + ": " + memory.stats());
+        }
+
+        List<Message> messages = memory.get("alice");
+        assertEquals(MessageType.SYSTEM, messages.get(0).getMessageType());
+        String summary = messages.get(0).getText();
+        // The summary continues where the verbatim messages start, and the oldest lines made room
+        int firstVerbatim = Integer.parseInt(messages.get(1).getText().split(" ")[1]);
+        assertTrue(summary.contains("- User asked: Question " + (firstVerbatim - 1) + " about"), summary);
+        assertTrue(summary.contains("- Assistant answered: Answer " + (firstVerbatim - 1) + " says analytical thinking leads."),
+                summary);
+        assertFalse(summary.contains("long explanation"), summary);
+        assertFalse(summary.contains("Question 0 "), summary);
+        // Recent turns are verbatim and the latest one is last
+        assertEquals("Question 29 about the skills employers will prioritize?",
+                messages.get(messages.size() - 2).getText());
+        assertTrue(memory.stats().compactions() > 0);
+    }
+
+    @Test
+    void evictsIdleConversations() {
+        MutableClock clock = new MutableClock();
+        BoundedChatMemory memory = BoundedChatMemory.builder()
+                .idleTimeout(Duration.ofMinutes(20))
+                .tokenCountEstimator(new WordCountEstimator())
+                .clock(clock)
+                .build();
+        memory.add("idle", List.of(new UserMessage("hello there")));
+        clock.advance(Duration.ofMinutes(15));
+        memory.add("active", List.of(new UserMessage("hello again")));
+        clock.advance(Duration.ofMinutes(10));
+
+        // The next add triggers the sweep
+        memory.add("active", List.of(new AssistantMessage("hi")));
+        assertTrue(memory.get("idle").isEmpty());
+        assertEquals(2, memory.get("active").size());
+        assertEquals(1, memory.stats().evictions());
+        assertEquals(1, memory.stats().conversations());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedConversationsBeyondTotalBudget() {
+        MutableClock clock = new MutableClock();
+        BoundedChatMemory memory = BoundedChatMemory.builder()
+                .maxTotalTokens(100)
+                .tokenCountEstimator(new WordCountEstimator())
+                .clock(clock)
+                .build();
+        // 6 words plus 4 tokens of message overhead: 10 tokens per conversation
+        for (int i = 0; i < 10; i++) {
+            memory.add("user-" + i, List.of(new UserMessage("one two three four five six")));
+            clock.advance(Duration.ofSeconds(1));
+        }
+        memory.get("user-0");
+        memory.add("user-10", List.of(new UserMessage("one two three four five six")));
+
+        assertTrue(memory.stats().totalTokens() <= 90, memory.stats().toString());
+        assertFalse(memory.get("user-0").isEmpty(), "recently read conversation was evicted");
+        assertTrue(memory.get("user-1").isEmpty());
+        assertFalse(memory.get("user-10").isEmpty());
+    }
+
+    @Test
+    void concurrentConversationsStayConsistent() throws Exception {
+        BoundedChatMemory memory = BoundedChatMemory.builder()
+                .maxTokensPerConversation(1_000_000)
+                .tokenCountEstimator(new WordCountEstimator())
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    memory.add("conversation-" + (i % 50), List.of(new UserMessage("thread " + thread)));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int messages = 0;
+        for (int c = 0; c < 50; c++) {
+            messages += memory.get("conversation-" + c).size();
+        }
+        assertEquals(8 * 2000, messages);
+        // Two words plus overhead per message
+        assertEquals(8 * 2000 * 6, memory.stats().totalTokens());
+    }
+}
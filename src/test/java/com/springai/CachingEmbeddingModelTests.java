@@ -0,0 +1,196 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.openai.OpenAiEmbeddingOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link CachingEmbeddingModel} offline over {@link StubEmbeddingModel}.
+ */
+class CachingEmbeddingModelTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void repeatedAndEquivalentTextsHitTheMemoryTier() {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).modelName("test-model").build();
+
+        float[] first = cache.embed("What is Spring AI?");
+        float[] second = cache.embed("  What   is Spring AI?\n");
+        assertArrayEquals(first, second);
+        assertEquals(1, stub.texts.get());
+
+        // Only the new text of a mixed batch reaches the delegate, and order is preserved
+        List<float[]> batch = cache.embed(List.of("What is Spring AI?", "Who won the feud?"));
+        assertEquals(2, stub.texts.get());
+        assertEquals(2, stub.calls.get());
+        assertArrayEquals(first, batch.get(0));
+        assertArrayEquals(stub.vector("Who won the feud?"), batch.get(1));
+
+        // A different model is a different key
+        cache.call(new EmbeddingRequest(List.of("What is Spring AI?"),
+                OpenAiEmbeddingOptions.builder().model("other-model").build()));
+        assertEquals(3, stub.texts.get());
+
+        CachingEmbeddingModel.Stats stats = cache.stats();
+        assertEquals(2, stats.memoryHits());
+        assertEquals(3, stats.misses());
+        assertEquals(0.4, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    void callersCannotChangeCachedEmbeddings() {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).modelName("test-model").build();
+        float[] expected = stub.vector("What is Spring AI?");
+
+        // Vector stores normalize or otherwise edit embeddings in place, on a miss as well as a hit
+        float[] miss = cache.embed("What is Spring AI?");
+        miss[0] += 1;
+        float[] hit = cache.embed("What is Spring AI?");
+        assertArrayEquals(expected, hit);
+        hit[0] += 1;
+        assertArrayEquals(expected, cache.embed("What is Spring AI?"));
+        assertEquals(1, stub.texts.get());
+    }
+
+    @Test
+    void diskTierSurvivesRestart() {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        List<String> questions = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            questions.add("question number " + i);
+        }
+        List<float[]> expected;
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).directory(directory).build()) {
+            expected = cache.embed(questions);
+        }
+
+        StubEmbeddingModel restarted = new StubEmbeddingModel();
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(restarted).directory(directory).build()) {
+            List<float[]> actual = cache.embed(questions);
+            for (int i = 0; i < questions.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i));
+            }
+            assertEquals(0, restarted.calls.get());
+            assertEquals(50, cache.stats().diskHits());
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFromMemory() {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).maxEntries(2).build();
+        cache.embed("a");
+        cache.embed("b");
+        cache.embed("a");
+        cache.embed("c"); // evicts b
+        cache.embed("a");
+        assertEquals(3, stub.texts.get());
+        cache.embed("b");
+        assertEquals(4, stub.texts.get());
+    }
+
+    @Test
+    void discardsTornRecordAfterCrash() throws IOException {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).directory(directory).build()) {
+            cache.embed(List.of("kept one", "kept two"));
+        }
+        // Simulate a crash in the middle of appending a record
+        Files.write(directory.resolve("embeddings.bin"), new byte[] { 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND);
+
+        StubEmbeddingModel restarted = new StubEmbeddingModel();
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(restarted).directory(directory).build()) {
+            cache.embed(List.of("kept one", "kept two"));
+            assertEquals(0, restarted.calls.get());
+            cache.embed("new one");
+            assertEquals(1, restarted.calls.get());
+        }
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(new StubEmbeddingModel())
+                .directory(directory).build()) {
+            cache.embed(List.of("kept one", "kept two", "new one"));
+            assertEquals(3, cache.stats().diskHits());
+        }
+    }
+
+    @Test
+    void skipsDamagedRecordsAndKeepsTheOnesAfterThem() throws IOException {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        List<String> texts = List.of("first", "second", "third", "fourth");
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).directory(directory).build()) {
+            texts.forEach(cache::embed);
+        }
+        // Overwrite the vector of the second record, as another writer at a stale offset would
+        Path file = directory.resolve("embeddings.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        int recordBytes = bytes.length / texts.size();
+        for (int i = recordBytes + 40; i < recordBytes + 60; i++) {
+            bytes[i] ^= 0x5a;
+        }
+        Files.write(file, bytes);
+
+        StubEmbeddingModel restarted = new StubEmbeddingModel();
+        try (CachingEmbeddingModel cache = CachingEmbeddingModel.builder(restarted).directory(directory).build()) {
+            cache.embed(List.of("first", "third", "fourth"));
+            assertEquals(0, restarted.calls.get());
+            assertArrayEquals(stub.vector("second"), cache.embed("second"));
+            assertEquals(1, restarted.texts.get());
+        }
+        assertEquals(bytes.length + recordBytes, Files.size(file));
+    }
+
+    @Test
+    void secondCacheOnTheSameDirectoryStaysInMemory() throws IOException {
+        try (CachingEmbeddingModel owner = CachingEmbeddingModel.builder(new StubEmbeddingModel())
+                .directory(directory).build()) {
+            owner.embed("owned");
+            long size = Files.size(directory.resolve("embeddings.bin"));
+
+            StubEmbeddingModel stub = new StubEmbeddingModel();
+            try (CachingEmbeddingModel other = CachingEmbeddingModel.builder(stub).directory(directory).build()) {
+                other.embed("not owned");
+                other.embed("not owned");
+                assertEquals(1, stub.texts.get());
+                // Neither reads nor appends to the locked file
+                other.embed("owned");
+                assertEquals(2, stub.texts.get());
+            }
+            assertEquals(size, Files.size(directory.resolve("embeddings.bin")));
+        }
+        // Once the owner is closed, the next cache gets the file
+        try (CachingEmbeddingModel next = CachingEmbeddingModel.builder(new StubEmbeddingModel())
+                .directory(directory).build()) {
+            next.embed("owned");
+            assertEquals(1, next.stats().diskHits());
+        }
+    }
+
+    @Test
+    void reingestionSkipsTheEmbeddingModel() {
+        StubEmbeddingModel stub = new StubEmbeddingModel();
+        CachingEmbeddingModel cache = CachingEmbeddingModel.builder(stub).build();
+        List<Document> chunks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            chunks.add(new Document("chunk-" + i, "chunk text " + i, Map.of()));
+        }
+        new SimpleEmbeddingVectorStore(cache).add(chunks);
+        int calls = stub.calls.get();
+        new SimpleEmbeddingVectorStore(cache).add(chunks);
+        assertEquals(calls, stub.calls.get());
+    }
+}
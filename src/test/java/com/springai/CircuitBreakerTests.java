@@ -0,0 +1,62 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Walks a {@link CircuitBreaker} through its states on a {@link MutableClock}.
+ */
+class CircuitBreakerTests {
+
+    @Test
+    void opensAfterConsecutiveFailuresAndProbesOnce() {
+        MutableClock clock = new MutableClock();
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .failureThreshold(3)
+                .openDuration(Duration.ofSeconds(30))
+                .clock(clock)
+                .build();
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        // A success in between resets the count
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        clock.advance(Duration.ofSeconds(30));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only one probe at a time");
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        clock.advance(Duration.ofSeconds(30));
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(2, breaker.openedCount());
+        assertEquals(2, breaker.rejectedCalls());
+    }
+
+    @Test
+    void abandonedProbeReleasesPermission() {
+        MutableClock clock = new MutableClock();
+        CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(1).clock(clock).build();
+        breaker.onFailure();
+        clock.advance(Duration.ofMinutes(1));
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.isCallPermitted());
+        breaker.onIgnored();
+        assertTrue(breaker.isCallPermitted());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+}
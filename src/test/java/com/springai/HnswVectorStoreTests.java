@@ -0,0 +1,176 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link HnswVectorStore} with the brute-force search of {@link SimpleEmbeddingVectorStore}.
+ */
+class HnswVectorStoreTests {
+
+    private static final int DIMENSIONS = 64;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void recallAgainstExactSearch() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(3000, 1);
+        List<float[]> embeddings = randomVectors(documents.size());
+
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+        HnswVectorStore hnsw = HnswVectorStore.builder(embeddingModel).build();
+        hnsw.add(documents, embeddings);
+
+        double recall = recallAt(10, 100, embeddingModel, exact, hnsw);
+        System.out.printf("HNSW recall@10 over 3000 random vectors: %.3f%n", recall);
+        assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+
+    @Test
+    void concurrentInsertsProduceASearchableGraph() throws Exception {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(4000, 1);
+        List<float[]> embeddings = randomVectors(documents.size());
+        HnswVectorStore hnsw = HnswVectorStore.builder(embeddingModel).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int start = 0; start < documents.size(); start += 100) {
+            int from = start;
+            int to = Math.min(start + 100, documents.size());
+            futures.add(executor.submit(() -> hnsw.add(documents.subList(from, to), embeddings.subList(from, to))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(documents.size(), hnsw.size());
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+        double recall = recallAt(10, 100, embeddingModel, exact, hnsw);
+        System.out.printf("HNSW recall@10 after concurrent inserts: %.3f%n", recall);
+        assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+
+    @Test
+    void keepsSearchRequestSemantics() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(500, 5);
+        List<float[]> embeddings = randomVectors(documents.size());
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+        HnswVectorStore hnsw = HnswVectorStore.builder(embeddingModel).build();
+        hnsw.add(documents, embeddings);
+
+        embeddingModel.register("query", embeddings.get(7));
+
+        // A filter matching only a fifth of the corpus still yields topK matching documents
+        SearchRequest filtered = SearchRequest.builder().query("query").topK(20)
+                .filterExpression("group == 'group-3' && rank >= 10").build();
+        List<Document> expected = exact.similaritySearch(filtered);
+        List<Document> actual = hnsw.similaritySearch(filtered);
+        assertEquals(20, actual.size());
+        assertTrue(actual.stream().allMatch(d -> d.getMetadata().get("group").equals("group-3")));
+        assertEquals(ids(expected), ids(actual));
+
+        // Threshold semantics: nothing below the threshold, and the query document itself scores ~1
+        SearchRequest thresholded = SearchRequest.builder().query("query").topK(50).similarityThreshold(0.3).build();
+        List<Document> aboveThreshold = hnsw.similaritySearch(thresholded);
+        assertEquals(ids(exact.similaritySearch(thresholded)), ids(aboveThreshold));
+        assertEquals(documents.get(7).getId(), aboveThreshold.get(0).getId());
+        assertEquals(1.0, aboveThreshold.get(0).getScore(), 1e-5);
+        assertTrue(aboveThreshold.stream().allMatch(d -> d.getScore() >= 0.3));
+    }
+
+    @Test
+    void deletedDocumentsAreNeverReturned() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(300, 3);
+        List<float[]> embeddings = randomVectors(documents.size());
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+        HnswVectorStore hnsw = HnswVectorStore.builder(embeddingModel).build();
+        hnsw.add(documents, embeddings);
+        embeddingModel.register("query", embeddings.get(0));
+
+        for (VectorStore store : List.of(exact, hnsw)) {
+            store.delete(List.of(documents.get(0).getId()));
+        }
+        exact.delete(documents.stream().filter(d -> d.getMetadata().get("group").equals("group-1"))
+                .map(Document::getId).toList());
+        hnsw.delete("group == 'group-1'");
+
+        SearchRequest request = SearchRequest.builder().query("query").topK(300).build();
+        List<Document> results = hnsw.similaritySearch(request);
+        assertEquals(199, hnsw.size());
+        assertEquals(ids(exact.similaritySearch(request)), ids(results));
+        assertTrue(results.stream().noneMatch(d -> d.getId().equals(documents.get(0).getId())));
+        assertTrue(results.stream().noneMatch(d -> d.getMetadata().get("group").equals("group-1")));
+
+        // Rebuilding from the live documents leaves the tombstones behind
+        assertEquals(101, hnsw.tombstones());
+        HnswVectorStore rebuilt = HnswVectorStore.builder(embeddingModel).build();
+        hnsw.copyLiveTo(rebuilt);
+        assertEquals(199, rebuilt.size());
+        assertEquals(0, rebuilt.tombstones());
+        assertEquals(ids(exact.similaritySearch(request)), ids(rebuilt.similaritySearch(request)));
+    }
+
+    private double recallAt(int k, int queries, StubEmbeddingModel embeddingModel, VectorStore exact,
+            VectorStore approximate) {
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            embeddingModel.register("q" + q, randomVector());
+            SearchRequest request = SearchRequest.builder().query("q" + q).topK(k).build();
+            Set<String> truth = new HashSet<>(ids(exact.similaritySearch(request)));
+            hits += (int) ids(approximate.similaritySearch(request)).stream().filter(truth::contains).count();
+        }
+        return hits / (double) (k * queries);
+    }
+
+    private static List<Document> documents(int count, int groups) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document("doc-" + i, "document " + i,
+                    Map.of("group", "group-" + (i % groups), "rank", i / groups)));
+        }
+        return documents;
+    }
+
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector());
+        }
+        return vectors;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
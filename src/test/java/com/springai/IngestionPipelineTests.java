@@ -0,0 +1,187 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the ingestion pipeline offline against {@link StubEmbeddingModel}.
+ */
+class IngestionPipelineTests {
+
+    private final TokenTextSplitter splitter = new TokenTextSplitter(200, 50, 5, 10000, true);
+
+    @Test
+    void ingestsAllChunksAndReportsPerStageLatency() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(64, 20);
+        SimpleEmbeddingVectorStore vectorStore = new SimpleEmbeddingVectorStore(embeddingModel);
+
+        List<IngestionPipeline.Source> sources = IntStream.range(0, 4)
+                .mapToObj(i -> new IngestionPipeline.Source("test://source-" + i, slowReader(i, 10),
+                        Map.of("source", "source-" + i)))
+                .toList();
+        int expectedChunks = sources.stream()
+                .mapToInt(source -> splitter.split(source.reader().get()).size())
+                .sum();
+
+        IngestionReport report = IngestionPipeline.builder(embeddingModel, vectorStore)
+                .splitter(splitter)
+                .readerThreads(2)
+                .splitterThreads(2)
+                .embedderThreads(4)
+                .queueCapacity(8)
+                .embeddingBatchSize(16)
+                .build()
+                .run(sources);
+
+        System.out.println(report);
+
+        assertEquals(4, report.sources());
+        assertEquals(40, report.documents());
+        assertEquals(expectedChunks, report.chunks());
+        assertTrue(report.chunksPerSecond() > 0);
+        assertEquals(4, report.stages().size());
+        report.stages().forEach(stage -> assertTrue(stage.calls() > 0, stage.name() + " should have run"));
+        assertEquals(expectedChunks, embeddingModel.texts.get(), "each chunk is embedded exactly once");
+
+        List<Document> results = vectorStore.similaritySearch(SearchRequest.builder()
+                .query("topic 3 paragraph")
+                .topK(3)
+                .build());
+        assertEquals(3, results.size());
+        assertNotNull(results.get(0).getMetadata().get("source"));
+        assertNotNull(results.get(0).getMetadata().get("source_uri"));
+    }
+
+    @Test
+    void delegatesEmbeddingToStoresWithoutPrecomputedSupport() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+
+        IngestionReport report = IngestionPipeline.builder(embeddingModel, vectorStore)
+                .splitter(splitter)
+                .build()
+                .run(List.of(new IngestionPipeline.Source("test://plain", slowReader(1, 3))));
+
+        assertEquals(3, report.documents());
+        assertEquals(report.chunks(), embeddingModel.texts.get());
+        assertFalse(vectorStore.similaritySearch("topic 1").isEmpty());
+    }
+
+    @Test
+    void failureInAnyStageCancelsThePipeline() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        DocumentReader broken = () -> {
+            throw new IllegalStateException("unreadable PDF");
+        };
+
+        IngestionPipeline pipeline = IngestionPipeline.builder(embeddingModel,
+                new SimpleEmbeddingVectorStore(embeddingModel)).build();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline.run(List.of(
+                new IngestionPipeline.Source("test://ok", slowReader(0, 5)),
+                new IngestionPipeline.Source("test://broken", broken))));
+        assertTrue(e.getMessage().contains("reader stage failed"));
+    }
+
+    @Test
+    void warmRestartSkipsUnchangedChunksAndDeletesOrphans(@TempDir Path dir) {
+        Path manifestFile = dir.resolve("manifest.json");
+        File storeFile = dir.resolve("store.json").toFile();
+        List<IngestionPipeline.Source> sources = List.of(
+                new IngestionPipeline.Source("test://a", slowReader(1, 4)),
+                new IngestionPipeline.Source("test://b", slowReader(2, 4)));
+
+        // Cold start: everything is embedded
+        StubEmbeddingModel cold = new StubEmbeddingModel();
+        SimpleEmbeddingVectorStore coldStore = new SimpleEmbeddingVectorStore(cold);
+        IngestionManifest coldManifest = IngestionManifest.load(manifestFile, "stub");
+        IngestionReport first = ingest(cold, coldStore, coldManifest, sources);
+        coldStore.save(storeFile);
+        coldManifest.save();
+        assertTrue(first.chunks() > 0);
+        assertEquals(first.chunks(), cold.texts.get());
+
+        // Warm restart: nothing changed, so no embedding calls at all
+        StubEmbeddingModel warm = new StubEmbeddingModel();
+        SimpleEmbeddingVectorStore warmStore = new SimpleEmbeddingVectorStore(warm);
+        warmStore.load(storeFile);
+        IngestionManifest warmManifest = IngestionManifest.load(manifestFile, "stub");
+        IngestionReport second = ingest(warm, warmStore, warmManifest, sources);
+        System.out.println(second);
+        assertEquals(0, warm.calls.get());
+        assertEquals(0, second.chunks());
+        assertEquals(first.chunks(), second.unchangedChunks());
+        assertEquals(0, second.deletedChunks());
+
+        // Source a gains a page, source b is dropped: only new chunks are embedded, b's chunks are deleted
+        StubEmbeddingModel changed = new StubEmbeddingModel();
+        IngestionReport third = ingest(changed, warmStore, warmManifest,
+                List.of(new IngestionPipeline.Source("test://a", slowReader(1, 5))));
+        System.out.println(third);
+        assertEquals(third.chunks(), changed.texts.get());
+        assertTrue(third.chunks() > 0 && third.chunks() < first.chunks());
+        assertEquals(warmManifest.chunkIds("test://a").size(), third.chunks() + third.unchangedChunks());
+        assertTrue(third.deletedChunks() > 0);
+        assertFalse(warmManifest.sourceUris().contains("test://b"));
+        assertTrue(warmStore.similaritySearch(SearchRequest.builder().query("topic 2").topK(100).build()).stream()
+                .noneMatch(document -> "test://b".equals(document.getMetadata().get(IngestionPipeline.SOURCE_URI))));
+    }
+
+    @Test
+    void manifestWithDifferentFingerprintIsDiscarded(@TempDir Path dir) {
+        Path manifestFile = dir.resolve("manifest.json");
+        IngestionManifest manifest = IngestionManifest.load(manifestFile, "model-a");
+        manifest.put("test://a", "hash", Set.of("id-1"));
+        manifest.save();
+
+        assertEquals(Set.of("id-1"), IngestionManifest.load(manifestFile, "model-a").chunkIds("test://a"));
+        assertTrue(IngestionManifest.load(manifestFile, "model-b").sourceUris().isEmpty());
+    }
+
+    private IngestionReport ingest(StubEmbeddingModel embeddingModel, SimpleEmbeddingVectorStore vectorStore,
+            IngestionManifest manifest, List<IngestionPipeline.Source> sources) {
+        return IngestionPipeline.builder(embeddingModel, vectorStore)
+                .splitter(splitter)
+                .manifest(manifest)
+                .build()
+                .run(sources);
+    }
+
+    private static DocumentReader slowReader(int topic, int pages) {
+        return () -> {
+            try {
+                Thread.sleep(10L * pages);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Document> documents = new ArrayList<>();
+            for (int page = 0; page < pages; page++) {
+                StringBuilder text = new StringBuilder();
+                for (int sentence = 0; sentence < 60; sentence++) {
+                    text.append("Topic ").append(topic).append(" page ").append(page)
+                            .append(" paragraph ").append(sentence).append(" discusses item ")
+                            .append((sentence * 7 + page) % 13).append(". ");
+                }
+                documents.add(new Document(text.toString(), new HashMap<>(Map.of("page", page))));
+            }
+            return documents;
+        };
+    }
+}
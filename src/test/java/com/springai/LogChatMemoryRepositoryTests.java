@@ -0,0 +1,315 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restarts {@link LogChatMemoryRepository} on the same directory, with and without a clean close,
+ * and reads conversations back from the log once they are no longer cached.
+ */
+class LogChatMemoryRepositoryTests {
+
+    @TempDir
+    Path directory;
+
+    // Where a crashed process's files are copied to, since the process would hold the lock until it died
+    @TempDir
+    Path crashed;
+
+    @Test
+    void conversationsSurviveRestart() throws IOException {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory).build();
+        for (int c = 0; c < 1000; c++) {
+            List<Message> messages = new ArrayList<>();
+            for (int t = 0; t < 5; t++) {
+                messages.add(new UserMessage("Question " + t + " in conversation " + c));
+                messages.add(new AssistantMessage("Answer " + t, Map.of("model", "gpt-4o-mini")));
+                repository.saveAll("conversation-" + c, messages);
+            }
+        }
+        repository.deleteByConversationId("conversation-0");
+        // Never closed, like a crashed process: what was flushed must be enough
+        repository.flush();
+        System.out.println("Before restart: " + repository.stats());
+
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(crash()).build();
+        System.out.println("After restart: " + restarted.stats());
+        assertEquals(999, restarted.findConversationIds().size());
+        assertTrue(restarted.findByConversationId("conversation-0").isEmpty());
+        List<Message> messages = restarted.findByConversationId("conversation-7");
+        assertEquals(10, messages.size());
+        assertEquals(MessageType.USER, messages.get(8).getMessageType());
+        assertEquals("Question 4 in conversation 7", messages.get(8).getText());
+        assertEquals("gpt-4o-mini", messages.get(9).getMetadata().get("model"));
+        restarted.close();
+    }
+
+    @Test
+    void toolCallsToolResponsesAndMediaSurviveRestart() throws IOException {
+        Media image = Media.builder().mimeType(MimeTypeUtils.IMAGE_PNG).data(new byte[] {1, 2, 3}).name("dot")
+                .build();
+        Media remote = Media.builder().mimeType(MimeTypeUtils.IMAGE_JPEG).data("https://example.com/fruit.jpg")
+                .name("fruit").build();
+        List<Message> conversation = List.of(
+                new SystemMessage("Use the tools"),
+                UserMessage.builder().text("What is in these pictures, and what time is it?").media(image, remote)
+                        .build(),
+                new AssistantMessage("", Map.of(), List.of(
+                        new AssistantMessage.ToolCall("call-1", "function", "getCurrentDateTime", "{}"))),
+                new ToolResponseMessage(List.of(
+                        new ToolResponseMessage.ToolResponse("call-1", "getCurrentDateTime", "\"2026-10-17T10:00\""))),
+                new AssistantMessage("A dot and some fruit, at ten o'clock."));
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory).build();
+        repository.saveAll("alice", conversation.subList(0, 3));
+        repository.saveAll("alice", conversation);
+        repository.flush();
+
+        // From the segments, as after a crash, and from the snapshot written on close
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(crash()).build();
+        assertSameConversation(conversation, restarted.findByConversationId("alice"));
+        restarted.close();
+        repository.close();
+        LogChatMemoryRepository reopened = LogChatMemoryRepository.builder(directory).build();
+        assertSameConversation(conversation, reopened.findByConversationId("alice"));
+        reopened.close();
+    }
+
+    private static void assertSameConversation(List<Message> expected, List<Message> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getMessageType(), actual.get(i).getMessageType());
+            assertEquals(expected.get(i).getText(), actual.get(i).getText());
+        }
+        UserMessage user = (UserMessage) actual.get(1);
+        assertEquals(2, user.getMedia().size());
+        assertArrayEquals(new byte[] {1, 2, 3}, user.getMedia().get(0).getDataAsByteArray());
+        assertEquals(MimeTypeUtils.IMAGE_PNG, user.getMedia().get(0).getMimeType());
+        assertEquals("dot", user.getMedia().get(0).getName());
+        assertEquals("https://example.com/fruit.jpg", user.getMedia().get(1).getData());
+        assertEquals(((AssistantMessage) expected.get(2)).getToolCalls(),
+                ((AssistantMessage) actual.get(2)).getToolCalls());
+        assertEquals(((ToolResponseMessage) expected.get(3)).getResponses(),
+                ((ToolResponseMessage) actual.get(3)).getResponses());
+    }
+
+    @Test
+    void discardsTornRecordAtEndOfLog() throws IOException {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory).build();
+        repository.saveAll("alice", List.of(new UserMessage("first")));
+        repository.saveAll("alice", List.of(new UserMessage("first"), new AssistantMessage("second")));
+        repository.flush();
+        Path segment = files("segment-").get(0);
+        long complete = Files.size(segment);
+        repository.saveAll("alice", List.of(new UserMessage("first"), new AssistantMessage("second"),
+                new UserMessage("third, cut off by the crash")));
+        repository.flush();
+        // Simulate a crash (the first repository is never closed) halfway through the last append
+        Path copy = crash();
+        segment = copy.resolve(segment.getFileName());
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(complete + (Files.size(segment) - complete) / 2);
+        }
+
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(copy).build();
+        assertEquals(List.of("first", "second"),
+                restarted.findByConversationId("alice").stream().map(Message::getText).toList());
+        assertEquals(complete, Files.size(segment));
+        // The log continues cleanly after the truncated tail
+        restarted.saveAll("alice", List.of(new UserMessage("first"), new AssistantMessage("second"),
+                new UserMessage("third")));
+        restarted.close();
+        LogChatMemoryRepository reopened = LogChatMemoryRepository.builder(copy).build();
+        assertEquals(3, reopened.findByConversationId("alice").size());
+        reopened.close();
+    }
+
+    @Test
+    void snapshotsReplaceOldSegments() throws IOException {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory)
+                .segmentBytes(4096)
+                .snapshotBytes(16 * 1024)
+                .build();
+        for (int i = 0; i < 2000; i++) {
+            // Replacing the list, not extending it, logs the whole conversation each time
+            repository.saveAll("conversation-" + (i % 10), List.of(new UserMessage("message " + i)));
+        }
+        repository.flush();
+        assertTrue(files("segment-").size() <= 6, files("segment-").toString());
+        assertEquals(1, files("snapshot-").size());
+        repository.close();
+
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(directory).build();
+        assertEquals(10, restarted.findConversationIds().size());
+        assertEquals("message 1999", restarted.findByConversationId("conversation-9").get(0).getText());
+        restarted.close();
+    }
+
+    @Test
+    void keepsOnlyRecentConversationsInMemory() throws IOException {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory)
+                .segmentBytes(64 * 1024)
+                .snapshotBytes(256 * 1024)
+                .maxCachedConversations(10)
+                .build();
+        for (int c = 0; c < 1000; c++) {
+            List<Message> messages = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                messages.add(new UserMessage("Question " + t + " in conversation " + c));
+                messages.add(new AssistantMessage("Answer " + t));
+                repository.saveAll("conversation-" + c, messages);
+            }
+        }
+        repository.flush();
+        LogChatMemoryRepository.Stats stats = repository.stats();
+        System.out.println(stats);
+        assertEquals(1000, stats.conversations());
+        assertTrue(stats.cachedConversations() <= 10, stats.toString());
+        // Conversations compacted into the snapshot and ones still in segments are read back alike
+        assertFalse(files("snapshot-").isEmpty());
+        List<Message> compacted = repository.findByConversationId("conversation-3");
+        assertEquals("Question 2 in conversation 3", compacted.get(4).getText());
+        assertEquals(6, repository.findByConversationId("conversation-998").size());
+
+        // Extending a conversation read back from the log appends to it
+        List<Message> extended = new ArrayList<>(repository.findByConversationId("conversation-3"));
+        extended.add(new UserMessage("One more question"));
+        repository.saveAll("conversation-3", extended);
+        repository.deleteByConversationId("conversation-4");
+        repository.flush();
+        assertEquals(999, repository.findConversationIds().size());
+        for (int c = 0; c < 20; c++) {
+            repository.findByConversationId("conversation-" + (100 + c));
+        }
+        assertEquals(extended, repository.findByConversationId("conversation-3"));
+        assertTrue(repository.findByConversationId("conversation-4").isEmpty());
+        repository.close();
+
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(directory).build();
+        assertEquals(0, restarted.stats().cachedConversations());
+        assertEquals(999, restarted.stats().conversations());
+        assertEquals(7, restarted.findByConversationId("conversation-3").size());
+        restarted.close();
+    }
+
+    @Test
+    void directoryIsUsedByOneRepositoryAtATime() {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory).build();
+        repository.saveAll("alice", List.of(new UserMessage("hello")));
+        assertThrows(IllegalStateException.class, () -> LogChatMemoryRepository.builder(directory).build());
+        repository.close();
+
+        LogChatMemoryRepository reopened = LogChatMemoryRepository.builder(directory).build();
+        assertEquals("hello", reopened.findByConversationId("alice").get(0).getText());
+        reopened.close();
+    }
+
+    @Test
+    void groupsConcurrentWritesIntoFewFsyncs() throws Exception {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory)
+                .fsyncInterval(Duration.ofMillis(5))
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                List<Message> messages = new ArrayList<>();
+                for (int i = 0; i < 2500; i++) {
+                    messages.add(new UserMessage("thread " + thread + " message " + i));
+                    repository.saveAll("thread-" + thread, messages);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        repository.flush();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        LogChatMemoryRepository.Stats stats = repository.stats();
+        System.out.printf("%d saves in %.2f s (%.0f/s) with %d fsyncs, %d bytes logged%n",
+                stats.writes(), seconds, stats.writes() / seconds, stats.fsyncs(), stats.bytesWritten());
+        assertEquals(8 * 2500, stats.writes());
+        assertTrue(stats.fsyncs() < stats.writes() / 10, stats.toString());
+        repository.close();
+
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(directory).build();
+        assertEquals(2500, restarted.findByConversationId("thread-3").size());
+        restarted.close();
+    }
+
+    @Test
+    void boundedChatMemoryResumesAfterRestart() {
+        LogChatMemoryRepository repository = LogChatMemoryRepository.builder(directory).build();
+        BoundedChatMemory memory = BoundedChatMemory.builder()
+                .maxTokensPerConversation(200)
+                .summaryTokens(60)
+                .tokenCountEstimator(new WordCountEstimator())
+                .chatMemoryRepository(repository)
+                .build();
+        for (int turn = 0; turn < 30; turn++) {
+            memory.add("alice", List.of(new UserMessage("Question " + turn + " about skills?"),
+                    new AssistantMessage("Answer " + turn + " says analytical thinking leads.")));
+        }
+        List<Message> before = memory.get("alice");
+        repository.close();
+
+        LogChatMemoryRepository restarted = LogChatMemoryRepository.builder(directory).build();
+        BoundedChatMemory resumed = BoundedChatMemory.builder()
+                .maxTokensPerConversation(200)
+                .summaryTokens(60)
+                .tokenCountEstimator(new WordCountEstimator())
+                .chatMemoryRepository(restarted)
+                .build();
+        List<Message> after = resumed.get("alice");
+        assertEquals(before, after);
+        assertTrue(after.get(0).getMetadata().containsKey(BoundedChatMemory.SUMMARY_METADATA));
+        assertEquals(memory.stats().totalTokens(), resumed.stats().totalTokens());
+
+        resumed.clear("alice");
+        assertTrue(restarted.findByConversationId("alice").isEmpty());
+        restarted.close();
+    }
+
+    /** Copies the log files as a crash would leave them, for a new repository to recover from. */
+    private Path crash() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> !file.getFileName().toString().equals("lock")).toList()) {
+                Files.copy(file, crashed.resolve(file.getFileName()));
+            }
+        }
+        return crashed;
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link MappedVectorStore} ranks like the exact {@link SimpleEmbeddingVectorStore},
+ * including after the store is closed and reopened from disk.
+ */
+class MappedVectorStoreTests {
+
+    private static final int DIMENSIONS = 64;
+
+    private final Random random = new Random(7);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesExactSearch() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(1000, 5);
+        List<float[]> embeddings = randomVectors(documents.size());
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+
+        try (MappedVectorStore mapped = MappedVectorStore.builder(embeddingModel, directory).build()) {
+            mapped.add(documents, embeddings);
+            embeddingModel.register("query", embeddings.get(11));
+
+            SearchRequest plain = SearchRequest.builder().query("query").topK(10).build();
+            List<Document> results = mapped.similaritySearch(plain);
+            assertEquals(ids(exact.similaritySearch(plain)), ids(results));
+            assertEquals(documents.get(11).getId(), results.get(0).getId());
+            assertEquals("document 11", results.get(0).getText());
+            assertEquals(1.0, results.get(0).getScore(), 1e-5);
+
+            SearchRequest filtered = SearchRequest.builder().query("query").topK(20)
+                    .filterExpression("group == 'group-2' && rank >= 10").build();
+            assertEquals(ids(exact.similaritySearch(filtered)), ids(mapped.similaritySearch(filtered)));
+
+            SearchRequest thresholded = SearchRequest.builder().query("query").topK(50).similarityThreshold(0.2).build();
+            assertEquals(ids(exact.similaritySearch(thresholded)), ids(mapped.similaritySearch(thresholded)));
+        }
+    }
+
+    @Test
+    void reopensWithoutReloading() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(5000, 4);
+        List<float[]> embeddings = randomVectors(documents.size());
+        // Small segments so the vectors span many mapped regions
+        try (MappedVectorStore mapped = MappedVectorStore.builder(embeddingModel, directory)
+                .segmentBytes(64 * 1024).build()) {
+            for (int start = 0; start < documents.size(); start += 500) {
+                mapped.add(documents.subList(start, start + 500), embeddings.subList(start, start + 500));
+            }
+        }
+
+        // Measure only build(): creating any vector store builder loads the tokenizer of its default batching strategy
+        MappedVectorStore.Builder builder = MappedVectorStore.builder(embeddingModel, directory);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int embeddingCalls = embeddingModel.calls.get();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        try (MappedVectorStore reopened = builder.build()) {
+            long openMillis = (System.nanoTime() - started) / 1_000_000;
+            long openBytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+            System.out.println("Reopened mapped vector store with " + reopened.size() + " documents in "
+                    + openMillis + " ms, allocating " + openBytes + " bytes");
+            assertEquals(documents.size(), reopened.size());
+            // Nothing is embedded again, and the vectors stay in the mapped file instead of being read onto the heap
+            assertEquals(embeddingCalls, embeddingModel.calls.get());
+            long vectorBytes = (long) documents.size() * DIMENSIONS * Float.BYTES;
+            assertTrue(openBytes < vectorBytes / 4, "open allocated " + openBytes + " bytes");
+
+            SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+            exact.add(documents, embeddings);
+            for (int q = 0; q < 20; q++) {
+                embeddingModel.register("q" + q, randomVector());
+                SearchRequest request = SearchRequest.builder().query("q" + q).topK(10)
+                        .filterExpression("group == 'group-" + (q % 4) + "'").build();
+                assertEquals(ids(exact.similaritySearch(request)), ids(reopened.similaritySearch(request)));
+            }
+        }
+    }
+
+    @Test
+    void deletesAndUpdatesSurviveReopen() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(300, 3);
+        List<float[]> embeddings = randomVectors(documents.size());
+        try (MappedVectorStore mapped = MappedVectorStore.builder(embeddingModel, directory).build()) {
+            mapped.add(documents, embeddings);
+            mapped.delete(List.of(documents.get(0).getId()));
+            mapped.delete("group == 'group-1'");
+            // Re-adding an id replaces the old entry
+            mapped.add(List.of(new Document("doc-3", "updated", Map.of("group", "group-0", "rank", 1))),
+                    List.of(embeddings.get(3)));
+            assertEquals(199, mapped.size());
+        }
+
+        try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel, directory).build()) {
+            assertEquals(199, reopened.size());
+            embeddingModel.register("query", embeddings.get(3));
+            List<Document> results = reopened.similaritySearch(SearchRequest.builder().query("query").topK(300).build());
+            assertEquals("updated", results.get(0).getText());
+            assertEquals(1, results.stream().filter(d -> d.getId().equals("doc-3")).count());
+            assertTrue(results.stream().noneMatch(d -> d.getId().equals(documents.get(0).getId())));
+            assertTrue(results.stream().noneMatch(d -> d.getMetadata().get("group").equals("group-1")));
+
+            reopened.delete(List.of("doc-3"));
+            assertEquals(198, reopened.size());
+        }
+    }
+
+    @Test
+    void rejectsEmbeddingsOfAnotherDimension() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        try (MappedVectorStore mapped = MappedVectorStore.builder(embeddingModel, directory).build()) {
+            mapped.add(documents(1, 1), List.of(randomVector()));
+            assertThrows(IllegalArgumentException.class,
+                    () -> mapped.add(List.of(new Document("other", "other", Map.of())), List.of(new float[8])));
+        }
+    }
+
+    @Test
+    void directoryIsUsedByOneStoreAtATime() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        try (MappedVectorStore mapped = MappedVectorStore.builder(embeddingModel, directory).build()) {
+            mapped.add(documents(1, 1), List.of(randomVector()));
+            assertThrows(IllegalStateException.class, () -> MappedVectorStore.builder(embeddingModel, directory).build());
+            assertEquals(1, mapped.size());
+        }
+
+        try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel, directory).build()) {
+            assertEquals(1, reopened.size());
+        }
+    }
+
+    private static List<Document> documents(int count, int groups) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document("doc-" + i, "document " + i,
+                    Map.of("group", "group-" + (i % groups), "rank", i / groups)));
+        }
+        return documents;
+    }
+
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector());
+        }
+        return vectors;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the mcp profile with its STDIO server replaced by {@link StubMcpServer} and checks that
+ * each server runs as many processes as configured, none of them started by Spring AI's client.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.ai.openai.api-key=test",
+        "spring.ai.anthropic.api-key=test",
+        "app.mcp.client.processes-per-server=2"
+})
+@ActiveProfiles("mcp")
+class McpClientConfigTests {
+
+    // Tells the stub processes of this test apart from those of other tests
+    private static final String MARKER = "-Dmcp.stub=" + McpClientConfigTests.class.getSimpleName();
+
+    @DynamicPropertySource
+    static void stubServer(DynamicPropertyRegistry registry) {
+        String prefix = "app.mcp.client.stdio.connections.filesystem.";
+        registry.add(prefix + "command", () -> Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        registry.add(prefix + "args[0]", () -> MARKER);
+        registry.add(prefix + "args[1]", () -> "-XX:TieredStopAtLevel=1");
+        registry.add(prefix + "args[2]", () -> "-cp");
+        registry.add(prefix + "args[3]", () -> System.getProperty("java.class.path"));
+        registry.add(prefix + "args[4]", () -> StubMcpServer.class.getName());
+    }
+
+    @Test
+    void startsEachStdioServerOnlyForTheMultiplexedClient(@Autowired McpToolCatalog catalog) {
+        ToolCallback[] tools = catalog.getToolCallbacks();
+        assertTrue(Arrays.stream(tools).anyMatch(tool -> tool.getToolDefinition().name().endsWith("echo")),
+                Arrays.toString(tools));
+
+        long processes = ProcessHandle.current().descendants()
+                .filter(process -> process.info().commandLine().map(line -> line.contains(MARKER)).orElse(false))
+                .count();
+        assertEquals(2, processes);
+    }
+}
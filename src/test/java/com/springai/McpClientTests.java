@@ -31,13 +31,16 @@ public class McpClientTests {
     @Autowired
     private ChatModel chatModel;
     
-    @Autowired(required = false)
-    private List<ToolCallback> mcpTools;  // Auto-discovered MCP tools
+    @Autowired
+    private McpToolCatalog mcpToolCatalog;
+    
+    private List<ToolCallback> mcpTools;  // Tools of the configured MCP servers
     
     private ChatClient chatClient;
     
     @BeforeEach
     void setUp() {
+        mcpTools = List.of(mcpToolCatalog.getToolCallbacks());
         // Create a chat client with the specified model and MCP tools if available
         if (mcpTools != null && !mcpTools.isEmpty()) {
             chatClient = ChatClient.builder(chatModel)
@@ -0,0 +1,228 @@
+package com.springai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load harness for the HTTP MCP server: opens many SSE sessions against the running server, has
+ * each of them call a calculator tool one call after the other, and reports calls per second and
+ * latency. The defaults keep the build quick; raise the load with -Dmcp.load.sessions and
+ * -Dmcp.load.calls.
+ *
+ * The sessions speak JSON-RPC over one shared {@link HttpClient} rather than through the MCP SDK
+ * client, which brings its own HTTP client per session and loses track of responses when
+ * hundreds of them share a JVM.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"mcp-server", "mcp-server-http"})
+class McpServerLoadTests {
+
+    private static final int SESSIONS = Integer.getInteger("mcp.load.sessions", 200);
+    private static final int CALLS_PER_SESSION = Integer.getInteger("mcp.load.calls", 20);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void manySessionsCallToolsConcurrently() throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(new Session(http, URI.create("http://localhost:" + port)));
+        }
+        CompletableFuture.allOf(sessions.stream().map(Session::initialize).toArray(CompletableFuture[]::new))
+                .get(2, TimeUnit.MINUTES);
+        assertEquals(11, sessions.get(0).request("tools/list", Map.of()).get(30, TimeUnit.SECONDS)
+                .path("tools").size());
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger wrong = new AtomicInteger();
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            int session = s;
+            CompletableFuture<Void> run = CompletableFuture.completedFuture(null);
+            for (int c = 0; c < CALLS_PER_SESSION; c++) {
+                int call = c;
+                run = run.thenCompose(ignored -> {
+                    long asked = System.nanoTime();
+                    return sessions.get(session).request("tools/call",
+                            Map.of("name", "add", "arguments", Map.of("a", session, "b", call)))
+                            .thenAccept(result -> {
+                                latencies.add(System.nanoTime() - asked);
+                                String text = result.path("content").path(0).path("text").asText();
+                                if (result.path("isError").asBoolean() || Double.parseDouble(text) != session + call) {
+                                    wrong.incrementAndGet();
+                                }
+                            });
+                });
+            }
+            runs.add(run);
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        sessions.forEach(Session::close);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d MCP sessions x %d calls: %.0f calls/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                SESSIONS, CALLS_PER_SESSION, sorted.length / seconds, percentile(sorted, 0.50),
+                percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+
+        assertEquals(SESSIONS * CALLS_PER_SESSION, sorted.length);
+        assertEquals(0, wrong.get());
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * One MCP session: requests go out as POSTs to the message endpoint the server announces,
+     * responses come back as events on the SSE stream and complete the request with their id.
+     */
+    private static class Session {
+
+        private final HttpClient http;
+        private final URI base;
+        private final CompletableFuture<URI> endpoint = new CompletableFuture<>();
+        private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+        private final CompletableFuture<HttpResponse<Void>> stream;
+
+        Session(HttpClient http, URI base) {
+            this.http = http;
+            this.base = base;
+            this.stream = http.sendAsync(HttpRequest.newBuilder(base.resolve("/sse"))
+                            .header("Accept", "text/event-stream").build(),
+                    HttpResponse.BodyHandlers.fromLineSubscriber(new EventReader()));
+        }
+
+        CompletableFuture<Void> initialize() {
+            return request("initialize", Map.of("protocolVersion", "2024-11-05", "capabilities", Map.of(),
+                    "clientInfo", Map.of("name", "load-test", "version", "1.0")))
+                    .thenCompose(result -> post(Map.of("jsonrpc", "2.0", "method", "notifications/initialized")));
+        }
+
+        CompletableFuture<JsonNode> request(String method, Map<String, Object> params) {
+            long id = ids.incrementAndGet();
+            CompletableFuture<JsonNode> response = new CompletableFuture<>();
+            pending.put(id, response);
+            post(Map.of("jsonrpc", "2.0", "id", id, "method", method, "params", params))
+                    .exceptionally(error -> {
+                        response.completeExceptionally(error);
+                        return null;
+                    });
+            return response.orTimeout(60, TimeUnit.SECONDS).whenComplete((result, error) -> pending.remove(id));
+        }
+
+        private CompletableFuture<Void> post(Map<String, Object> message) {
+            return endpoint.thenCompose(uri -> {
+                String body;
+                try {
+                    body = MAPPER.writeValueAsString(message);
+                }
+                catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                return http.sendAsync(HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build(), HttpResponse.BodyHandlers.ofString())
+                        .thenAccept(response -> {
+                            if (response.statusCode() != 200) {
+                                throw new IllegalStateException("HTTP " + response.statusCode() + ": "
+                                        + response.body());
+                            }
+                        });
+            });
+        }
+
+        void close() {
+            stream.cancel(true);
+        }
+
+        private void onEvent(String event, String data) {
+            if ("endpoint".equals(event)) {
+                endpoint.complete(base.resolve(data));
+                return;
+            }
+            try {
+                JsonNode message = MAPPER.readTree(data);
+                CompletableFuture<JsonNode> response = pending.get(message.path("id").asLong());
+                if (response == null) {
+                    return;
+                }
+                if (message.has("error")) {
+                    response.completeExceptionally(new IllegalStateException(message.get("error").toString()));
+                }
+                else {
+                    response.complete(message.get("result"));
+                }
+            }
+            catch (Exception e) {
+                endpoint.completeExceptionally(e);
+            }
+        }
+
+        /** Collects the {@code event:} and {@code data:} lines of each server-sent event. */
+        private class EventReader implements Flow.Subscriber<String> {
+
+            private String event = "message";
+            private final StringBuilder data = new StringBuilder();
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String line) {
+                if (line.isEmpty()) {
+                    if (!data.isEmpty()) {
+                        onEvent(event, data.toString());
+                    }
+                    event = "message";
+                    data.setLength(0);
+                }
+                else if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                }
+                else if (line.startsWith("data:")) {
+                    data.append(line.substring(5).trim());
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                endpoint.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.springai;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 // Tool callback imports removed - relying on Spring AI auto-configuration
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -10,7 +13,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -108,6 +114,9 @@ public class McpServerTests {
         System.out.println("- power(double, double)");
         System.out.println("- calculateCompoundInterest(double, double, int, int)");
         System.out.println("- calculatePercentage(double, double)");
+        System.out.println("- calculateCompoundInterestBatch(double[], double[], int, int)");
+        System.out.println("- summaryStatistics(double[])");
+        System.out.println("- elementwise(String, double[], double[])");
         
         System.out.println("\nNote: Spring AI MCP auto-configuration should automatically");
         System.out.println("discover and expose these @Tool methods to MCP clients.");
@@ -128,6 +137,74 @@ public class McpServerTests {
         assertEquals(6.0, calculatorService.multiply(2, 3), 0.001);
     }
     
+    @Test
+    void batchToolsMatchScalarTools() {
+        double[] principals = {1000, 2500, 40000};
+        var batch = calculatorService.calculateCompoundInterestBatch(principals, new double[] {5, 3.5, 7}, 10, 12);
+        
+        assertEquals(calculatorService.calculateCompoundInterest(1000, 5, 10, 12).finalAmount(),
+                batch.finalAmounts()[0], 0.001);
+        assertEquals(calculatorService.calculateCompoundInterest(40000, 7, 10, 12).finalAmount(),
+                batch.finalAmounts()[2], 0.001);
+        assertEquals(43500, batch.totalPrincipal(), 0.001);
+        assertEquals(batch.finalAmounts()[0] + batch.finalAmounts()[1] + batch.finalAmounts()[2],
+                batch.totalFinalAmount(), 0.001);
+        
+        // A single rate applies to every principal
+        var sameRate = calculatorService.calculateCompoundInterestBatch(principals, new double[] {5}, 10, 12);
+        assertEquals(batch.finalAmounts()[0], sameRate.finalAmounts()[0], 0.001);
+        
+        var stats = calculatorService.summaryStatistics(new double[] {2, 4, 4, 4, 5, 5, 7, 9});
+        assertEquals(8, stats.count());
+        assertEquals(5.0, stats.mean(), 0.001);
+        assertEquals(2.0, stats.standardDeviation(), 0.001);
+        assertEquals(2.0, stats.min(), 0.001);
+        assertEquals(9.0, stats.max(), 0.001);
+        
+        assertArrayEquals(new double[] {11, 22, 33},
+                calculatorService.elementwise("add", new double[] {1, 2, 3}, new double[] {10, 20, 30}), 0.001);
+        assertArrayEquals(new double[] {2, 4, 6},
+                calculatorService.elementwise("multiply", new double[] {1, 2, 3}, new double[] {2}), 0.001);
+        assertArrayEquals(new double[] {1, 8, 27},
+                calculatorService.elementwise("power", new double[] {1, 2, 3}, new double[] {3}), 0.001);
+        
+        assertThrows(IllegalArgumentException.class, () ->
+            calculatorService.elementwise("divide", new double[] {1, 2}, new double[] {1, 0}));
+        assertThrows(IllegalArgumentException.class, () ->
+            calculatorService.elementwise("add", new double[] {1, 2, 3}, new double[] {1, 2}));
+        assertThrows(IllegalArgumentException.class, () ->
+            calculatorService.elementwise("modulo", new double[] {1}, new double[] {1}));
+        assertThrows(IllegalArgumentException.class, () ->
+            calculatorService.calculateCompoundInterestBatch(new double[] {1000, -1}, new double[] {5}, 10, 12));
+        assertThrows(IllegalArgumentException.class, () ->
+            calculatorService.summaryStatistics(new double[0]));
+    }
+    
+    @Test
+    void oneBatchToolCallCoversAWholeDataset() {
+        // What an MCP client sends: one tool call with 500 principals instead of 500 calls
+        ToolCallback tool = Arrays.stream(ToolCallbacks.from(calculatorService))
+                .filter(callback -> callback.getToolDefinition().name().equals("calculateCompoundInterestBatch"))
+                .findFirst()
+                .orElseThrow();
+        String principals = IntStream.rangeClosed(1, 500).mapToObj(i -> String.valueOf(i * 100))
+                .collect(Collectors.joining(","));
+        
+        String result = tool.call("{\"principals\": [" + principals + "], \"annualRates\": [5], "
+                + "\"years\": 10, \"compoundingFrequency\": 12}");
+        
+        System.out.println("Batch tool result: " + result.substring(0, 80) + "...");
+        assertTrue(result.contains("\"totalPrincipal\":1.2525E7"), result.substring(0, 200));
+        assertTrue(result.startsWith("{\"finalAmounts\":[164.70"), result.substring(0, 80));
+    }
+    
+    @Test
+    void publishesToolCacheMetrics(@Autowired MeterRegistry registry) {
+        // The memoization cache is a MeterBinder bean, bound to the actuator registry
+        assertFalse(registry.find("tool.cache.requests").tag("result", "hit").meters().isEmpty());
+        assertFalse(registry.find("tool.cache.hit.rate").gauges().isEmpty());
+    }
+    
     /**
      * Test configuration for MCP server.
      * Since Spring AI auto-discovers @Tool annotated methods,
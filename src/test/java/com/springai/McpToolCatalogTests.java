@@ -0,0 +1,149 @@
+package com.springai;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link McpToolCatalog} against {@link StubMcpServer} processes and reports how long
+ * warming them up takes.
+ */
+class McpToolCatalogTests {
+
+    // Each stub server takes this long to start, like npx fetching a package
+    private static final long STARTUP_DELAY_MILLIS = 1500;
+
+    private final List<McpSyncClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void closeClients() {
+        clients.forEach(McpSyncClient::close);
+    }
+
+    @Test
+    void warmsUpServersInParallel(@TempDir Path barrier) {
+        // Each server answers initialize only once all three have been asked, so warming them up
+        // one after the other would fail
+        AtomicReference<McpToolCatalog> catalog = new AtomicReference<>();
+        McpToolCatalog.Builder builder = McpToolCatalog.builder();
+        List<McpSyncClient> servers = new ArrayList<>();
+        for (String name : List.of("files", "search", "sqlite")) {
+            McpSyncClient client = stubClient(name, catalog, "-Dmcp.stub.barrier=" + barrier, "-Dmcp.stub.parties=3");
+            servers.add(client);
+            builder.server(name, client);
+        }
+        catalog.set(builder.build());
+
+        McpToolCatalog.WarmUp warmUp = catalog.get().warmUp();
+        long sequential = warmUp.servers().values().stream().mapToLong(Duration::toMillis).sum();
+        System.out.printf("Warm-up of 3 MCP servers: %d ms (%d ms one after the other)%n",
+                warmUp.elapsed().toMillis(), sequential);
+        assertEquals(Map.of(), warmUp.failures());
+        assertEquals(3, warmUp.servers().size());
+        assertTrue(servers.stream().allMatch(McpSyncClient::isInitialized));
+        assertEquals(3, catalog.get().loads());
+
+        // The first call neither connects nor lists tools
+        ToolCallback echo = find(catalog.get().getToolCallbacks(), "files", "echo");
+        assertEquals("[{\"text\":\"hello\"}]", echo.call("{\"text\": \"hello\"}"));
+        assertEquals(3, catalog.get().loads());
+
+        // A server nobody warmed up is connected to on the first call
+        AtomicReference<McpToolCatalog> coldCatalog = new AtomicReference<>();
+        McpSyncClient cold = stubClient("cold", coldCatalog);
+        coldCatalog.set(McpToolCatalog.builder().server("cold", cold).build());
+        assertFalse(cold.isInitialized());
+        find(coldCatalog.get().getToolCallbacks(), "cold", "echo").call("{\"text\": \"hello\"}");
+        assertTrue(cold.isInitialized());
+        assertEquals(1, coldCatalog.get().loads());
+    }
+
+    @Test
+    void cachesToolListsUntilTheServerReportsAChange() throws Exception {
+        AtomicReference<McpToolCatalog> catalog = new AtomicReference<>();
+        catalog.set(McpToolCatalog.builder().server("files", stubClient("files", catalog)).build());
+
+        assertEquals(4, catalog.get().getToolCallbacks().length);
+        assertEquals(4, catalog.get().getToolCallbacks().length);
+        assertEquals(1, catalog.get().loads());
+
+        find(catalog.get().getToolCallbacks(), "files", "addTool").call("{\"text\": \"grep\"}");
+        // The notification arrives on its own after the call
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (catalog.get().getToolCallbacks().length != 5 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        ToolCallback grep = find(catalog.get().getToolCallbacks(), "files", "grep");
+        assertEquals("[{\"text\":\"grep\"}]", grep.call("{}"));
+        // Taken from the notification, not fetched again
+        assertEquals(1, catalog.get().loads());
+
+        catalog.get().invalidate("files");
+        assertEquals(5, catalog.get().getToolCallbacks().length);
+        assertEquals(2, catalog.get().loads());
+    }
+
+    @Test
+    void leavesOutServersThatCannotStart() {
+        AtomicReference<McpToolCatalog> catalog = new AtomicReference<>();
+        McpSyncClient broken = McpClient.sync(new StdioClientTransport(
+                        ServerParameters.builder("no-such-mcp-server").build()))
+                .clientInfo(new McpSchema.Implementation("broken", "1.0"))
+                .requestTimeout(Duration.ofSeconds(2))
+                .build();
+        clients.add(broken);
+        catalog.set(McpToolCatalog.builder()
+                .server("files", stubClient("files", catalog))
+                .server("broken", broken)
+                .build());
+
+        McpToolCatalog.WarmUp warmUp = catalog.get().warmUp();
+
+        assertEquals(List.of("files"), List.copyOf(warmUp.servers().keySet()));
+        assertTrue(warmUp.failures().containsKey("broken"));
+        long started = System.nanoTime();
+        assertEquals(4, catalog.get().getToolCallbacks().length);
+        // Not tried again right away
+        assertTrue(System.nanoTime() - started < Duration.ofSeconds(1).toNanos());
+    }
+
+    private McpSyncClient stubClient(String name, AtomicReference<McpToolCatalog> catalog, String... properties) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> args = new ArrayList<>(List.of(properties));
+        args.addAll(List.of("-Xshare:auto", "-XX:TieredStopAtLevel=1", "-cp", System.getProperty("java.class.path"),
+                StubMcpServer.class.getName(), String.valueOf(STARTUP_DELAY_MILLIS)));
+        ServerParameters parameters = ServerParameters.builder(java).args(args).build();
+        McpSyncClient client = McpClient.sync(new StdioClientTransport(parameters))
+                .clientInfo(new McpSchema.Implementation(name, "1.0"))
+                .requestTimeout(Duration.ofSeconds(30))
+                .initializationTimeout(Duration.ofSeconds(60))
+                .toolsChangeConsumer(tools -> catalog.get().toolsChanged(name, tools))
+                .build();
+        clients.add(client);
+        return client;
+    }
+
+    private static ToolCallback find(ToolCallback[] callbacks, String server, String tool) {
+        return Arrays.stream(callbacks)
+                .filter(callback -> callback.getToolDefinition().name().equals(server + "_" + tool))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No tool " + tool + " of " + server + " in "
+                        + Arrays.stream(callbacks).map(callback -> callback.getToolDefinition().name()).toList()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.springai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks which tools {@link MemoizingToolCallback} memoizes, how arguments are matched and how
+ * the cache stays bounded.
+ */
+class MemoizingToolCallbackTests {
+
+    @Test
+    void memoizesOnlyDeterministicTools() {
+        MemoizingToolCallback.Cache cache = MemoizingToolCallback.Cache.builder().build();
+        ToolCallback[] callbacks = MemoizingToolCallback.from(cache, new CalculatorService(), new DateTimeTools());
+
+        assertInstanceOf(MemoizingToolCallback.class, find(callbacks, "add"));
+        assertInstanceOf(MemoizingToolCallback.class, find(callbacks, "calculateCompoundInterestBatch"));
+        assertFalse(find(callbacks, "getCurrentDateTime") instanceof MemoizingToolCallback);
+    }
+
+    @Test
+    void answersEquivalentArgumentsFromTheCache() {
+        CountingTools tools = new CountingTools();
+        MemoizingToolCallback.Cache cache = MemoizingToolCallback.Cache.builder().build();
+        ToolCallback[] callbacks = MemoizingToolCallback.from(cache, tools);
+        ToolCallback square = find(callbacks, "sumOfSquares");
+
+        String first = square.call("{\"values\": [1, 2, 3], \"offset\": 0}");
+        // Same arguments in another order, spacing and number notation
+        String second = square.call("{ \"offset\":0.0,\"values\":[1.0,2e0,3] }");
+        String other = square.call("{\"values\": [1, 2, 4], \"offset\": 0}");
+
+        assertEquals("14.0", first);
+        assertEquals(first, second);
+        assertEquals("21.0", other);
+        assertEquals(2, tools.sums.get());
+        assertEquals(new MemoizingToolCallback.Cache.Stats(1, 2, 0, 2, 8), cache.stats());
+
+        // Tools without @Deterministic run on every call
+        ToolCallback ticket = find(callbacks, "nextTicket");
+        assertNotEquals(ticket.call("{}"), ticket.call("{}"));
+        assertEquals(2, tools.tickets.get());
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        MemoizingToolCallback.Cache cache = MemoizingToolCallback.Cache.builder().build();
+        ToolCallback divide = find(MemoizingToolCallback.from(cache, new CalculatorService()), "divide");
+
+        assertThrows(RuntimeException.class, () -> divide.call("{\"a\": 1, \"b\": 0}"));
+        assertThrows(RuntimeException.class, () -> divide.call("{\"a\": 1, \"b\": 0}"));
+        assertEquals(0, cache.stats().entries());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedResults() {
+        CountingTools tools = new CountingTools();
+        MemoizingToolCallback.Cache cache = MemoizingToolCallback.Cache.builder().maxEntries(2).build();
+        ToolCallback square = find(MemoizingToolCallback.from(cache, tools), "sumOfSquares");
+
+        square.call("{\"values\": [1], \"offset\": 0}");
+        square.call("{\"values\": [2], \"offset\": 0}");
+        square.call("{\"values\": [1], \"offset\": 0}");
+        // Evicts [2], which was used least recently
+        square.call("{\"values\": [3], \"offset\": 0}");
+        square.call("{\"values\": [1], \"offset\": 0}");
+        square.call("{\"values\": [2], \"offset\": 0}");
+
+        assertEquals(4, tools.sums.get());
+        assertEquals(2, cache.stats().evictions());
+        assertEquals(2, cache.stats().entries());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        assertEquals(2, registry.get("tool.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(4, registry.get("tool.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1 / 3.0, registry.get("tool.cache.hit.rate").gauge().value(), 1e-9);
+    }
+
+    private static ToolCallback find(ToolCallback[] callbacks, String name) {
+        return Arrays.stream(callbacks)
+                .filter(callback -> callback.getToolDefinition().name().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    static class CountingTools {
+        final AtomicInteger sums = new AtomicInteger();
+        final AtomicInteger tickets = new AtomicInteger();
+
+        @Deterministic
+        @Tool(description = "Sum of the squares of the values plus an offset")
+        public double sumOfSquares(double[] values, double offset) {
+            sums.incrementAndGet();
+            double sum = offset;
+            for (double value : values) {
+                sum += value * value;
+            }
+            return sum;
+        }
+
+        @Tool(description = "Hands out the next ticket number")
+        public int nextTicket() {
+            return tickets.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.springai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.RetryUtils;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResponseErrorHandler;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks limits, priorities and tenant fairness of {@link ModelCallScheduler} with real time and
+ * small budgets.
+ */
+class ModelCallSchedulerTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void keepsConcurrentCallsWithinRequestRate() throws Exception {
+        // 40 requests per second, at most 4 at once
+        ModelCallScheduler scheduler = ModelCallScheduler.builder()
+                .provider("openai-chat", 2400, 0)
+                .burst(Duration.ofMillis(100))
+                .build();
+        StubChatModel stub = new StubChatModel();
+        ChatModel chatModel = scheduler.chatModel("openai-chat", stub);
+
+        long started = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 5; i++) {
+                    chatModel.call(new Prompt("question"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("40 calls in %.2f s: %s%n", seconds, scheduler.stats());
+        assertEquals(40, stub.calls.get());
+        // The 36 calls beyond the burst need 0.9 s at 40 per second
+        assertTrue(seconds >= 0.8, "took " + seconds + " s");
+        assertEquals(40, scheduler.stats().get(0).granted());
+    }
+
+    @Test
+    void metersEstimatedTokens() {
+        // 1000 tokens per second, at most 100 at once
+        ModelCallScheduler scheduler = ModelCallScheduler.builder()
+                .provider("openai-embedding", 0, 60_000)
+                .burst(Duration.ofMillis(100))
+                .tokenCountEstimator(new WordCountEstimator())
+                .build();
+        String hundredWords = "word ".repeat(100);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            scheduler.execute("openai-embedding", new WordCountEstimator().estimate(hundredWords), result -> 0,
+                    () -> "embedded");
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        // The first call fits the burst, the other four wait 100 ms each
+        assertTrue(seconds >= 0.35, "took " + seconds + " s");
+        // Providers without limits are not metered
+        assertEquals("free", scheduler.execute("anthropic-chat", 1_000_000, result -> 0, () -> "free"));
+    }
+
+    @Test
+    void interactiveCallsOvertakeQueuedBackgroundWork() throws Exception {
+        ModelCallScheduler scheduler = saturated();
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(submit(scheduler, "ingestion", ModelCallScheduler.Priority.BACKGROUND, "background", order));
+        }
+        awaitQueued(scheduler, 6);
+        for (int i = 0; i < 2; i++) {
+            futures.add(submit(scheduler, "alice", ModelCallScheduler.Priority.INTERACTIVE, "interactive", order));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertEquals(List.of("interactive", "interactive"), order.subList(0, 2), order.toString());
+    }
+
+    @Test
+    void tenantsAreServedRoundRobin() throws Exception {
+        ModelCallScheduler scheduler = saturated();
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(submit(scheduler, "busy", ModelCallScheduler.Priority.INTERACTIVE, "busy", order));
+        }
+        awaitQueued(scheduler, 10);
+        for (int i = 0; i < 2; i++) {
+            futures.add(submit(scheduler, "quiet", ModelCallScheduler.Priority.INTERACTIVE, "quiet", order));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        // The quiet tenant alternates with the busy one instead of waiting behind all ten calls
+        assertEquals(List.of("busy", "quiet", "busy", "quiet"), order.subList(0, 4), order.toString());
+    }
+
+    @Test
+    void rateLimitedResponsePausesProvider() {
+        // 10 requests per second, 10 at once
+        ModelCallScheduler scheduler = ModelCallScheduler.builder()
+                .provider("openai-chat", 600, 0)
+                .burst(Duration.ofSeconds(1))
+                .build();
+        HttpClientErrorException tooManyRequests = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS,
+                "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null);
+        scheduler.execute("openai-chat", 0, result -> 0, () -> "ok");
+        // Only the status counts, not a message that happens to mention it
+        assertThrows(IllegalStateException.class, () -> scheduler.execute("openai-chat", 0, result -> 0, () -> {
+            throw new IllegalStateException("HTTP 429 - Rate limit reached for requests");
+        }));
+        assertEquals(0, scheduler.stats().get(0).throttled());
+        assertThrows(HttpClientErrorException.class, () -> scheduler.execute("openai-chat", 0, result -> 0, () -> {
+            throw tooManyRequests;
+        }));
+
+        long started = System.nanoTime();
+        scheduler.execute("openai-chat", 0, result -> 0, () -> "ok");
+        double millis = (System.nanoTime() - started) / 1e6;
+        // Without the 429 the burst had room for 7 more calls
+        assertTrue(millis >= 80, "waited " + millis + " ms");
+        assertEquals(1, scheduler.stats().get(0).throttled());
+    }
+
+    @Test
+    void rateLimitedResponsesKeepTheirStatus() throws Exception {
+        ResponseErrorHandler handler =
+                ModelCallScheduler.keepRateLimitStatus(RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER);
+        URI url = URI.create("https://api.openai.com/v1/chat/completions");
+
+        ClientHttpResponse tooMany = new MockClientHttpResponse("slow down".getBytes(), HttpStatus.TOO_MANY_REQUESTS);
+        assertTrue(handler.hasError(tooMany));
+        // Spring AI's own exception is kept, with the status attached as its cause
+        Exception error = assertThrows(NonTransientAiException.class,
+                () -> handler.handleError(url, HttpMethod.POST, tooMany));
+        assertInstanceOf(HttpClientErrorException.TooManyRequests.class, error.getCause());
+
+        ClientHttpResponse unavailable = new MockClientHttpResponse(new byte[0], HttpStatus.SERVICE_UNAVAILABLE);
+        assertThrows(TransientAiException.class, () -> handler.handleError(url, HttpMethod.POST, unavailable));
+    }
+
+    /** A provider with one request every 100 ms and its budget just spent. */
+    private static ModelCallScheduler saturated() {
+        ModelCallScheduler scheduler = ModelCallScheduler.builder()
+                .provider("openai-chat", 600, 0)
+                .burst(Duration.ofMillis(100))
+                .build();
+        scheduler.execute("openai-chat", 0, result -> 0, () -> "spend the burst");
+        return scheduler;
+    }
+
+    private Future<?> submit(ModelCallScheduler scheduler, String tenant, ModelCallScheduler.Priority priority,
+            String label, List<String> order) {
+        return executor.submit(() -> ModelCallScheduler.callAs(tenant, priority,
+                () -> scheduler.execute("openai-chat", 0, result -> 0, () -> order.add(label))));
+    }
+
+    private static void awaitQueued(ModelCallScheduler scheduler, int queued) throws InterruptedException {
+        for (int i = 0; i < 200 && scheduler.stats().get(0).queued() < queued; i++) {
+            Thread.sleep(1);
+        }
+        assertEquals(queued, scheduler.stats().get(0).queued());
+    }
+}
@@ -0,0 +1,137 @@
+package com.springai;
+
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link MultiplexedMcpClient} against {@link StubMcpServer} processes: many calls in flight
+ * on one connection, per-call timeouts and cancellation, and a benchmark of tool call throughput
+ * by concurrency and number of server processes.
+ */
+class MultiplexedMcpClientTests {
+
+    // Latency of the stub's "sleep" tool in the benchmark, like a slow file system call
+    private static final long TOOL_MILLIS = 50;
+
+    private final List<MultiplexedMcpClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void closeClients() {
+        clients.forEach(MultiplexedMcpClient::close);
+    }
+
+    @Test
+    void matchesConcurrentResponsesToTheirRequests() throws Exception {
+        MultiplexedMcpClient client = stubClient(1);
+        client.initialize();
+        assertEquals(List.of("echo", "sleep", "cancelled", "addTool"),
+                client.listTools().stream().map(McpSchema.Tool::name).toList());
+
+        List<CompletableFuture<McpSchema.CallToolResult>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(client.callToolAsync(new McpSchema.CallToolRequest("echo", Map.of("text", "call " + i)),
+                    Duration.ofSeconds(30)));
+        }
+        for (int i = 0; i < calls.size(); i++) {
+            McpSchema.CallToolResult result = calls.get(i).get(30, TimeUnit.SECONDS);
+            assertEquals("call " + i, ((McpSchema.TextContent) result.content().get(0)).text());
+        }
+        assertEquals(0, client.inFlight());
+    }
+
+    @Test
+    void timesOutAndCancelsSingleCalls() throws Exception {
+        MultiplexedMcpClient client = stubClient(1);
+        client.initialize();
+
+        long started = System.nanoTime();
+        CompletableFuture<McpSchema.CallToolResult> slow = client.callToolAsync(
+                new McpSchema.CallToolRequest("sleep", Map.of("millis", 10_000)), Duration.ofMillis(200));
+        ExecutionException timeout = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertTrue(System.nanoTime() - started < Duration.ofSeconds(2).toNanos());
+
+        CompletableFuture<McpSchema.CallToolResult> abandoned = client.callToolAsync(
+                new McpSchema.CallToolRequest("sleep", Map.of("millis", 10_000)), Duration.ofSeconds(30));
+        abandoned.cancel(true);
+
+        // The connection carries on with other calls
+        McpSchema.CallToolResult echo = client.callTool(new McpSchema.CallToolRequest("echo", Map.of("text", "hi")));
+        assertEquals("hi", ((McpSchema.TextContent) echo.content().get(0)).text());
+        assertEquals(1, client.timedOut());
+        assertEquals(1, client.cancelled());
+        assertEquals(0, client.inFlight());
+        // Both calls were called off on the server as well
+        McpSchema.CallToolResult cancelled = client.callTool(new McpSchema.CallToolRequest("cancelled", Map.of()));
+        assertEquals("2", ((McpSchema.TextContent) cancelled.content().get(0)).text());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void throughputScalesWithConcurrency() throws Exception {
+        System.out.printf("Tool calls of %d ms per second, by calls in flight:%n", TOOL_MILLIS);
+        System.out.println("in flight | 1 process | 2 processes");
+        double[][] throughput = new double[2][];
+        int[] concurrency = {1, 4, 16};
+        for (int processes = 1; processes <= 2; processes++) {
+            MultiplexedMcpClient client = stubClient(processes);
+            client.initialize();
+            throughput[processes - 1] = new double[concurrency.length];
+            for (int i = 0; i < concurrency.length; i++) {
+                throughput[processes - 1][i] = callsPerSecond(client, concurrency[i], 4 * concurrency[i] + 8);
+            }
+        }
+        for (int i = 0; i < concurrency.length; i++) {
+            System.out.printf("%9d | %9.0f | %11.0f%n", concurrency[i], throughput[0][i], throughput[1][i]);
+        }
+
+        // One call at a time is bound by the tool's latency, pipelined calls are not
+        assertTrue(throughput[0][1] > 2.5 * throughput[0][0]);
+        assertTrue(throughput[0][2] > 2.5 * throughput[0][1] || throughput[1][2] > 2.5 * throughput[1][1]);
+    }
+
+    private static double callsPerSecond(MultiplexedMcpClient client, int concurrency, int calls) throws Exception {
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < concurrency; lane++) {
+            CompletableFuture<Void> run = CompletableFuture.completedFuture(null);
+            for (int call = 0; call < calls / concurrency; call++) {
+                run = run.thenCompose(ignored -> client.callToolAsync(
+                        new McpSchema.CallToolRequest("sleep", Map.of("millis", TOOL_MILLIS)), Duration.ofSeconds(30))
+                        .thenApply(result -> null));
+            }
+            lanes.add(run);
+        }
+        CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+        return concurrency * (calls / concurrency) / ((System.nanoTime() - started) / 1e9);
+    }
+
+    private MultiplexedMcpClient stubClient(int processes) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        MultiplexedMcpClient client = MultiplexedMcpClient.builder(ServerParameters.builder(java)
+                        .args("-XX:TieredStopAtLevel=1", "-cp", System.getProperty("java.class.path"),
+                                StubMcpServer.class.getName())
+                        .build())
+                .clientInfo(new McpSchema.Implementation("stub", "1.0"))
+                .processes(processes)
+                .requestTimeout(Duration.ofSeconds(60))
+                .build();
+        clients.add(client);
+        return client;
+    }
+}
@@ -0,0 +1,237 @@
+package com.springai;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.observation.ToolCallingObservationContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs multi-tool responses through {@link ParallelToolCallingManager} with the calculator and
+ * date-time tools and with stub tools that sleep or wait for each other.
+ */
+class ParallelToolCallingManagerTests {
+
+    private final ParallelToolCallingManager manager = ParallelToolCallingManager.builder()
+            .timeout(Duration.ofSeconds(5))
+            .timeout("hang", Duration.ofMillis(100))
+            .build();
+
+    @AfterEach
+    void close() {
+        manager.close();
+        LocaleContextHolder.resetLocaleContext();
+    }
+
+    @Test
+    void runsToolsConcurrently() {
+        // Each tool waits until all three have started, which never happens if they run one after the other
+        CountDownLatch started = new CountDownLatch(3);
+        List<ToolCallback> tools = List.of(concurrent("lookup", started, 300), concurrent("search", started, 200),
+                concurrent("fetch", started, 100));
+        List<AssistantMessage.ToolCall> calls = List.of(call("1", "lookup", "{}"), call("2", "search", "{}"),
+                call("3", "fetch", "{}"));
+
+        List<ToolResponseMessage.ToolResponse> responses = execute(tools, calls);
+
+        assertEquals(List.of("lookup done", "search done", "fetch done"),
+                responses.stream().map(ToolResponseMessage.ToolResponse::responseData).toList());
+        // The fastest tool finished first, but responses keep the order of the calls
+        assertEquals(List.of("1", "2", "3"), responses.stream().map(ToolResponseMessage.ToolResponse::id).toList());
+        assertEquals(3, manager.calls());
+    }
+
+    @Test
+    void runsCalculatorAndDateTimeToolsInTheCallersTimeZone() {
+        LocaleContextHolder.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        List<ToolCallback> tools = new ArrayList<>(List.of(ToolCallbacks.from(new CalculatorService())));
+        tools.addAll(List.of(ToolCallbacks.from(new DateTimeTools())));
+        List<AssistantMessage.ToolCall> calls = List.of(
+                call("a", "add", "{\"a\": 2, \"b\": 3}"),
+                call("b", "getCurrentDateTime", ""),
+                call("c", "divide", "{\"a\": 1, \"b\": 0}"),
+                call("d", "multiply", "{\"a\": 4, \"b\": 2.5}"));
+
+        List<ToolResponseMessage.ToolResponse> responses = execute(tools, calls);
+
+        assertEquals("5.0", responses.get(0).responseData());
+        assertTrue(responses.get(1).responseData().contains("Asia/Tokyo"), responses.get(1).responseData());
+        // A failing tool reports its error to the model and does not affect the others
+        assertTrue(responses.get(2).responseData().contains("Cannot divide by zero"),
+                responses.get(2).responseData());
+        assertEquals("10.0", responses.get(3).responseData());
+    }
+
+    @Test
+    void cancelsToolsThatExceedTheirTimeout() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ToolCallback hang = tool("hang", () -> {
+            try {
+                // Far beyond the 100 ms timeout of hang
+                Thread.sleep(10_000);
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        });
+
+        List<ToolResponseMessage.ToolResponse> responses = execute(List.of(hang, sleeping("lookup", 50)),
+                List.of(call("1", "hang", "{}"), call("2", "lookup", "{}")));
+
+        assertTrue(responses.get(0).responseData().contains("did not finish within"),
+                responses.get(0).responseData());
+        assertEquals("lookup done", responses.get(1).responseData());
+        assertEquals(1, manager.timedOut());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "hang was not interrupted");
+    }
+
+    @Test
+    void timeoutStartsWhenAThreadIsFree() {
+        // Twice as many calls as there are platform threads: the second half waits for the first
+        ParallelToolCallingManager manager = ParallelToolCallingManager.builder()
+                .timeout(Duration.ofMillis(500))
+                .build();
+        List<AssistantMessage.ToolCall> calls = new ArrayList<>();
+        for (int i = 0; i < 128; i++) {
+            calls.add(call(String.valueOf(i), "lookup", "{}"));
+        }
+        try {
+            List<ToolResponseMessage.ToolResponse> responses = execute(manager, List.of(sleeping("lookup", 300)),
+                    calls);
+            assertTrue(responses.stream().allMatch(response -> response.responseData().equals("lookup done")));
+            assertEquals(0, manager.timedOut());
+        }
+        finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void recordsAnObservationPerToolCall() {
+        ObservationRegistry registry = ObservationRegistry.create();
+        List<ToolCallingObservationContext> observed = new CopyOnWriteArrayList<>();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+
+            @Override
+            public void onStop(Observation.Context context) {
+                if (context instanceof ToolCallingObservationContext toolContext) {
+                    observed.add(toolContext);
+                }
+            }
+        });
+        ParallelToolCallingManager manager = ParallelToolCallingManager.builder()
+                .observationRegistry(registry)
+                .build();
+        Observation request = Observation.start("request", registry);
+        try (Observation.Scope scope = request.openScope()) {
+            execute(manager, List.of(sleeping("lookup", 50), sleeping("search", 50)),
+                    List.of(call("1", "lookup", "{}"), call("2", "search", "{}")));
+        }
+        finally {
+            request.stop();
+            manager.close();
+        }
+
+        assertEquals(List.of("lookup", "search"), observed.stream()
+                .map(context -> context.getToolDefinition().name()).sorted().toList());
+        assertTrue(observed.stream().allMatch(context -> context.getParentObservation() == request));
+        assertTrue(observed.stream().allMatch(context -> context.getToolCallResult().endsWith(" done")));
+    }
+
+    @Test
+    void rejectsUnknownToolsBeforeRunningAny() {
+        ToolCallback lookup = sleeping("lookup", 0);
+        assertThrows(IllegalStateException.class,
+                () -> execute(List.of(lookup), List.of(call("1", "lookup", "{}"), call("2", "missing", "{}"))));
+        assertEquals(0, manager.calls());
+    }
+
+    private List<ToolResponseMessage.ToolResponse> execute(List<ToolCallback> tools,
+            List<AssistantMessage.ToolCall> calls) {
+        return execute(manager, tools, calls);
+    }
+
+    private static List<ToolResponseMessage.ToolResponse> execute(ParallelToolCallingManager manager,
+            List<ToolCallback> tools, List<AssistantMessage.ToolCall> calls) {
+        Prompt prompt = new Prompt("question", ToolCallingChatOptions.builder().toolCallbacks(tools).build());
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("", Map.of(),
+                calls))));
+        ToolExecutionResult result = manager.executeToolCalls(prompt, response);
+        List<?> history = result.conversationHistory();
+        return ((ToolResponseMessage) history.get(history.size() - 1)).getResponses();
+    }
+
+    private static AssistantMessage.ToolCall call(String id, String name, String arguments) {
+        return new AssistantMessage.ToolCall(id, "function", name, arguments);
+    }
+
+    private static ToolCallback sleeping(String name, long millis) {
+        return tool(name, () -> Thread.sleep(millis));
+    }
+
+    /** Tool that signals {@code started}, waits for every other tool counted by it, then sleeps. */
+    private static ToolCallback concurrent(String name, CountDownLatch started, long millis) {
+        return tool(name, () -> {
+            started.countDown();
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException(name + " ran while the other tools were not running");
+            }
+            Thread.sleep(millis);
+        });
+    }
+
+    private static ToolCallback tool(String name, Body body) {
+        ToolDefinition definition = ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String arguments) {
+                try {
+                    body.run();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return name + " done";
+            }
+        };
+    }
+
+    private interface Body {
+
+        void run() throws InterruptedException;
+    }
+}
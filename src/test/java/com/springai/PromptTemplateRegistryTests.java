@@ -0,0 +1,126 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that compiled prompt templates render what StringTemplate renders, that bad templates
+ * fail when the registry is built, and compares allocation per render with Spring AI's
+ * PromptTemplate.
+ */
+class PromptTemplateRegistryTests {
+
+    private static final Map<String, Object> MOVIE_VALUES = Map.of("number", 5, "composer", "John Williams");
+
+    @Test
+    void rendersResourceTemplatesLikeStringTemplate() throws Exception {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:*.st");
+        PromptTemplateRegistry registry = PromptTemplateRegistry.builder()
+                .resources(resources)
+                .expect("movie_prompt", "composer", "number")
+                .build();
+
+        CompiledPromptTemplate movies = registry.get("movie_prompt");
+        assertEquals(List.of("number", "composer"), movies.variables());
+        String expected = new PromptTemplate(new ClassPathResource("movie_prompt.st")).render(MOVIE_VALUES);
+        assertEquals(expected, movies.render(MOVIE_VALUES));
+        assertEquals(expected, registry.render("movie_prompt", MOVIE_VALUES));
+
+        Map<String, Object> values = Map.of("query", "Who wrote Spring?", "question_answer_context", List.of("a", "b"));
+        assertEquals(new PromptTemplate(RetrievedDocumentsAdvisor.PROMPT_TEMPLATE.template()).render(values),
+                RetrievedDocumentsAdvisor.PROMPT_TEMPLATE.render(values));
+        assertEquals(RetrievedDocumentsAdvisor.PROMPT_TEMPLATE.render(values),
+                RetrievedDocumentsAdvisor.PROMPT_TEMPLATE.toPromptTemplate().render(values));
+    }
+
+    @Test
+    void rejectsTemplatesAndValuesThatDoNotFit() {
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplateRegistry.builder()
+                .template("movies", "Tell me {count} movies by {composer}")
+                .expect("movies", "number", "composer")
+                .build());
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplateRegistry.builder()
+                .template("movies", "Tell me {number} movies")
+                .expect("songs", "number")
+                .build());
+        assertThrows(IllegalArgumentException.class, () -> CompiledPromptTemplate.compile("open", "Tell me {number"));
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledPromptTemplate.compile("expression", "Movies by {composer.name}"));
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplateRegistry.builder().build().get("missing"));
+
+        CompiledPromptTemplate template = CompiledPromptTemplate.compile("movies", "{number} movies by {composer}");
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> template.render(Map.of("number", 5)));
+        assertTrue(missing.getMessage().contains("[composer]"));
+
+        assertEquals("{json} stays \\ as is",
+                CompiledPromptTemplate.compile("escaped", "\\{json\\} stays \\ as is").render(Map.of()));
+    }
+
+    @Test
+    void rendersChatClientTemplatesThroughTheRegistry() {
+        PromptTemplateRegistry registry = PromptTemplateRegistry.builder().maxInlineTemplates(1).build();
+        ChatModel echo = prompt -> new ChatResponse(
+                List.of(new Generation(new AssistantMessage(prompt.getContents()))));
+        ChatClient chatClient = ChatClient.builder(echo).defaultTemplateRenderer(registry).build();
+
+        String answer = chatClient.prompt()
+                .user(user -> user.text("Tell me {number} movies by {composer}").params(MOVIE_VALUES))
+                .call()
+                .content();
+        assertEquals("Tell me 5 movies by John Williams", answer);
+
+        // Expressions the compiled templates do not support are left to StringTemplate
+        assertEquals("Movies by John", registry.apply("Movies{if(composer)} by {composer}{endif}",
+                Map.of("composer", "John")));
+    }
+
+    @Test
+    void compiledTemplatesAllocateLessThanStringTemplate() throws Exception {
+        String text = new ClassPathResource("movie_prompt.st").getContentAsString(StandardCharsets.UTF_8);
+        PromptTemplate reused = new PromptTemplate(text);
+        CompiledPromptTemplate compiled = CompiledPromptTemplate.compile("movie_prompt", text);
+
+        // Timings are in PromptRenderingBenchmark (gradle jmh); allocation does not depend on machine load
+        long perCall = allocatedPerRender(() -> new PromptTemplate(text).render(MOVIE_VALUES));
+        long reusedTemplate = allocatedPerRender(() -> reused.render(MOVIE_VALUES));
+        long compiledTemplate = allocatedPerRender(() -> compiled.render(MOVIE_VALUES));
+        System.out.printf("Bytes allocated per render of movie_prompt: %,d new PromptTemplate, %,d reused, "
+                + "%,d compiled%n", perCall, reusedTemplate, compiledTemplate);
+
+        assertTrue(compiledTemplate * 10 < perCall);
+        assertTrue(compiledTemplate < reusedTemplate);
+    }
+
+    /** Bytes allocated by one render, after warming up. */
+    private static long allocatedPerRender(Supplier<String> render) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int iterations = 2_000;
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += render.get().length();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            sink += render.get().length();
+        }
+        assertTrue(sink > 0);
+        return (threads.getCurrentThreadAllocatedBytes() - allocated) / iterations;
+    }
+}
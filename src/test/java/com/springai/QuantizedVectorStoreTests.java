@@ -0,0 +1,222 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the recall of {@link QuantizedVectorStore}, with the results of
+ * {@link SimpleEmbeddingVectorStore} as ground truth.
+ */
+class QuantizedVectorStoreTests {
+
+    private static final int DIMENSIONS = 256;
+
+    private final Random random = new Random(11);
+    private final List<float[]> centroids = new ArrayList<>();
+
+    // Holds the scratch files of the stores
+    @TempDir
+    Path directory;
+
+    @Test
+    void int8RecallAgainstExactSearch() {
+        double recall = recallFor(QuantizedVectorStore.Quantization.INT8, 4);
+        System.out.printf("int8 recall@10 (rerank x4): %.3f%n", recall);
+        assertTrue(recall >= 0.98, "recall@10 was " + recall);
+    }
+
+    @Test
+    void binaryRecallAgainstExactSearch() {
+        double recall = recallFor(QuantizedVectorStore.Quantization.BINARY, 10);
+        System.out.printf("binary recall@10 (rerank x10): %.3f%n", recall);
+        assertTrue(recall >= 0.85, "recall@10 was " + recall);
+    }
+
+    @Test
+    void keepsSearchRequestSemanticsAndExactScores() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(600, 3);
+        List<float[]> embeddings = randomVectors(documents.size());
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+        try (QuantizedVectorStore quantized = QuantizedVectorStore.builder(embeddingModel)
+                .directory(directory)
+                .rerankFactor(8)
+                .build()) {
+            quantized.add(documents, embeddings);
+            embeddingModel.register("query", embeddings.get(5));
+
+            SearchRequest filtered = SearchRequest.builder().query("query").topK(10)
+                    .filterExpression("group == 'group-2'").build();
+            List<Document> expected = exact.similaritySearch(filtered);
+            List<Document> actual = quantized.similaritySearch(filtered);
+            assertEquals(ids(expected), ids(actual));
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-5);
+            }
+
+            SearchRequest thresholded = SearchRequest.builder().query("query").topK(10).similarityThreshold(0.1)
+                    .build();
+            List<Document> aboveThreshold = quantized.similaritySearch(thresholded);
+            assertEquals(documents.get(5).getId(), aboveThreshold.get(0).getId());
+            assertTrue(aboveThreshold.stream().allMatch(d -> d.getScore() >= 0.1));
+
+            quantized.delete(List.of(documents.get(5).getId()));
+            quantized.delete("group == 'group-1'");
+            assertEquals(399, quantized.size());
+            List<Document> afterDelete = quantized.similaritySearch(SearchRequest.builder().query("query").topK(50)
+                    .build());
+            assertTrue(afterDelete.stream().noneMatch(d -> d.getId().equals(documents.get(5).getId())));
+            assertTrue(afterDelete.stream().noneMatch(d -> d.getMetadata().get("group").equals("group-1")));
+        }
+    }
+
+    @Test
+    void readsFullPrecisionVectorsAcrossSegmentsOfTheMappedFile() throws IOException {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(1000, 1);
+        List<float[]> embeddings = randomVectors(documents.size());
+        // 100 vectors per mapped segment
+        QuantizedVectorStore quantized = QuantizedVectorStore.builder(embeddingModel)
+                .directory(directory)
+                .segmentBytes(100L * DIMENSIONS * Float.BYTES)
+                .build();
+        quantized.add(documents, embeddings);
+
+        for (int slot : new int[] {0, 99, 100, 199, 500, 999}) {
+            embeddingModel.register("q" + slot, embeddings.get(slot));
+            Document best = quantized.similaritySearch(SearchRequest.builder().query("q" + slot).topK(1).build())
+                    .get(0);
+            assertEquals(documents.get(slot).getId(), best.getId());
+            assertEquals(1.0, best.getScore(), 1e-5);
+        }
+
+        quantized.close();
+        // Unix unlinks the file as soon as it is opened, other systems on close
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        assertThrows(IllegalStateException.class,
+                () -> quantized.similaritySearch(SearchRequest.builder().query("q0").build()));
+    }
+
+    @Test
+    void scansCodesAcrossBlocks() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(3000, 2);
+        List<float[]> embeddings = randomVectors(documents.size());
+        for (QuantizedVectorStore.Quantization quantization : QuantizedVectorStore.Quantization.values()) {
+            try (QuantizedVectorStore oneBlock = QuantizedVectorStore.builder(embeddingModel)
+                    .directory(directory)
+                    .quantization(quantization)
+                    .build();
+                    // 700 codes per block for int8 and 1000 for binary, so the last block is partly filled
+                    QuantizedVectorStore blocks = QuantizedVectorStore.builder(embeddingModel)
+                            .directory(directory)
+                            .quantization(quantization)
+                            .codeBlockBytes(quantization == QuantizedVectorStore.Quantization.INT8
+                                    ? 700 * DIMENSIONS : 1000 * DIMENSIONS / 8)
+                            .build()) {
+                oneBlock.add(documents, embeddings);
+                blocks.add(documents, embeddings);
+
+                for (int q = 0; q < 20; q++) {
+                    embeddingModel.register("q" + q, randomVector());
+                    SearchRequest request = SearchRequest.builder().query("q" + q).topK(10)
+                            .filterExpression("group == 'group-" + (q % 2) + "'").build();
+                    assertEquals(ids(oneBlock.similaritySearch(request)), ids(blocks.similaritySearch(request)));
+                }
+                embeddingModel.register("last", embeddings.get(2999));
+                assertEquals("doc-2999", blocks.similaritySearch(SearchRequest.builder().query("last").topK(1)
+                        .build()).get(0).getId());
+            }
+        }
+    }
+
+    private double recallFor(QuantizedVectorStore.Quantization quantization, int rerankFactor) {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(5000, 1);
+        List<float[]> embeddings = randomVectors(documents.size());
+        SimpleEmbeddingVectorStore exact = new SimpleEmbeddingVectorStore(embeddingModel);
+        exact.add(documents, embeddings);
+        try (QuantizedVectorStore quantized = QuantizedVectorStore.builder(embeddingModel)
+                .directory(directory)
+                .quantization(quantization)
+                .rerankFactor(rerankFactor)
+                .build()) {
+            quantized.add(documents, embeddings);
+            return recallAt(10, 100, embeddingModel, exact, quantized);
+        }
+    }
+
+    private double recallAt(int k, int queries, StubEmbeddingModel embeddingModel, VectorStore exact,
+            VectorStore approximate) {
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            embeddingModel.register("q" + q, randomVector());
+            SearchRequest request = SearchRequest.builder().query("q" + q).topK(k).build();
+            Set<String> truth = new HashSet<>(ids(exact.similaritySearch(request)));
+            hits += (int) ids(approximate.similaritySearch(request)).stream().filter(truth::contains).count();
+        }
+        return hits / (double) (k * queries);
+    }
+
+    private static List<Document> documents(int count, int groups) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document("doc-" + i, "document " + i,
+                    Map.of("group", "group-" + (i % groups), "rank", i / groups)));
+        }
+        return documents;
+    }
+
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector());
+        }
+        return vectors;
+    }
+
+    /**
+     * Random vector around one of 50 topic centroids: text embeddings are clustered,
+     * which is what makes coarse codes usable as a first pass.
+     */
+    private float[] randomVector() {
+        if (centroids.isEmpty()) {
+            for (int c = 0; c < 50; c++) {
+                float[] centroid = new float[DIMENSIONS];
+                for (int i = 0; i < DIMENSIONS; i++) {
+                    centroid[i] = (float) random.nextGaussian();
+                }
+                centroids.add(centroid);
+            }
+        }
+        float[] centroid = centroids.get(random.nextInt(centroids.size()));
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = centroid[i] + 0.7f * (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
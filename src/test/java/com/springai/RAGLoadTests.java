@@ -0,0 +1,126 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.document.Document;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives thousands of simultaneous conversations through {@link RAGService} against
+ * {@link StubChatModel} with a simulated model latency, and reports throughput and latency.
+ */
+class RAGLoadTests {
+
+    private static final int CONVERSATIONS = 2000;
+    private static final int TURNS = 3;
+    private static final long MODEL_LATENCY_MILLIS = 20;
+
+    @Test
+    void concurrentConversationsKeepTheirOwnMemory() {
+        ChatMemory memory = MessageWindowChatMemory.builder().build();
+        RAGService ragService = newService(memory, MODEL_LATENCY_MILLIS);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        long started = System.nanoTime();
+        List<CompletableFuture<?>> conversations = new ArrayList<>();
+        for (int c = 0; c < CONVERSATIONS; c++) {
+            String conversationId = "conversation-" + c;
+            CompletableFuture<?> turns = CompletableFuture.completedFuture(null);
+            for (int t = 0; t < TURNS; t++) {
+                String question = "In " + conversationId + " turn " + t + " which skills matter?";
+                turns = turns.thenCompose(previous -> {
+                    long asked = System.nanoTime();
+                    return ragService.queryAsync(conversationId, question)
+                            .whenComplete((response, error) -> latencies.add(System.nanoTime() - asked));
+                });
+            }
+            conversations.add(turns);
+        }
+        CompletableFuture.allOf(conversations.toArray(CompletableFuture[]::new)).orTimeout(2, TimeUnit.MINUTES).join();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        ragService.destroy();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d conversations x %d turns on %s: %.0f queries/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                CONVERSATIONS, TURNS, VirtualThreads.available() ? "virtual threads" : "platform threads",
+                sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+
+        assertEquals(CONVERSATIONS * TURNS, sorted.length);
+        for (int c = 0; c < CONVERSATIONS; c += 97) {
+            String conversationId = "conversation-" + c;
+            List<Message> messages = memory.get(conversationId);
+            assertEquals(2 * TURNS, messages.size());
+            for (int t = 0; t < TURNS; t++) {
+                Message question = messages.get(2 * t);
+                assertEquals(MessageType.USER, question.getMessageType());
+                assertEquals("In " + conversationId + " turn " + t + " which skills matter?", question.getText());
+            }
+        }
+    }
+
+    @Test
+    void endpointAnswersWithinConversation() throws Exception {
+        ChatMemory memory = MessageWindowChatMemory.builder().build();
+        RAGService ragService = newService(memory, 0);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new RAGController(ragService)).build();
+
+        MvcResult result = mvc.perform(post("/rag/conversations/alice")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"question\": \"Which skills matter?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.conversationId").value("alice"))
+                .andExpect(jsonPath("$.answer").value("answered 1 messages"));
+        assertEquals(2, memory.get("alice").size());
+        assertTrue(memory.get(ChatMemory.DEFAULT_CONVERSATION_ID).isEmpty());
+
+        mvc.perform(post("/rag/conversations/alice")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"question\": \" \"}"))
+                .andExpect(status().isBadRequest());
+        ragService.destroy();
+    }
+
+    private static RAGService newService(ChatMemory memory, long latencyMillis) {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        SimpleEmbeddingVectorStore vectorStore = new SimpleEmbeddingVectorStore(embeddingModel);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            documents.add(new Document("Chunk " + i + " lists skills such as analytical thinking.", Map.of()));
+        }
+        vectorStore.add(documents);
+        // The answer reveals how much history the model was given
+        StubChatModel chatModel = new StubChatModel(
+                prompt -> "answered " + prompt.getInstructions().size() + " messages", latencyMillis);
+        // No response cache: every query reaches the model
+        return new RAGService(chatModel, vectorStore, memory, null);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
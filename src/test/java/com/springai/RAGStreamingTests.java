@@ -0,0 +1,124 @@
+package com.springai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.document.Document;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the streaming path of {@link RAGService} and the SSE endpoint offline over
+ * {@link StubEmbeddingModel} and {@link StubChatModel}.
+ */
+class RAGStreamingTests {
+
+    private static final String QUESTION = "Which emerging technologies will have the greatest impact?";
+
+    private StubChatModel chatModel;
+    private ChatMemory memory;
+    private RAGService ragService;
+
+    @BeforeEach
+    void setUp() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        SimpleEmbeddingVectorStore vectorStore = new SimpleEmbeddingVectorStore(embeddingModel);
+        vectorStore.add(List.of(
+                new Document("ai", "AI and big data are the emerging technologies with the greatest impact.",
+                        Map.of("source", "wef_jobs_report")),
+                new Document("spring", "Spring Framework 6 requires Java 17.", Map.of("source", "spring_framework"))));
+        chatModel = new StubChatModel(prompt -> "AI and big data lead the list of emerging technologies.", 50);
+        memory = MessageWindowChatMemory.builder().build();
+        SemanticResponseCache cache = SemanticResponseCache.builder(embeddingModel).build();
+        ragService = new RAGService(chatModel, vectorStore, memory, cache);
+    }
+
+    @Test
+    void retrievedDocumentsComeBeforeTheFirstToken() {
+        List<ChatResponse> responses = ragService.stream(QUESTION).collectList().block(Duration.ofSeconds(10));
+
+        ChatResponse first = responses.get(0);
+        assertTrue(first.getResults().isEmpty());
+        List<Document> documents = first.getMetadata().get(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS);
+        assertEquals("ai", documents.get(0).getId());
+
+        StringBuilder answer = new StringBuilder();
+        responses.subList(1, responses.size()).forEach(r -> answer.append(r.getResult().getOutput().getText()));
+        assertEquals("AI and big data lead the list of emerging technologies.", answer.toString());
+        assertTrue(responses.size() > 3, "answer was not streamed in chunks");
+
+        // The model saw the retrieved context, the conversation only the plain question and full answer
+        assertTrue(chatModel.prompts.get(0).getUserMessage().getText().contains("AI and big data are the emerging"));
+        List<Message> conversation = memory.get(ChatMemory.DEFAULT_CONVERSATION_ID);
+        assertEquals(2, conversation.size());
+        assertEquals(MessageType.USER, conversation.get(0).getMessageType());
+        assertEquals(QUESTION, conversation.get(0).getText());
+        assertEquals(answer.toString(), conversation.get(1).getText());
+    }
+
+    @Test
+    void streamedAnswersAreCached() {
+        ragService.stream("alice", QUESTION).blockLast(Duration.ofSeconds(10));
+        List<ChatResponse> cached = ragService.stream("bob", QUESTION).collectList().block(Duration.ofSeconds(10));
+
+        assertEquals(1, chatModel.calls.get());
+        assertEquals(2, cached.size());
+        List<Document> documents = cached.get(0).getMetadata().get(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS);
+        assertEquals("ai", documents.get(0).getId());
+        assertEquals("AI and big data lead the list of emerging technologies.",
+                cached.get(1).getResult().getOutput().getText());
+    }
+
+    @Test
+    void streamAndQueryOfOneConversationTakeTurns() throws Exception {
+        Flux<ChatResponse> stream = ragService.stream("alice", QUESTION);
+        CompletableFuture<List<ChatResponse>> streamed = stream.collectList().toFuture();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (chatModel.calls.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        // Waits for the stream, then sees its whole exchange in the history
+        ragService.query("alice", "Which one comes second?");
+        streamed.get(10, TimeUnit.SECONDS);
+
+        List<String> conversation = memory.get("alice").stream().map(Message::getText).toList();
+        assertEquals(List.of(QUESTION, "AI and big data lead the list of emerging technologies.",
+                "Which one comes second?", "AI and big data lead the list of emerging technologies."), conversation);
+        assertEquals(3, chatModel.prompts.get(1).getInstructions().size());
+    }
+
+    @Test
+    void endpointStreamsServerSentEvents() throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new RAGController(ragService)).build();
+        MvcResult result = mvc.perform(get("/rag/stream").param("question", QUESTION))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        String body = result.getResponse().getContentAsString();
+        System.out.println(body);
+        assertTrue(body.startsWith("event:documents\ndata:[{\"id\":\"ai\""), body);
+        assertTrue(body.contains("event:token\ndata:{\"text\":\" big\"}"), body);
+        assertTrue(body.endsWith("event:done\ndata:\n\n"), body);
+    }
+}
@@ -0,0 +1,286 @@
+package com.springai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes between {@link StubChatModel}s with different latencies and failure behaviour.
+ */
+class RoutingChatModelTests {
+
+    @Test
+    void latencyPolicyPrefersFastestBackend() {
+        StubChatModel slow = new StubChatModel(prompt -> "slow answer", 40);
+        StubChatModel fast = new StubChatModel(prompt -> "fast answer from the quick backend", 5);
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("slow", slow)
+                .backend("fast", fast)
+                .policy(RoutingChatModel.Policy.LATENCY)
+                .explorationRate(0)
+                .build();
+
+        for (int i = 0; i < 30; i++) {
+            router.call(new Prompt("Which skills matter?"));
+        }
+
+        // Each backend is sampled once, after that the fast one gets everything
+        assertEquals(1, slow.calls.get());
+        assertEquals(29, fast.calls.get());
+        RoutingChatModel.BackendStats slowStats = router.stats().get(0);
+        RoutingChatModel.BackendStats fastStats = router.stats().get(1);
+        System.out.println(slowStats + "\n" + fastStats);
+        assertTrue(slowStats.meanLatencyMillis() > fastStats.meanLatencyMillis());
+        // 6 words in about 5 ms
+        assertTrue(fastStats.tokensPerSecond() > 100, fastStats.toString());
+        assertEquals(29, fastStats.routed());
+    }
+
+    @Test
+    void failsOverAndAvoidsFailingBackend() {
+        StubChatModel primary = new StubChatModel(prompt -> {
+            throw new IllegalStateException("429 Too Many Requests");
+        }, 0);
+        StubChatModel secondary = new StubChatModel();
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("primary", primary)
+                .backend("secondary", secondary)
+                .policy(RoutingChatModel.Policy.FAILOVER)
+                .explorationRate(0)
+                .build();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        router.bindTo(registry);
+
+        for (int i = 0; i < 20; i++) {
+            ChatResponse response = router.call(new Prompt("question " + i));
+            assertEquals("answer question " + i, response.getResult().getOutput().getText());
+        }
+
+        // After its first failure the primary exceeds the error rate and is not tried again
+        assertEquals(1, primary.calls.get());
+        assertEquals(1.0, router.stats().get(0).errorRate());
+        assertEquals(1, registry.get("chat.router.failovers").tag("backend", "primary").functionCounter().count());
+        assertEquals(1, registry.get("chat.router.decisions").tag("backend", "primary").functionCounter().count());
+        assertEquals(19, registry.get("chat.router.decisions").tag("backend", "secondary").functionCounter().count());
+        assertEquals(1.0, registry.get("chat.router.error.rate").tag("backend", "primary").gauge().value());
+    }
+
+    @Test
+    void weightedPolicySplitsTrafficByWeight() {
+        StubChatModel heavy = new StubChatModel();
+        StubChatModel light = new StubChatModel();
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("heavy", heavy, 3)
+                .backend("light", light, 1)
+                .policy(RoutingChatModel.Policy.WEIGHTED)
+                .build();
+
+        for (int i = 0; i < 4000; i++) {
+            router.call(new Prompt("question"));
+        }
+
+        double share = heavy.calls.get() / 4000.0;
+        assertEquals(0.75, share, 0.05);
+        assertEquals(4000, heavy.calls.get() + light.calls.get());
+    }
+
+    @Test
+    void streamFailsOverBeforeFirstChunk() {
+        StubChatModel broken = new StubChatModel(prompt -> {
+            throw new IllegalStateException("connection reset");
+        }, 0);
+        StubChatModel working = new StubChatModel();
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("broken", broken)
+                .backend("working", working)
+                .policy(RoutingChatModel.Policy.FAILOVER)
+                .build();
+
+        String answer = router.stream(new Prompt("Which skills matter?"))
+                .map(response -> response.getResult().getOutput().getText())
+                .collect(Collectors.joining())
+                .block();
+        assertEquals("answer Which skills matter?", answer);
+        assertEquals(1, router.stats().get(0).failovers());
+
+        // With every backend failing the first error surfaces, the others attached to it
+        RoutingChatModel allBroken = RoutingChatModel.builder()
+                .backend("a", broken)
+                .backend("b", broken)
+                .build();
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> allBroken.call(new Prompt("question")));
+        assertEquals(1, error.getSuppressed().length);
+    }
+
+    @Test
+    void chatClientToolsReachTheBackend() {
+        StubChatModel backend = new StubChatModel();
+        RoutingChatModel router = RoutingChatModel.builder().backend("only", backend).build();
+
+        ChatClient.create(router).prompt("What time is it?").tools(new ClockTools()).call().content();
+
+        // ChatClient drops its tools unless the default options of the model can carry them
+        ToolCallingChatOptions options = assertInstanceOf(ToolCallingChatOptions.class,
+                backend.prompts.get(0).getOptions());
+        assertEquals(List.of("currentTime"),
+                options.getToolCallbacks().stream().map(tool -> tool.getToolDefinition().name()).toList());
+    }
+
+    @Test
+    void doesNotHedgePromptsWithTools() {
+        // Stalls far beyond the hedge delay: for a while with tools, until cancelled without
+        StubChatModel primary = new StubChatModel(prompt -> {
+            try {
+                Thread.sleep(prompt.getOptions() instanceof ToolCallingChatOptions ? 200 : 60_000);
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException("cancelled");
+            }
+            return "primary";
+        }, 0);
+        StubChatModel secondary = new StubChatModel(prompt -> "secondary", 0);
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("primary", primary)
+                .backend("secondary", secondary)
+                .policy(RoutingChatModel.Policy.FAILOVER)
+                .hedging(true)
+                .hedgeDelay(Duration.ofMillis(1), Duration.ofMillis(1))
+                .build();
+        try {
+            // A duplicate would run the backend's tool calls a second time
+            String answer = ChatClient.create(router).prompt("What time is it?").tools(new ClockTools()).call()
+                    .content();
+            assertEquals("primary", answer);
+            assertEquals(0, secondary.calls.get());
+            assertEquals(new RoutingChatModel.HedgeStats(0, 0), router.hedgeStats());
+
+            // The same stall without tools is hedged
+            assertEquals("secondary", router.call(new Prompt("question")).getResult().getOutput().getText());
+            assertEquals(new RoutingChatModel.HedgeStats(1, 1), router.hedgeStats());
+        }
+        finally {
+            router.close();
+        }
+    }
+
+    static class ClockTools {
+
+        @Tool(description = "Current time of day")
+        String currentTime() {
+            return "noon";
+        }
+    }
+
+    @Test
+    void openCircuitStopsTrafficUntilProbeSucceeds() {
+        MutableClock clock = new MutableClock();
+        AtomicBoolean down = new AtomicBoolean(true);
+        StubChatModel flaky = new StubChatModel(prompt -> {
+            if (down.get()) {
+                throw new IllegalStateException("503 Service Unavailable");
+            }
+            return "flaky answer";
+        }, 0);
+        StubChatModel backup = new StubChatModel();
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("flaky", flaky)
+                .backend("backup", backup)
+                .policy(RoutingChatModel.Policy.FAILOVER)
+                // Only the circuit breaker keeps traffic away
+                .maxErrorRate(1)
+                .failureThreshold(3)
+                .openDuration(Duration.ofMinutes(1))
+                .clock(clock)
+                .build();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        router.bindTo(registry);
+
+        for (int i = 0; i < 10; i++) {
+            router.call(new Prompt("question"));
+        }
+        assertEquals(3, flaky.calls.get());
+        assertEquals(10, backup.calls.get());
+        assertEquals(1.0, registry.get("chat.router.circuit.open").tag("backend", "flaky").gauge().value());
+
+        // After the open period one probe goes through, and its success closes the circuit
+        down.set(false);
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals("flaky answer", router.call(new Prompt("question")).getResult().getOutput().getText());
+        assertEquals(CircuitBreaker.State.CLOSED, router.stats().get(0).circuit());
+        assertEquals(0.0, registry.get("chat.router.circuit.open").tag("backend", "flaky").gauge().value());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void hedgingCutsTailLatency() {
+        long[] plain = latencies(false);
+        long[] hedged = latencies(true);
+        System.out.printf("p50/p99/max without hedging: %d/%d/%d ms, with hedging: %d/%d/%d ms%n",
+                percentile(plain, 0.5), percentile(plain, 0.99), plain[plain.length - 1],
+                percentile(hedged, 0.5), percentile(hedged, 0.99), hedged[hedged.length - 1]);
+        assertTrue(percentile(hedged, 0.99) * 3 < percentile(plain, 0.99),
+                Arrays.toString(Arrays.copyOfRange(hedged, hedged.length - 5, hedged.length)));
+    }
+
+    /** Sorted latencies of 200 calls to a router whose primary stalls for 300 ms on every 33rd call. */
+    private static long[] latencies(boolean hedging) {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        StubChatModel primary = new StubChatModel(prompt -> {
+            if (calls.incrementAndGet() % 33 == 0) {
+                try {
+                    Thread.sleep(300);
+                }
+                catch (InterruptedException e) {
+                    cancelled.incrementAndGet();
+                    throw new IllegalStateException("cancelled");
+                }
+            }
+            return "primary";
+        }, 10);
+        StubChatModel secondary = new StubChatModel(prompt -> "secondary", 10);
+        RoutingChatModel router = RoutingChatModel.builder()
+                .backend("primary", primary)
+                .backend("secondary", secondary)
+                .policy(RoutingChatModel.Policy.FAILOVER)
+                .hedging(hedging)
+                .hedgeDelay(Duration.ofMillis(20), Duration.ofSeconds(1))
+                .build();
+
+        long[] latencies = new long[200];
+        for (int i = 0; i < latencies.length; i++) {
+            long started = System.nanoTime();
+            router.call(new Prompt("question " + i));
+            latencies[i] = (System.nanoTime() - started) / 1_000_000;
+        }
+        router.close();
+        if (hedging) {
+            RoutingChatModel.HedgeStats stats = router.hedgeStats();
+            System.out.println(stats + ", cancelled primary calls: " + cancelled.get());
+            // Every stall after the first 10 samples is hedged, won by the secondary and cancelled
+            assertTrue(stats.won() >= 5, stats.toString());
+            assertTrue(cancelled.get() >= 5, "cancelled " + cancelled.get());
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+}
@@ -0,0 +1,125 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link SemanticResponseCache} offline over {@link StubEmbeddingModel} and {@link StubChatModel}.
+ */
+class SemanticResponseCacheTests {
+
+    private static final String QUESTION = "What are the top skills employers will prioritize by 2027?";
+
+    @Test
+    void paraphrasesAreAnsweredWithoutRetrievalOrLlmCall() {
+        StubChatModel chatModel = new StubChatModel();
+        ChatMemory memory = MessageWindowChatMemory.builder().build();
+        SemanticResponseCache cache = newCache();
+        RAGService ragService = newService(chatModel, memory, cache);
+
+        String answer = ragService.query("alice", QUESTION);
+        assertEquals(answer, ragService.query("bob", "By 2027, what are the top skills employers will prioritize?"));
+        assertEquals(answer, ragService.query("carol", "What top skills will employers prioritize by 2027?"));
+        assertEquals(1, chatModel.calls.get());
+
+        ragService.query("dave", "How are remote work patterns expected to evolve?");
+        assertEquals(2, chatModel.calls.get());
+
+        // Cached answers still become part of the conversation
+        assertEquals(2, memory.get("bob").size());
+        SemanticResponseCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    void answersShapedByAConversationStayInIt() {
+        StubChatModel chatModel = new StubChatModel();
+        ChatMemory memory = MessageWindowChatMemory.builder().build();
+        SemanticResponseCache cache = newCache();
+        RAGService ragService = newService(chatModel, memory, cache);
+
+        ragService.query("alice", QUESTION);
+        ragService.query("alice", "And the second one?");
+        // The same words open another conversation, where they mean something else
+        ragService.query("bob", "And the second one?");
+        // A first question without history is still shared
+        ragService.query("carol", QUESTION);
+
+        assertEquals(3, chatModel.calls.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(2, cache.stats().size());
+        List<Message> bobPrompt = chatModel.prompts.get(2).getInstructions();
+        assertTrue(bobPrompt.stream().noneMatch(message -> message.getText().contains(QUESTION)));
+        assertEquals(2, memory.get("bob").size());
+    }
+
+    @Test
+    void entriesExpireAndLeastRecentlyUsedAreEvicted() {
+        MutableClock clock = new MutableClock();
+        SemanticResponseCache cache = SemanticResponseCache.builder(new StubEmbeddingModel())
+                .timeToLive(Duration.ofMinutes(10))
+                .maxEntries(2)
+                .clock(clock)
+                .build();
+        answer(cache, "alpha question");
+        answer(cache, "beta question");
+        assertTrue(cache.lookup("alpha question").hit());
+        answer(cache, "gamma question"); // evicts beta, the least recently used
+        assertFalse(cache.lookup("beta question").hit());
+        assertTrue(cache.lookup("gamma question").hit());
+
+        clock.advance(Duration.ofMinutes(11));
+        assertFalse(cache.lookup("alpha question").hit());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void vectorStoreChangesInvalidateEverythingIncludingAnswersInFlight() {
+        SemanticResponseCache cache = SemanticResponseCache.builder(new StubEmbeddingModel()).build();
+        answer(cache, QUESTION);
+        SemanticResponseCache.Lookup inFlight = cache.lookup("How do projections differ between economies?");
+
+        cache.onVectorStoreChanged(new VectorStoreChangedEvent(12, 3));
+        assertFalse(cache.lookup(QUESTION).hit());
+
+        // Computed from the old store content, so it must not be stored
+        cache.put(inFlight, response("stale"));
+        assertFalse(cache.lookup("How do projections differ between economies?").hit());
+        assertEquals(1, cache.stats().invalidations());
+    }
+
+    private static SemanticResponseCache newCache() {
+        // Bag-of-words stub embeddings score paraphrases lower than real embedding models do
+        return SemanticResponseCache.builder(new StubEmbeddingModel()).similarityThreshold(0.8).build();
+    }
+
+    private static RAGService newService(StubChatModel chatModel, ChatMemory memory, SemanticResponseCache cache) {
+        SimpleEmbeddingVectorStore vectorStore = new SimpleEmbeddingVectorStore(new StubEmbeddingModel());
+        vectorStore.add(List.of(new Document("Analytical thinking stays the top skill employers prioritize.", Map.of())));
+        return new RAGService(chatModel, vectorStore, memory, cache);
+    }
+
+    private static void answer(SemanticResponseCache cache, String question) {
+        SemanticResponseCache.Lookup lookup = cache.lookup(question);
+        assertFalse(lookup.hit());
+        cache.put(lookup, response("answer to " + question));
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,121 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the Vector API kernel computes the same values as the scalar one.
+ */
+class SimilarityKernelTests {
+
+    private final Random random = new Random(3);
+    private final SimilarityKernel scalar = new ScalarSimilarityKernel();
+    private final SimilarityKernel simd = new VectorApiSimilarityKernel();
+
+    @Test
+    void selectsVectorApiKernelWhenModuleIsPresent() {
+        // The test JVM runs with --add-modules jdk.incubator.vector
+        assertInstanceOf(VectorApiSimilarityKernel.class, SimilarityKernel.get());
+    }
+
+    @Test
+    void selectedKernelScoresMappedAndHeapBuffers() {
+        // The buffer methods serve the mmap and quantized stores, on whatever JVM runs the tests
+        SimilarityKernel kernel = SimilarityKernel.get();
+        int dimensions = 100;
+        int count = 7;
+        float[] query = randomVector(dimensions);
+        float[] block = randomVector(count * dimensions);
+        float[] expected = new float[count];
+        scalar.dot(query, block, 0, dimensions, count, expected);
+        for (ByteBuffer buffer : new ByteBuffer[] {
+                ByteBuffer.allocateDirect(block.length * Float.BYTES).order(ByteOrder.nativeOrder()),
+                ByteBuffer.allocate(block.length * Float.BYTES).order(ByteOrder.nativeOrder()) }) {
+            buffer.asFloatBuffer().put(block);
+            float[] scores = new float[count];
+            kernel.dot(query, buffer, 0, dimensions * Float.BYTES, count, scores);
+            for (int v = 0; v < count; v++) {
+                assertEquals(expected[v], scores[v], 1e-3f);
+                assertEquals(expected[v], kernel.dot(query, buffer, v * dimensions * Float.BYTES), 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    void kernelsAgreeOnSingleVectors() {
+        // Lengths that are not a multiple of any SIMD width exercise the scalar tail
+        for (int length : new int[] { 1, 7, 64, 100, 1536 }) {
+            float[] a = randomVector(length);
+            float[] b = randomVector(length);
+            float tolerance = 1e-4f * length;
+            assertEquals(scalar.dot(a, b), simd.dot(a, b), tolerance);
+            assertEquals(scalar.cosine(a, b), simd.cosine(a, b), 1e-5f);
+            assertEquals(scalar.squaredDistance(a, b), simd.squaredDistance(a, b), tolerance);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect((length + 3) * Float.BYTES).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < length; i++) {
+                buffer.putFloat(12 + i * Float.BYTES, b[i]);
+            }
+            assertEquals(scalar.dot(a, b), simd.dot(a, buffer, 12), tolerance);
+            assertEquals(scalar.dot(a, b), scalar.dot(a, buffer, 12), tolerance);
+        }
+        assertEquals(0f, simd.cosine(new float[8], randomVector(8)));
+    }
+
+    @Test
+    void kernelsAgreeOnBlocks() {
+        int dimensions = 100;
+        int count = 23;
+        int stride = dimensions + 6;
+        float[] query = randomVector(dimensions);
+        float[] block = randomVector(5 + count * stride);
+        ByteBuffer buffer = ByteBuffer.allocate(block.length * Float.BYTES).order(ByteOrder.nativeOrder());
+        buffer.asFloatBuffer().put(block);
+
+        float[] expected = new float[count];
+        float[] actual = new float[count];
+        float[] fromBuffer = new float[count];
+        scalar.dot(query, block, 5, stride, count, expected);
+        simd.dot(query, block, 5, stride, count, actual);
+        simd.dot(query, buffer, 5 * Float.BYTES, stride * Float.BYTES, count, fromBuffer);
+        for (int v = 0; v < count; v++) {
+            float single = scalar.dot(query, Arrays.copyOfRange(block, 5 + v * stride, 5 + v * stride + dimensions));
+            assertEquals(single, expected[v], 1e-6f);
+            assertEquals(expected[v], actual[v], 1e-3f);
+            assertEquals(expected[v], fromBuffer[v], 1e-3f);
+        }
+    }
+
+    @Test
+    void kernelsAgreeOnInt8Codes() {
+        for (int length : new int[] { 1, 7, 64, 100, 1536 }) {
+            byte[] a = new byte[length + 3];
+            byte[] b = new byte[length + 5];
+            random.nextBytes(a);
+            random.nextBytes(b);
+            int expected = 0;
+            for (int i = 0; i < length; i++) {
+                expected += a[3 + i] * b[5 + i];
+            }
+            assertEquals(expected, scalar.dot(a, 3, b, 5, length));
+            assertEquals(expected, simd.dot(a, 3, b, 5, length));
+        }
+        byte[] extreme = new byte[1536];
+        Arrays.fill(extreme, Byte.MIN_VALUE);
+        assertEquals(1536 * 128 * 128, simd.dot(extreme, 0, extreme, 0, extreme.length));
+    }
+
+    private float[] randomVector(int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
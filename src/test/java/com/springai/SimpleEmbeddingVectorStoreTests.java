@@ -0,0 +1,81 @@
+package com.springai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the kernel-based search of {@link SimpleEmbeddingVectorStore}, the reference the
+ * approximate stores are measured against, returns what Spring AI's own SimpleVectorStore returns.
+ */
+class SimpleEmbeddingVectorStoreTests {
+
+    private static final int DIMENSIONS = 64;
+
+    private final Random random = new Random(5);
+
+    @Test
+    void matchesSimpleVectorStore() {
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel(DIMENSIONS, 0);
+        List<Document> documents = documents(500, 5);
+        List<float[]> embeddings = new ArrayList<>();
+        for (Document document : documents) {
+            float[] vector = randomVector();
+            embeddings.add(vector);
+            // SimpleVectorStore embeds the documents itself, so both stores see the same vectors
+            embeddingModel.register(document.getText(), vector);
+            embeddingModel.register(document.getFormattedContent(MetadataMode.EMBED), vector);
+        }
+        SimpleVectorStore reference = SimpleVectorStore.builder(embeddingModel).build();
+        reference.add(documents);
+        SimpleEmbeddingVectorStore store = new SimpleEmbeddingVectorStore(embeddingModel);
+        store.add(documents, embeddings);
+        embeddingModel.register("query", embeddings.get(3));
+
+        for (SearchRequest request : List.of(
+                SearchRequest.builder().query("query").topK(10).build(),
+                SearchRequest.builder().query("query").topK(500).similarityThreshold(0.2).build(),
+                SearchRequest.builder().query("query").topK(20).filterExpression("group == 'group-1' && rank >= 10")
+                        .build())) {
+            List<Document> expected = reference.similaritySearch(request);
+            List<Document> actual = store.similaritySearch(request);
+            assertFalse(expected.isEmpty());
+            assertEquals(ids(expected), ids(actual), request.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-5);
+                assertEquals(expected.get(i).getText(), actual.get(i).getText());
+                assertEquals(expected.get(i).getMetadata(), actual.get(i).getMetadata());
+            }
+        }
+    }
+
+    private static List<Document> documents(int count, int groups) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new Document("doc-" + i, "document " + i,
+                    Map.of("group", "group-" + (i % groups), "rank", i / groups)));
+        }
+        return documents;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
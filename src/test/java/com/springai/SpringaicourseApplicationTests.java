@@ -1,11 +1,30 @@
 package com.springai;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 @SpringBootTest
 class SpringaicourseApplicationTests {
     @Test
     void contextLoads() {
     }
+
+    @Test
+    void publishesRoutingMetrics(@Autowired MeterRegistry registry) {
+        // The primary chat model is a RoutingChatModel, bound as a MeterBinder bean
+        assertFalse(registry.find("chat.router.decisions").tag("backend", "openai").meters().isEmpty());
+        assertFalse(registry.find("chat.router.circuit.open").meters().isEmpty());
+        assertFalse(registry.find("model.scheduler.granted").meters().isEmpty());
+    }
+
+    @Test
+    void publishesEmbeddingCacheMetrics(@Autowired MeterRegistry registry) {
+        // The primary embedding model is a CachingEmbeddingModel, bound as a MeterBinder bean
+        assertFalse(registry.find("embedding.cache.requests").tag("result", "miss").meters().isEmpty());
+        assertFalse(registry.find("embedding.cache.requests").tag("result", "memory-hit").meters().isEmpty());
+    }
 }
@@ -0,0 +1,126 @@
+package com.springai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Feeds {@link StreamingEntityParser} model output split into chunks at every possible position
+ * and checks that each element comes out as soon as its object is closed.
+ */
+class StreamingEntityParserTests {
+
+    private static final List<ActorFilms> FILMOGRAPHIES = List.of(
+            new ActorFilms("Tom Hanks", List.of("Big", "Cast Away", "Sully")),
+            new ActorFilms("Audrey Tautou", List.of("Le Fabuleux Destin d'Amélie Poulain", "Coco avant Chanel")),
+            new ActorFilms("Bill \"The Murr\" Murray", List.of("Groundhog Day", "Lost in Translation\n")));
+
+    private final StreamingEntityParser<ActorFilms> parser = StreamingEntityParser.of(ActorFilms.class);
+
+    @Test
+    void emitsEachElementAsSoonAsItsObjectCloses() {
+        TestPublisher<String> tokens = TestPublisher.create();
+        StepVerifier.create(parser.parse(tokens.flux()))
+                .then(() -> tokens.next("```json\n[{\"actor\": \"Tom Hanks\", \"mov", "ies\": [\"Big\"]"))
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> tokens.next("}", ", {\"actor\": \"Bill Murray\""))
+                .expectNext(new ActorFilms("Tom Hanks", List.of("Big")))
+                .then(() -> tokens.next(", \"movies\": []}]\n```\nEnjoy!"))
+                .expectNext(new ActorFilms("Bill Murray", List.of()))
+                .then(tokens::complete)
+                .verifyComplete();
+    }
+
+    @Test
+    void ignoresPropertiesTheElementTypeDoesNotHave() {
+        StepVerifier.create(parser.parse(Flux.just("[{\"actor\": \"Tom Hanks\", \"born\": 1956, ",
+                        "\"movies\": [\"Big\"]}]")))
+                .expectNext(new ActorFilms("Tom Hanks", List.of("Big")))
+                .verifyComplete();
+    }
+
+    @Test
+    void parsesElementsSplitAnywhere() throws Exception {
+        String json = "Here you go:\n```json\n" + new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValueAsString(FILMOGRAPHIES) + "\n```";
+        for (int split = 0; split <= json.length(); split++) {
+            List<ActorFilms> parsed = parser.parse(Flux.just(json.substring(0, split), json.substring(split)))
+                    .collectList()
+                    .block();
+            assertEquals(FILMOGRAPHIES, parsed, "split at " + split);
+        }
+        List<String> characters = json.chars().mapToObj(c -> String.valueOf((char) c)).toList();
+        assertEquals(FILMOGRAPHIES, parser.parse(Flux.fromIterable(characters)).collectList().block());
+    }
+
+    @Test
+    void failsOnOutputThatIsNotACompleteArray() {
+        StepVerifier.create(parser.parse(Flux.just("[{\"actor\": }]")))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(parser.parse(Flux.just("[{\"actor\": \"Tom Hanks\", \"movies\": []}, {\"actor\"")))
+                .expectNext(new ActorFilms("Tom Hanks", List.of()))
+                .verifyErrorMessage("Model output ended inside the JSON array");
+        StepVerifier.create(parser.parse(Flux.just("Sorry, I ", "don't know.")))
+                .verifyErrorMessage("Model output contained no JSON array");
+    }
+
+    @Test
+    void streamsFromChatClientLongBeforeTheModelFinishes() throws Exception {
+        List<ActorFilms> filmographies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            filmographies.add(new ActorFilms("Actor " + i, List.of("Film " + i + "a", "Film " + i + "b")));
+        }
+        String answer = new ObjectMapper().writeValueAsString(filmographies);
+        // About 4 characters per token, like a real model
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < answer.length(); i += 4) {
+            chunks.add(answer.substring(i, Math.min(answer.length(), i + 4)));
+        }
+        List<Prompt> prompts = new CopyOnWriteArrayList<>();
+        AtomicInteger chunksEmitted = new AtomicInteger();
+        ChatModel model = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                prompts.add(prompt);
+                return Flux.fromIterable(chunks)
+                        .delayElements(Duration.ofMillis(2))
+                        .doOnNext(chunk -> chunksEmitted.incrementAndGet())
+                        .map(chunk -> new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+            }
+        };
+
+        // How many chunks the model had produced when each element came out
+        List<Integer> arrivals = new CopyOnWriteArrayList<>();
+        List<ActorFilms> streamed = parser.stream(ChatClient.create(model), "Filmographies of 20 actors")
+                .doOnNext(films -> arrivals.add(chunksEmitted.get()))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(filmographies, streamed);
+        assertTrue(prompts.get(0).getUserMessage().getText().endsWith(parser.format()));
+        System.out.printf("First of %d elements after %d of %d chunks%n", streamed.size(), arrivals.get(0),
+                chunks.size());
+        assertTrue(arrivals.get(0) < chunks.size() / 4, "first element after " + arrivals.get(0) + " chunks");
+    }
+}
@@ -0,0 +1,78 @@
+package com.springai;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * Offline stand-in for the OpenAI chat model. Answers every prompt with {@code answer(prompt)},
+ * records the prompts it received and can simulate the latency of a remote call. Streaming
+ * emits the answer word by word after the same latency. Non-streaming responses report one
+ * completion token per word.
+ */
+class StubChatModel implements ChatModel {
+
+    private final Function<Prompt, String> answer;
+    private final long latencyMillis;
+    final AtomicInteger calls = new AtomicInteger();
+    final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+
+    StubChatModel() {
+        this(prompt -> "answer " + prompt.getUserMessage().getText(), 0);
+    }
+
+    StubChatModel(Function<Prompt, String> answer, long latencyMillis) {
+        this.answer = answer;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.incrementAndGet();
+        prompts.add(prompt);
+        sleep();
+        String text = answer.apply(prompt);
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .usage(new DefaultUsage(0, text.split(" ").length))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            calls.incrementAndGet();
+            prompts.add(prompt);
+            sleep();
+            // Split before every space so the chunks concatenate back to the answer
+            String[] words = answer.apply(prompt).split("(?= )");
+            return Flux.fromArray(words).map(StubChatModel::response);
+        });
+    }
+
+    private void sleep() {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,97 @@
+package com.springai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Offline stand-in for the OpenAI embedding model.
+ * Embeds text as a normalized bag of hashed words, so texts sharing words are similar,
+ * and can simulate the latency of a remote call.
+ */
+class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final long latencyMillis;
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger texts = new AtomicInteger();
+    private final Map<String, float[]> fixed = new ConcurrentHashMap<>();
+
+    StubEmbeddingModel() {
+        this(64, 0);
+    }
+
+    StubEmbeddingModel(int dimensions, long latencyMillis) {
+        this.dimensions = dimensions;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        calls.incrementAndGet();
+        texts.addAndGet(request.getInstructions().size());
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>();
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(vector(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /** Makes {@code text} embed to exactly {@code vector}. */
+    StubEmbeddingModel register(String text, float[] vector) {
+        fixed.put(text, vector);
+        return this;
+    }
+
+    float[] vector(String text) {
+        float[] registered = fixed.get(text);
+        if (registered != null) {
+            return registered;
+        }
+        float[] vector = new float[dimensions];
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (!word.isEmpty()) {
+                vector[Math.floorMod(word.hashCode(), dimensions)] += 1;
+            }
+        }
+        vector[0] += 0.01f; // never a zero vector
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,172 @@
+package com.springai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Stand-in for an MCP server such as server-filesystem, run as its own process over STDIO.
+ * Arguments: a startup delay in milliseconds, to mimic npx fetching a package, and the number of
+ * tool calls it works on at the same time (default 8). Offers "echo"; "sleep", which answers after
+ * the given number of milliseconds like a slow file system; "cancelled", the number of calls the
+ * client cancelled so far; and "addTool", which registers one more tool and tells the client that
+ * the tool list changed.
+ *
+ * With {@code -Dmcp.stub.barrier=<directory>} and {@code -Dmcp.stub.parties=<n>}, a server only
+ * answers initialize once n servers sharing the directory have received theirs, and fails the
+ * request if that does not happen within 20 seconds.
+ */
+public class StubMcpServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final PrintStream OUT = new PrintStream(new FileOutputStream(FileDescriptor.out), false,
+            StandardCharsets.UTF_8);
+
+    private final List<String> tools = new CopyOnWriteArrayList<>(List.of("echo", "sleep", "cancelled", "addTool"));
+    private final Map<String, Future<?>> running = new ConcurrentHashMap<>();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final ExecutorService workers;
+
+    private StubMcpServer(int workers) {
+        this.workers = Executors.newFixedThreadPool(workers);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Thread.sleep(args.length > 0 ? Long.parseLong(args[0]) : 0);
+        new StubMcpServer(args.length > 1 ? Integer.parseInt(args[1]) : 8).serve();
+        System.exit(0);
+    }
+
+    private void serve() throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            running.values().removeIf(Future::isDone);
+            JsonNode message = MAPPER.readTree(line);
+            JsonNode id = message.get("id");
+            String method = message.path("method").asText();
+            JsonNode params = message.path("params");
+            switch (method) {
+                case "initialize" -> {
+                    if (awaitOtherServers()) {
+                        reply(id, MAPPER.createObjectNode()
+                                .put("protocolVersion", params.path("protocolVersion").asText())
+                                .<ObjectNode>set("capabilities", MAPPER.readTree("{\"tools\": {\"listChanged\": true}}"))
+                                .set("serverInfo", MAPPER.createObjectNode().put("name", "stub").put("version", "1.0")));
+                    }
+                    else {
+                        send(MAPPER.createObjectNode().put("jsonrpc", "2.0").<ObjectNode>set("id", id)
+                                .set("error", MAPPER.createObjectNode().put("code", -32603)
+                                        .put("message", "Other servers were not initialized at the same time")));
+                    }
+                }
+                case "ping" -> reply(id, MAPPER.createObjectNode());
+                case "tools/list" -> {
+                    ArrayNode list = MAPPER.createArrayNode();
+                    for (String tool : tools) {
+                        list.addObject().put("name", tool).put("description", "Stub tool " + tool)
+                                .set("inputSchema", MAPPER.createObjectNode().put("type", "object"));
+                    }
+                    reply(id, MAPPER.createObjectNode().set("tools", list));
+                }
+                case "tools/call" -> {
+                    Future<?> call = workers.submit(() -> {
+                        try {
+                            reply(id, call(params.path("name").asText(), params.path("arguments")));
+                        }
+                        catch (InterruptedException e) {
+                            // Cancelled by the client, which expects no answer
+                        }
+                    });
+                    running.put(id.toString(), call);
+                }
+                case "notifications/cancelled" -> {
+                    Future<?> call = running.remove(params.path("requestId").toString());
+                    if (call != null && !call.isDone()) {
+                        cancelled.incrementAndGet();
+                        call.cancel(true);
+                    }
+                }
+                default -> {
+                    if (id != null && !method.startsWith("notifications/")) {
+                        send(MAPPER.createObjectNode().put("jsonrpc", "2.0").<ObjectNode>set("id", id)
+                                .set("error", MAPPER.createObjectNode().put("code", -32601)
+                                        .put("message", "Method not found: " + method)));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean awaitOtherServers() throws IOException, InterruptedException {
+        String barrier = System.getProperty("mcp.stub.barrier");
+        if (barrier == null) {
+            return true;
+        }
+        Path directory = Path.of(barrier);
+        Files.createFile(directory.resolve(String.valueOf(ProcessHandle.current().pid())));
+        int parties = Integer.getInteger("mcp.stub.parties", 1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (System.nanoTime() < deadline) {
+            try (Stream<Path> arrived = Files.list(directory)) {
+                if (arrived.count() >= parties) {
+                    return true;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private ObjectNode call(String tool, JsonNode arguments) throws InterruptedException {
+        String text = switch (tool) {
+            case "echo" -> arguments.path("text").asText();
+            case "sleep" -> {
+                Thread.sleep(arguments.path("millis").asLong());
+                yield "slept";
+            }
+            case "cancelled" -> String.valueOf(cancelled.get());
+            case "addTool" -> {
+                tools.add(arguments.path("text").asText());
+                send(MAPPER.createObjectNode().put("jsonrpc", "2.0").put("method", "notifications/tools/list_changed"));
+                yield "added " + arguments.path("text").asText();
+            }
+            default -> tools.contains(tool) ? tool : null;
+        };
+        ObjectNode result = MAPPER.createObjectNode();
+        result.putArray("content").addObject().put("type", "text").put("text", text != null ? text : "No tool " + tool);
+        return result.put("isError", text == null);
+    }
+
+    private static void reply(JsonNode id, JsonNode result) {
+        send(MAPPER.createObjectNode().put("jsonrpc", "2.0").<ObjectNode>set("id", id).set("result", result));
+    }
+
+    private static void send(JsonNode message) {
+        synchronized (OUT) {
+            OUT.println(message);
+            OUT.flush();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.springai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the OpenAI API: chat completions plus the files and batches endpoints of
+ * the Batch API. Answers a filmography prompt with an {@link ActorFilms} JSON object for the
+ * actor named in it, after {@code latencyMillis}; actors named "Nobody" get a reply that is not
+ * JSON. A batch completes once it has been polled {@code pollsUntilDone} times.
+ */
+class StubOpenAiServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern ACTOR = Pattern.compile("5 movies for (.+?)\\.");
+
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> batches = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+    final AtomicInteger chatCalls = new AtomicInteger();
+    final AtomicInteger batchesCreated = new AtomicInteger();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    volatile int pollsUntilDone = 2;
+
+    StubOpenAiServer(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(32));
+        server.createContext("/v1/chat/completions", exchange -> handle(exchange, this::chatCompletion));
+        server.createContext("/v1/files", exchange -> handle(exchange, this::files));
+        server.createContext("/v1/batches", exchange -> handle(exchange, this::batches));
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange, String body) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            byte[] response;
+            int status = 200;
+            try {
+                response = handler.handle(exchange, body).getBytes(StandardCharsets.UTF_8);
+            }
+            catch (Exception e) {
+                status = 500;
+                response = String.valueOf(e).getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+
+    private String chatCompletion(HttpExchange exchange, String body) throws Exception {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            chatCalls.incrementAndGet();
+            Thread.sleep(latencyMillis);
+            return completion(MAPPER.readTree(body)).toString();
+        }
+        finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private ObjectNode completion(JsonNode request) throws Exception {
+        String prompt = request.path("messages").path(0).path("content").asText();
+        Matcher matcher = ACTOR.matcher(prompt);
+        String actor = matcher.find() ? matcher.group(1) : "unknown";
+        String content = actor.startsWith("Nobody") ? "I do not know this actor."
+                : MAPPER.writeValueAsString(new ActorFilms(actor, List.of(actor + " I", actor + " II")));
+        ObjectNode completion = MAPPER.createObjectNode()
+                .put("id", "chatcmpl-" + actor.hashCode())
+                .put("object", "chat.completion")
+                .put("created", 0)
+                .put("model", request.path("model").asText());
+        ObjectNode choice = completion.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop");
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        int promptTokens = prompt.split("\\s+").length;
+        int completionTokens = content.split("\\s+").length;
+        completion.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return completion;
+    }
+
+    private String files(HttpExchange exchange, String body) {
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/content")) {
+            return files.get(path.split("/")[3]);
+        }
+        // Multipart upload: the JSONL lines are the part's content
+        StringBuilder jsonl = new StringBuilder();
+        for (String line : body.split("\n")) {
+            if (line.startsWith("{\"custom_id\"")) {
+                jsonl.append(line.strip()).append('\n');
+            }
+        }
+        String id = "file-" + files.size();
+        files.put(id, jsonl.toString());
+        return MAPPER.createObjectNode().put("id", id).put("object", "file").put("purpose", "batch").toString();
+    }
+
+    private String batches(HttpExchange exchange, String body) throws Exception {
+        if (exchange.getRequestMethod().equals("POST")) {
+            String id = "batch-" + batchesCreated.incrementAndGet();
+            ObjectNode batch = MAPPER.createObjectNode().put("id", id).put("object", "batch")
+                    .put("input_file_id", MAPPER.readTree(body).path("input_file_id").asText())
+                    .put("status", "in_progress");
+            batches.put(id, batch);
+            polls.put(id, new AtomicInteger());
+            return batch.toString();
+        }
+        String id = exchange.getRequestURI().getPath().split("/")[3];
+        ObjectNode batch = batches.get(id);
+        synchronized (batch) {
+            boolean done = batch.path("status").asText().equals("completed");
+            if (!done && polls.get(id).incrementAndGet() >= pollsUntilDone) {
+                StringBuilder output = new StringBuilder();
+                for (String line : files.get(batch.path("input_file_id").asText()).split("\n")) {
+                    JsonNode request = MAPPER.readTree(line);
+                    ObjectNode result = MAPPER.createObjectNode()
+                            .put("id", "batch_req_" + output.length())
+                            .put("custom_id", request.path("custom_id").asText());
+                    result.putObject("response").put("status_code", 200)
+                            .set("body", completion(request.path("body")));
+                    result.putNull("error");
+                    output.append(result).append('\n');
+                }
+                String outputId = "file-output-" + id;
+                files.put(outputId, output.toString());
+                batch.put("status", "completed").put("output_file_id", outputId).putNull("error_file_id");
+            }
+            return batch.toString();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.springai;
+
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+/**
+ * Counts one token per word, which keeps token arithmetic in tests obvious.
+ */
+class WordCountEstimator implements TokenCountEstimator {
+
+    @Override
+    public int estimate(String text) {
+        String stripped = text.strip();
+        return stripped.isEmpty() ? 0 : stripped.split("\\s+").length;
+    }
+
+    @Override
+    public int estimate(MediaContent content) {
+        return estimate(content.getText());
+    }
+
+    @Override
+    public int estimate(Iterable<MediaContent> messages) {
+        int total = 0;
+        for (MediaContent message : messages) {
+            total += estimate(message);
+        }
+        return total;
+    }
+}